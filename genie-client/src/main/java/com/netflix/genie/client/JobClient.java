@@ -45,6 +45,10 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,6 +62,8 @@ import java.util.Set;
 public class JobClient extends BaseGenieClient {
 
     private static final String STATUS = "status";
+    // Below the default read timeout so a long poll never times out on the client side
+    private static final long STATUS_WAIT_TIME = 5_000L;
     private static final String ATTACHMENT = "attachment";
     private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
 
@@ -382,6 +388,37 @@ public class JobClient extends BaseGenieClient {
         }
     }
 
+    /**
+     * Method to fetch the statuses of many jobs with a single request.
+     *
+     * @param jobIds The ids of the jobs.
+     * @return The statuses of the jobs keyed by job id. Ids of jobs which don't exist are missing.
+     * @throws GenieClientException If the response recieved is not 2xx.
+     * @throws IOException          For Network and other IO issues.
+     */
+    public Map<String, JobStatus> getJobStatuses(
+        final Collection<String> jobIds
+    ) throws IOException, GenieClientException {
+        if (jobIds == null) {
+            throw new IllegalArgumentException("Missing required parameter: jobIds.");
+        }
+        final Map<String, JobStatus> statuses = new HashMap<>();
+        if (jobIds.isEmpty()) {
+            return statuses;
+        }
+        final JsonNode jsonNode = jobService.getJobStatuses(new HashSet<>(jobIds)).execute().body();
+        final Iterator<Map.Entry<String, JsonNode>> fields = jsonNode.fields();
+        try {
+            while (fields.hasNext()) {
+                final Map.Entry<String, JsonNode> field = fields.next();
+                statuses.put(field.getKey(), JobStatus.parse(field.getValue().asText()));
+            }
+        } catch (GeniePreconditionException ge) {
+            throw new GenieClientException(ge.getMessage());
+        }
+        return statuses;
+    }
+
     /**
      * Method to send a kill job request to Genie.
      *
@@ -446,7 +483,8 @@ public class JobClient extends BaseGenieClient {
     }
 
     /**
-     * Wait for job to complete, until the given timeout.
+     * Wait for job to complete, until the given timeout. Instead of polling the server is asked to answer as soon as
+     * the status of the job changed.
      *
      * @param jobId        the Genie job ID to wait for completion.
      * @param blockTimeout the time to block for (in ms), after which a
@@ -462,7 +500,55 @@ public class JobClient extends BaseGenieClient {
         if (StringUtils.isEmpty(jobId)) {
             throw new IllegalArgumentException("Missing required parameter: jobId.");
         }
-        final long pollTime = 10000L;
-        return waitForCompletion(jobId, blockTimeout, pollTime);
+
+        final long startTime = System.currentTimeMillis();
+        int errorCount = 0;
+        JobStatus status = null;
+
+        // wait for job to finish
+        while (status == null || !status.isFinished()) {
+            final long elapsed = System.currentTimeMillis() - startTime;
+            if (status != null && elapsed >= blockTimeout) {
+                throw new GenieTimeoutException("Timed out waiting for job to finish");
+            }
+            final long waitTime = Math.min(STATUS_WAIT_TIME, Math.max(blockTimeout - elapsed, 1L));
+            final long waitStart = System.currentTimeMillis();
+            try {
+                if (status == null) {
+                    status = this.getJobStatus(jobId);
+                } else {
+                    final JsonNode jsonNode = this.jobService
+                        .waitForJobStatusChange(jobId, status.name(), waitTime)
+                        .execute()
+                        .body();
+                    final JobStatus newStatus = JobStatus.parse(jsonNode.get(STATUS).asText());
+                    if (newStatus == status) {
+                        // Servers which don't know how to wait answer right away. Don't hammer them.
+                        sleepUntil(waitStart + waitTime);
+                    }
+                    status = newStatus;
+                }
+
+                // reset the error count
+                errorCount = 0;
+            } catch (final GeniePreconditionException ge) {
+                throw new GenieClientException(ge.getMessage());
+            } catch (final IOException ioe) {
+                errorCount++;
+                // Ignore for 5 times in a row
+                if (errorCount >= this.maxStatusRetries) {
+                    throw ioe;
+                }
+                sleepUntil(waitStart + waitTime);
+            }
+        }
+        return status;
+    }
+
+    private static void sleepUntil(final long time) throws InterruptedException {
+        final long remaining = time - System.currentTimeMillis();
+        if (remaining > 0) {
+            Thread.sleep(remaining);
+        }
     }
 }
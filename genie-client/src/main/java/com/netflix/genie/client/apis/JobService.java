@@ -150,6 +150,31 @@ public interface JobService {
     @GET(JOBS_URL_SUFFIX + "/{id}/status")
     Call<JsonNode> getJobStatus(@Path("id") final String jobId);
 
+    /**
+     * Method to get the statuses of many jobs at once.
+     *
+     * @param jobIds The ids of the jobs whose statuses are desired.
+     * @return A callable object.
+     */
+    @POST(JOBS_URL_SUFFIX + "/statuses")
+    Call<JsonNode> getJobStatuses(@Body final Set<String> jobIds);
+
+    /**
+     * Method to wait for the status of a job to change. Answered as soon as the status is no longer the given one or
+     * once the wait time passed, whichever comes first.
+     *
+     * @param jobId    The id of the job whose status is desired.
+     * @param status   The status of the job the caller knows about.
+     * @param waitTime The maximum time to wait for a change in milliseconds.
+     * @return A callable object.
+     */
+    @GET(JOBS_URL_SUFFIX + "/{id}/status")
+    Call<JsonNode> waitForJobStatusChange(
+        @Path("id") final String jobId,
+        @Query("waitForChange") final String status,
+        @Query("waitTime") final long waitTime
+    );
+
     /**
      * Method to get the cluster information on which a job is run.
      *
@@ -0,0 +1,90 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The resources observed to be used by all the processes of a running job at a point in time.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class JobResourceUsage implements Serializable {
+
+    private static final long serialVersionUID = 5519476320858614529L;
+
+    private final String id;
+    private final Date sampled;
+    private final int numProcesses;
+    private final int numThreads;
+    private final long cpuTime;
+    private final long rss;
+    private final long peakRss;
+
+    /**
+     * Constructor.
+     *
+     * @param id           The id of the job
+     * @param sampled      The time the usage was sampled
+     * @param numProcesses The number of processes of the job
+     * @param numThreads   The total number of threads of all the processes of the job
+     * @param cpuTime      The CPU time in milliseconds used by the processes of the job since it started
+     * @param rss          The total resident set size in bytes of all the processes of the job
+     * @param peakRss      The highest total resident set size in bytes observed since the job started
+     */
+    @JsonCreator
+    public JobResourceUsage(
+        @NotBlank @JsonProperty("id") final String id,
+        @NotNull @JsonProperty("sampled") final Date sampled,
+        @JsonProperty("numProcesses") final int numProcesses,
+        @JsonProperty("numThreads") final int numThreads,
+        @JsonProperty("cpuTime") final long cpuTime,
+        @JsonProperty("rss") final long rss,
+        @JsonProperty("peakRss") final long peakRss
+    ) {
+        this.id = id;
+        this.sampled = new Date(sampled.getTime());
+        this.numProcesses = numProcesses;
+        this.numThreads = numThreads;
+        this.cpuTime = cpuTime;
+        this.rss = rss;
+        this.peakRss = peakRss;
+    }
+
+    /**
+     * Get the time the usage was sampled.
+     *
+     * @return The sample time
+     */
+    public Date getSampled() {
+        return new Date(this.sampled.getTime());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.common.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tests for the JobResourceUsage DTO.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobResourceUsageUnitTests {
+
+    /**
+     * Make sure the constructor sets all the values.
+     */
+    @Test
+    public void canConstruct() {
+        final String id = UUID.randomUUID().toString();
+        final Date sampled = new Date();
+        final JobResourceUsage usage = new JobResourceUsage(id, sampled, 3, 42, 12_345L, 1_048_576L, 2_097_152L);
+
+        Assert.assertThat(usage.getId(), Matchers.is(id));
+        Assert.assertThat(usage.getSampled(), Matchers.is(sampled));
+        Assert.assertThat(usage.getNumProcesses(), Matchers.is(3));
+        Assert.assertThat(usage.getNumThreads(), Matchers.is(42));
+        Assert.assertThat(usage.getCpuTime(), Matchers.is(12_345L));
+        Assert.assertThat(usage.getRss(), Matchers.is(1_048_576L));
+        Assert.assertThat(usage.getPeakRss(), Matchers.is(2_097_152L));
+
+        // The date can't be modified from the outside
+        sampled.setTime(0L);
+        Assert.assertThat(usage.getSampled(), Matchers.not(sampled));
+        usage.getSampled().setTime(0L);
+        Assert.assertThat(usage.getSampled(), Matchers.not(sampled));
+    }
+
+    /**
+     * Make sure the usage survives a round trip through JSON.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSerialize() throws IOException {
+        final JobResourceUsage usage
+            = new JobResourceUsage(UUID.randomUUID().toString(), new Date(), 1, 2, 3L, 4L, 5L);
+        final ObjectMapper mapper = new ObjectMapper();
+
+        Assert.assertThat(
+            mapper.readValue(mapper.writeValueAsString(usage), JobResourceUsage.class),
+            Matchers.is(usage)
+        );
+    }
+}
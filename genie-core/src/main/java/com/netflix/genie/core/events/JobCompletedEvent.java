@@ -0,0 +1,48 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.events;
+
+import lombok.Getter;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * An event fired once the final status of a finished job has been saved. Unlike the {@link JobFinishedEvent} which
+ * fires before, searches done after this event find the job in its final status.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+public class JobCompletedEvent extends BaseJobEvent {
+
+    private final String user;
+
+    /**
+     * Constructor.
+     *
+     * @param id     The id of the job whose final status was saved
+     * @param user   The user who submitted the job
+     * @param source The source which created the event.
+     */
+    public JobCompletedEvent(@NotEmpty final String id, @NotEmpty final String user, @NotNull final Object source) {
+        super(id, source);
+        this.user = user;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.genie.common.dto.JobStatus;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Everything the completion of a job needs to know about it, read with a single query when the job finishes.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class JobCompletionSnapshot {
+
+    private final String id;
+    private final JobStatus status;
+    private final Integer processId;
+    private final String archiveLocation;
+    private final String email;
+    private final String name;
+    private final String user;
+    private final Set<String> tags;
+    private final String description;
+    private final String clusterId;
+    private final String commandId;
+    private final List<String> applicationIds;
+
+    /**
+     * Constructor.
+     *
+     * @param id              The id of the job
+     * @param status          The status of the job
+     * @param processId       The id of the process of the job or null if it never got one
+     * @param archiveLocation The location to archive the job directory to or null if it isn't archived
+     * @param email           The address to send an email to once the job is done or null for no email
+     * @param name            The name of the job
+     * @param user            The user who submitted the job
+     * @param tags            The tags of the job request
+     * @param description     The description of the job request or null
+     * @param clusterId       The id of the cluster the job ran on or null if it never got one
+     * @param commandId       The id of the command the job ran or null if it never got one
+     * @param applicationIds  The ids of the applications the job ran with in their order
+     */
+    public JobCompletionSnapshot(
+        @NotBlank final String id,
+        @NotNull final JobStatus status,
+        final Integer processId,
+        final String archiveLocation,
+        final String email,
+        @NotBlank final String name,
+        @NotBlank final String user,
+        @NotNull final Set<String> tags,
+        final String description,
+        final String clusterId,
+        final String commandId,
+        @NotNull final List<String> applicationIds
+    ) {
+        this.id = id;
+        this.status = status;
+        this.processId = processId;
+        this.archiveLocation = archiveLocation;
+        this.email = email;
+        this.name = name;
+        this.user = user;
+        this.tags = ImmutableSet.copyOf(tags);
+        this.description = description;
+        this.clusterId = clusterId;
+        this.commandId = commandId;
+        this.applicationIds = ImmutableList.copyOf(applicationIds);
+    }
+
+    /**
+     * Get a copy of this snapshot with a new status. Used to carry the final status of the job which was committed
+     * after the snapshot was read over to the later stages of the completion.
+     *
+     * @param newStatus The status of the copy
+     * @return The copy
+     */
+    public JobCompletionSnapshot withStatus(@NotNull final JobStatus newStatus) {
+        return new JobCompletionSnapshot(
+            this.id,
+            newStatus,
+            this.processId,
+            this.archiveLocation,
+            this.email,
+            this.name,
+            this.user,
+            this.tags,
+            this.description,
+            this.clusterId,
+            this.commandId,
+            this.applicationIds
+        );
+    }
+
+    /**
+     * Get the id of the process of the job.
+     *
+     * @return The process id or empty if the job never got a process
+     */
+    public Optional<Integer> getProcessId() {
+        return Optional.ofNullable(this.processId);
+    }
+
+    /**
+     * Get the location to archive the job directory to.
+     *
+     * @return The archive location or empty if the job isn't archived
+     */
+    public Optional<String> getArchiveLocation() {
+        return Optional.ofNullable(this.archiveLocation);
+    }
+
+    /**
+     * Get the address to send an email to once the job is done.
+     *
+     * @return The email address or empty
+     */
+    public Optional<String> getEmail() {
+        return Optional.ofNullable(this.email);
+    }
+
+    /**
+     * Get the description of the job request.
+     *
+     * @return The description or empty
+     */
+    public Optional<String> getDescription() {
+        return Optional.ofNullable(this.description);
+    }
+
+    /**
+     * Get the id of the cluster the job ran on.
+     *
+     * @return The cluster id or empty if the job never got a cluster
+     */
+    public Optional<String> getClusterId() {
+        return Optional.ofNullable(this.clusterId);
+    }
+
+    /**
+     * Get the id of the command the job ran.
+     *
+     * @return The command id or empty if the job never got a command
+     */
+    public Optional<String> getCommandId() {
+        return Optional.ofNullable(this.commandId);
+    }
+}
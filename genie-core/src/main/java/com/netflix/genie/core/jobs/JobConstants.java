@@ -50,6 +50,11 @@ public final class JobConstants {
      **/
     public static final String JOB_EXECUTION_DTO_KEY = "jexecdto";
 
+    /**
+     * Key used for look up of the launch plan of the job in a Context Map for workflows.
+     **/
+    public static final String JOB_LAUNCH_PLAN_KEY = "launchplan";
+
     /**
      * The launcher script name that genie creates to setup a job for running.
      **/
@@ -0,0 +1,175 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs;
+
+import com.google.common.collect.ImmutableSet;
+import com.netflix.genie.common.dto.JobStatus;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Everything the job search index needs to know about a job, read from the database whenever the job changed.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class JobSearchSnapshot {
+
+    private final String id;
+    private final String name;
+    private final String user;
+    private final JobStatus status;
+    private final Set<String> tags;
+    private final String clusterName;
+    private final String clusterId;
+    private final String commandName;
+    private final String commandId;
+    private final Date created;
+    private final Date updated;
+    private final Date started;
+    private final Date finished;
+
+    /**
+     * Constructor.
+     *
+     * @param id          The id of the job
+     * @param name        The name of the job
+     * @param user        The user who submitted the job
+     * @param status      The status of the job
+     * @param tags        The tags of the job
+     * @param clusterName The name of the cluster the job ran on or null if it never got one
+     * @param clusterId   The id of the cluster the job ran on or null if it never got one
+     * @param commandName The name of the command the job ran or null if it never got one
+     * @param commandId   The id of the command the job ran or null if it never got one
+     * @param created     The time the job was created
+     * @param updated     The time the job was last updated
+     * @param started     The time the job started or null
+     * @param finished    The time the job finished or null
+     */
+    public JobSearchSnapshot(
+        @NotBlank final String id,
+        @NotBlank final String name,
+        @NotBlank final String user,
+        @NotNull final JobStatus status,
+        @NotNull final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        @NotNull final Date created,
+        @NotNull final Date updated,
+        final Date started,
+        final Date finished
+    ) {
+        this.id = id;
+        this.name = name;
+        this.user = user;
+        this.status = status;
+        this.tags = ImmutableSet.copyOf(tags);
+        this.clusterName = clusterName;
+        this.clusterId = clusterId;
+        this.commandName = commandName;
+        this.commandId = commandId;
+        this.created = new Date(created.getTime());
+        this.updated = new Date(updated.getTime());
+        this.started = started == null ? null : new Date(started.getTime());
+        this.finished = finished == null ? null : new Date(finished.getTime());
+    }
+
+    /**
+     * Get the name of the cluster the job ran on.
+     *
+     * @return The cluster name or empty if the job never got a cluster
+     */
+    public Optional<String> getClusterName() {
+        return Optional.ofNullable(this.clusterName);
+    }
+
+    /**
+     * Get the id of the cluster the job ran on.
+     *
+     * @return The cluster id or empty if the job never got a cluster
+     */
+    public Optional<String> getClusterId() {
+        return Optional.ofNullable(this.clusterId);
+    }
+
+    /**
+     * Get the name of the command the job ran.
+     *
+     * @return The command name or empty if the job never got a command
+     */
+    public Optional<String> getCommandName() {
+        return Optional.ofNullable(this.commandName);
+    }
+
+    /**
+     * Get the id of the command the job ran.
+     *
+     * @return The command id or empty if the job never got a command
+     */
+    public Optional<String> getCommandId() {
+        return Optional.ofNullable(this.commandId);
+    }
+
+    /**
+     * Get the time the job was created.
+     *
+     * @return The creation time
+     */
+    public Date getCreated() {
+        return new Date(this.created.getTime());
+    }
+
+    /**
+     * Get the time the job was last updated.
+     *
+     * @return The update time
+     */
+    public Date getUpdated() {
+        return new Date(this.updated.getTime());
+    }
+
+    /**
+     * Get the time the job started.
+     *
+     * @return The start time or empty if the job didn't start
+     */
+    public Optional<Date> getStarted() {
+        return this.started == null ? Optional.empty() : Optional.of(new Date(this.started.getTime()));
+    }
+
+    /**
+     * Get the time the job finished.
+     *
+     * @return The finish time or empty if the job didn't finish
+     */
+    public Optional<Date> getFinished() {
+        return this.finished == null ? Optional.empty() : Optional.of(new Date(this.finished.getTime()));
+    }
+}
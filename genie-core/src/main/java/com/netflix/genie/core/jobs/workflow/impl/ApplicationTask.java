@@ -82,10 +82,9 @@ public class ApplicationTask extends GenieBaseTask {
             final JobExecutionEnvironment jobExecEnv =
                 (JobExecutionEnvironment) context.get(JobConstants.JOB_EXECUTION_ENV_KEY);
             final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
-            final String genieDir = jobWorkingDirectory
-                + JobConstants.FILE_PATH_DELIMITER
-                + JobConstants.GENIE_PATH_VAR;
             final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
+            // The launch plan already created the directories of the applications
+            final JobLaunchPlan launchPlan = this.getLaunchPlanFromContext(context);
             log.info("Starting Application Task for job {}", jobExecEnv.getJobRequest().getId().orElse(NO_ID_FOUND));
 
 
@@ -104,27 +103,6 @@ public class ApplicationTask extends GenieBaseTask {
                             .getId()
                             .orElseThrow(() -> new GeniePreconditionException("Application without id"));
 
-                        // Create the directory for this application under applications in the cwd
-                        createEntityInstanceDirectory(
-                            genieDir,
-                            applicationId,
-                            AdminResources.APPLICATION
-                        );
-
-                        // Create the config directory for this id
-                        createEntityInstanceConfigDirectory(
-                            genieDir,
-                            applicationId,
-                            AdminResources.APPLICATION
-                        );
-
-                        // Create the dependencies directory for this id
-                        createEntityInstanceDependenciesDirectory(
-                            genieDir,
-                            applicationId,
-                            AdminResources.APPLICATION
-                        );
-
                         // Get the setup file if specified and add it as source command in launcher script
                         final Optional<String> setupFile = application.getSetupFile();
                         if (setupFile.isPresent()) {
@@ -139,12 +117,7 @@ public class ApplicationTask extends GenieBaseTask {
                                 );
                                 this.fts.getFile(applicationSetupFile, localPath);
 
-                                super.generateSetupFileSourceSnippet(
-                                    applicationId,
-                                    "Application:",
-                                    localPath,
-                                    writer,
-                                    jobWorkingDirectory);
+                                writer.write(launchPlan.getApplicationSetup(applicationId));
                             }
                         }
 
@@ -79,9 +79,6 @@ public class ClusterTask extends GenieBaseTask {
             tags.put(MetricsConstants.TagKeys.CLUSTER_NAME, cluster.getName());
             tags.put(MetricsConstants.TagKeys.CLUSTER_ID, cluster.getId().orElse(NO_ID_FOUND));
             final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
-            final String genieDir = jobWorkingDirectory
-                + JobConstants.FILE_PATH_DELIMITER
-                + JobConstants.GENIE_PATH_VAR;
             final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
             log.info("Starting Cluster Task for job {}", jobExecEnv.getJobRequest().getId().orElse(NO_ID_FOUND));
 
@@ -90,26 +87,8 @@ public class ClusterTask extends GenieBaseTask {
                 .getId()
                 .orElseThrow(() -> new GeniePreconditionException("No cluster id found"));
 
-            // Create the directory for this application under applications in the cwd
-            createEntityInstanceDirectory(
-                genieDir,
-                clusterId,
-                AdminResources.CLUSTER
-            );
-
-            // Create the config directory for this id
-            createEntityInstanceConfigDirectory(
-                genieDir,
-                clusterId,
-                AdminResources.CLUSTER
-            );
-
-            // Create the dependencies directory for this id
-            createEntityInstanceDependenciesDirectory(
-                genieDir,
-                clusterId,
-                AdminResources.CLUSTER
-            );
+            // The launch plan already created the directories
+            final JobLaunchPlan launchPlan = this.getLaunchPlanFromContext(context);
 
             // Get the set up file for cluster and add it to source in launcher script
             final Optional<String> setupFile = jobExecEnv.getCluster().getSetupFile();
@@ -126,12 +105,7 @@ public class ClusterTask extends GenieBaseTask {
 
                     fts.getFile(clusterSetupFile, localPath);
 
-                    super.generateSetupFileSourceSnippet(
-                        clusterId,
-                        "Cluster:",
-                        localPath,
-                        writer,
-                        jobWorkingDirectory);
+                    writer.write(launchPlan.getClusterSetup());
                 }
             }
 
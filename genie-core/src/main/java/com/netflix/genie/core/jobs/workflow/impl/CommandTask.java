@@ -78,9 +78,6 @@ public class CommandTask extends GenieBaseTask {
             tags.put(MetricsConstants.TagKeys.COMMAND_NAME, command.getName());
             tags.put(MetricsConstants.TagKeys.COMMAND_ID, command.getId().orElse(NO_ID_FOUND));
             final String jobWorkingDirectory = jobExecEnv.getJobWorkingDir().getCanonicalPath();
-            final String genieDir = jobWorkingDirectory
-                + JobConstants.FILE_PATH_DELIMITER
-                + JobConstants.GENIE_PATH_VAR;
             final Writer writer = (Writer) context.get(JobConstants.WRITER_KEY);
 
             log.info("Starting Command Task for job {}", jobExecEnv.getJobRequest().getId().orElse(NO_ID_FOUND));
@@ -90,26 +87,8 @@ public class CommandTask extends GenieBaseTask {
                 .getId()
                 .orElseThrow(() -> new GeniePreconditionException("No command id found"));
 
-            // Create the directory for this command under command dir in the cwd
-            createEntityInstanceDirectory(
-                genieDir,
-                commandId,
-                AdminResources.COMMAND
-            );
-
-            // Create the config directory for this id
-            createEntityInstanceConfigDirectory(
-                genieDir,
-                commandId,
-                AdminResources.COMMAND
-            );
-
-            // Create the dependencies directory for this id
-            createEntityInstanceDependenciesDirectory(
-                genieDir,
-                commandId,
-                AdminResources.COMMAND
-            );
+            // The launch plan already created the directories
+            final JobLaunchPlan launchPlan = this.getLaunchPlanFromContext(context);
 
             // Get the setup file if specified and add it as source command in launcher script
             final Optional<String> setupFile = jobExecEnv.getCommand().getSetupFile();
@@ -126,12 +105,7 @@ public class CommandTask extends GenieBaseTask {
 
                     fts.getFile(commandSetupFile, localPath);
 
-                    super.generateSetupFileSourceSnippet(
-                        commandId,
-                        "Command:",
-                        localPath,
-                        writer,
-                        jobWorkingDirectory);
+                    writer.write(launchPlan.getCommandSetup());
                 }
             }
 
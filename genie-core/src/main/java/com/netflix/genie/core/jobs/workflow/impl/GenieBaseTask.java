@@ -18,6 +18,7 @@
 package com.netflix.genie.core.jobs.workflow.impl;
 
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
@@ -31,6 +32,7 @@ import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Map;
 
 /**
  * An abstract class that all classes that implement a workflow task should inherit from. Provides some
@@ -290,6 +292,22 @@ public abstract class GenieBaseTask implements WorkflowTask {
         writer.write(System.lineSeparator());
     }
 
+    /**
+     * Get the launch plan the {@link InitialSetupTask} put in the context of the job. The directories of the cluster,
+     * command and applications have already been created and their setup snippets are precomputed.
+     *
+     * @param context The context of the job workflow
+     * @return The launch plan
+     * @throws GeniePreconditionException If there is no launch plan in the context
+     */
+    JobLaunchPlan getLaunchPlanFromContext(final Map<String, Object> context) throws GeniePreconditionException {
+        final JobLaunchPlan launchPlan = (JobLaunchPlan) context.get(JobConstants.JOB_LAUNCH_PLAN_KEY);
+        if (launchPlan == null) {
+            throw new GeniePreconditionException("No launch plan in the context of the job. Initial setup didn't run.");
+        }
+        return launchPlan;
+    }
+
     protected Registry getRegistry() {
         return registry;
     }
@@ -18,11 +18,17 @@
 package com.netflix.genie.core.jobs.workflow.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.netflix.genie.common.dto.Application;
 import com.netflix.genie.common.dto.Cluster;
 import com.netflix.genie.common.dto.Command;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.AdminResources;
+import com.netflix.genie.core.jobs.FileType;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
 import com.netflix.genie.core.util.MetricsUtils;
@@ -34,13 +40,20 @@ import org.apache.commons.lang3.StringUtils;
 import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Implementation of the workflow task for handling Applications that a job needs.
@@ -53,8 +66,16 @@ public class InitialSetupTask extends GenieBaseTask {
 
     private static final String GENIE_VERSION_EXPORT = "export GENIE_VERSION=3";
     private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final String GENIE_DIR = JobConstants.GENIE_PATH_VAR + JobConstants.FILE_PATH_DELIMITER;
+    private static final String JOB_DIR_VARIABLE = "${" + JobConstants.GENIE_JOB_DIR_ENV_VAR + "}";
+    private static final long MAX_LAUNCH_PLANS = 1000L;
 
     private final Id timerId;
+    // Plans keyed by the ids and update times of the cluster, command and applications they were built for
+    private final Cache<String, JobLaunchPlan> launchPlans = CacheBuilder.newBuilder()
+        .maximumSize(MAX_LAUNCH_PLANS)
+        .recordStats()
+        .build();
 
     /**
      * Constructor.
@@ -64,6 +85,8 @@ public class InitialSetupTask extends GenieBaseTask {
     public InitialSetupTask(@NotNull final Registry registry) {
         super(registry);
         this.timerId = getRegistry().createId("genie.jobs.tasks.initialSetupTask.timer");
+        registry.gauge("genie.jobs.tasks.initialSetupTask.launchPlanCache.hitRate", this.launchPlans,
+            (ToDoubleFunction<Cache<String, JobLaunchPlan>>) value -> value.stats().hitRate());
     }
 
     /**
@@ -84,19 +107,22 @@ public class InitialSetupTask extends GenieBaseTask {
                 .orElseThrow(() -> new GeniePreconditionException("No job id found. Unable to continue"));
             log.info("Starting Initial Setup Task for job {}", jobId);
 
-            this.createJobDirStructure(jobWorkingDirectory);
+            // The directory skeleton and the script fragments which are the same for every job run with this
+            // cluster, command and applications. The later tasks pick it up from the context.
+            final JobLaunchPlan launchPlan = this.getLaunchPlan(
+                jobExecEnv.getCluster(),
+                jobExecEnv.getCommand(),
+                jobExecEnv.getApplications()
+            );
+            context.put(JobConstants.JOB_LAUNCH_PLAN_KEY, launchPlan);
+
+            this.createJobDirStructure(jobWorkingDirectory, launchPlan.getDirectories());
 
             // set the env variables in the launcher script
             this.createJobDirEnvironmentVariables(writer, jobWorkingDirectory);
-            this.createApplicationEnvironmentVariables(writer);
 
-            // create environment variables for the command
-            final Command command = jobExecEnv.getCommand();
-            this.createCommandEnvironmentVariables(writer, command);
-
-            // create environment variables for the cluster
-            final Cluster cluster = jobExecEnv.getCluster();
-            this.createClusterEnvironmentVariables(writer, cluster);
+            // the environment variables for the applications, command and cluster
+            writer.write(launchPlan.getEnvironment());
 
             // create environment variable for the job itself
             this.createJobEnvironmentVariables(
@@ -124,38 +150,18 @@ public class InitialSetupTask extends GenieBaseTask {
 
     @VisibleForTesting
     void createJobDirStructure(final String jobWorkingDirectory) throws GenieException, IOException {
-        // create top level directory structure for the job
-
-        // Genie Directory {basedir/genie}
-        this.createDirectory(jobWorkingDirectory + JobConstants.FILE_PATH_DELIMITER + JobConstants.GENIE_PATH_VAR);
-
-        // Genie Logs directory {basedir/genie/logs}
-        this.createDirectory(jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.LOGS_PATH_VAR);
-
-        // Genie applications directory {basedir/genie/applications}
-        this.createDirectory(jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.APPLICATION_PATH_VAR);
-
-        // Genie command directory {basedir/genie/command}
-        this.createDirectory(jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.COMMAND_PATH_VAR);
+        this.createJobDirStructure(jobWorkingDirectory, this.getTopLevelDirectories());
+    }
 
-        // Genie cluster directory {basedir/genie/cluster}
-        this.createDirectory(jobWorkingDirectory
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.GENIE_PATH_VAR
-            + JobConstants.FILE_PATH_DELIMITER
-            + JobConstants.CLUSTER_PATH_VAR);
+    @VisibleForTesting
+    void createJobDirStructure(
+        final String jobWorkingDirectory,
+        final List<String> directories
+    ) throws GenieException, IOException {
+        // Only the leaves are in the list. Their parents (e.g. {basedir/genie}) are created along with them.
+        for (final String directory : directories) {
+            this.createDirectory(jobWorkingDirectory + JobConstants.FILE_PATH_DELIMITER + directory);
+        }
 
         // Create std out file
         final File stdout = new File(jobWorkingDirectory, JobConstants.STDOUT_LOG_FILE_NAME);
@@ -168,6 +174,124 @@ public class InitialSetupTask extends GenieBaseTask {
         }
     }
 
+    /**
+     * Get the launch plan for the given resources, building it if it isn't cached yet.
+     *
+     * @param cluster      The cluster the job runs on
+     * @param command      The command the job runs
+     * @param applications The applications the job uses
+     * @return The launch plan
+     * @throws GenieException If there is any problem building the plan
+     * @throws IOException    If there is any problem building the plan
+     */
+    @VisibleForTesting
+    JobLaunchPlan getLaunchPlan(
+        final Cluster cluster,
+        final Command command,
+        final List<Application> applications
+    ) throws GenieException, IOException {
+        final Optional<String> key = JobLaunchPlan.createKey(cluster, command, applications);
+        if (!key.isPresent()) {
+            return this.createLaunchPlan(cluster, command, applications);
+        }
+        try {
+            return this.launchPlans.get(key.get(), () -> this.createLaunchPlan(cluster, command, applications));
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof GenieException) {
+                throw (GenieException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else {
+                throw new GenieServerException("Unable to create the launch plan", cause);
+            }
+        }
+    }
+
+    private JobLaunchPlan createLaunchPlan(
+        final Cluster cluster,
+        final Command command,
+        final List<Application> applications
+    ) throws GenieException, IOException {
+        final String clusterId = cluster.getId().orElseThrow(() -> new GenieServerException("No cluster id"));
+        final String commandId = command.getId().orElseThrow(() -> new GenieServerException("No command id"));
+
+        final Set<String> directories = new LinkedHashSet<>(this.getTopLevelDirectories());
+        final Map<String, String> applicationSetups = new HashMap<>();
+        for (final Application application : applications) {
+            final String applicationId = application
+                .getId()
+                .orElseThrow(() -> new GeniePreconditionException("Application without id"));
+            this.addEntityDirectories(directories, JobConstants.APPLICATION_PATH_VAR, applicationId);
+            final Optional<String> setupFile = application.getSetupFile().filter(StringUtils::isNotBlank);
+            if (setupFile.isPresent()) {
+                applicationSetups.put(
+                    applicationId,
+                    this.createSetupFragment(applicationId, "Application:", setupFile.get(), AdminResources.APPLICATION)
+                );
+            }
+        }
+        this.addEntityDirectories(directories, JobConstants.CLUSTER_PATH_VAR, clusterId);
+        this.addEntityDirectories(directories, JobConstants.COMMAND_PATH_VAR, commandId);
+
+        final StringWriter environment = new StringWriter();
+        this.createApplicationEnvironmentVariables(environment);
+        this.createCommandEnvironmentVariables(environment, command);
+        this.createClusterEnvironmentVariables(environment, cluster);
+
+        final Optional<String> clusterSetupFile = cluster.getSetupFile().filter(StringUtils::isNotBlank);
+        final Optional<String> commandSetupFile = command.getSetupFile().filter(StringUtils::isNotBlank);
+        return new JobLaunchPlan(
+            new ArrayList<>(directories),
+            environment.toString(),
+            clusterSetupFile.isPresent()
+                ? this.createSetupFragment(clusterId, "Cluster:", clusterSetupFile.get(), AdminResources.CLUSTER)
+                : "",
+            commandSetupFile.isPresent()
+                ? this.createSetupFragment(commandId, "Command:", commandSetupFile.get(), AdminResources.COMMAND)
+                : "",
+            applicationSetups
+        );
+    }
+
+    private List<String> getTopLevelDirectories() {
+        final List<String> directories = new ArrayList<>();
+        // Genie logs directory {basedir/genie/logs}
+        directories.add(GENIE_DIR + JobConstants.LOGS_PATH_VAR);
+        // Genie applications directory {basedir/genie/applications}
+        directories.add(GENIE_DIR + JobConstants.APPLICATION_PATH_VAR);
+        // Genie command directory {basedir/genie/command}
+        directories.add(GENIE_DIR + JobConstants.COMMAND_PATH_VAR);
+        // Genie cluster directory {basedir/genie/cluster}
+        directories.add(GENIE_DIR + JobConstants.CLUSTER_PATH_VAR);
+        return directories;
+    }
+
+    private void addEntityDirectories(final Set<String> directories, final String entityPathVar, final String id) {
+        final String entityDirectory = GENIE_DIR + entityPathVar + JobConstants.FILE_PATH_DELIMITER + id;
+        directories.add(entityDirectory + JobConstants.FILE_PATH_DELIMITER + JobConstants.CONFIG_FILE_PATH_PREFIX);
+        directories.add(entityDirectory + JobConstants.FILE_PATH_DELIMITER + JobConstants.DEPENDENCY_FILE_PATH_PREFIX);
+    }
+
+    private String createSetupFragment(
+        final String id,
+        final String type,
+        final String setupFile,
+        final AdminResources adminResources
+    ) throws GenieException, IOException {
+        // Built relative to the job directory variable so the fragment is the same for every job
+        final String localPath = this.buildLocalFilePath(
+            JOB_DIR_VARIABLE,
+            id,
+            setupFile,
+            FileType.SETUP,
+            adminResources
+        );
+        final StringWriter fragment = new StringWriter();
+        this.generateSetupFileSourceSnippet(id, type, localPath, fragment, JOB_DIR_VARIABLE);
+        return fragment.toString();
+    }
+
     @VisibleForTesting
     void createJobDirEnvironmentVariables(final Writer writer, final String jobWorkingDirectory)
         throws GenieException, IOException {
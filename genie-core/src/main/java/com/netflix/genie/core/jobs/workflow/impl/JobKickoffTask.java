@@ -24,15 +24,15 @@ import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobExecutionEnvironment;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
+import com.netflix.genie.core.services.ProcessLauncherService;
 import com.netflix.genie.core.util.MetricsUtils;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.Executor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.SystemUtils;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.support.RetryTemplate;
 
@@ -40,13 +40,30 @@ import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
-import java.lang.reflect.Field;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileOwnerAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.UserPrincipal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementation of the workflow task for processing job information for genie mode.
@@ -61,33 +78,51 @@ public class JobKickoffTask extends GenieBaseTask {
 
     private final boolean isRunAsUserEnabled;
     private final boolean isUserCreationEnabled;
-    private final Executor executor;
+    private final boolean isDirectOwnershipChangeEnabled;
+    private final PrivilegedOperationService privilegedOperationService;
+    private final ProcessLauncherService processLauncherService;
     private final String hostname;
     private final Id timerId;
+    private final Id launchTimerId;
     private final RetryTemplate retryTemplate;
 
+    // Users known to exist so they don't have to be checked for every job. Checking for a user only locks out other
+    // jobs of the same user.
+    private final Set<String> knownUsers = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Lock> userLocks = new ConcurrentHashMap<>();
+    private final Object userCreationLock = new Object();
+
     /**
      * Constructor.
      *
-     * @param runAsUserEnabled    Flag that tells if job should be run as user specified in the request
-     * @param userCreationEnabled Flag that tells if the user specified should be created
-     * @param executor            An executor object used to run jobs
-     * @param hostname            Hostname for the node the job is running on
-     * @param registry            The metrics registry to use
+     * @param runAsUserEnabled             Flag that tells if job should be run as user specified in the request
+     * @param userCreationEnabled          Flag that tells if the user specified should be created
+     * @param directOwnershipChangeEnabled Flag that tells if Genie has the rights to change the ownership of the job
+     *                                     directory itself instead of using a privileged operation
+     * @param privilegedOperationService   The service to use to create users and change the ownership of job
+     *                                     directories
+     * @param processLauncherService       The service to use to launch the process of the job
+     * @param hostname                     Hostname for the node the job is running on
+     * @param registry                     The metrics registry to use
      */
     public JobKickoffTask(
         final boolean runAsUserEnabled,
         final boolean userCreationEnabled,
-        @NotNull final Executor executor,
+        final boolean directOwnershipChangeEnabled,
+        @NotNull final PrivilegedOperationService privilegedOperationService,
+        @NotNull final ProcessLauncherService processLauncherService,
         @NotNull final String hostname,
         @NotNull final Registry registry
     ) {
         super(registry);
         this.isRunAsUserEnabled = runAsUserEnabled;
         this.isUserCreationEnabled = userCreationEnabled;
-        this.executor = executor;
+        this.isDirectOwnershipChangeEnabled = directOwnershipChangeEnabled;
+        this.privilegedOperationService = privilegedOperationService;
+        this.processLauncherService = processLauncherService;
         this.hostname = hostname;
         this.timerId = registry.createId("genie.jobs.tasks.jobKickoffTask.timer");
+        this.launchTimerId = registry.createId("genie.jobs.launcher.launch.timer");
         retryTemplate = new RetryTemplate();
         retryTemplate.setBackOffPolicy(new ExponentialBackOffPolicy());
     }
@@ -125,18 +160,23 @@ public class JobKickoffTask extends GenieBaseTask {
             }
             final List<String> command = new ArrayList<>();
 
-            // If the OS is linux use setsid to launch the process so that the entire process tree
-            // is launched in process group id which is the same as the pid of the parent process
-            if (SystemUtils.IS_OS_LINUX) {
-                command.add("setsid");
-            }
-
             // Set the ownership to the user and run as the user, if enabled
             if (isRunAsUserEnabled) {
-                changeOwnershipOfDirectory(jobWorkingDirectory, user);
-
                 // This is needed because the genie.log file is still generated as the user running Genie system.
-                makeDirGroupWritable(jobWorkingDirectory + "/genie/logs");
+                // Genie still owns the directory at this point so it doesn't need elevated rights to do it.
+                final boolean logsGroupWritable = this.makeDirGroupWritable(jobWorkingDirectory + "/genie/logs");
+                changeOwnershipOfDirectory(jobWorkingDirectory, user);
+                if (!logsGroupWritable) {
+                    final int exitCode = this.executePrivileged(
+                        "Could not make the job working logs directory group writable",
+                        PrivilegedOperation.makeGroupWritable(jobWorkingDirectory + "/genie/logs")
+                    ).get(0);
+                    if (exitCode != 0) {
+                        throw new GenieServerException(
+                            "Could not make the job working logs directory group writable."
+                        );
+                    }
+                }
                 command.add("sudo");
                 command.add("-u");
                 command.add(user);
@@ -147,21 +187,17 @@ public class JobKickoffTask extends GenieBaseTask {
                 + JobConstants.GENIE_JOB_LAUNCHER_SCRIPT;
             command.add(runScript);
 
-
-            // Cannot convert to executor because it does not provide an api to get process id.
-            final ProcessBuilder pb = new ProcessBuilder(command)
-                .directory(jobExecEnv.getJobWorkingDir())
-                .redirectOutput(new File(jobExecEnv.getJobWorkingDir() + JobConstants.GENIE_LOG_PATH))
-                .redirectError(new File(jobExecEnv.getJobWorkingDir() + JobConstants.GENIE_LOG_PATH));
-
             //
             // Check if file can be executed. This is to fix issue where execution of the run script fails because
             // the file may be used by some other program
             //
             canExecute(runScript);
             try {
-                final Process process = pb.start();
-                final int processId = this.getProcessId(process);
+                final int processId = this.launch(
+                    command,
+                    jobExecEnv.getJobWorkingDir(),
+                    new File(jobExecEnv.getJobWorkingDir() + JobConstants.GENIE_LOG_PATH)
+                );
                 final Calendar calendar = Calendar.getInstance(UTC);
                 calendar.add(Calendar.SECOND, jobRequest.getTimeout().orElse(JobRequest.DEFAULT_TIMEOUT_DURATION));
                 final JobExecution jobExecution = new JobExecution
@@ -200,68 +236,71 @@ public class JobKickoffTask extends GenieBaseTask {
         return false;
     }
 
-    // Helper method to add write permissions to a directory for the group owner
-    private void makeDirGroupWritable(final String dir) throws GenieServerException {
-        log.debug("Adding write permissions for the directory {} for the group.", dir);
-        final CommandLine commandLIne = new CommandLine("sudo").addArgument("chmod").addArgument("g+w")
-            .addArgument(dir);
-
-        try {
-            this.executor.execute(commandLIne);
-        } catch (IOException ioe) {
-            throw new GenieServerException("Could not make the job working logs directory group writable.");
-        }
-    }
-
     /**
-     * Create user on the system. Synchronized to prevent multiple threads from trying to create user at the same time.
+     * Create user on the system if it doesn't exist yet. Users found or created once are remembered. Only one thread
+     * at a time checks for and creates any given user while other users can be handled concurrently. Only the rare
+     * creation of new users is serialized across users.
      *
      * @param user  user id
      * @param group group id
      * @throws GenieException If there is any problem.
      */
-    protected synchronized void createUser(final String user, final String group) throws GenieException {
-
-        // First check if user already exists
-        final CommandLine idCheckCommandLine = new CommandLine("id").addArgument("-u").addArgument(user);
+    protected void createUser(final String user, final String group) throws GenieException {
+        if (this.knownUsers.contains(user)) {
+            log.debug("User {} is known to exist", user);
+            return;
+        }
 
+        final Lock userLock = this.userLocks.computeIfAbsent(user, key -> new ReentrantLock());
+        userLock.lock();
         try {
-            this.executor.execute(idCheckCommandLine);
-            log.debug("User already exists");
-        } catch (final IOException ioe) {
+            // Another job of the same user may have created it while this one was waiting
+            if (this.knownUsers.contains(user)) {
+                return;
+            }
+
+            // First check if user already exists
+            final int userExistsExitCode = this.executePrivileged(
+                "Could not check if user " + user + " exists",
+                PrivilegedOperation.userExists(user)
+            ).get(0);
+            if (userExistsExitCode == 0) {
+                log.debug("User already exists");
+                this.knownUsers.add(user);
+                return;
+            }
             log.debug("User does not exist. Creating it now.");
 
             // Determine if the group is valid by checking that its not null and not same as user.
             final boolean isGroupValid = StringUtils.isNotBlank(group) && !group.equals(user);
 
-            // Create the group for the user if its not the same as the user.
+            final List<PrivilegedOperation> operations = new ArrayList<>();
+            // Create the group for the user if its not the same as the user. We ignore the result as it will fail if
+            // the group already exists. If the failure is due to some other reason, then user creation will fail.
             if (isGroupValid) {
                 log.debug("Group and User are different so creating group now.");
-                final CommandLine groupCreateCommandLine = new CommandLine("sudo").addArgument("groupadd")
-                    .addArgument(group);
-
-                // We create the group and ignore the error as it will fail if group already exists.
-                // If the failure is due to some other reason, then user creation will fail and we catch that.
-                try {
-                    log.debug("Running command to create group:  [{}]", groupCreateCommandLine);
-                    this.executor.execute(groupCreateCommandLine);
-                } catch (IOException ioexception) {
-                    log.debug("Group creation threw an error as it might already exist", ioexception);
-                }
+                operations.add(PrivilegedOperation.createGroup(group));
             }
+            operations.add(PrivilegedOperation.createUser(user, isGroupValid ? group : null));
 
-            final CommandLine userCreateCommandLine = new CommandLine("sudo").addArgument("useradd").addArgument(user);
-            if (isGroupValid) {
-                userCreateCommandLine.addArgument("-G").addArgument(group);
+            log.debug("Running operations to create user: {}", operations);
+            final List<Integer> exitCodes;
+            // groupadd and useradd fail if another one holds the lock on the system account files
+            synchronized (this.userCreationLock) {
+                exitCodes = this.executePrivileged(
+                    "Could not create user " + user,
+                    operations.toArray(new PrivilegedOperation[operations.size()])
+                );
             }
-            userCreateCommandLine.addArgument("-M");
-
-            try {
-                log.debug("Running command to create user: [{}]", userCreateCommandLine);
-                this.executor.execute(userCreateCommandLine);
-            } catch (IOException ioexception) {
-                throw new GenieServerException("Could not create user " + user + " with exception " + ioexception);
+            final int userCreationExitCode = exitCodes.get(exitCodes.size() - 1);
+            if (userCreationExitCode != 0) {
+                throw new GenieServerException(
+                    "Could not create user " + user + ". Exit code " + userCreationExitCode
+                );
             }
+            this.knownUsers.add(user);
+        } finally {
+            userLock.unlock();
         }
     }
 
@@ -275,38 +314,104 @@ public class JobKickoffTask extends GenieBaseTask {
     protected void changeOwnershipOfDirectory(
         final String dir,
         final String user) throws GenieException {
+        if (this.isDirectOwnershipChangeEnabled && this.changeOwnershipDirectly(dir, user)) {
+            return;
+        }
 
-        final CommandLine commandLine = new CommandLine("sudo").addArgument("chown").addArgument("-R")
-            .addArgument(user).addArgument(dir);
+        // A single recursive operation for the whole tree
+        final int exitCode = this.executePrivileged(
+            "Could not change ownership",
+            PrivilegedOperation.changeOwner(user, dir)
+        ).get(0);
+        if (exitCode != 0) {
+            throw new GenieServerException("Could not change ownership. Exit code " + exitCode);
+        }
+    }
 
+    private boolean changeOwnershipDirectly(final String dir, final String user) {
         try {
-            this.executor.execute(commandLine);
-        } catch (IOException ioexception) {
-            throw new GenieServerException("Could not change ownership with exception " + ioexception);
+            final UserPrincipal owner = FileSystems
+                .getDefault()
+                .getUserPrincipalLookupService()
+                .lookupPrincipalByName(user);
+            // Doesn't follow symbolic links. Like chown -R the links themselves are changed.
+            Files.walkFileTree(
+                Paths.get(dir),
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(
+                        final Path directory,
+                        final BasicFileAttributes attributes
+                    ) throws IOException {
+                        setOwner(directory, owner);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(
+                        final Path file,
+                        final BasicFileAttributes attributes
+                    ) throws IOException {
+                        setOwner(file, owner);
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+            );
+            return true;
+        } catch (final IOException | UnsupportedOperationException e) {
+            log.warn("Unable to change ownership of {} directly. Falling back to a privileged operation.", dir, e);
+            return false;
         }
     }
 
-    /**
-     * Helper method  to get process id for the given process.
-     *
-     * @param proc java process object representing the job launcher
-     * @return pid for this process
-     * @throws GenieException if there is an error getting the process id
-     */
-    private int getProcessId(final Process proc) throws GenieException {
-        log.debug("called");
+    private static void setOwner(final Path path, final UserPrincipal owner) throws IOException {
+        Files
+            .getFileAttributeView(path, FileOwnerAttributeView.class, LinkOption.NOFOLLOW_LINKS)
+            .setOwner(owner);
+    }
 
+    // Helper method to add write permissions to a directory for the group owner as long as Genie owns it
+    private boolean makeDirGroupWritable(final String dir) {
+        log.debug("Adding write permissions for the directory {} for the group.", dir);
         try {
-            final Field f = proc.getClass().getDeclaredField(JobConstants.PID);
-            f.setAccessible(true);
-            return f.getInt(proc);
-        } catch (final IllegalAccessException
-            | IllegalArgumentException
-            | NoSuchFieldException
-            | SecurityException e) {
-            final String msg = "Can't get process id for job";
-            log.error(msg, e);
-            throw new GenieServerException(msg, e);
+            final Path path = Paths.get(dir);
+            final Set<PosixFilePermission> permissions = EnumSet.copyOf(Files.getPosixFilePermissions(path));
+            permissions.add(PosixFilePermission.GROUP_WRITE);
+            Files.setPosixFilePermissions(path, permissions);
+            return true;
+        } catch (final IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            log.debug("Unable to make {} group writable directly", dir, e);
+            return false;
+        }
+    }
+
+    private List<Integer> executePrivileged(
+        final String errorMessage,
+        final PrivilegedOperation... operations
+    ) throws GenieServerException {
+        try {
+            return this.privilegedOperationService.execute(Arrays.asList(operations));
+        } catch (final IOException ioe) {
+            throw new GenieServerException(errorMessage + " with exception " + ioe, ioe);
+        }
+    }
+
+    private int launch(
+        final List<String> command,
+        final File workingDirectory,
+        final File outputFile
+    ) throws IOException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            return this.processLauncherService.launch(command, workingDirectory, outputFile);
+        } catch (final Throwable t) {
+            MetricsUtils.addFailureTagsWithException(tags, t);
+            throw t;
+        } finally {
+            this.getRegistry()
+                .timer(this.launchTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 }
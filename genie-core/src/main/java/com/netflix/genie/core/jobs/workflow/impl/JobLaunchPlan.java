@@ -0,0 +1,126 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs.workflow.impl;
+
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.BaseDTO;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.Command;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The parts of the job directory and run script which only depend on the cluster, command and applications a job
+ * runs with. Built once per combination (and version) of those resources by the {@link InitialSetupTask} and then
+ * shared by every job which runs with the same combination. The job specific lines are still written per job.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+final class JobLaunchPlan {
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private final List<String> directories;
+    private final String environment;
+    private final String clusterSetup;
+    private final String commandSetup;
+    private final Map<String, String> applicationSetups;
+
+    /**
+     * Constructor.
+     *
+     * @param directories       The directories to create, relative to the job working directory
+     * @param environment       The script fragment exporting the cluster, command and application variables
+     * @param clusterSetup      The script fragment sourcing the cluster setup file. Empty if there isn't one.
+     * @param commandSetup      The script fragment sourcing the command setup file. Empty if there isn't one.
+     * @param applicationSetups The script fragments sourcing the application setup files by application id
+     */
+    JobLaunchPlan(
+        final List<String> directories,
+        final String environment,
+        final String clusterSetup,
+        final String commandSetup,
+        final Map<String, String> applicationSetups
+    ) {
+        this.directories = Collections.unmodifiableList(directories);
+        this.environment = environment;
+        this.clusterSetup = clusterSetup;
+        this.commandSetup = commandSetup;
+        this.applicationSetups = Collections.unmodifiableMap(applicationSetups);
+    }
+
+    /**
+     * Get the script fragment sourcing the setup file of the given application.
+     *
+     * @param applicationId The id of the application
+     * @return The fragment. Empty if the application doesn't have a setup file.
+     */
+    String getApplicationSetup(final String applicationId) {
+        return this.applicationSetups.getOrDefault(applicationId, "");
+    }
+
+    /**
+     * Create the key identifying the plan for the given resources. The update times are part of the key so any change
+     * to one of the resources results in a new plan.
+     *
+     * @param cluster      The cluster the job runs on
+     * @param command      The command the job runs
+     * @param applications The applications the job uses
+     * @return The key or empty if one of the resources has no id or update time and the plan can't be cached
+     */
+    static Optional<String> createKey(
+        final Cluster cluster,
+        final Command command,
+        final List<Application> applications
+    ) {
+        final StringBuilder key = new StringBuilder();
+        if (!appendToKey(key, cluster) || !appendToKey(key, command)) {
+            return Optional.empty();
+        }
+        for (final Application application : applications) {
+            if (!appendToKey(key, application)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(key.toString());
+    }
+
+    private static boolean appendToKey(final StringBuilder key, final BaseDTO resource) {
+        final Optional<String> id = resource.getId();
+        final Optional<Date> updated = resource.getUpdated();
+        if (!id.isPresent() || !updated.isPresent()) {
+            return false;
+        }
+        // Prefix with the length so ids containing the separator can't collide
+        key
+            .append(id.get().length())
+            .append(KEY_SEPARATOR)
+            .append(id.get())
+            .append(KEY_SEPARATOR)
+            .append(updated.get().getTime())
+            .append(KEY_SEPARATOR);
+        return true;
+    }
+}
@@ -107,8 +107,18 @@ public class CommonFieldsEntity extends BaseEntity {
      * @return The tags attached to this entity
      */
     public Set<String> getTags() {
-        if (this.tags != null) {
-            return Sets.newHashSet(this.splitTags(this.tags));
+        return toTags(this.tags);
+    }
+
+    /**
+     * Convert the tags the way they're stored in the database to a set. For queries which select the tags column.
+     *
+     * @param tags The tags column value. May be null.
+     * @return The tags
+     */
+    public static Set<String> toTags(final String tags) {
+        if (tags != null) {
+            return Sets.newHashSet(splitTags(tags));
         } else {
             return Sets.newHashSet();
         }
@@ -143,7 +153,7 @@ public class CommonFieldsEntity extends BaseEntity {
         if (this.tags == null) {
             finalTags = Sets.newHashSet();
         } else {
-            finalTags = Sets.newHashSet(this.splitTags(this.tags))
+            finalTags = Sets.newHashSet(splitTags(this.tags))
                 .stream()
                 .filter(tag -> !tag.contains(GENIE_TAG_NAMESPACE))
                 .collect(Collectors.toSet());
@@ -157,7 +167,7 @@ public class CommonFieldsEntity extends BaseEntity {
     }
 
     @NotNull
-    private String[] splitTags(@NotNull final String tagsToSplit) {
+    private static String[] splitTags(@NotNull final String tagsToSplit) {
         return tagsToSplit.substring(1, tagsToSplit.length() - 1).split(TAG_DELIMITER_REGEX);
     }
 }
@@ -63,6 +63,36 @@ import java.util.Optional;
     @NamedQuery(
         name = JobEntity.QUERY_GET_STATUS_BY_ID,
         query = "select j.status from JobEntity j where j.id = :id"
+    ),
+    @NamedQuery(
+        name = JobEntity.QUERY_GET_STATUSES_BY_IDS,
+        query = "select j.id, j.status from JobEntity j where j.id in :ids"
+    ),
+    @NamedQuery(
+        name = JobEntity.QUERY_GET_COMPLETION_SNAPSHOT_BY_ID,
+        query = "select j.status, j.archiveLocation,"
+            + " (select e.processId from JobExecutionEntity e where e.id = j.id),"
+            + " r.email, r.name, r.user, r.tags, r.description, cl.id, co.id, a.id"
+            + " from JobEntity j join j.request r left join j.cluster cl left join j.command co"
+            + " left join j.applications a"
+            + " where j.id = :id"
+            + " order by index(a)"
+    ),
+    @NamedQuery(
+        name = JobEntity.QUERY_GET_SEARCH_RESULTS_BY_IDS,
+        query = "select new com.netflix.genie.common.dto.search.JobSearchResult("
+            + "j.id, j.name, j.user, j.status, j.started, j.finished, j.clusterName, j.commandName"
+            + ") from JobEntity j where j.id in :ids"
+    ),
+    @NamedQuery(
+        name = JobEntity.QUERY_GET_SEARCH_SNAPSHOTS_BY_IDS,
+        query = JobEntity.SEARCH_SNAPSHOT_SELECT + " where j.id in :ids"
+    ),
+    @NamedQuery(
+        name = JobEntity.QUERY_GET_SEARCH_SNAPSHOTS_UPDATED_AFTER,
+        query = JobEntity.SEARCH_SNAPSHOT_SELECT
+            + " where j.updated > :updated or (j.updated = :updated and j.id > :id)"
+            + " order by j.updated, j.id"
     )
 })
 public class JobEntity extends CommonFieldsEntity {
@@ -70,6 +100,33 @@ public class JobEntity extends CommonFieldsEntity {
      * Query name to get job status.
      */
     public static final String QUERY_GET_STATUS_BY_ID = "getStatusById";
+    /**
+     * Query name to get the ids and statuses of many jobs at once.
+     */
+    public static final String QUERY_GET_STATUSES_BY_IDS = "getStatusesByIds";
+    /**
+     * Query name to get everything the completion of a job needs. One row per application of the job.
+     */
+    public static final String QUERY_GET_COMPLETION_SNAPSHOT_BY_ID = "getCompletionSnapshotById";
+    /**
+     * Query name to get the search results of many jobs at once.
+     */
+    public static final String QUERY_GET_SEARCH_RESULTS_BY_IDS = "getSearchResultsByIds";
+    /**
+     * Query name to get everything the job search index needs about many jobs at once.
+     */
+    public static final String QUERY_GET_SEARCH_SNAPSHOTS_BY_IDS = "getSearchSnapshotsByIds";
+    /**
+     * Query name to get everything the job search index needs about the jobs updated after a given job, ordered by
+     * update time and id.
+     */
+    public static final String QUERY_GET_SEARCH_SNAPSHOTS_UPDATED_AFTER = "getSearchSnapshotsUpdatedAfter";
+    /**
+     * The columns of the job search snapshot queries.
+     */
+    static final String SEARCH_SNAPSHOT_SELECT = "select j.id, j.name, j.user, j.status, j.tags, j.clusterName, cl.id,"
+        + " j.commandName, co.id, j.created, j.updated, j.started, j.finished"
+        + " from JobEntity j left join j.cluster cl left join j.command co";
     /**
      * Used as default version when one not entered.
      */
@@ -17,7 +17,12 @@
  */
 package com.netflix.genie.core.jpa.services;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.netflix.genie.common.dto.Application;
 import com.netflix.genie.common.dto.Cluster;
 import com.netflix.genie.common.dto.Command;
@@ -29,9 +34,12 @@ import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.jobs.JobCompletionSnapshot;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
 import com.netflix.genie.core.jpa.entities.ApplicationEntity;
 import com.netflix.genie.core.jpa.entities.ClusterEntity;
 import com.netflix.genie.core.jpa.entities.CommandEntity;
+import com.netflix.genie.core.jpa.entities.CommonFieldsEntity;
 import com.netflix.genie.core.jpa.entities.JobEntity;
 import com.netflix.genie.core.jpa.entities.JobEntity_;
 import com.netflix.genie.core.jpa.entities.JobExecutionEntity;
@@ -42,12 +50,18 @@ import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
 import com.netflix.genie.core.jpa.specifications.JpaJobSpecs;
+import com.netflix.genie.core.services.JobSearchCursor;
+import com.netflix.genie.core.services.JobSearchCursorPage;
 import com.netflix.genie.core.services.JobSearchService;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.validator.constraints.NotBlank;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
@@ -55,17 +69,26 @@ import org.springframework.validation.annotation.Validated;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -78,11 +101,17 @@ import java.util.stream.Collectors;
 @Validated
 public class JpaJobSearchServiceImpl implements JobSearchService {
 
+    private static final long DEFAULT_COUNT_ESTIMATE_TTL = 60_000L;
+    private static final long MAX_COUNT_ESTIMATES = 1_000L;
+    // Some databases limit the number of values of an in list and all of them have to parse it
+    private static final int MAX_IDS_PER_QUERY = 500;
+
     private final JpaJobRepository jobRepository;
     private final JpaJobRequestRepository jobRequestRepository;
     private final JpaJobExecutionRepository jobExecutionRepository;
     private final JpaClusterRepository clusterRepository;
     private final JpaCommandRepository commandRepository;
+    private final Cache<List<Object>, Long> countCache;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -102,12 +131,44 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         final JpaJobExecutionRepository jobExecutionRepository,
         final JpaClusterRepository clusterRepository,
         final JpaCommandRepository commandRepository
+    ) {
+        this(
+            jobRepository,
+            jobRequestRepository,
+            jobExecutionRepository,
+            clusterRepository,
+            commandRepository,
+            DEFAULT_COUNT_ESTIMATE_TTL
+        );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param jobRepository          The repository to use for job entities
+     * @param jobRequestRepository   The repository to use for job request entities
+     * @param jobExecutionRepository The repository to use for job execution entities
+     * @param clusterRepository      The repository to use for cluster entities
+     * @param commandRepository      The repository to use for command entities
+     * @param countEstimateTtl       How long a count is reused to estimate the total of a search in milliseconds
+     */
+    public JpaJobSearchServiceImpl(
+        final JpaJobRepository jobRepository,
+        final JpaJobRequestRepository jobRequestRepository,
+        final JpaJobExecutionRepository jobExecutionRepository,
+        final JpaClusterRepository clusterRepository,
+        final JpaCommandRepository commandRepository,
+        @Min(1) final long countEstimateTtl
     ) {
         this.jobRepository = jobRepository;
         this.jobRequestRepository = jobRequestRepository;
         this.jobExecutionRepository = jobExecutionRepository;
         this.clusterRepository = clusterRepository;
         this.commandRepository = commandRepository;
+        this.countCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(countEstimateTtl, TimeUnit.MILLISECONDS)
+            .maximumSize(MAX_COUNT_ESTIMATES)
+            .build();
     }
 
     /**
@@ -130,14 +191,158 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         final Date maxFinished,
         @NotNull final Pageable page
     ) {
-        log.debug("called");
+        // Counted searches always return a page
+        return (Page<JobSearchResult>) this.findJobs(
+            id,
+            jobName,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            page,
+            CountMode.EXACT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<JobSearchResult> findJobs(
+        final String id,
+        final String jobName,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page,
+        @NotNull final CountMode countMode
+    ) {
+        log.debug("called with count mode {}", countMode);
 
         final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
         final CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
         final Root<JobEntity> root = countQuery.from(JobEntity.class);
 
-        final Predicate whereClause = JpaJobSpecs
-            .getFindPredicate(
+        final Predicate whereClause = this.getFindPredicate(
+            root,
+            cb,
+            id,
+            jobName,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished
+        );
+
+        countQuery.select(cb.count(root)).where(whereClause);
+
+        if (countMode == CountMode.EXACT) {
+            final Long count = this.entityManager.createQuery(countQuery).getSingleResult();
+
+            // Use the count to make sure we even need to make this query
+            if (count > 0) {
+                return new PageImpl<>(
+                    this.getJobSearchResults(cb, root, whereClause, page, page.getPageSize()),
+                    page,
+                    count
+                );
+            } else {
+                return new PageImpl<>(Lists.newArrayList(), page, count);
+            }
+        }
+
+        // One more row than needed tells whether there is a next page without counting all the rows
+        final List<JobSearchResult> results
+            = this.getJobSearchResults(cb, root, whereClause, page, page.getPageSize() + 1);
+        final boolean hasNext = results.size() > page.getPageSize();
+        final List<JobSearchResult> content = hasNext ? results.subList(0, page.getPageSize()) : results;
+        if (countMode == CountMode.NONE) {
+            return new SliceImpl<>(content, page, hasNext);
+        }
+        if (!hasNext) {
+            // The last page tells the total
+            return new PageImpl<>(content, page, page.getOffset() + content.size());
+        }
+
+        // The filter values make up the key as two equal searches don't share the same criteria objects
+        final List<Object> countKey = Arrays.asList(
+            id,
+            jobName,
+            user,
+            statuses == null ? null : ImmutableSet.copyOf(statuses),
+            tags == null ? null : ImmutableSet.copyOf(tags),
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished
+        );
+        Long estimatedCount = this.countCache.getIfPresent(countKey);
+        if (estimatedCount == null) {
+            estimatedCount = this.entityManager.createQuery(countQuery).getSingleResult();
+            this.countCache.put(countKey, estimatedCount);
+        }
+        // There is at least one more job than the ones up to this page
+        return new PageImpl<>(content, page, Math.max(estimatedCount, page.getOffset() + content.size() + 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobSearchCursorPage findJobsByCursor(
+        final String id,
+        final String jobName,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        final JobSearchCursor cursor,
+        @Min(1) final int pageSize
+    ) {
+        log.debug("called with cursor {}", cursor);
+
+        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        final Root<JobEntity> root = query.from(JobEntity.class);
+        final Path<Date> created = root.get(JobEntity_.created);
+        final Path<String> jobId = root.get(JobEntity_.id);
+
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(
+            this.getFindPredicate(
                 root,
                 cb,
                 id,
@@ -146,61 +351,168 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
                 statuses,
                 tags,
                 clusterName,
-                clusterId == null ? null : this.clusterRepository.findOne(clusterId),
+                clusterId,
                 commandName,
-                commandId == null ? null : this.commandRepository.findOne(commandId),
+                commandId,
                 minStarted,
                 maxStarted,
                 minFinished,
                 maxFinished
+            )
+        );
+
+        // The page before the cursor is found by walking back from it in ascending order
+        final boolean backwards = cursor != null && cursor.getDirection() == JobSearchCursor.Direction.PREVIOUS;
+        if (cursor != null) {
+            // (created, id) < (?, ?) spelled out as not all databases support comparing row values
+            final Date cursorCreated = cursor.getCreated();
+            predicates.add(
+                backwards
+                    ? cb.or(
+                        cb.greaterThan(created, cursorCreated),
+                        cb.and(cb.equal(created, cursorCreated), cb.greaterThan(jobId, cursor.getId()))
+                    )
+                    : cb.or(
+                        cb.lessThan(created, cursorCreated),
+                        cb.and(cb.equal(created, cursorCreated), cb.lessThan(jobId, cursor.getId()))
+                    )
             );
+        }
 
-        countQuery.select(cb.count(root)).where(whereClause);
-
-        final Long count = this.entityManager.createQuery(countQuery).getSingleResult();
-
-        // Use the count to make sure we even need to make this query
-        if (count > 0) {
-            final CriteriaQuery<JobSearchResult> contentQuery = cb.createQuery(JobSearchResult.class);
-            contentQuery.from(JobEntity.class);
-
-            contentQuery.multiselect(
-                root.get(JobEntity_.id),
+        query
+            .multiselect(
+                jobId,
                 root.get(JobEntity_.name),
                 root.get(JobEntity_.user),
                 root.get(JobEntity_.status),
                 root.get(JobEntity_.started),
                 root.get(JobEntity_.finished),
                 root.get(JobEntity_.clusterName),
-                root.get(JobEntity_.commandName)
+                root.get(JobEntity_.commandName),
+                created
+            )
+            .where(predicates.toArray(new Predicate[predicates.size()]))
+            .orderBy(
+                backwards
+                    ? Lists.newArrayList(cb.asc(created), cb.asc(jobId))
+                    : Lists.newArrayList(cb.desc(created), cb.desc(jobId))
             );
 
-            contentQuery.where(whereClause);
-
-            final Sort sort = page.getSort();
-            final List<Order> orders = new ArrayList<>();
-            sort.iterator().forEachRemaining(
-                order -> {
-                    if (order.isAscending()) {
-                        orders.add(cb.asc(root.get(order.getProperty())));
-                    } else {
-                        orders.add(cb.desc(root.get(order.getProperty())));
-                    }
-                }
-            );
+        // One more row than needed tells whether there is another page in the direction of the search
+        final List<Tuple> rows = this.entityManager
+            .createQuery(query)
+            .setMaxResults(pageSize + 1)
+            .getResultList();
+        final boolean more = rows.size() > pageSize;
+        final List<Tuple> pageRows = new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageSize)));
+        if (backwards) {
+            Collections.reverse(pageRows);
+        }
 
-            contentQuery.orderBy(orders);
+        final List<JobSearchResult> content = pageRows
+            .stream()
+            .map(
+                row -> new JobSearchResult(
+                    row.get(0, String.class),
+                    row.get(1, String.class),
+                    row.get(2, String.class),
+                    row.get(3, JobStatus.class),
+                    row.get(4, Date.class),
+                    row.get(5, Date.class),
+                    row.get(6, String.class),
+                    row.get(7, String.class)
+                )
+            )
+            .collect(Collectors.toList());
+
+        JobSearchCursor next = null;
+        JobSearchCursor previous = null;
+        if (!pageRows.isEmpty()) {
+            if (backwards || more) {
+                next = toCursor(pageRows.get(pageRows.size() - 1), JobSearchCursor.Direction.NEXT);
+            }
+            if (backwards ? more : cursor != null) {
+                previous = toCursor(pageRows.get(0), JobSearchCursor.Direction.PREVIOUS);
+            }
+        }
+        return new JobSearchCursorPage(content, next, previous);
+    }
 
-            final List<JobSearchResult> results = this.entityManager
-                .createQuery(contentQuery)
-                .setFirstResult(page.getOffset())
-                .setMaxResults(page.getPageSize())
-                .getResultList();
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @Min(1) final int fetchSize,
+        @NotNull final Consumer<JobSearchResult> consumer
+    ) {
+        log.debug("called with fetch size {}", fetchSize);
 
-            return new PageImpl<>(results, page, count);
-        } else {
-            return new PageImpl<>(Lists.newArrayList(), page, count);
+        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<JobSearchResult> query = cb.createQuery(JobSearchResult.class);
+        final Root<JobEntity> root = query.from(JobEntity.class);
+
+        query.multiselect(
+            root.get(JobEntity_.id),
+            root.get(JobEntity_.name),
+            root.get(JobEntity_.user),
+            root.get(JobEntity_.status),
+            root.get(JobEntity_.started),
+            root.get(JobEntity_.finished),
+            root.get(JobEntity_.clusterName),
+            root.get(JobEntity_.commandName)
+        );
+
+        query.where(
+            this.getFindPredicate(
+                root,
+                cb,
+                id,
+                name,
+                user,
+                statuses,
+                tags,
+                clusterName,
+                clusterId,
+                commandName,
+                commandId,
+                minStarted,
+                maxStarted,
+                minFinished,
+                maxFinished
+            )
+        );
+
+        // Scrolled forward only and never sorted so the database can hand the rows over as it finds them
+        final ScrollableResults results = this.entityManager
+            .createQuery(query)
+            .unwrap(org.hibernate.Query.class)
+            .setFetchSize(fetchSize)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        long count = 0;
+        try {
+            while (results.next()) {
+                consumer.accept((JobSearchResult) results.get(0));
+                count++;
+            }
+        } finally {
+            results.close();
         }
+        return count;
     }
 
     /**
@@ -268,6 +580,82 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobStatus> getJobStatuses(@NotNull final Collection<String> ids) {
+        log.debug("Called with {} ids", ids.size());
+        final Map<String, JobStatus> statuses = Maps.newHashMap();
+        for (final List<String> chunk : Iterables.partition(ImmutableSet.copyOf(ids), MAX_IDS_PER_QUERY)) {
+            final TypedQuery<Object[]> query = this.entityManager
+                .createNamedQuery(JobEntity.QUERY_GET_STATUSES_BY_IDS, Object[].class);
+            query.setParameter("ids", chunk);
+            for (final Object[] row : query.getResultList()) {
+                statuses.put((String) row[0], (JobStatus) row[1]);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobSearchResult> getJobSearchResults(@NotNull final Collection<String> ids) {
+        log.debug("Called with {} ids", ids.size());
+        final Map<String, JobSearchResult> results = Maps.newHashMap();
+        for (final List<String> chunk : Iterables.partition(ImmutableSet.copyOf(ids), MAX_IDS_PER_QUERY)) {
+            final TypedQuery<JobSearchResult> query = this.entityManager
+                .createNamedQuery(JobEntity.QUERY_GET_SEARCH_RESULTS_BY_IDS, JobSearchResult.class);
+            query.setParameter("ids", chunk);
+            for (final JobSearchResult result : query.getResultList()) {
+                results.put(result.getId(), result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSearchSnapshot> getJobSearchSnapshots(@NotNull final Collection<String> ids) {
+        log.debug("Called with {} ids", ids.size());
+        final List<JobSearchSnapshot> snapshots = new ArrayList<>(ids.size());
+        for (final List<String> chunk : Iterables.partition(ImmutableSet.copyOf(ids), MAX_IDS_PER_QUERY)) {
+            final TypedQuery<Object[]> query = this.entityManager
+                .createNamedQuery(JobEntity.QUERY_GET_SEARCH_SNAPSHOTS_BY_IDS, Object[].class);
+            query.setParameter("ids", chunk);
+            for (final Object[] row : query.getResultList()) {
+                snapshots.add(toSearchSnapshot(row));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSearchSnapshot> getJobSearchSnapshotsUpdatedAfter(
+        @NotNull final Date updated,
+        @NotNull final String id,
+        @Min(1) final int limit
+    ) {
+        log.debug("Called with updated {}, id {} and limit {}", updated, id, limit);
+        final TypedQuery<Object[]> query = this.entityManager
+            .createNamedQuery(JobEntity.QUERY_GET_SEARCH_SNAPSHOTS_UPDATED_AFTER, Object[].class);
+        query.setParameter("updated", updated);
+        query.setParameter("id", id);
+        query.setMaxResults(limit);
+        return query
+            .getResultList()
+            .stream()
+            .map(JpaJobSearchServiceImpl::toSearchSnapshot)
+            .collect(Collectors.toList());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -296,6 +684,59 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobExecution> getJobExecutions(@NotNull final Collection<String> ids) {
+        log.debug("Called with {} ids", ids.size());
+        final Map<String, JobExecution> jobExecutions = Maps.newHashMap();
+        if (!ids.isEmpty()) {
+            for (final JobExecutionEntity jobExecutionEntity : this.jobExecutionRepository.findAll(ids)) {
+                jobExecutions.put(jobExecutionEntity.getId(), jobExecutionEntity.getDTO());
+            }
+        }
+        return jobExecutions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobCompletionSnapshot getJobCompletionSnapshot(@NotBlank final String id) throws GenieException {
+        log.debug("Called with id {}", id);
+        final TypedQuery<Object[]> query = this.entityManager
+            .createNamedQuery(JobEntity.QUERY_GET_COMPLETION_SNAPSHOT_BY_ID, Object[].class);
+        query.setParameter("id", id);
+        final List<Object[]> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            throw new GenieNotFoundException("No job with id " + id + " exists.");
+        }
+
+        // The job columns repeat on every row. Only the application differs.
+        final Object[] job = rows.get(0);
+        final List<String> applicationIds = new ArrayList<>(rows.size());
+        for (final Object[] row : rows) {
+            if (row[10] != null) {
+                applicationIds.add((String) row[10]);
+            }
+        }
+        return new JobCompletionSnapshot(
+            id,
+            (JobStatus) job[0],
+            (Integer) job[2],
+            (String) job[1],
+            (String) job[3],
+            (String) job[4],
+            (String) job[5],
+            CommonFieldsEntity.toTags((String) job[6]),
+            (String) job[7],
+            (String) job[8],
+            (String) job[9],
+            applicationIds
+        );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -383,4 +824,106 @@ public class JpaJobSearchServiceImpl implements JobSearchService {
         }
         return count;
     }
+
+    private List<JobSearchResult> getJobSearchResults(
+        final CriteriaBuilder cb,
+        final Root<JobEntity> root,
+        final Predicate whereClause,
+        final Pageable page,
+        final int maxResults
+    ) {
+        final CriteriaQuery<JobSearchResult> contentQuery = cb.createQuery(JobSearchResult.class);
+        contentQuery.from(JobEntity.class);
+
+        contentQuery.multiselect(
+            root.get(JobEntity_.id),
+            root.get(JobEntity_.name),
+            root.get(JobEntity_.user),
+            root.get(JobEntity_.status),
+            root.get(JobEntity_.started),
+            root.get(JobEntity_.finished),
+            root.get(JobEntity_.clusterName),
+            root.get(JobEntity_.commandName)
+        );
+
+        contentQuery.where(whereClause);
+
+        final Sort sort = page.getSort();
+        final List<Order> orders = new ArrayList<>();
+        sort.iterator().forEachRemaining(
+            order -> {
+                if (order.isAscending()) {
+                    orders.add(cb.asc(root.get(order.getProperty())));
+                } else {
+                    orders.add(cb.desc(root.get(order.getProperty())));
+                }
+            }
+        );
+
+        contentQuery.orderBy(orders);
+
+        return this.entityManager
+            .createQuery(contentQuery)
+            .setFirstResult(page.getOffset())
+            .setMaxResults(maxResults)
+            .getResultList();
+    }
+
+    private Predicate getFindPredicate(
+        final Root<JobEntity> root,
+        final CriteriaBuilder cb,
+        final String id,
+        final String jobName,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished
+    ) {
+        return JpaJobSpecs.getFindPredicate(
+            root,
+            cb,
+            id,
+            jobName,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId == null ? null : this.clusterRepository.findOne(clusterId),
+            commandName,
+            commandId == null ? null : this.commandRepository.findOne(commandId),
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished
+        );
+    }
+
+    private static JobSearchSnapshot toSearchSnapshot(final Object[] row) {
+        return new JobSearchSnapshot(
+            (String) row[0],
+            (String) row[1],
+            (String) row[2],
+            (JobStatus) row[3],
+            CommonFieldsEntity.toTags((String) row[4]),
+            (String) row[5],
+            (String) row[6],
+            (String) row[7],
+            (String) row[8],
+            (Date) row[9],
+            (Date) row[10],
+            (Date) row[11],
+            (Date) row[12]
+        );
+    }
+
+    private static JobSearchCursor toCursor(final Tuple row, final JobSearchCursor.Direction direction) {
+        return new JobSearchCursor(row.get(8, Date.class), row.get(0, String.class), direction);
+    }
 }
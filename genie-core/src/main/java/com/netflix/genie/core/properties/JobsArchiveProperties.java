@@ -0,0 +1,35 @@
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Properties related to archiving the job directories once jobs have finished.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class JobsArchiveProperties {
+    private boolean streamingEnabled = true;
+    @Min(value = 1)
+    private int compressionThreads = 4;
+    @Min(value = 1024)
+    private int blockSize = 1024 * 1024;
+    @Min(value = 1)
+    private int maxBlocksInFlight = 8;
+    @NotNull
+    private List<String> excludes = new ArrayList<>();
+    @Min(value = 1)
+    private long maxCacheSize = 1024L * 1024L * 1024L;
+    @Min(value = 1)
+    private int maxCachedIndexes = 1000;
+}
@@ -0,0 +1,46 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the work done once a job has finished.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class JobsCompletionProperties {
+    @Min(value = 1)
+    private int statusThreads = 4;
+    @Min(value = 1)
+    private int archiveThreads = 2;
+    @Min(value = 1)
+    private int emailThreads = 1;
+    @Min(value = 1)
+    private int queueCapacity = 1000;
+    @Min(value = 1)
+    private long pendingArchivesSweepInterval = 600000L;
+}
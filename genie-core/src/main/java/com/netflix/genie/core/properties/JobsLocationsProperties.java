@@ -32,6 +32,9 @@ import org.springframework.validation.annotation.Validated;
 @Setter
 @Validated
 public class JobsLocationsProperties {
+    @NotEmpty(message = "Archive cache location is required")
+    private String archiveCache = "file:///tmp/genie/archiveCache/";
+
     @NotEmpty(message = "Archives location is required")
     private String archives = "file:///tmp/genie/archives/";
 
@@ -40,4 +43,7 @@ public class JobsLocationsProperties {
 
     @NotEmpty(message = "Jobs dir is required")
     private String jobs = "file:///tmp/genie/jobs/";
+
+    @NotEmpty(message = "Pending archives location is required")
+    private String pendingArchives = "file:///tmp/genie/pendingArchives/";
 }
@@ -21,6 +21,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+
 /**
  * Properties pertaining to how much memory jobs can use on Genie.
  *
@@ -46,4 +49,23 @@ public class JobsMemoryProperties {
      * Defaults to 10 GB (10,240 MB).
      */
     private int maxJobMemory = 10_240;
+
+    /**
+     * Whether jobs are admitted based on the memory observed to be used by the running jobs instead of the memory
+     * they requested.
+     */
+    private boolean admitByObservedUsage;
+
+    /**
+     * How many times a job has to be sampled before it's accounted for the memory it was observed to use even when
+     * that's less than it requested. Defaults to 30 samples, 5 minutes at the default sample interval.
+     */
+    @Min(1)
+    private int observedUsageMinSamples = 30;
+
+    /**
+     * The factor applied to the memory a job was observed to use to leave room for it to grow.
+     */
+    @DecimalMin("1.0")
+    private double observedUsageHeadroom = 1.2;
 }
@@ -0,0 +1,47 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to monitoring the processes of the jobs running on a node.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class JobsMonitorProperties {
+    @Min(value = 1)
+    private long sweepInterval = 1000L;
+    private boolean doneFileWatchEnabled;
+    private boolean usageSamplingEnabled = true;
+    @Min(value = 1)
+    private long usageSampleInterval = 10_000L;
+    private boolean logShippingEnabled;
+    @Min(value = 1)
+    private long logShipInterval = 30_000L;
+    @Min(value = 1)
+    private long logShipMaxChunkSize = 8L * 1024L * 1024L;
+}
@@ -33,12 +33,21 @@ import javax.validation.constraints.NotNull;
 @Setter
 @Validated
 public class JobsProperties {
+    @NotNull
+    private JobsArchiveProperties archive = new JobsArchiveProperties();
+
     @NotNull
     private JobsCleanupProperties cleanup = new JobsCleanupProperties();
 
+    @NotNull
+    private JobsCompletionProperties completion = new JobsCompletionProperties();
+
     @NotNull
     private JobsForwardingProperties forwarding = new JobsForwardingProperties();
 
+    @NotNull
+    private JobsLauncherProperties launcher = new JobsLauncherProperties();
+
     @NotNull
     private JobsLocationsProperties locations = new JobsLocationsProperties();
 
@@ -48,6 +57,12 @@ public class JobsProperties {
     @NotNull
     private JobsMemoryProperties memory = new JobsMemoryProperties();
 
+    @NotNull
+    private JobsMonitorProperties monitor = new JobsMonitorProperties();
+
+    @NotNull
+    private JobsSearchProperties search = new JobsSearchProperties();
+
     @NotNull
     private JobsUsersProperties users = new JobsUsersProperties();
 }
@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the embedded full text index serving the job searches with free text parameters.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class JobsSearchIndexProperties {
+    private boolean enabled;
+    @NotBlank
+    private String location = "file:///tmp/genie/searchIndex/";
+    @Min(value = 1)
+    private long refreshInterval = 1_000L;
+    @Min(value = 1)
+    private long catchUpInterval = 10_000L;
+    @Min(value = 0)
+    private long catchUpOverlap = 60_000L;
+    @Min(value = 1)
+    private int batchSize = 1_000;
+    @Min(value = 1)
+    private long maxLag = 60_000L;
+}
@@ -0,0 +1,60 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Properties related to searching for jobs.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class JobsSearchProperties {
+    @Min(value = 1)
+    private long countEstimateTtl = 60_000L;
+    private boolean resultCacheEnabled;
+    @Min(value = 1)
+    private long resultCacheTtl = 5_000L;
+    @Min(value = 1)
+    private long resultCacheMaxSize = 1_000L;
+    @Min(value = 1)
+    private int exportFetchSize = 1_000;
+    @Min(value = 1)
+    private long exportMaxJobs = 1_000_000L;
+    @Min(value = 1)
+    private long exportTimeout = 600_000L;
+    @Min(value = 1)
+    private long exportWriteTimeout = 30_000L;
+    @Min(value = 1)
+    private int exportMaxConcurrent = 4;
+    @Min(value = 1)
+    private int maxStatusIds = 10_000;
+    @Min(value = 1)
+    private int maxCursorPageSize = 1_000;
+    @NotNull
+    private JobsSearchIndexProperties index = new JobsSearchIndexProperties();
+}
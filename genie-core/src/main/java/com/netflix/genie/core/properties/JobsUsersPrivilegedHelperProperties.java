@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties related to the persistent helper processes executing privileged operations when jobs are run as the
+ * user who submitted them.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class JobsUsersPrivilegedHelperProperties {
+    private boolean enabled;
+    @Min(value = 1)
+    private int poolSize = 2;
+    @Min(value = 1)
+    private int kickoffPoolSize = 1;
+    @NotBlank
+    private String command = "sudo -n /usr/local/bin/genie-privileged-helper";
+    private boolean scriptInlined;
+    @Min(value = 1)
+    private long readTimeout = 600_000L;
+    @Min(value = 1)
+    private int maxBatchSize = 100;
+}
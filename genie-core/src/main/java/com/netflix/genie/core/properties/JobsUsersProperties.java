@@ -33,5 +33,7 @@ import org.springframework.validation.annotation.Validated;
 public class JobsUsersProperties {
     private boolean creationEnabled;
     private boolean runAsUserEnabled;
+    private boolean directOwnershipChangeEnabled;
     private JobsUsersActiveLimitProperties activeLimit = new JobsUsersActiveLimitProperties();
+    private JobsUsersPrivilegedHelperProperties privilegedHelper = new JobsUsersPrivilegedHelperProperties();
 }
@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.validator.constraints.NotEmpty;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties of the outbox emails are queued in on disk before a worker sends them in batches.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+@Validated
+public class MailOutboxProperties {
+    private boolean enabled;
+    @NotEmpty(message = "Mail outbox location is required")
+    private String location = "file:///tmp/genie/mailOutbox/";
+    @Min(value = 1)
+    private int batchSize = 50;
+    private double maxMessagesPerSecond = 10.0;
+    @Min(value = 1)
+    private int maxAttempts = 5;
+    @Min(value = 1)
+    private long initialBackOff = 1000L;
+    @Min(value = 1)
+    private long maxBackOff = 300_000L;
+}
@@ -33,4 +33,12 @@ import org.springframework.validation.annotation.Validated;
 @Validated
 public class S3FileTransferProperties {
     private boolean strictUrlCheckEnabled;
+    // Files at least this big (in bytes) are transferred in parts
+    private long multipartThreshold = 64L * 1024L * 1024L;
+    // The size of each part in bytes. A value below 1 disables parallel transfers.
+    private long partSize = 16L * 1024L * 1024L;
+    // The number of parts transferred at the same time across all transfers on this node
+    private int concurrency = 8;
+    // How many times a failed part is retried before the whole transfer fails
+    private int partRetries = 3;
 }
@@ -0,0 +1,39 @@
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.util.ArchiveIndex;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * A service which reads the output of finished jobs out of their archives. Used to serve the output of jobs whose
+ * node is gone.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface ArchivedJobService {
+
+    /**
+     * Get the index of the archive of a job.
+     *
+     * @param jobId The id of the job
+     * @return The index or empty if the job wasn't archived or its archive has no index
+     * @throws GenieException If the job doesn't exist
+     */
+    Optional<ArchiveIndex> getArchiveIndex(@NotBlank String jobId) throws GenieException;
+
+    /**
+     * Get a local copy of a file out of the archive of a job.
+     *
+     * @param jobId The id of the job
+     * @param path  The path of the file relative to the job directory
+     * @return The local copy of the file. Only valid until it's evicted from the local cache so should be read right
+     * away.
+     * @throws GenieException If the job has no indexed archive, the file isn't in it or it can't be read
+     */
+    File getFile(@NotBlank String jobId, @NotNull String path) throws GenieException;
+}
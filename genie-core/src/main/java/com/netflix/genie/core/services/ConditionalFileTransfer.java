@@ -0,0 +1,53 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import javax.annotation.Nullable;
+import java.util.Optional;
+
+/**
+ * A file transfer which can check whether a remote file changed and download the new version in a single request,
+ * like an HTTP conditional GET. Caches use this in place of a separate call to
+ * {@link #getLastModifiedTime(String)} followed by {@link #getFile(String, String)}.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface ConditionalFileTransfer extends FileTransfer {
+
+    /**
+     * Download the remote file to the destination only if it changed since the local copy described by the given
+     * validators was downloaded.
+     *
+     * @param srcRemotePath Source path of the file to copy
+     * @param dstLocalPath  Destination path to write the file to if it changed
+     * @param lastModified  The last modified time of the local copy in epoch milliseconds. 0 if unknown.
+     * @param eTag          The entity tag of the local copy if known
+     * @return The entity tag of the new version if the file changed and was downloaded. An empty string when the
+     * remote location doesn't supply entity tags. Empty if the local copy is current and nothing was downloaded.
+     * @throws GenieException exception in case of an error
+     */
+    Optional<String> getFileIfModified(
+        String srcRemotePath,
+        String dstLocalPath,
+        long lastModified,
+        @Nullable String eTag
+    ) throws GenieException;
+}
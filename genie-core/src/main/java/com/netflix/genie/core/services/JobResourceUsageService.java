@@ -0,0 +1,40 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.dto.JobResourceUsage;
+
+import javax.validation.constraints.NotNull;
+import java.util.Optional;
+
+/**
+ * A service which returns the resources observed to be used by the jobs running on this node.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface JobResourceUsageService {
+
+    /**
+     * Get the latest resource usage sampled for a job running on this node.
+     *
+     * @param jobId The id of the job
+     * @return The latest usage or empty if the job isn't running on this node or wasn't sampled yet
+     */
+    Optional<JobResourceUsage> getResourceUsage(@NotNull String jobId);
+}
@@ -0,0 +1,124 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * A position in the results of a job search sorted by creation time, newest first. Points at the job the page before
+ * it ended with or the page after it started with so the next page is found with a range predicate on the creation
+ * time and id of the jobs instead of by skipping all the rows of the pages before it. Handed to clients in an opaque
+ * encoded form.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class JobSearchCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Date created;
+    private final String id;
+    private final Direction direction;
+
+    /**
+     * Constructor.
+     *
+     * @param created   The creation time of the job the cursor points at
+     * @param id        The id of the job the cursor points at
+     * @param direction Whether the page after or before the job is wanted
+     */
+    public JobSearchCursor(
+        @NotNull final Date created,
+        @NotNull final String id,
+        @NotNull final Direction direction
+    ) {
+        this.created = new Date(created.getTime());
+        this.id = id;
+        this.direction = direction;
+    }
+
+    /**
+     * Get the creation time of the job the cursor points at.
+     *
+     * @return The creation time
+     */
+    public Date getCreated() {
+        return new Date(this.created.getTime());
+    }
+
+    /**
+     * Decode a cursor encoded with {@link #encode()}.
+     *
+     * @param encoded The encoded cursor
+     * @return The cursor
+     * @throws GeniePreconditionException If the cursor isn't valid
+     */
+    public static JobSearchCursor decode(@NotNull final String encoded) throws GeniePreconditionException {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            final String[] fields = decoded.split(SEPARATOR, 3);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Expected 3 fields but got " + fields.length);
+            }
+            return new JobSearchCursor(
+                new Date(Long.parseLong(fields[1])),
+                fields[2],
+                Direction.valueOf(fields[0])
+            );
+        } catch (final IllegalArgumentException iae) {
+            throw new GeniePreconditionException("Invalid cursor " + encoded, iae);
+        }
+    }
+
+    /**
+     * Encode the cursor in an opaque form safe to use in URLs.
+     *
+     * @return The encoded cursor
+     */
+    public String encode() {
+        final String decoded = this.direction.name() + SEPARATOR + this.created.getTime() + SEPARATOR + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The page of jobs wanted relative to the job the cursor points at.
+     */
+    public enum Direction {
+        /**
+         * The jobs created before the job the cursor points at.
+         */
+        NEXT,
+
+        /**
+         * The jobs created after the job the cursor points at.
+         */
+        PREVIOUS
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.genie.common.dto.search.JobSearchResult;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of job search results found with a {@link JobSearchCursor} along with the cursors to the pages around it.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class JobSearchCursorPage {
+
+    private final List<JobSearchResult> content;
+    private final JobSearchCursor next;
+    private final JobSearchCursor previous;
+
+    /**
+     * Constructor.
+     *
+     * @param content  The jobs of the page, newest first
+     * @param next     The cursor to the page of older jobs or null if there are none
+     * @param previous The cursor to the page of newer jobs or null if there are none
+     */
+    public JobSearchCursorPage(
+        @NotNull final List<JobSearchResult> content,
+        @Nullable final JobSearchCursor next,
+        @Nullable final JobSearchCursor previous
+    ) {
+        this.content = ImmutableList.copyOf(content);
+        this.next = next;
+        this.previous = previous;
+    }
+
+    /**
+     * Get the cursor to the page of older jobs.
+     *
+     * @return The cursor or empty if there are no older jobs
+     */
+    public Optional<JobSearchCursor> getNext() {
+        return Optional.ofNullable(this.next);
+    }
+
+    /**
+     * Get the cursor to the page of newer jobs.
+     *
+     * @return The cursor or empty if there are no newer jobs
+     */
+    public Optional<JobSearchCursor> getPrevious() {
+        return Optional.ofNullable(this.previous);
+    }
+}
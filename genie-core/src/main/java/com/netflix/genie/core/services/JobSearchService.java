@@ -26,15 +26,22 @@ import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobCompletionSnapshot;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
 import org.hibernate.validator.constraints.NotBlank;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Interface for searching jobs.
@@ -81,6 +88,125 @@ public interface JobSearchService {
         @NotNull final Pageable page
     );
 
+    /**
+     * Search for jobs which match the given filter criteria choosing how the total number of matching jobs is found.
+     *
+     * @param id          id for job
+     * @param name        name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user        user who submitted job
+     * @param statuses    statuses of job
+     * @param tags        tags for the job
+     * @param clusterName name of cluster for job
+     * @param clusterId   id of cluster for job
+     * @param commandName name of the command run in the job
+     * @param commandId   id of the command run in the job
+     * @param minStarted  The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param page        Page information of job to get
+     * @param countMode   How the total number of jobs matching the criteria is found
+     * @return Metadata information on jobs which match the criteria. A {@link Page} with the total unless the count
+     * mode is {@link CountMode#NONE} which only tells whether there is a next slice.
+     */
+    Slice<JobSearchResult> findJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page,
+        @NotNull final CountMode countMode
+    );
+
+    /**
+     * Search for jobs which match the given filter criteria one page at a time using a cursor instead of an offset.
+     * The jobs are sorted by creation time, newest first, and the page is found by seeking to the position of the
+     * cursor so deep pages cost no more than the first one.
+     *
+     * @param id          id for job
+     * @param name        name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user        user who submitted job
+     * @param statuses    statuses of job
+     * @param tags        tags for the job
+     * @param clusterName name of cluster for job
+     * @param clusterId   id of cluster for job
+     * @param commandName name of the command run in the job
+     * @param commandId   id of the command run in the job
+     * @param minStarted  The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param cursor      The position of the page to get or null for the first page
+     * @param pageSize    The maximum number of jobs in the page
+     * @return The page of jobs which match the criteria along with the cursors to the pages around it
+     */
+    JobSearchCursorPage findJobsByCursor(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        final JobSearchCursor cursor,
+        @Min(1) final int pageSize
+    );
+
+    /**
+     * Stream all the jobs which match the given filter criteria to the given consumer one at a time in no particular
+     * order. The jobs are read through a forward only database cursor so memory use doesn't grow with the number of
+     * jobs found.
+     *
+     * @param id          id for job
+     * @param name        name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user        user who submitted job
+     * @param statuses    statuses of job
+     * @param tags        tags for the job
+     * @param clusterName name of cluster for job
+     * @param clusterId   id of cluster for job
+     * @param commandName name of the command run in the job
+     * @param commandId   id of the command run in the job
+     * @param minStarted  The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param fetchSize   The number of rows the database driver is asked to fetch at a time
+     * @param consumer    The consumer to hand every job found to
+     * @return The number of jobs found
+     */
+    long exportJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @Min(1) final int fetchSize,
+        @NotNull final Consumer<JobSearchResult> consumer
+    );
+
     /**
      * Given a hostname return a set of all the jobs currently active on that host.
      *
@@ -114,6 +240,47 @@ public interface JobSearchService {
      */
     JobStatus getJobStatus(@NotBlank final String id) throws GenieException;
 
+    /**
+     * Get the statuses of all the jobs with the given ids with as few queries as possible.
+     *
+     * @param ids The ids of the jobs to get the statuses for
+     * @return The statuses found keyed by job id. Ids which don't exist are missing from the map.
+     */
+    Map<String, JobStatus> getJobStatuses(@NotNull final Collection<String> ids);
+
+    /**
+     * Get the search results of all the jobs with the given ids with as few queries as possible.
+     *
+     * @param ids The ids of the jobs
+     * @return The search results found keyed by job id. Ids which don't exist are missing from the map.
+     */
+    Map<String, JobSearchResult> getJobSearchResults(@NotNull final Collection<String> ids);
+
+    /**
+     * Get everything the job search index needs to know about the jobs with the given ids with as few queries as
+     * possible.
+     *
+     * @param ids The ids of the jobs
+     * @return The snapshots of the jobs found. Ids which don't exist are missing.
+     */
+    List<JobSearchSnapshot> getJobSearchSnapshots(@NotNull final Collection<String> ids);
+
+    /**
+     * Get everything the job search index needs to know about the jobs updated after the given job, ordered by
+     * update time and then id. The update time and id of the last job returned are where the next call should start
+     * from.
+     *
+     * @param updated The update time of the job to start after
+     * @param id      The id of the job to start after. Jobs updated at the same time with a greater id are returned.
+     * @param limit   The maximum number of jobs to return
+     * @return The snapshots of the jobs
+     */
+    List<JobSearchSnapshot> getJobSearchSnapshotsUpdatedAfter(
+        @NotNull final Date updated,
+        @NotNull final String id,
+        @Min(1) final int limit
+    );
+
     /**
      * Get job request for given job id.
      *
@@ -132,6 +299,23 @@ public interface JobSearchService {
      */
     JobExecution getJobExecution(@NotBlank final String id) throws GenieException;
 
+    /**
+     * Get the job executions for all the given job ids with a single query.
+     *
+     * @param ids The ids of the job executions to look up
+     * @return The job executions found keyed by job id. Ids which don't exist are missing from the map.
+     */
+    Map<String, JobExecution> getJobExecutions(@NotNull final Collection<String> ids);
+
+    /**
+     * Get everything the completion of a job needs to know about it with a single query.
+     *
+     * @param id The id of the job
+     * @return The snapshot of the job
+     * @throws GenieException If the job isn't found or any other error
+     */
+    JobCompletionSnapshot getJobCompletionSnapshot(@NotBlank final String id) throws GenieException;
+
     /**
      * Get the cluster the job was run on or exception if not found.
      *
@@ -176,4 +360,26 @@ public interface JobSearchService {
      * @throws GenieException If any error occurs
      */
     long getActiveJobCountForUser(@NotBlank final String user) throws GenieException;
+
+    /**
+     * How the total number of jobs matching a search is found.
+     */
+    enum CountMode {
+        /**
+         * Count all the matching jobs with every search.
+         */
+        EXACT,
+
+        /**
+         * Reuse a recent count of the jobs matching the same criteria. The total is never less than the jobs known to
+         * exist from the page itself.
+         */
+        ESTIMATE,
+
+        /**
+         * Don't count the jobs at all. The result is a slice without any total which only tells whether there is a
+         * next one.
+         */
+        NONE
+    }
 }
@@ -65,4 +65,20 @@ public interface JobStateService extends JobMetricsService {
      * @return true if job exists
      */
     boolean jobExists(final String jobId);
+
+    /**
+     * Whether new jobs can be admitted on this node. Not until the jobs already running on it are accounted for in the
+     * used memory.
+     *
+     * @return true if new jobs can be admitted
+     */
+    boolean isAcceptingJobs();
+
+    /**
+     * Get the amount of memory in MB to account for the jobs on this node based on the memory they were observed to
+     * use. Jobs which weren't observed yet account for the memory they requested.
+     *
+     * @return The total memory observed to be used by jobs in megabytes
+     */
+    int getObservedUsedMemory();
 }
@@ -0,0 +1,190 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.google.common.collect.ImmutableList;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * A single operation on users, files or processes which needs elevated rights when Genie runs jobs as the user who
+ * submitted them. Executed by a {@link PrivilegedOperationService}.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class PrivilegedOperation {
+
+    private final Type type;
+    private final List<String> arguments;
+
+    private PrivilegedOperation(final Type type, final String... arguments) {
+        for (final String argument : arguments) {
+            // Arguments are passed on to system commands so they can't be mistaken for options or break the framing
+            // of the helper protocol
+            if (StringUtils.isEmpty(argument)
+                || argument.startsWith("-")
+                || StringUtils.containsAny(argument, '\t', '\n', '\r', '\0')) {
+                throw new IllegalArgumentException("Invalid argument [" + argument + "] for operation " + type);
+            }
+        }
+        this.type = type;
+        this.arguments = ImmutableList.copyOf(arguments);
+    }
+
+    /**
+     * Check whether a user exists on the system. Succeeds only if it does.
+     *
+     * @param user The name of the user
+     * @return The operation
+     */
+    public static PrivilegedOperation userExists(final String user) {
+        return new PrivilegedOperation(Type.USER_EXISTS, user);
+    }
+
+    /**
+     * Create a group. Fails if the group already exists.
+     *
+     * @param group The name of the group
+     * @return The operation
+     */
+    public static PrivilegedOperation createGroup(final String group) {
+        return new PrivilegedOperation(Type.CREATE_GROUP, group);
+    }
+
+    /**
+     * Create a user without a home directory.
+     *
+     * @param user  The name of the user
+     * @param group The supplementary group to add the user to. Null for none.
+     * @return The operation
+     */
+    public static PrivilegedOperation createUser(final String user, @Nullable final String group) {
+        return group == null
+            ? new PrivilegedOperation(Type.CREATE_USER, user)
+            : new PrivilegedOperation(Type.CREATE_USER, user, group);
+    }
+
+    /**
+     * Recursively change the owner of a file or directory.
+     *
+     * @param user The new owner
+     * @param path The absolute path of the file or directory
+     * @return The operation
+     */
+    public static PrivilegedOperation changeOwner(final String user, final String path) {
+        return new PrivilegedOperation(Type.CHANGE_OWNER, user, path);
+    }
+
+    /**
+     * Give the group owner write permissions on a file or directory.
+     *
+     * @param path The absolute path of the file or directory
+     * @return The operation
+     */
+    public static PrivilegedOperation makeGroupWritable(final String path) {
+        return new PrivilegedOperation(Type.MAKE_GROUP_WRITABLE, path);
+    }
+
+    /**
+     * Recursively delete a file or directory. Succeeds if it doesn't exist.
+     *
+     * @param path The absolute path of the file or directory
+     * @return The operation
+     */
+    public static PrivilegedOperation delete(final String path) {
+        return new PrivilegedOperation(Type.DELETE, path);
+    }
+
+    /**
+     * Write a gzipped tar archive of the contents of a directory.
+     *
+     * @param archive   The absolute path of the archive to write
+     * @param directory The absolute path of the directory to archive
+     * @return The operation
+     */
+    public static PrivilegedOperation archive(final String archive, final String directory) {
+        return new PrivilegedOperation(Type.ARCHIVE, archive, directory);
+    }
+
+    /**
+     * Send the default termination signal to a process.
+     *
+     * @param pid The id of the process
+     * @return The operation
+     */
+    public static PrivilegedOperation kill(final int pid) {
+        return new PrivilegedOperation(Type.KILL, Integer.toString(pid));
+    }
+
+    /**
+     * The types of privileged operations.
+     *
+     * @author tgianos
+     * @since 3.2.0
+     */
+    public enum Type {
+        /**
+         * Check whether a user exists.
+         */
+        USER_EXISTS,
+
+        /**
+         * Create a group.
+         */
+        CREATE_GROUP,
+
+        /**
+         * Create a user.
+         */
+        CREATE_USER,
+
+        /**
+         * Recursively change the owner of a file or directory.
+         */
+        CHANGE_OWNER,
+
+        /**
+         * Make a file or directory writable by its group.
+         */
+        MAKE_GROUP_WRITABLE,
+
+        /**
+         * Recursively delete a file or directory.
+         */
+        DELETE,
+
+        /**
+         * Archive a directory.
+         */
+        ARCHIVE,
+
+        /**
+         * Kill a process.
+         */
+        KILL
+    }
+}
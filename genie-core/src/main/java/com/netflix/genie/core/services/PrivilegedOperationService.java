@@ -0,0 +1,58 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.exec.ExecuteException;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Executes the operations which need elevated rights when jobs are run as the user who submitted them. Batching
+ * operations lets implementations execute them with a single round trip.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface PrivilegedOperationService {
+
+    /**
+     * Execute the given operations in order. A failing operation doesn't stop the ones after it.
+     *
+     * @param operations The operations to execute
+     * @return The exit codes of the operations in the same order. 0 means the operation succeeded.
+     * @throws IOException If the operations couldn't be executed at all
+     */
+    List<Integer> execute(@NotNull List<PrivilegedOperation> operations) throws IOException;
+
+    /**
+     * Execute a single operation.
+     *
+     * @param operation The operation to execute
+     * @throws IOException If the operation couldn't be executed. An {@link ExecuteException} with the exit code if it
+     *                     failed.
+     */
+    default void execute(@NotNull final PrivilegedOperation operation) throws IOException {
+        final int exitCode = this.execute(ImmutableList.of(operation)).get(0);
+        if (exitCode != 0) {
+            throw new ExecuteException("Privileged operation " + operation + " failed", exitCode);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Launches the processes of jobs. The launched process is detached from Genie. It's only tracked through its process
+ * id afterwards.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface ProcessLauncherService {
+
+    /**
+     * Launch a process. Where the operating system supports it the process is the leader of a new process group so
+     * the whole process tree of the job can be signalled at once.
+     *
+     * @param command          The command to run
+     * @param workingDirectory The directory to run the command in
+     * @param outputFile       The file to redirect the standard output and error of the process to
+     * @return The process id of the launched process
+     * @throws IOException If the process couldn't be launched
+     */
+    int launch(
+        @NotNull List<String> command,
+        @NotNull File workingDirectory,
+        @NotNull File outputFile
+    ) throws IOException;
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GenieException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A file transfer which can upload content as it's produced without it having to be written to a local file first
+ * and can read a range of a remote file without downloading all of it.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface StreamingFileTransfer extends FileTransfer {
+
+    /**
+     * Upload the content written by the given writer to a remote location. Nothing is left at the remote location if
+     * the writer fails.
+     *
+     * @param dstRemotePath Destination path to write the content to
+     * @param content       Writes the content to the stream it's given
+     * @throws GenieException exception in case of an error writing or uploading the content
+     */
+    void putStream(String dstRemotePath, Content content) throws GenieException;
+
+    /**
+     * Open a stream of a range of the bytes of a remote file.
+     *
+     * @param srcRemotePath Source path of the file to read
+     * @param first         The offset of the first byte to read
+     * @param last          The offset of the last byte to read, inclusive
+     * @return The stream of the bytes in the range. Must be closed by the caller.
+     * @throws GenieException exception in case of an error opening the file
+     */
+    InputStream getStream(String srcRemotePath, long first, long last) throws GenieException;
+
+    /**
+     * Produces the content of a stream upload.
+     *
+     * @author tgianos
+     * @since 3.2.0
+     */
+    @FunctionalInterface
+    interface Content {
+
+        /**
+         * Write the content to the stream.
+         *
+         * @param out The stream to write to. Must not be closed.
+         * @throws IOException On error producing or writing the content
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
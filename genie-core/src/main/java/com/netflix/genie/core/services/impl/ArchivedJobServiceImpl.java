@@ -0,0 +1,300 @@
+package com.netflix.genie.core.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.services.ArchivedJobService;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.util.ArchiveIndex;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads files out of job archives written with an index by the DirectoryArchiver. Only the gzip members holding a
+ * file are read from the archive location. The indexes and the files read are kept in local LRU caches.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class ArchivedJobServiceImpl implements ArchivedJobService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long KILOBYTE = 1024L;
+
+    private final JobSearchService jobSearchService;
+    private final GenieFileTransferService genieFileTransferService;
+    private final File cacheDir;
+    private final Cache<String, ArchivedJob> archivedJobs;
+    private final Cache<String, File> files;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Registry registry;
+    private final Id fetchIndexTimerId;
+    private final Id fetchFileTimerId;
+
+    /**
+     * Constructor.
+     *
+     * @param jobSearchService         The service to find the archive locations of jobs with
+     * @param genieFileTransferService The service to read the archives with
+     * @param jobsProperties           The properties relating to jobs
+     * @param registry                 The metrics registry to use
+     * @throws GenieException If the cache directory can't be created
+     */
+    public ArchivedJobServiceImpl(
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final GenieFileTransferService genieFileTransferService,
+        @NotNull final JobsProperties jobsProperties,
+        @NotNull final Registry registry
+    ) throws GenieException {
+        this.jobSearchService = jobSearchService;
+        this.genieFileTransferService = genieFileTransferService;
+
+        final String cacheLocation = jobsProperties.getLocations().getArchiveCache();
+        try {
+            this.cacheDir = new DefaultResourceLoader().getResource(cacheLocation).getFile();
+            if (this.cacheDir.isDirectory()) {
+                // The files cached before a restart aren't tracked anymore
+                FileUtils.cleanDirectory(this.cacheDir);
+            } else if (!this.cacheDir.mkdirs()) {
+                throw new GenieServerException("Unable to create archive cache directory " + this.cacheDir);
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Could not load the archive cache path " + cacheLocation, ioe);
+        }
+
+        this.archivedJobs = CacheBuilder.newBuilder()
+            .maximumSize(jobsProperties.getArchive().getMaxCachedIndexes())
+            .build();
+        this.files = CacheBuilder.newBuilder()
+            .recordStats()
+            .maximumWeight(Math.max(1L, jobsProperties.getArchive().getMaxCacheSize() / KILOBYTE))
+            .<String, File>weigher((key, file) -> (int) Math.min(Integer.MAX_VALUE, file.length() / KILOBYTE + 1))
+            .removalListener(
+                notification -> {
+                    final File file = notification.getValue();
+                    if (file != null && file.exists() && !file.delete()) {
+                        log.warn("Unable to delete evicted archive cache file {}", file);
+                    }
+                }
+            )
+            .build();
+
+        this.registry = registry;
+        this.fetchIndexTimerId = registry.createId("genie.jobs.archive.fetchIndex.timer");
+        this.fetchFileTimerId = registry.createId("genie.jobs.archive.fetchFile.timer");
+        registry.gauge("genie.jobs.archive.cache.hitRate", this.files,
+            (ToDoubleFunction<Cache<String, File>>) value -> value.stats().hitRate());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<ArchiveIndex> getArchiveIndex(@NotBlank final String jobId) throws GenieException {
+        return this.getArchivedJob(jobId).map(ArchivedJob::getIndex);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File getFile(@NotBlank final String jobId, @NotNull final String path) throws GenieException {
+        final ArchivedJob archivedJob = this.getArchivedJob(jobId)
+            .orElseThrow(() -> new GenieNotFoundException("No indexed archive for job " + jobId));
+        final ArchiveIndex.Entry entry = archivedJob.getIndex()
+            .getEntry(path)
+            .filter(indexEntry -> !indexEntry.isDirectory())
+            .orElseThrow(() -> new GenieNotFoundException("No file " + path + " in the archive of job " + jobId));
+
+        try {
+            return this.files.get(jobId + "/" + entry.getPath(), () -> this.fetchFile(jobId, archivedJob, entry));
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof GenieException) {
+                throw (GenieException) e.getCause();
+            }
+            throw new GenieServerException("Unable to read " + path + " out of the archive of job " + jobId, e);
+        }
+    }
+
+    private Optional<ArchivedJob> getArchivedJob(final String jobId) throws GenieException {
+        final ArchivedJob cached = this.archivedJobs.getIfPresent(jobId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Only found indexes are cached as the archive of a job may not be written yet
+        final Optional<ArchivedJob> archivedJob = this.fetchIndex(jobId);
+        archivedJob.ifPresent(found -> this.archivedJobs.put(jobId, found));
+        return archivedJob;
+    }
+
+    private Optional<ArchivedJob> fetchIndex(final String jobId) throws GenieException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            final Job job = this.jobSearchService.getJob(jobId);
+            final Optional<String> archiveLocation = job.getArchiveLocation();
+            if (!archiveLocation.isPresent() || StringUtils.isBlank(archiveLocation.get())) {
+                return Optional.empty();
+            }
+
+            final String indexLocation = archiveLocation.get() + ArchiveIndex.FILE_SUFFIX;
+            File indexFile = null;
+            try {
+                indexFile = File.createTempFile("index-", ".json", this.cacheDir);
+                this.genieFileTransferService.getFile(indexLocation, indexFile.getAbsolutePath());
+                return Optional.of(
+                    new ArchivedJob(
+                        archiveLocation.get(),
+                        this.objectMapper.readValue(indexFile, ArchiveIndex.class)
+                    )
+                );
+            } catch (final GenieException | IOException e) {
+                // Archived before indexes were written, archived with tar or not archived yet
+                log.info("No archive index of job {} could be read from {}", jobId, indexLocation, e);
+                return Optional.empty();
+            } finally {
+                if (indexFile != null && !indexFile.delete()) {
+                    log.warn("Unable to delete temporary index file {}", indexFile);
+                }
+            }
+        } catch (final Throwable t) {
+            MetricsUtils.addFailureTagsWithException(tags, t);
+            throw t;
+        } finally {
+            this.registry
+                .timer(this.fetchIndexTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private File fetchFile(
+        final String jobId,
+        final ArchivedJob archivedJob,
+        final ArchiveIndex.Entry entry
+    ) throws GenieException, IOException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            final ArchiveIndex index = archivedJob.getIndex();
+            final Path file = new File(new File(this.cacheDir, jobId), entry.getPath()).toPath();
+            Files.createDirectories(file.getParent());
+            final Path temp = Files.createTempFile(file.getParent(), ".genie-", ".tmp");
+            try {
+                if (entry.getSize() > 0) {
+                    final long first = entry.getOffset();
+                    final long last = first + entry.getSize() - 1;
+                    log.debug("Reading {} of job {} out of {}", entry.getPath(), jobId, archivedJob.getLocation());
+                    try (
+                        InputStream in = new BufferedInputStream(
+                            this.genieFileTransferService.getStream(
+                                archivedJob.getLocation(),
+                                index.getMemberStart(first),
+                                index.getMemberEnd(last) - 1
+                            ),
+                            BUFFER_SIZE
+                        );
+                        OutputStream out = Files.newOutputStream(temp)
+                    ) {
+                        long skip = first - index.getMemberUncompressedStart(first);
+                        long copied = 0L;
+                        // Every gzip member is decompressed on its own. A single GZIPInputStream reading on over the
+                        // members ends early at a member boundary where no more input happens to be available yet.
+                        for (
+                            long offset = first;
+                            copied < entry.getSize();
+                            offset = index.getMemberUncompressedStart(offset) + index.getBlockSize()
+                        ) {
+                            final BoundedInputStream member = new BoundedInputStream(
+                                in,
+                                index.getMemberEnd(offset) - index.getMemberStart(offset)
+                            );
+                            member.setPropagateClose(false);
+                            try (InputStream memberIn = new GZIPInputStream(member, BUFFER_SIZE)) {
+                                IOUtils.skipFully(memberIn, skip);
+                                skip = 0L;
+                                final long memberCopied
+                                    = IOUtils.copyLarge(memberIn, out, 0L, entry.getSize() - copied);
+                                if (memberCopied == 0L) {
+                                    break;
+                                }
+                                copied += memberCopied;
+                            }
+                            if (copied < entry.getSize()) {
+                                // Whatever of the member the inflater didn't need isn't part of the next member
+                                IOUtils.skip(member, Long.MAX_VALUE);
+                            }
+                        }
+                        if (copied != entry.getSize()) {
+                            throw new IOException(
+                                "Expected " + entry.getSize() + " bytes of " + entry.getPath() + " but got " + copied
+                            );
+                        }
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return file.toFile();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (final Throwable t) {
+            MetricsUtils.addFailureTagsWithException(tags, t);
+            throw t;
+        } finally {
+            this.registry
+                .timer(this.fetchFileTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * The location of the archive of a job and its index.
+     */
+    private static final class ArchivedJob {
+        private final String location;
+        private final ArchiveIndex index;
+
+        private ArchivedJob(final String location, final ArchiveIndex index) {
+            this.location = location;
+            this.index = index;
+        }
+
+        private String getLocation() {
+            return this.location;
+        }
+
+        private ArchiveIndex getIndex() {
+            return this.index;
+        }
+    }
+}
@@ -16,8 +16,11 @@ package com.netflix.genie.core.services.impl;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.ConditionalFileTransfer;
+import com.netflix.genie.core.services.FileTransfer;
 import com.netflix.genie.core.services.FileTransferFactory;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
@@ -30,7 +33,18 @@ import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.ToDoubleFunction;
 
 /**
@@ -39,13 +53,20 @@ import java.util.function.ToDoubleFunction;
  */
 @Slf4j
 public class CacheGenieFileTransferService extends GenieFileTransferService {
+    //Files not used for this long are dropped from the cache along with everything kept for them. Their copies stay on
+    //disk and are checked again on their next use.
+    private static final long EXPIRE_AFTER_ACCESS_HOURS = 24L;
     //File cache location
     private final String baseCacheLocation;
     //File transfer service to get/put files on a local system
     private final LocalFileTransferImpl localFileTransfer;
+    //How long, in milliseconds, a file checked against the remote location is used without checking it again
+    private final long revalidateInterval;
     //File cache
     private final LoadingCache<String, File> fileCache = CacheBuilder.newBuilder()
         .recordStats()
+        .expireAfterAccess(EXPIRE_AFTER_ACCESS_HOURS, TimeUnit.HOURS)
+        .removalListener(this::onRemoval)
         .build(
             new CacheLoader<String, File>() {
                 public File load(@NotNull final String path) throws GenieException {
@@ -53,6 +74,16 @@ public class CacheGenieFileTransferService extends GenieFileTransferService {
                 }
             }
         );
+    //Per path locks. Refreshing a changed file takes the write lock of only that path so that downloads of other
+    //paths are never blocked. Copies out of the cache take the read lock so they never see a half refreshed file.
+    //A lock is dropped once no thread holds or is about to take it.
+    private final ConcurrentMap<String, PathLock> pathLocks = new ConcurrentHashMap<>();
+    //Entity tags of the cached copies of files downloaded through a conditional file transfer
+    private final ConcurrentMap<String, String> eTags = new ConcurrentHashMap<>();
+    //When the cached copies were last found to be up to date
+    private final ConcurrentMap<String, Long> validatedAt = new ConcurrentHashMap<>();
+    //Checks in progress. Requests for a file being checked wait for that check instead of starting one of their own.
+    private final ConcurrentMap<String, CompletableFuture<File>> revalidations = new ConcurrentHashMap<>();
 
     /**
      * Constructor.
@@ -60,6 +91,7 @@ public class CacheGenieFileTransferService extends GenieFileTransferService {
      * @param fileTransferFactory file transfer implementation factory
      * @param baseCacheLocation   file cache location
      * @param localFileTransfer   Local file transfer service
+     * @param revalidateInterval  How long, in milliseconds, to use a cached file without checking if it changed
      * @param registry            spectator registry
      * @throws GenieException If there is any problem
      */
@@ -67,11 +99,13 @@ public class CacheGenieFileTransferService extends GenieFileTransferService {
         @NotNull final FileTransferFactory fileTransferFactory,
         @NotNull final String baseCacheLocation,
         @NotNull final LocalFileTransferImpl localFileTransfer,
+        final long revalidateInterval,
         @NotNull final Registry registry
     ) throws GenieException {
         super(fileTransferFactory);
         this.baseCacheLocation = this.createDirectories(baseCacheLocation).toString();
         this.localFileTransfer = localFileTransfer;
+        this.revalidateInterval = revalidateInterval;
         registry.gauge("genie.jobs.file.cache.hitRate", fileCache,
             (ToDoubleFunction<LoadingCache<String, File>>) value -> value.stats().hitRate());
         registry.gauge("genie.jobs.file.cache.missRate", fileCache,
@@ -92,28 +126,188 @@ public class CacheGenieFileTransferService extends GenieFileTransferService {
         @NotBlank(message = "Destination local path cannot be empty") final String dstLocalPath
     ) throws GenieException {
         log.debug("Called with src path {} and destination path {}", srcRemotePath, dstLocalPath);
+        final File cachedFile = this.getCachedFile(srcRemotePath);
+        final Lock readLock = this.acquirePathLock(srcRemotePath).readLock();
+        readLock.lock();
+        try {
+            localFileTransfer.getFile(cachedFile.getPath(), dstLocalPath);
+        } finally {
+            readLock.unlock();
+            this.releasePathLock(srcRemotePath);
+        }
+    }
+
+    /**
+     * Make sure the latest version of the file is in the local cache without copying it anywhere. Used to warm the
+     * cache ahead of the jobs which will need the file.
+     *
+     * @param srcRemotePath Path of the file in the remote location to be fetched
+     * @throws GenieException If there is any problem
+     */
+    public void prefetchFile(
+        @NotBlank(message = "Source file path cannot be empty.") final String srcRemotePath
+    ) throws GenieException {
+        log.debug("Called to prefetch src path {}", srcRemotePath);
+        this.getCachedFile(srcRemotePath);
+    }
+
+    private File getCachedFile(final String srcRemotePath) throws GenieException {
         File cachedFile;
         try {
-            cachedFile = fileCache.get(srcRemotePath);
-            // Before using the cached file check if the real file has been modified after we have cached
-            final long lastModifiedTime = getFileTransfer(srcRemotePath).getLastModifiedTime(srcRemotePath);
-            if (lastModifiedTime > cachedFile.lastModified()) {
-                synchronized (this) {
-                    // Check the modification time again because threads that were waiting for a file might have
-                    // been refreshed by a previous thread.
-                    if (lastModifiedTime > cachedFile.lastModified()) {
-                        fileCache.invalidate(srcRemotePath);
-                        deleteFile(cachedFile);
-                        cachedFile = fileCache.get(srcRemotePath);
-                    }
-                }
+            final FileTransfer fileTransfer = getFileTransfer(srcRemotePath);
+            if (fileTransfer instanceof ConditionalFileTransfer) {
+                return this.getConditionallyCachedFile((ConditionalFileTransfer) fileTransfer, srcRemotePath);
             }
+            cachedFile = fileCache.get(srcRemotePath);
+            cachedFile = this.revalidate(
+                srcRemotePath,
+                cachedFile,
+                () -> this.refreshIfModified(fileTransfer, srcRemotePath)
+            );
         } catch (Exception e) {
             final String message = String.format("Failed getting the file %s", srcRemotePath);
             log.error(message);
             throw new GenieServerException(message, e);
         }
-        localFileTransfer.getFile(cachedFile.getPath(), dstLocalPath);
+        return cachedFile;
+    }
+
+    private File refreshIfModified(final FileTransfer fileTransfer, final String srcRemotePath) throws Exception {
+        File cachedFile = fileCache.get(srcRemotePath);
+        // Before using the cached file check if the real file has been modified after we have cached
+        final long lastModifiedTime = fileTransfer.getLastModifiedTime(srcRemotePath);
+        if (lastModifiedTime > cachedFile.lastModified()) {
+            final Lock writeLock = this.acquirePathLock(srcRemotePath).writeLock();
+            writeLock.lock();
+            try {
+                // Check the modification time again because threads that were waiting for a file might have
+                // been refreshed by a previous thread.
+                cachedFile = fileCache.get(srcRemotePath);
+                if (lastModifiedTime > cachedFile.lastModified()) {
+                    fileCache.invalidate(srcRemotePath);
+                    deleteFile(cachedFile);
+                    cachedFile = fileCache.get(srcRemotePath);
+                }
+            } finally {
+                writeLock.unlock();
+                this.releasePathLock(srcRemotePath);
+            }
+        }
+        return cachedFile;
+    }
+
+    private File getConditionallyCachedFile(
+        final ConditionalFileTransfer fileTransfer,
+        final String srcRemotePath
+    ) throws Exception {
+        final AtomicBoolean loaded = new AtomicBoolean(false);
+        final File cachedFile = fileCache.get(
+            srcRemotePath,
+            () -> {
+                // A copy left on disk by a previous run still has to be checked
+                loaded.set(!this.getCacheFile(srcRemotePath).exists());
+                return loadFile(srcRemotePath);
+            }
+        );
+        if (loaded.get()) {
+            // Just downloaded by this thread so there is no need to ask if it changed
+            this.validatedAt.put(srcRemotePath, System.currentTimeMillis());
+            return cachedFile;
+        }
+        return this.revalidate(
+            srcRemotePath,
+            cachedFile,
+            () -> this.downloadIfModified(fileTransfer, srcRemotePath, cachedFile)
+        );
+    }
+
+    private File downloadIfModified(
+        final ConditionalFileTransfer fileTransfer,
+        final String srcRemotePath,
+        final File cachedFile
+    ) throws Exception {
+        // One round trip which only transfers the file if it changed. The new version goes to a temporary file so
+        // that copies out of the cache keep working on the current version while it downloads.
+        final File newFile = new File(cachedFile.getPath() + "." + UUID.randomUUID().toString() + ".tmp");
+        try {
+            final Optional<String> eTag = fileTransfer.getFileIfModified(
+                srcRemotePath,
+                newFile.getPath(),
+                cachedFile.lastModified(),
+                this.eTags.get(srcRemotePath)
+            );
+            if (eTag.isPresent()) {
+                final Lock writeLock = this.acquirePathLock(srcRemotePath).writeLock();
+                writeLock.lock();
+                try {
+                    Files.move(newFile.toPath(), cachedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    this.setETag(srcRemotePath, eTag.get());
+                } finally {
+                    writeLock.unlock();
+                    this.releasePathLock(srcRemotePath);
+                }
+            }
+        } finally {
+            deleteFile(newFile);
+        }
+        return cachedFile;
+    }
+
+    /**
+     * Run the given check of the cached copy of a file unless it was checked within the revalidate interval. Only one
+     * check of a path runs at a time. Requests which come in while it runs share its result.
+     *
+     * @param srcRemotePath Path of the file in the remote location
+     * @param cachedFile    The cached copy of the file
+     * @param check         Brings the cached copy up to date and returns it
+     * @return The up to date cached copy
+     * @throws Exception If the check fails
+     */
+    private File revalidate(
+        final String srcRemotePath,
+        final File cachedFile,
+        final Callable<File> check
+    ) throws Exception {
+        final long now = System.currentTimeMillis();
+        final Long validated = this.validatedAt.get(srcRemotePath);
+        if (validated != null && now - validated < this.revalidateInterval) {
+            return cachedFile;
+        }
+
+        final CompletableFuture<File> revalidation = new CompletableFuture<>();
+        final CompletableFuture<File> running = this.revalidations.putIfAbsent(srcRemotePath, revalidation);
+        if (running != null) {
+            return running.get();
+        }
+        try {
+            final File file = check.call();
+            this.validatedAt.put(srcRemotePath, now);
+            revalidation.complete(file);
+            return file;
+        } catch (final Exception e) {
+            revalidation.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.revalidations.remove(srcRemotePath, revalidation);
+        }
+    }
+
+    private void onRemoval(final RemovalNotification<String, File> notification) {
+        // Refreshes replace entries explicitly. Only forget about files which were dropped from the cache.
+        if (!notification.wasEvicted()) {
+            return;
+        }
+        final String path = notification.getKey();
+        this.eTags.remove(path);
+        this.validatedAt.remove(path);
+    }
+
+    private void setETag(final String srcRemotePath, final String eTag) {
+        if (eTag.isEmpty()) {
+            this.eTags.remove(srcRemotePath);
+        } else {
+            this.eTags.put(srcRemotePath, eTag);
+        }
     }
 
     protected void deleteFile(final File file) throws IOException {
@@ -133,6 +327,34 @@ public class CacheGenieFileTransferService extends GenieFileTransferService {
         }
     }
 
+    /**
+     * Get the lock guarding the cached copy of the given remote path. The lock is kept for the path until every
+     * caller released it again with {@link #releasePathLock(String)}.
+     *
+     * @param path Path of the file in the remote location
+     * @return The read/write lock for the path
+     */
+    protected ReadWriteLock acquirePathLock(final String path) {
+        return this.pathLocks.compute(
+            path,
+            (key, pathLock) -> {
+                final PathLock acquired = pathLock == null ? new PathLock() : pathLock;
+                acquired.users++;
+                return acquired;
+            }
+        ).lock;
+    }
+
+    /**
+     * Give back the lock of a path acquired with {@link #acquirePathLock(String)} after unlocking it. Dropped once it
+     * isn't used anymore.
+     *
+     * @param path Path of the file in the remote location
+     */
+    protected void releasePathLock(final String path) {
+        this.pathLocks.computeIfPresent(path, (key, pathLock) -> --pathLock.users == 0 ? null : pathLock);
+    }
+
     /**
      * Loads the file given the path and stores it under the cache location with file name as UUID string created using
      * the path.
@@ -142,13 +364,34 @@ public class CacheGenieFileTransferService extends GenieFileTransferService {
      * @throws GenieException Exception if the file does not load
      */
     protected File loadFile(final String path) throws GenieException {
-        final byte[] pathBytes = path.getBytes(Charset.forName("UTF-8"));
-        final String pathUUID = UUID.nameUUIDFromBytes(pathBytes).toString();
-        final String cacheFilePath = String.format("%s/%s", baseCacheLocation, pathUUID);
-        final File cacheFile = new File(cacheFilePath);
+        final File cacheFile = this.getCacheFile(path);
+        final String cacheFilePath = cacheFile.getPath();
         if (!cacheFile.exists()) {
-            getFileTransfer(path).getFile(path, cacheFilePath);
+            final FileTransfer fileTransfer = getFileTransfer(path);
+            if (fileTransfer instanceof ConditionalFileTransfer) {
+                // Keep the entity tag so the next check can be conditional on it
+                ((ConditionalFileTransfer) fileTransfer)
+                    .getFileIfModified(path, cacheFilePath, 0L, null)
+                    .ifPresent(eTag -> this.setETag(path, eTag));
+            } else {
+                fileTransfer.getFile(path, cacheFilePath);
+            }
         }
         return cacheFile;
     }
+
+    private File getCacheFile(final String path) {
+        final byte[] pathBytes = path.getBytes(Charset.forName("UTF-8"));
+        final String pathUUID = UUID.nameUUIDFromBytes(pathBytes).toString();
+        return new File(String.format("%s/%s", baseCacheLocation, pathUUID));
+    }
+
+    /**
+     * The lock of a path and the number of callers which acquired it. Only changed within the atomic updates of the
+     * map of locks.
+     */
+    private static final class PathLock {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private int users;
+    }
 }
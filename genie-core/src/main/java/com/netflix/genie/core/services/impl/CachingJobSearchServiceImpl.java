@@ -0,0 +1,515 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.dto.search.JobSearchResult;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.events.BaseJobEvent;
+import com.netflix.genie.core.events.JobCompletedEvent;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobScheduledEvent;
+import com.netflix.genie.core.events.JobStartedEvent;
+import com.netflix.genie.core.jobs.JobCompletionSnapshot;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.core.services.JobSearchCursor;
+import com.netflix.genie.core.services.JobSearchCursorPage;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A JobSearchService which keeps the pages found by job searches for a short time so the same searches polled by
+ * many clients don't all go to the database. Every job event published on this node, such as a job starting or its
+ * final status being saved, drops the cached pages which may list the job: those not filtered by user or filtered by
+ * its user or a pattern, and not filtered by status or filtered by a status the job may have left or entered. Pages of
+ * jobs run on other nodes may be stale by up to the time to live. All other calls go straight to the delegate.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class CachingJobSearchServiceImpl implements JobSearchService {
+
+    // Positions of the filters in the keys of the cached pages
+    private static final int USER_KEY_INDEX = 2;
+    private static final int STATUSES_KEY_INDEX = 3;
+
+    private final JobSearchService jobSearchService;
+    private final Cache<List<Object>, Slice<JobSearchResult>> pages;
+    // Incremented with every invalidation so a search which started before it never caches what it found
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Constructor.
+     *
+     * @param jobSearchService The service to find the jobs not cached with
+     * @param timeToLive       How long a page is cached for in milliseconds
+     * @param maxSize          The maximum number of pages cached
+     * @param registry         The metrics registry to use
+     */
+    public CachingJobSearchServiceImpl(
+        @NotNull final JobSearchService jobSearchService,
+        @Min(1) final long timeToLive,
+        @Min(1) final long maxSize,
+        @NotNull final Registry registry
+    ) {
+        this.jobSearchService = jobSearchService;
+        this.pages = CacheBuilder.newBuilder()
+            .expireAfterWrite(timeToLive, TimeUnit.MILLISECONDS)
+            .maximumSize(maxSize)
+            .build();
+        this.hits = registry.counter("genie.jobs.search.resultCache.hit.rate");
+        this.misses = registry.counter("genie.jobs.search.resultCache.miss.rate");
+    }
+
+    /**
+     * Drop the cached pages which may list the job as its status changed. A finished job is dropped once its final
+     * status was saved rather than when it finished. A search in between would cache the job as still active.
+     *
+     * @param event The job event
+     */
+    @EventListener
+    public void onJobEvent(final BaseJobEvent event) {
+        if (event instanceof JobFinishedEvent) {
+            return;
+        }
+        log.debug("Dropping cached job searches on event for job {}", event.getId());
+        final String user = event instanceof JobCompletedEvent
+            ? ((JobCompletedEvent) event).getUser()
+            : this.getUser(event.getId());
+        final Set<JobStatus> statuses = getChangedStatuses(event);
+        this.generation.incrementAndGet();
+        this.pages.asMap().keySet().removeIf(
+            key -> {
+                final Object keyUser = key.get(USER_KEY_INDEX);
+                @SuppressWarnings("unchecked")
+                final Set<JobStatus> keyStatuses = (Set<JobStatus>) key.get(STATUSES_KEY_INDEX);
+                // The user filter may be a pattern matching any number of users
+                return (keyUser == null || user == null || ((String) keyUser).contains("%") || keyUser.equals(user))
+                    && (keyStatuses == null || !Sets.intersection(keyStatuses, statuses).isEmpty());
+            }
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<JobSearchResult> findJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page
+    ) {
+        // Counted searches always return a page
+        return (Page<JobSearchResult>) this.findJobs(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            page,
+            CountMode.EXACT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Slice<JobSearchResult> findJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page,
+        @NotNull final CountMode countMode
+    ) {
+        // Blank filters are ignored by the search so they share the key of missing ones
+        final List<Object> key = Arrays.asList(
+            normalize(id),
+            normalize(name),
+            normalize(user),
+            statuses == null || statuses.isEmpty() ? null : ImmutableSet.copyOf(statuses),
+            tags == null || tags.isEmpty() ? null : ImmutableSet.copyOf(tags),
+            normalize(clusterName),
+            normalize(clusterId),
+            normalize(commandName),
+            normalize(commandId),
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            page,
+            countMode
+        );
+        final Slice<JobSearchResult> cached = this.pages.getIfPresent(key);
+        if (cached != null) {
+            this.hits.increment();
+            return cached;
+        }
+        this.misses.increment();
+
+        final long searchGeneration = this.generation.get();
+        final Slice<JobSearchResult> found = this.jobSearchService.findJobs(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            page,
+            countMode
+        );
+        if (this.generation.get() == searchGeneration) {
+            this.pages.put(key, found);
+            // Don't keep what was put after an invalidation which happened in between the check and the put
+            if (this.generation.get() != searchGeneration) {
+                this.pages.invalidate(key);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobSearchCursorPage findJobsByCursor(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        final JobSearchCursor cursor,
+        @Min(1) final int pageSize
+    ) {
+        return this.jobSearchService.findJobsByCursor(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            cursor,
+            pageSize
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @Min(1) final int fetchSize,
+        @NotNull final Consumer<JobSearchResult> consumer
+    ) {
+        return this.jobSearchService.exportJobs(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            fetchSize,
+            consumer
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Job> getAllActiveJobsOnHost(@NotBlank final String hostName) {
+        return this.jobSearchService.getAllActiveJobsOnHost(hostName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllHostsWithActiveJobs() {
+        return this.jobSearchService.getAllHostsWithActiveJobs();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job getJob(
+        @NotBlank(message = "No id entered. Unable to get job.") final String id
+    ) throws GenieException {
+        return this.jobSearchService.getJob(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobStatus getJobStatus(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobStatus(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobStatus> getJobStatuses(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobStatuses(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobSearchResult> getJobSearchResults(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobSearchResults(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSearchSnapshot> getJobSearchSnapshots(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobSearchSnapshots(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSearchSnapshot> getJobSearchSnapshotsUpdatedAfter(
+        @NotNull final Date updated,
+        @NotNull final String id,
+        @Min(1) final int limit
+    ) {
+        return this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(updated, id, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobRequest getJobRequest(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobRequest(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobExecution getJobExecution(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobExecution(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobExecution> getJobExecutions(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobExecutions(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobCompletionSnapshot getJobCompletionSnapshot(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobCompletionSnapshot(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cluster getJobCluster(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobCluster(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Command getJobCommand(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobCommand(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Application> getJobApplications(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobApplications(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getJobHost(@NotBlank final String jobId) throws GenieException {
+        return this.jobSearchService.getJobHost(jobId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getActiveJobCountForUser(@NotBlank final String user) throws GenieException {
+        return this.jobSearchService.getActiveJobCountForUser(user);
+    }
+
+    /**
+     * Get the user of a job.
+     *
+     * @param id The id of the job
+     * @return The user or null if the job couldn't be found
+     */
+    private String getUser(final String id) {
+        try {
+            final JobSearchResult job = this.jobSearchService.getJobSearchResults(Collections.singleton(id)).get(id);
+            return job == null ? null : job.getUser();
+        } catch (final RuntimeException re) {
+            log.warn("Unable to find the user of job {}. Dropping the cached searches of all users.", id, re);
+            return null;
+        }
+    }
+
+    /**
+     * Get the statuses a job may have left or entered with the given event.
+     *
+     * @param event The job event
+     * @return The statuses
+     */
+    private static Set<JobStatus> getChangedStatuses(final BaseJobEvent event) {
+        if (event instanceof JobScheduledEvent) {
+            return EnumSet.of(JobStatus.INIT);
+        } else if (event instanceof JobStartedEvent) {
+            return EnumSet.of(JobStatus.INIT, JobStatus.RUNNING);
+        } else {
+            // A finished job may have gone from any active status to any final one
+            return EnumSet.allOf(JobStatus.class);
+        }
+    }
+
+    private static String normalize(final String filter) {
+        return StringUtils.isBlank(filter) ? null : filter;
+    }
+}
@@ -19,14 +19,27 @@ package com.netflix.genie.core.services.impl;
 
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.services.FileTransfer;
 import com.netflix.genie.core.services.FileTransferFactory;
+import com.netflix.genie.core.services.StreamingFileTransfer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.hibernate.validator.constraints.NotBlank;
 
 import javax.validation.constraints.NotNull;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 /**
  * This class abstracts away all the implementations of FileTransfer interface. It iterates through a list of
@@ -82,6 +95,93 @@ public class GenieFileTransferService {
         this.getFileTransfer(dstRemotePath).putFile(srcLocalPath, dstRemotePath);
     }
 
+    /**
+     * Upload the content written by the given writer to a remote location. Streamed straight to the remote location
+     * if its file transfer supports it. Otherwise written to a temporary local file first which is uploaded and
+     * deleted.
+     *
+     * @param dstRemotePath The remote destination path where the content has to be put
+     * @param content       Writes the content to the stream it's given
+     * @throws GenieException If there is any problem
+     */
+    public void putStream(
+        @NotBlank(message = "Destination remote path cannot be empty") final String dstRemotePath,
+        @NotNull final StreamingFileTransfer.Content content
+    ) throws GenieException {
+        log.debug("Called with destination path {}", dstRemotePath);
+
+        final FileTransfer fileTransfer = this.getFileTransfer(dstRemotePath);
+        if (fileTransfer instanceof StreamingFileTransfer) {
+            ((StreamingFileTransfer) fileTransfer).putStream(dstRemotePath, content);
+            return;
+        }
+
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("genie-", ".upload");
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                content.writeTo(out);
+            }
+            fileTransfer.putFile(tempFile.getAbsolutePath(), dstRemotePath);
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to write the content for " + dstRemotePath, ioe);
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                log.warn("Unable to delete temporary file {}", tempFile);
+            }
+        }
+    }
+
+    /**
+     * Open a stream of a range of the bytes of a remote file. Read straight from the remote location if its file
+     * transfer supports it. Otherwise the whole file is downloaded to a temporary local file first which is deleted
+     * once the stream is closed.
+     *
+     * @param srcRemotePath The remote path of the file to read
+     * @param first         The offset of the first byte to read
+     * @param last          The offset of the last byte to read, inclusive
+     * @return The stream of the bytes in the range. Must be closed by the caller.
+     * @throws GenieException If there is any problem
+     */
+    public InputStream getStream(
+        @NotBlank(message = "Source remote path cannot be empty") final String srcRemotePath,
+        final long first,
+        final long last
+    ) throws GenieException {
+        log.debug("Called with source path {} for bytes {}-{}", srcRemotePath, first, last);
+
+        final FileTransfer fileTransfer = this.getFileTransfer(srcRemotePath);
+        if (fileTransfer instanceof StreamingFileTransfer) {
+            return ((StreamingFileTransfer) fileTransfer).getStream(srcRemotePath, first, last);
+        }
+
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("genie-", ".download");
+            fileTransfer.getFile(srcRemotePath, tempFile.getAbsolutePath());
+            final SeekableByteChannel channel = Files.newByteChannel(
+                tempFile.toPath(),
+                StandardOpenOption.READ,
+                StandardOpenOption.DELETE_ON_CLOSE
+            );
+            // Deleted by the channel from now on
+            tempFile = null;
+            try {
+                channel.position(first);
+            } catch (final IOException ioe) {
+                channel.close();
+                throw ioe;
+            }
+            return new BoundedInputStream(Channels.newInputStream(channel), last - first + 1);
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to read " + srcRemotePath, ioe);
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                log.warn("Unable to delete temporary file {}", tempFile);
+            }
+        }
+    }
+
     protected FileTransfer getFileTransfer(final String path) throws GenieNotFoundException {
         final FileTransfer result;
         try {
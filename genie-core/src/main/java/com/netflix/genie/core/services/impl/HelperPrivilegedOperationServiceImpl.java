@@ -0,0 +1,137 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.genie.core.properties.JobsUsersPrivilegedHelperProperties;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import org.hibernate.validator.constraints.NotBlank;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the PrivilegedOperationService which keeps a pool of long running helper processes started once
+ * with elevated rights. Operations are sent to a helper as lines over its standard input and the exit codes are read
+ * back from its standard output so the Genie JVM never has to fork for a privileged operation. The operations of a
+ * batch are pipelined to a single helper.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public class HelperPrivilegedOperationServiceImpl implements PrivilegedOperationService, Closeable {
+
+    static final String SCRIPT_RESOURCE = "privileged-helper.sh";
+    private static final String POOL_TAG = "pool";
+
+    private final HelperProcessPool helpers;
+    private final Registry registry;
+    private final Id executeTimerId;
+
+    /**
+     * Constructor. Starts all the helper processes.
+     *
+     * @param command    The command to start a helper with elevated rights, e.g. sudo -n with the installed helper
+     *                   script. If the script is inlined a shell, e.g. sudo -n /bin/bash, it's passed to with -c.
+     * @param properties The properties of the helpers
+     * @param poolName   The name of this pool of helpers to tag its metrics with
+     * @param poolSize   The number of helper processes to keep running
+     * @param registry   The metrics registry to use
+     * @throws IOException If a helper process can't be started
+     */
+    public HelperPrivilegedOperationServiceImpl(
+        @NotNull final List<String> command,
+        @NotNull final JobsUsersPrivilegedHelperProperties properties,
+        @NotBlank final String poolName,
+        final int poolSize,
+        @NotNull final Registry registry
+    ) throws IOException {
+        this.registry = registry;
+        this.executeTimerId = registry
+            .createId("genie.jobs.privilegedHelper.execute.timer")
+            .withTag(POOL_TAG, poolName);
+        this.helpers = new HelperProcessPool(
+            command,
+            properties.isScriptInlined() ? SCRIPT_RESOURCE : null,
+            poolSize,
+            properties.getReadTimeout(),
+            properties.getMaxBatchSize(),
+            registry.counter(registry.createId("genie.jobs.privilegedHelper.start.rate").withTag(POOL_TAG, poolName))
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> execute(@NotNull final List<PrivilegedOperation> operations) throws IOException {
+        if (operations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            final List<String> requests = new ArrayList<>(operations.size());
+            for (final PrivilegedOperation operation : operations) {
+                requests.add(
+                    HelperProcessPool.toRequest(
+                        ImmutableList.<String>builder()
+                            .add(operation.getType().name())
+                            .addAll(operation.getArguments())
+                            .build()
+                    )
+                );
+            }
+            final List<String> responses = this.helpers.execute(requests);
+            final List<Integer> exitCodes = new ArrayList<>(responses.size());
+            for (final String response : responses) {
+                try {
+                    exitCodes.add(Integer.parseInt(response));
+                } catch (final NumberFormatException nfe) {
+                    throw new IOException("Unexpected response [" + response + "] from privileged helper", nfe);
+                }
+            }
+            return exitCodes;
+        } catch (final Throwable t) {
+            MetricsUtils.addFailureTagsWithException(tags, t);
+            throw t;
+        } finally {
+            this.registry
+                .timer(this.executeTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stop all the helper processes by closing their input.
+     */
+    @Override
+    public void close() {
+        this.helpers.close();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.genie.core.services.ProcessLauncherService;
+import com.netflix.spectator.api.Registry;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Implementation of the ProcessLauncherService which hands the processes to launch to a pool of long running launcher
+ * processes started once. The Genie JVM, which may have a large heap, never forks for a job itself. The launcher
+ * forks the job process, puts it into its own process group and returns its process id.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public class HelperProcessLauncherServiceImpl implements ProcessLauncherService, Closeable {
+
+    static final String SCRIPT_RESOURCE = "process-launcher.sh";
+    private static final List<String> SHELL = ImmutableList.of("/bin/bash");
+    // Launching only forks the process and returns right away
+    private static final long LAUNCH_TIMEOUT = 30_000L;
+
+    private final HelperProcessPool launchers;
+
+    /**
+     * Constructor. Starts all the launcher processes.
+     *
+     * @param poolSize The number of launcher processes to keep running
+     * @param registry The metrics registry to use
+     * @throws IOException If a launcher process can't be started
+     */
+    public HelperProcessLauncherServiceImpl(final int poolSize, @NotNull final Registry registry) throws IOException {
+        this.launchers = new HelperProcessPool(
+            SHELL,
+            SCRIPT_RESOURCE,
+            poolSize,
+            LAUNCH_TIMEOUT,
+            1,
+            registry.counter("genie.jobs.launcher.start.rate")
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int launch(
+        @NotNull final List<String> command,
+        @NotNull final File workingDirectory,
+        @NotNull final File outputFile
+    ) throws IOException {
+        final String request = HelperProcessPool.toRequest(
+            ImmutableList.<String>builder()
+                .add(workingDirectory.getAbsolutePath())
+                .add(outputFile.getAbsolutePath())
+                .addAll(command)
+                .build()
+        );
+        final String response = this.launchers.execute(ImmutableList.of(request)).get(0);
+        final int pid;
+        try {
+            pid = Integer.parseInt(response);
+        } catch (final NumberFormatException nfe) {
+            throw new IOException("Unexpected response [" + response + "] from process launcher", nfe);
+        }
+        if (pid <= 0) {
+            throw new IOException("Unable to launch " + command + " in " + workingDirectory);
+        }
+        return pid;
+    }
+
+    /**
+     * Stop all the launcher processes. Processes already launched keep running.
+     */
+    @Override
+    public void close() {
+        this.launchers.close();
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.spectator.api.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of long running bash helper processes which each read requests from their standard input and answer every
+ * one of them with a single line on their standard output. A request is a line of tab separated fields. The requests
+ * of a batch are pipelined to a single helper, at most the maximum batch size at a time so a large batch doesn't keep
+ * the helpers from the other callers for long. A helper which doesn't answer a request within the read timeout is
+ * killed and replaced. Helpers which died are restarted on their next use.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+class HelperProcessPool implements Closeable {
+
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final char REQUEST_SEPARATOR = '\n';
+    private static final ThreadFactory READER_THREAD_FACTORY = new ThreadFactoryBuilder()
+        .setNameFormat("genie-helper-reader-%d")
+        .setDaemon(true)
+        .build();
+
+    private final List<String> command;
+    private final long readTimeout;
+    private final int maxBatchSize;
+    private final BlockingQueue<HelperProcess> helpers;
+    private final Counter startCounter;
+
+    /**
+     * Constructor. Starts all the helper processes.
+     *
+     * @param command        The command to start a helper with
+     * @param scriptResource The name of the helper script resource relative to this class to pass to the command with
+     *                       -c or null if the command runs the helper script itself
+     * @param size           The number of helper processes to keep running
+     * @param readTimeout    How long, in milliseconds, a helper may take to answer a request before it's killed
+     * @param maxBatchSize   The maximum number of requests sent to a helper at a time
+     * @param startCounter   The counter to increment every time a helper process is started
+     * @throws IOException If a helper process can't be started
+     */
+    HelperProcessPool(
+        final List<String> command,
+        @Nullable final String scriptResource,
+        final int size,
+        final long readTimeout,
+        final int maxBatchSize,
+        final Counter startCounter
+    ) throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException("The helper pool size must be at least 1. Was " + size);
+        }
+        if (readTimeout < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException(
+                "The read timeout and maximum batch size must be at least 1. Were " + readTimeout + " and "
+                    + maxBatchSize
+            );
+        }
+        this.command = new ArrayList<>(command);
+        if (scriptResource != null) {
+            this.command.add("-c");
+            this.command.add(
+                Resources.toString(
+                    Resources.getResource(HelperProcessPool.class, scriptResource),
+                    StandardCharsets.UTF_8
+                )
+            );
+        }
+        this.readTimeout = readTimeout;
+        this.maxBatchSize = maxBatchSize;
+        this.startCounter = startCounter;
+
+        this.helpers = new LinkedBlockingQueue<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                final HelperProcess helper = new HelperProcess();
+                helper.start();
+                this.helpers.add(helper);
+            }
+        } catch (final IOException ioe) {
+            this.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Create a request line out of the given fields.
+     *
+     * @param fields The fields of the request
+     * @return The request
+     * @throws IllegalArgumentException If a field is empty or contains characters which would break the framing
+     */
+    static String toRequest(final List<String> fields) {
+        final StringBuilder request = new StringBuilder();
+        for (final String field : fields) {
+            if (StringUtils.isEmpty(field) || StringUtils.containsAny(field, '\t', '\n', '\r', '\0')) {
+                throw new IllegalArgumentException("Invalid helper request field [" + field + "]");
+            }
+            if (request.length() > 0) {
+                request.append(FIELD_SEPARATOR);
+            }
+            request.append(field);
+        }
+        return request.toString();
+    }
+
+    /**
+     * Send the given requests to the helpers and wait for their responses.
+     *
+     * @param requests The requests created with {@link #toRequest(List)}
+     * @return The responses in the order of the requests
+     * @throws IOException If a helper died, timed out or couldn't be started
+     */
+    List<String> execute(final List<String> requests) throws IOException {
+        if (requests.size() <= this.maxBatchSize) {
+            return this.executeBatch(requests);
+        }
+        final List<String> responses = new ArrayList<>(requests.size());
+        for (final List<String> batch : Lists.partition(requests, this.maxBatchSize)) {
+            responses.addAll(this.executeBatch(batch));
+        }
+        return responses;
+    }
+
+    /**
+     * Stop all the helper processes.
+     */
+    @Override
+    public void close() {
+        for (final HelperProcess helper : this.helpers) {
+            helper.stop();
+        }
+    }
+
+    private List<String> executeBatch(final List<String> requests) throws IOException {
+        final HelperProcess helper;
+        try {
+            helper = this.helpers.take();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a helper process");
+        }
+        try {
+            return helper.execute(requests);
+        } finally {
+            this.helpers.add(helper);
+        }
+    }
+
+    /**
+     * One helper process. Only ever used by one thread at a time. Its output is read by a thread of its own so waiting
+     * for an answer can time out even when a child of the helper still holds the output open.
+     */
+    private final class HelperProcess {
+        private Process process;
+        private BufferedWriter requests;
+        // Empty once the helper closed its output
+        private BlockingQueue<Optional<String>> responses;
+
+        private void start() throws IOException {
+            this.process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            this.requests = new BufferedWriter(
+                new OutputStreamWriter(this.process.getOutputStream(), StandardCharsets.UTF_8)
+            );
+            final BufferedReader output = new BufferedReader(
+                new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8)
+            );
+            final BlockingQueue<Optional<String>> lines = new LinkedBlockingQueue<>();
+            READER_THREAD_FACTORY.newThread(
+                () -> {
+                    try {
+                        String line;
+                        while ((line = output.readLine()) != null) {
+                            lines.add(Optional.of(line));
+                        }
+                    } catch (final IOException ioe) {
+                        log.debug("Unable to read the output of the helper process", ioe);
+                    } finally {
+                        lines.add(Optional.empty());
+                    }
+                }
+            ).start();
+            this.responses = lines;
+            startCounter.increment();
+        }
+
+        private List<String> execute(final List<String> batch) throws IOException {
+            if (this.process == null || !this.process.isAlive()) {
+                log.warn("Helper process isn't running. Starting a new one.");
+                this.stop();
+                this.start();
+            }
+            boolean timedOut = false;
+            try {
+                // A batch is small enough to fit in the pipe so this doesn't wait for the helper to read it
+                for (final String request : batch) {
+                    this.requests.write(request);
+                    this.requests.write(REQUEST_SEPARATOR);
+                }
+                this.requests.flush();
+
+                final List<String> responseLines = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    // Every request gets the whole timeout
+                    final Optional<String> response = this.responses.poll(readTimeout, TimeUnit.MILLISECONDS);
+                    if (response == null) {
+                        timedOut = true;
+                        throw new IOException(
+                            "Helper process didn't answer within " + readTimeout + "ms while executing " + batch
+                        );
+                    }
+                    if (!response.isPresent()) {
+                        throw new IOException("Helper process exited while executing " + batch);
+                    }
+                    responseLines.add(response.get().trim());
+                }
+                return responseLines;
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                this.stop();
+                throw new InterruptedIOException("Interrupted waiting for the helper process to answer " + batch);
+            } catch (final IOException ioe) {
+                // The state of the helper is unknown. Don't risk reading the responses of this batch for the next.
+                if (timedOut) {
+                    this.process.destroyForcibly();
+                    this.stop();
+                    this.replace();
+                } else {
+                    this.stop();
+                }
+                throw ioe;
+            }
+        }
+
+        private void replace() {
+            try {
+                this.start();
+            } catch (final IOException ioe) {
+                log.error("Unable to replace a helper process which timed out. Retrying on its next use.", ioe);
+            }
+        }
+
+        private void stop() {
+            if (this.process != null) {
+                try {
+                    this.requests.close();
+                } catch (final IOException ioe) {
+                    log.debug("Unable to close the input of the helper process", ioe);
+                }
+                this.process.destroy();
+                this.process = null;
+            }
+        }
+    }
+}
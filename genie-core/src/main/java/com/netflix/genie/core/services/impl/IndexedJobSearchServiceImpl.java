@@ -0,0 +1,520 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.dto.search.JobSearchResult;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobCompletionSnapshot;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.core.services.JobSearchCursor;
+import com.netflix.genie.core.services.JobSearchCursorPage;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A JobSearchService which finds the jobs of searches matching strings with a pattern or matching tags in the
+ * embedded job search index instead of making the database scan the jobs table. The index only finds the ids of the
+ * page. The jobs themselves are then read from the database by their ids and checked against the statuses and the
+ * started and finished ranges of the search again so what is returned is never stale even if the index lags a bit
+ * behind. A job whose status or times changed since it was indexed may only be missing from a page until the index
+ * catches up. Searches fall back to the delegate if the index was never built, lags behind by more
+ * than the maximum lag, can't sort as requested or fails. All other calls go straight to the delegate.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class IndexedJobSearchServiceImpl implements JobSearchService {
+
+    private final JobSearchService jobSearchService;
+    private final JobSearchIndex jobSearchIndex;
+    private final long maxLag;
+    private final Registry registry;
+    private final Id searchTimerId;
+    private final Counter fallbacks;
+
+    /**
+     * Constructor.
+     *
+     * @param jobSearchService The service to read the jobs found and do all other searches with
+     * @param jobSearchIndex   The index to find the ids of the jobs with
+     * @param maxLag           How far the index may lag behind the database in milliseconds before searches fall back
+     * @param registry         The metrics registry to use
+     */
+    public IndexedJobSearchServiceImpl(
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final JobSearchIndex jobSearchIndex,
+        @Min(1) final long maxLag,
+        @NotNull final Registry registry
+    ) {
+        this.jobSearchService = jobSearchService;
+        this.jobSearchIndex = jobSearchIndex;
+        this.maxLag = maxLag;
+        this.registry = registry;
+        this.searchTimerId = registry.createId("genie.jobs.search.index.search.timer");
+        this.fallbacks = registry.counter("genie.jobs.search.index.fallback.rate");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<JobSearchResult> findJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page
+    ) {
+        // Counted searches always return a page
+        return (Page<JobSearchResult>) this.findJobs(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            page,
+            CountMode.EXACT
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The total is always exact when the index answers the search as counting costs it next to nothing.
+     */
+    @Override
+    public Slice<JobSearchResult> findJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page,
+        @NotNull final CountMode countMode
+    ) {
+        if (JobSearchIndex.isFreeTextSearch(id, name, user, tags, clusterName, commandName)) {
+            final Optional<Page<String>> ids = this.findJobIds(
+                id,
+                name,
+                user,
+                statuses,
+                tags,
+                clusterName,
+                clusterId,
+                commandName,
+                commandId,
+                minStarted,
+                maxStarted,
+                minFinished,
+                maxFinished,
+                page
+            );
+            if (ids.isPresent()) {
+                final Map<String, JobSearchResult> jobs = this.jobSearchService.getJobSearchResults(
+                    ids.get().getContent()
+                );
+                final List<JobSearchResult> results = new ArrayList<>(jobs.size());
+                for (final String jobId : ids.get()) {
+                    // Purged from the database or changed so it no longer matches since it was indexed
+                    final JobSearchResult job = jobs.get(jobId);
+                    if (job != null && matches(job, statuses, minStarted, maxStarted, minFinished, maxFinished)) {
+                        results.add(job);
+                    }
+                }
+                final int dropped = ids.get().getNumberOfElements() - results.size();
+                return new PageImpl<>(results, page, ids.get().getTotalElements() - dropped);
+            }
+            this.fallbacks.increment();
+        }
+        return this.jobSearchService.findJobs(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            page,
+            countMode
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobSearchCursorPage findJobsByCursor(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        final JobSearchCursor cursor,
+        @Min(1) final int pageSize
+    ) {
+        return this.jobSearchService.findJobsByCursor(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            cursor,
+            pageSize
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportJobs(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @Min(1) final int fetchSize,
+        @NotNull final Consumer<JobSearchResult> consumer
+    ) {
+        return this.jobSearchService.exportJobs(
+            id,
+            name,
+            user,
+            statuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted,
+            maxStarted,
+            minFinished,
+            maxFinished,
+            fetchSize,
+            consumer
+        );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Job> getAllActiveJobsOnHost(@NotBlank final String hostName) {
+        return this.jobSearchService.getAllActiveJobsOnHost(hostName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllHostsWithActiveJobs() {
+        return this.jobSearchService.getAllHostsWithActiveJobs();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Job getJob(
+        @NotBlank(message = "No id entered. Unable to get job.") final String id
+    ) throws GenieException {
+        return this.jobSearchService.getJob(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobStatus getJobStatus(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobStatus(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobStatus> getJobStatuses(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobStatuses(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobSearchResult> getJobSearchResults(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobSearchResults(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSearchSnapshot> getJobSearchSnapshots(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobSearchSnapshots(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<JobSearchSnapshot> getJobSearchSnapshotsUpdatedAfter(
+        @NotNull final Date updated,
+        @NotNull final String id,
+        @Min(1) final int limit
+    ) {
+        return this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(updated, id, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobRequest getJobRequest(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobRequest(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobExecution getJobExecution(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobExecution(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, JobExecution> getJobExecutions(@NotNull final Collection<String> ids) {
+        return this.jobSearchService.getJobExecutions(ids);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JobCompletionSnapshot getJobCompletionSnapshot(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobCompletionSnapshot(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cluster getJobCluster(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobCluster(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Command getJobCommand(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobCommand(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Application> getJobApplications(@NotBlank final String id) throws GenieException {
+        return this.jobSearchService.getJobApplications(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getJobHost(@NotBlank final String jobId) throws GenieException {
+        return this.jobSearchService.getJobHost(jobId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getActiveJobCountForUser(@NotBlank final String user) throws GenieException {
+        return this.jobSearchService.getActiveJobCountForUser(user);
+    }
+
+    private Optional<Page<String>> findJobIds(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        final Pageable page
+    ) {
+        final long start = System.nanoTime();
+        final Map<String, String> timerTags = MetricsUtils.newSuccessTagsMap();
+        try {
+            final OptionalLong indexedUntil = this.jobSearchIndex.getIndexedUntil();
+            if (!indexedUntil.isPresent() || indexedUntil.getAsLong() < System.currentTimeMillis() - this.maxLag) {
+                log.debug("Job search index lags too far behind. Searching the database.");
+                return Optional.empty();
+            }
+            return this.jobSearchIndex.findJobIds(
+                id,
+                name,
+                user,
+                statuses,
+                tags,
+                clusterName,
+                clusterId,
+                commandName,
+                commandId,
+                minStarted,
+                maxStarted,
+                minFinished,
+                maxFinished,
+                page
+            );
+        } catch (final IOException | RuntimeException e) {
+            log.error("Unable to search the job search index. Searching the database.", e);
+            MetricsUtils.addFailureTagsWithException(timerTags, e);
+            return Optional.empty();
+        } finally {
+            this.registry
+                .timer(this.searchTimerId.withTags(timerTags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Check a job read from the database against the parts of a search which change over the life of a job. Matches
+     * the same way as the database searches do.
+     */
+    private static boolean matches(
+        final JobSearchResult job,
+        final Set<JobStatus> statuses,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished
+    ) {
+        if (statuses != null && !statuses.isEmpty() && !statuses.contains(job.getStatus())) {
+            return false;
+        }
+        return isInRange(job.getStarted(), minStarted, maxStarted)
+            && isInRange(job.getFinished(), minFinished, maxFinished);
+    }
+
+    private static boolean isInRange(final Optional<Date> date, final Date min, final Date max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        if (!date.isPresent()) {
+            return false;
+        }
+        return (min == null || !date.get().before(min)) && (max == null || date.get().before(max));
+    }
+}
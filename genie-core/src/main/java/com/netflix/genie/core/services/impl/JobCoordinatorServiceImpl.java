@@ -182,6 +182,12 @@ public class JobCoordinatorServiceImpl implements JobCoordinatorService {
             .orElseThrow(() -> new GenieServerException("Id of the jobRequest cannot be null"));
         JobStatus jobStatus = JobStatus.FAILED;
         try {
+            // Until then the used memory leaves out jobs which were running on this node when it started
+            if (!this.jobStateService.isAcceptingJobs()) {
+                throw new GenieServerUnavailableException(
+                    "Job " + jobId + " can't run on this node until it re-attached to its running jobs"
+                );
+            }
             log.info("Called to schedule job launch for job {}", jobId);
             // create the job object in the database with status INIT
             final Job.Builder jobBuilder = new Job.Builder(
@@ -254,7 +260,9 @@ public class JobCoordinatorServiceImpl implements JobCoordinatorService {
             synchronized (this) {
                 log.info("Checking if can run job {} on this node", jobRequest.getId());
                 final int maxSystemMemory = this.jobsProperties.getMemory().getMaxSystemMemory();
-                final int usedMemory = this.jobStateService.getUsedMemory();
+                final int usedMemory = this.jobsProperties.getMemory().isAdmitByObservedUsage()
+                    ? this.jobStateService.getObservedUsedMemory()
+                    : this.jobStateService.getUsedMemory();
                 if (usedMemory + memory <= maxSystemMemory) {
                     log.info(
                         "Job {} can run on this node as only {}/{} MB are used and requested {} MB",
@@ -0,0 +1,540 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * An embedded Lucene index of the fields jobs are searched by. It serves the searches the database can only answer
+ * with a scan, i.e. the ones matching names and other strings with a pattern or matching tags, and only finds the
+ * ids of the jobs. The index lives in a directory which is either local to the node or on a path shared by all the
+ * nodes. Only the node which holds the lock of the directory writes to it. All the others only read it.
+ * <p>
+ * Searches only see what was committed. Every commit records the time up to which all the changes to jobs made in the
+ * database were indexed so the lag of the index can be told on every node reading it.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class JobSearchIndex implements Closeable {
+
+    static final String INDEXED_UNTIL = "indexedUntil";
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String USER = "user";
+    private static final String STATUS = "status";
+    private static final String TAG = "tag";
+    private static final String CLUSTER_NAME = "clusterName";
+    private static final String CLUSTER_ID = "clusterId";
+    private static final String COMMAND_NAME = "commandName";
+    private static final String COMMAND_ID = "commandId";
+    private static final String CREATED = "created";
+    private static final String UPDATED = "updated";
+    private static final String STARTED = "started";
+    private static final String FINISHED = "finished";
+
+    private static final Set<String> STRING_SORT_FIELDS
+        = ImmutableSet.of(ID, NAME, USER, STATUS, CLUSTER_NAME, COMMAND_NAME);
+    private static final Set<String> LONG_SORT_FIELDS = ImmutableSet.of(CREATED, UPDATED, STARTED, FINISHED);
+    private static final Set<String> ID_FIELD = ImmutableSet.of(ID);
+    private static final char PERCENT = '%';
+
+    private final Directory directory;
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+
+    /**
+     * Constructor. Opens the index in the given directory for writing if no other node holds its lock or only for
+     * reading otherwise.
+     *
+     * @param directory The directory of the index. Created if it doesn't exist.
+     * @throws IOException If the directory can't be opened
+     */
+    public JobSearchIndex(@NotNull final File directory) throws IOException {
+        this.directory = FSDirectory.open(directory.toPath());
+        this.tryOpenWriter();
+    }
+
+    /**
+     * Whether a job search could be answered by the index. Only the searches which make the database scan the jobs are
+     * worth it, i.e. the ones matching strings with a pattern or matching tags.
+     *
+     * @param id          The id of the job or a pattern
+     * @param name        The name of the job or a pattern
+     * @param user        The user who submitted the job or a pattern
+     * @param tags        The tags of the job
+     * @param clusterName The name of the cluster or a pattern
+     * @param commandName The name of the command or a pattern
+     * @return True if any of the parameters needs a scan of the database
+     */
+    public static boolean isFreeTextSearch(
+        final String id,
+        final String name,
+        final String user,
+        final Set<String> tags,
+        final String clusterName,
+        final String commandName
+    ) {
+        return StringUtils.contains(id, PERCENT)
+            || StringUtils.contains(name, PERCENT)
+            || StringUtils.contains(user, PERCENT)
+            || StringUtils.contains(clusterName, PERCENT)
+            || StringUtils.contains(commandName, PERCENT)
+            || (tags != null && tags.stream().anyMatch(StringUtils::isNotBlank));
+    }
+
+    /**
+     * Open the index for writing if nobody else holds the lock of the directory, e.g. because the node which did
+     * went away.
+     *
+     * @return True if this node now writes to the index
+     * @throws IOException If the index can't be opened
+     */
+    public synchronized boolean tryOpenWriter() throws IOException {
+        if (this.writer == null) {
+            try {
+                this.writer = new IndexWriter(
+                    this.directory,
+                    new IndexWriterConfig()
+                        .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                        // Never make a half done rebuild visible by closing
+                        .setCommitOnClose(false)
+                );
+                log.info("Writing to the job search index");
+            } catch (final LockObtainFailedException lofe) {
+                log.debug("The job search index is written by another node. Only reading it.", lofe);
+            }
+        }
+        return this.writer != null;
+    }
+
+    /**
+     * Whether this node writes to the index.
+     *
+     * @return True if it does
+     */
+    public boolean isWritable() {
+        return this.writer != null;
+    }
+
+    /**
+     * Add the given jobs to the index or replace them if they already are. Not visible before the next commit.
+     *
+     * @param jobs The snapshots of the jobs to index
+     * @throws IOException           If the index can't be written
+     * @throws IllegalStateException If this node doesn't write to the index
+     */
+    public void update(@NotNull final List<JobSearchSnapshot> jobs) throws IOException {
+        final IndexWriter indexWriter = this.getWriter();
+        for (final JobSearchSnapshot job : jobs) {
+            indexWriter.updateDocument(new Term(ID, job.getId()), toDocument(job));
+        }
+    }
+
+    /**
+     * Remove all the jobs from the index. Not visible before the next commit so searches keep being served from the
+     * previous commit during a rebuild.
+     *
+     * @throws IOException           If the index can't be written
+     * @throws IllegalStateException If this node doesn't write to the index
+     */
+    public void deleteAll() throws IOException {
+        this.getWriter().deleteAll();
+    }
+
+    /**
+     * Make all the changes since the previous commit visible.
+     *
+     * @param indexedUntil The time up to which all the changes to jobs are in the index in milliseconds since the epoch
+     * @throws IOException           If the index can't be written
+     * @throws IllegalStateException If this node doesn't write to the index
+     */
+    public void commit(final long indexedUntil) throws IOException {
+        final IndexWriter indexWriter = this.getWriter();
+        indexWriter.setLiveCommitData(ImmutableMap.of(INDEXED_UNTIL, Long.toString(indexedUntil)).entrySet());
+        indexWriter.commit();
+        this.refresh();
+    }
+
+    /**
+     * Drop all the changes since the previous commit, e.g. after a rebuild failed half way.
+     *
+     * @throws IOException If the index can't be opened for writing again
+     */
+    public synchronized void discardChanges() throws IOException {
+        if (this.writer != null) {
+            // Rolling back closes the writer
+            this.writer.rollback();
+            this.writer = null;
+            this.tryOpenWriter();
+        }
+    }
+
+    /**
+     * Make the latest commit visible to the searches. Needed on the nodes which only read the index.
+     *
+     * @throws IOException If the index can't be read
+     */
+    public void refresh() throws IOException {
+        final SearcherManager manager = this.getSearcherManager();
+        if (manager != null) {
+            manager.maybeRefresh();
+        }
+    }
+
+    /**
+     * Get the time up to which all the changes to jobs are in the index searches see.
+     *
+     * @return The time in milliseconds since the epoch or empty if the index was never built
+     * @throws IOException If the index can't be read
+     */
+    public OptionalLong getIndexedUntil() throws IOException {
+        final SearcherManager manager = this.getSearcherManager();
+        if (manager == null) {
+            return OptionalLong.empty();
+        }
+        final IndexSearcher searcher = manager.acquire();
+        try {
+            final String indexedUntil = readIndexedUntil(searcher);
+            return indexedUntil == null ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(indexedUntil));
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    /**
+     * Get the number of jobs in the index searches see.
+     *
+     * @return The number of jobs
+     * @throws IOException If the index can't be read
+     */
+    public int getNumJobs() throws IOException {
+        final SearcherManager manager = this.getSearcherManager();
+        if (manager == null) {
+            return 0;
+        }
+        final IndexSearcher searcher = manager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    /**
+     * Find the ids of the jobs matching the given parameters. The parameters mean the same as for the database search.
+     *
+     * @param id          The id of the job or a pattern
+     * @param name        The name of the job or a pattern
+     * @param user        The user who submitted the job or a pattern
+     * @param statuses    The statuses of the jobs
+     * @param tags        The tags the jobs must all have
+     * @param clusterName The name of the cluster or a pattern
+     * @param clusterId   The id of the cluster
+     * @param commandName The name of the command or a pattern
+     * @param commandId   The id of the command
+     * @param minStarted  The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param page        The page to find
+     * @return The page of ids in the requested order or empty if the index was never built or can't sort by one of
+     * the requested properties
+     * @throws IOException If the index can't be read
+     */
+    public Optional<Page<String>> findJobIds(
+        final String id,
+        final String name,
+        final String user,
+        final Set<JobStatus> statuses,
+        final Set<String> tags,
+        final String clusterName,
+        final String clusterId,
+        final String commandName,
+        final String commandId,
+        final Date minStarted,
+        final Date maxStarted,
+        final Date minFinished,
+        final Date maxFinished,
+        @NotNull final Pageable page
+    ) throws IOException {
+        final org.apache.lucene.search.Sort sort = toSort(page.getSort());
+        final SearcherManager manager = this.getSearcherManager();
+        if (sort == null || manager == null) {
+            return Optional.empty();
+        }
+
+        final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        addStringFilter(builder, ID, id);
+        addStringFilter(builder, NAME, name);
+        addStringFilter(builder, USER, user);
+        if (statuses != null && !statuses.isEmpty()) {
+            builder.add(
+                new TermInSetQuery(
+                    STATUS,
+                    statuses.stream().map(status -> new BytesRef(status.name())).collect(Collectors.toList())
+                ),
+                BooleanClause.Occur.FILTER
+            );
+        }
+        if (tags != null) {
+            tags
+                .stream()
+                .filter(StringUtils::isNotBlank)
+                .forEach(tag -> builder.add(new TermQuery(new Term(TAG, tag)), BooleanClause.Occur.FILTER));
+        }
+        addStringFilter(builder, CLUSTER_NAME, clusterName);
+        if (clusterId != null) {
+            builder.add(new TermQuery(new Term(CLUSTER_ID, clusterId)), BooleanClause.Occur.FILTER);
+        }
+        addStringFilter(builder, COMMAND_NAME, commandName);
+        if (commandId != null) {
+            builder.add(new TermQuery(new Term(COMMAND_ID, commandId)), BooleanClause.Occur.FILTER);
+        }
+        addRangeFilter(builder, STARTED, minStarted, maxStarted);
+        addRangeFilter(builder, FINISHED, minFinished, maxFinished);
+        final BooleanQuery booleanQuery = builder.build();
+        final Query query = booleanQuery.clauses().isEmpty() ? new MatchAllDocsQuery() : booleanQuery;
+
+        final IndexSearcher searcher = manager.acquire();
+        try {
+            if (readIndexedUntil(searcher) == null) {
+                // Never built
+                return Optional.empty();
+            }
+            final int end = page.getOffset() + page.getPageSize();
+            final TopFieldDocs docs = searcher.search(query, Math.max(end, 1), sort);
+            final List<String> ids = new ArrayList<>(page.getPageSize());
+            final ScoreDoc[] scoreDocs = docs.scoreDocs;
+            for (int i = page.getOffset(); i < Math.min(end, scoreDocs.length); i++) {
+                ids.add(searcher.doc(scoreDocs[i].doc, ID_FIELD).get(ID));
+            }
+            return Optional.of(new PageImpl<>(ids, page, docs.totalHits));
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    /**
+     * Close the index. Changes which weren't committed are lost.
+     *
+     * @throws IOException If the index can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.searcherManager != null) {
+            this.searcherManager.close();
+        }
+        if (this.writer != null) {
+            this.writer.close();
+        }
+        this.directory.close();
+    }
+
+    private IndexWriter getWriter() {
+        final IndexWriter indexWriter = this.writer;
+        if (indexWriter == null) {
+            throw new IllegalStateException("The job search index is written by another node");
+        }
+        return indexWriter;
+    }
+
+    private synchronized SearcherManager getSearcherManager() throws IOException {
+        // Only searches what was committed to the directory as opposed to what the writer has in memory
+        if (this.searcherManager == null && DirectoryReader.indexExists(this.directory)) {
+            this.searcherManager = new SearcherManager(this.directory, null);
+        }
+        return this.searcherManager;
+    }
+
+    private static Document toDocument(final JobSearchSnapshot job) {
+        final Document document = new Document();
+        addString(document, ID, job.getId(), true);
+        addString(document, NAME, job.getName(), true);
+        addString(document, USER, job.getUser(), true);
+        addString(document, STATUS, job.getStatus().name(), true);
+        for (final String tag : job.getTags()) {
+            document.add(new StringField(TAG, tag, Field.Store.NO));
+        }
+        job.getClusterName().ifPresent(clusterName -> addString(document, CLUSTER_NAME, clusterName, true));
+        job.getClusterId().ifPresent(clusterId -> addString(document, CLUSTER_ID, clusterId, false));
+        job.getCommandName().ifPresent(commandName -> addString(document, COMMAND_NAME, commandName, true));
+        job.getCommandId().ifPresent(commandId -> addString(document, COMMAND_ID, commandId, false));
+        addDate(document, CREATED, job.getCreated());
+        addDate(document, UPDATED, job.getUpdated());
+        job.getStarted().ifPresent(started -> addDate(document, STARTED, started));
+        job.getFinished().ifPresent(finished -> addDate(document, FINISHED, finished));
+        return document;
+    }
+
+    private static void addString(final Document document, final String field, final String value, final boolean sort) {
+        document.add(new StringField(field, value, ID.equals(field) ? Field.Store.YES : Field.Store.NO));
+        if (sort) {
+            document.add(new SortedDocValuesField(field, new BytesRef(value)));
+        }
+    }
+
+    private static void addDate(final Document document, final String field, final Date value) {
+        document.add(new LongPoint(field, value.getTime()));
+        document.add(new NumericDocValuesField(field, value.getTime()));
+    }
+
+    private static void addStringFilter(final BooleanQuery.Builder builder, final String field, final String value) {
+        if (StringUtils.isBlank(value)) {
+            return;
+        }
+        // Same as the database search. Only a pattern if there is a percent sign.
+        final Query query = StringUtils.contains(value, PERCENT)
+            ? new WildcardQuery(new Term(field, toWildcard(value)))
+            : new TermQuery(new Term(field, value));
+        builder.add(query, BooleanClause.Occur.FILTER);
+    }
+
+    private static void addRangeFilter(
+        final BooleanQuery.Builder builder,
+        final String field,
+        final Date min,
+        final Date max
+    ) {
+        if (min != null || max != null) {
+            builder.add(
+                LongPoint.newRangeQuery(
+                    field,
+                    min == null ? Long.MIN_VALUE : min.getTime(),
+                    max == null ? Long.MAX_VALUE : max.getTime() - 1L
+                ),
+                BooleanClause.Occur.FILTER
+            );
+        }
+    }
+
+    /**
+     * Convert a SQL like pattern to a Lucene wildcard pattern. A backslash escapes the next character like it does for
+     * the default escape character of MySQL and PostgreSQL.
+     *
+     * @param pattern The SQL like pattern
+     * @return The wildcard pattern
+     */
+    static String toWildcard(final String pattern) {
+        final StringBuilder wildcard = new StringBuilder(pattern.length());
+        boolean escaped = false;
+        for (final char c : pattern.toCharArray()) {
+            if (escaped) {
+                appendLiteral(wildcard, c);
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == PERCENT) {
+                wildcard.append(WildcardQuery.WILDCARD_STRING);
+            } else if (c == '_') {
+                wildcard.append(WildcardQuery.WILDCARD_CHAR);
+            } else {
+                appendLiteral(wildcard, c);
+            }
+        }
+        if (escaped) {
+            appendLiteral(wildcard, '\\');
+        }
+        return wildcard.toString();
+    }
+
+    private static void appendLiteral(final StringBuilder wildcard, final char c) {
+        if (c == WildcardQuery.WILDCARD_STRING
+            || c == WildcardQuery.WILDCARD_CHAR
+            || c == WildcardQuery.WILDCARD_ESCAPE) {
+            wildcard.append(WildcardQuery.WILDCARD_ESCAPE);
+        }
+        wildcard.append(c);
+    }
+
+    private static org.apache.lucene.search.Sort toSort(final Sort sort) {
+        final List<SortField> sortFields = new ArrayList<>();
+        if (sort != null) {
+            for (final Sort.Order order : sort) {
+                final String property = order.getProperty();
+                final boolean reverse = !order.isAscending();
+                if (STRING_SORT_FIELDS.contains(property)) {
+                    sortFields.add(new SortField(property, SortField.Type.STRING, reverse));
+                } else if (LONG_SORT_FIELDS.contains(property)) {
+                    // Jobs without the time sort like nulls in the database. First ascending, last descending.
+                    final SortField sortField = new SortField(property, SortField.Type.LONG, reverse);
+                    sortField.setMissingValue(Long.MIN_VALUE);
+                    sortFields.add(sortField);
+                } else {
+                    return null;
+                }
+            }
+        }
+        // Keeps the order of jobs which are equal otherwise stable between pages
+        sortFields.add(new SortField(ID, SortField.Type.STRING));
+        return new org.apache.lucene.search.Sort(sortFields.toArray(new SortField[sortFields.size()]));
+    }
+
+    private static String readIndexedUntil(final IndexSearcher searcher) throws IOException {
+        return ((DirectoryReader) searcher.getIndexReader()).getIndexCommit().getUserData().get(INDEXED_UNTIL);
+    }
+}
@@ -173,6 +173,14 @@ public class JobStateServiceImpl implements JobStateService {
         return jobs.containsKey(jobId);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAcceptingJobs() {
+        return true;
+    }
+
     protected void setMemoryAndTask(final String jobId, final int memory, final Future<?> task) {
         handle(jobId, () -> {
             final JobInfo jobInfo = jobs.get(jobId);
@@ -206,6 +214,30 @@ public class JobStateServiceImpl implements JobStateService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getObservedUsedMemory() {
+        // Synchronized to avoid concurrent modification exception
+        synchronized (this.jobs) {
+            return this.jobs.entrySet().stream()
+                .mapToInt(job -> this.getObservedMemory(job.getKey(), job.getValue().getMemory()))
+                .sum();
+        }
+    }
+
+    /**
+     * Get the memory observed to be used by a job. Nothing is observed here so this is the requested memory.
+     *
+     * @param jobId           The id of the job
+     * @param requestedMemory The memory requested by the job in MB
+     * @return The memory observed to be used by the job in MB
+     */
+    protected int getObservedMemory(final String jobId, final int requestedMemory) {
+        return requestedMemory;
+    }
+
     @Getter
     @Setter
     private static class JobInfo {
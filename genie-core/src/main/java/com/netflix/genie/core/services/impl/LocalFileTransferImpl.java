@@ -19,15 +19,23 @@ package com.netflix.genie.core.services.impl;
 
 import com.amazonaws.util.StringUtils;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GenieServerException;
-import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.StreamingFileTransfer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.hibernate.validator.constraints.NotBlank;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
@@ -40,7 +48,7 @@ import java.nio.file.StandardCopyOption;
  * @since 3.0.0
  */
 @Slf4j
-public class LocalFileTransferImpl implements FileTransfer {
+public class LocalFileTransferImpl implements StreamingFileTransfer {
 
     private static final String FILE_SCHEME = "file:";
     private static final String ENTIRE_FILE_SCHEME = FILE_SCHEME + "//";
@@ -80,6 +88,65 @@ public class LocalFileTransferImpl implements FileTransfer {
         this.copy(srcLocalPath, dstRemotePath);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putStream(
+        @NotBlank(message = "Destination remote path cannot be empty") final String dstRemotePath,
+        final Content content
+    ) throws GenieException {
+        log.debug("Called to stream to {}", dstRemotePath);
+        final Path dest = this.createFilePath(dstRemotePath);
+        Path temp = null;
+        try {
+            final Path parent = dest.toAbsolutePath().getParent();
+            if (!Files.exists(parent)) {
+                Files.createDirectories(parent);
+            }
+            // Written next to the destination and moved in place so a partial file is never visible
+            temp = Files.createTempFile(parent, ".genie-", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                content.writeTo(out);
+            }
+            Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException ioe) {
+            log.error("Got error while streaming to file {}", dstRemotePath, ioe);
+            throw new GenieServerException("Got error while streaming to file " + dstRemotePath, ioe);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (final IOException ioe) {
+                    log.warn("Unable to delete temporary file {}", temp, ioe);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream getStream(
+        @NotBlank(message = "Source path cannot be empty") final String srcRemotePath,
+        final long first,
+        final long last
+    ) throws GenieException {
+        log.debug("Called to read bytes {}-{} of {}", first, last, srcRemotePath);
+        final Path src = this.createFilePath(srcRemotePath);
+        try {
+            final SeekableByteChannel channel = Files.newByteChannel(src);
+            channel.position(first);
+            return new BoundedInputStream(Channels.newInputStream(channel), last - first + 1);
+        } catch (final NoSuchFileException nsfe) {
+            throw new GenieNotFoundException("No file " + srcRemotePath);
+        } catch (final IOException ioe) {
+            log.error("Got error while reading file {}", srcRemotePath, ioe);
+            throw new GenieServerException("Got error while reading file " + srcRemotePath, ioe);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
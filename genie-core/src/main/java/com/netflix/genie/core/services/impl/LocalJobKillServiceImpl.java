@@ -32,6 +32,8 @@ import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobKillReasonFile;
 import com.netflix.genie.core.services.JobKillService;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
 import com.netflix.genie.core.util.ProcessChecker;
 import com.netflix.genie.core.util.UnixProcessChecker;
 import lombok.extern.slf4j.Slf4j;
@@ -60,6 +62,7 @@ public class LocalJobKillServiceImpl implements JobKillService {
     private final String hostName;
     private final JobSearchService jobSearchService;
     private final Executor executor;
+    private final PrivilegedOperationService privilegedOperationService;
     private final boolean runAsUser;
     private final GenieEventBus genieEventBus;
     private final File baseWorkingDir;
@@ -68,18 +71,20 @@ public class LocalJobKillServiceImpl implements JobKillService {
     /**
      * Constructor.
      *
-     * @param hostName         The name of the host this Genie node is running on
-     * @param jobSearchService The job search service to use to locate job information
-     * @param executor         The executor to use to run system processes
-     * @param runAsUser        True if jobs are run as the user who submitted the job
-     * @param genieEventBus    The system event bus to use
-     * @param genieWorkingDir  The working directory where all job directories are created.
-     * @param objectMapper     The Jackson ObjectMapper used to serialize from/to JSON
+     * @param hostName                   The name of the host this Genie node is running on
+     * @param jobSearchService           The job search service to use to locate job information
+     * @param executor                   The executor to use to run system processes
+     * @param privilegedOperationService The service to use to kill jobs run as the user who submitted them
+     * @param runAsUser                  True if jobs are run as the user who submitted the job
+     * @param genieEventBus              The system event bus to use
+     * @param genieWorkingDir            The working directory where all job directories are created.
+     * @param objectMapper               The Jackson ObjectMapper used to serialize from/to JSON
      */
     public LocalJobKillServiceImpl(
         @NotBlank final String hostName,
         @NotNull final JobSearchService jobSearchService,
         @NotNull final Executor executor,
+        @NotNull final PrivilegedOperationService privilegedOperationService,
         final boolean runAsUser,
         @NotNull final GenieEventBus genieEventBus,
         @NotNull final Resource genieWorkingDir,
@@ -88,6 +93,7 @@ public class LocalJobKillServiceImpl implements JobKillService {
         this.hostName = hostName;
         this.jobSearchService = jobSearchService;
         this.executor = executor;
+        this.privilegedOperationService = privilegedOperationService;
         this.runAsUser = runAsUser;
         this.genieEventBus = genieEventBus;
         this.objectMapper = objectMapper;
@@ -193,15 +199,13 @@ public class LocalJobKillServiceImpl implements JobKillService {
         // TODO: Do we need retries?
         // This means the job client process is still running
         try {
-            final CommandLine killCommand;
             if (this.runAsUser) {
-                killCommand = new CommandLine("sudo");
-                killCommand.addArgument("kill");
+                this.privilegedOperationService.execute(PrivilegedOperation.kill(pid));
             } else {
-                killCommand = new CommandLine("kill");
+                final CommandLine killCommand = new CommandLine("kill");
+                killCommand.addArguments(Integer.toString(pid));
+                this.executor.execute(killCommand);
             }
-            killCommand.addArguments(Integer.toString(pid));
-            this.executor.execute(killCommand);
         } catch (final IOException ioe) {
             throw new GenieServerException("Unable to kill process " + pid, ioe);
         }
@@ -0,0 +1,398 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.properties.MailOutboxProperties;
+import com.netflix.genie.core.services.MailService;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of the Mail service interface which queues the emails in an outbox on disk and returns right away.
+ * A single worker thread sends the queued emails in batches over one connection to the mail server, no faster than
+ * the configured rate. A failed email is queued again to be retried after a back-off of its own, doubled with every
+ * attempt, until it ran out of attempts. The emails which didn't fail meanwhile are sent as usual. An email which
+ * can't be read or handled is moved to the quarantine directory of the outbox for an operator to look at. Emails still
+ * queued when this node stops are sent once it's started again.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class OutboxMailServiceImpl implements MailService, Closeable {
+
+    static final String MESSAGE_FILE_SUFFIX = ".mail";
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+    private static final String TO_KEY = "to";
+    private static final String SUBJECT_KEY = "subject";
+    private static final String BODY_KEY = "body";
+    private static final String ATTEMPTS_KEY = "attempts";
+    private static final String QUARANTINE_DIR = "quarantine";
+
+    private final JavaMailSender javaMailSender;
+    private final String fromAddress;
+    private final File outboxDir;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackOff;
+    private final long maxBackOff;
+    private final RateLimiter rateLimiter;
+    private final DelayQueue<QueuedEmail> queue = new DelayQueue<>();
+    // Keeps the emails due at the same time in the order they were queued in
+    private final AtomicLong sequence = new AtomicLong();
+    private final Registry registry;
+    private final Id sendTimerId;
+    private final Counter droppedRate;
+    private final Counter quarantinedRate;
+    private final Thread worker;
+
+    /**
+     * Constructor. Queues the emails left in the outbox and starts the worker sending them.
+     *
+     * @param javaMailSender An implementation of the JavaMailSender interface
+     * @param fromAddress    The from email address for the emails
+     * @param outboxDir      The directory to queue the emails in
+     * @param properties     The properties of the outbox
+     * @param registry       The metrics registry to use
+     * @throws IOException If the outbox directory can't be created or read
+     */
+    public OutboxMailServiceImpl(
+        @NotNull final JavaMailSender javaMailSender,
+        @NotNull final String fromAddress,
+        @NotNull final File outboxDir,
+        @NotNull final MailOutboxProperties properties,
+        @NotNull final Registry registry
+    ) throws IOException {
+        this.javaMailSender = javaMailSender;
+        this.fromAddress = fromAddress;
+        this.outboxDir = outboxDir;
+        this.batchSize = properties.getBatchSize();
+        this.maxAttempts = properties.getMaxAttempts();
+        this.initialBackOff = properties.getInitialBackOff();
+        this.maxBackOff = properties.getMaxBackOff();
+        this.rateLimiter = RateLimiter.create(properties.getMaxMessagesPerSecond());
+        this.registry = registry;
+        this.sendTimerId = registry.createId("genie.mail.outbox.send.timer");
+        this.droppedRate = registry.counter("genie.mail.outbox.dropped.rate");
+        this.quarantinedRate = registry.counter("genie.mail.outbox.quarantined.rate");
+        registry.collectionSize("genie.mail.outbox.queue.gauge", this.queue);
+
+        if (!this.outboxDir.isDirectory() && !this.outboxDir.mkdirs()) {
+            throw new IOException("Unable to create mail outbox directory " + this.outboxDir);
+        }
+        final File[] files = this.outboxDir.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to list mail outbox directory " + this.outboxDir);
+        }
+        // The names of the files start with the time they were queued at
+        Arrays.sort(files);
+        for (final File file : files) {
+            if (file.getName().endsWith(MESSAGE_FILE_SUFFIX)) {
+                this.enqueue(file, 0L);
+            } else if (file.getName().endsWith(TMP_FILE_SUFFIX) && !file.delete()) {
+                log.warn("Unable to delete partially queued email {}", file);
+            }
+        }
+        if (!this.queue.isEmpty()) {
+            log.info("Resuming sending {} queued emails", this.queue.size());
+        }
+
+        this.worker = new Thread(this::sendQueuedEmails, "genie-mail-outbox");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queue an email to be sent by the worker.
+     *
+     * @param toEmail The email address to send the email to.
+     * @param subject The subject of the email.
+     * @param body    The body of the email
+     * @throws GenieException If the email couldn't be queued
+     */
+    @Override
+    public void sendEmail(
+        @NotBlank(message = "Cannot send email to blank address.")
+        final String toEmail,
+        @NotBlank(message = "Subject cannot be empty")
+        final String subject,
+        final String body
+    ) throws GenieException {
+        final Properties message = new Properties();
+        message.setProperty(TO_KEY, toEmail);
+        message.setProperty(SUBJECT_KEY, subject);
+        if (StringUtils.isNotBlank(body)) {
+            message.setProperty(BODY_KEY, body);
+        }
+        message.setProperty(ATTEMPTS_KEY, "0");
+
+        final File file = new File(
+            this.outboxDir,
+            String.format("%013d-%s%s", System.currentTimeMillis(), UUID.randomUUID(), MESSAGE_FILE_SUFFIX)
+        );
+        try {
+            writeMessage(file, message);
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Failure to queue email: " + ioe);
+        }
+        this.enqueue(file, 0L);
+    }
+
+    /**
+     * Stop the worker. The emails still queued are sent the next time the outbox is opened.
+     */
+    @Override
+    public void close() {
+        this.worker.interrupt();
+        try {
+            this.worker.join(TimeUnit.SECONDS.toMillis(1L));
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the number of emails waiting to be sent.
+     *
+     * @return The number of queued emails
+     */
+    int getNumQueued() {
+        return this.queue.size();
+    }
+
+    private void sendQueuedEmails() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final List<QueuedEmail> batch = new ArrayList<>(this.batchSize);
+                batch.add(this.queue.take());
+                // Only the emails due are drained, the ones waiting to be retried stay queued
+                this.queue.drainTo(batch, this.batchSize - 1);
+                try {
+                    this.sendBatch(batch);
+                } catch (final RuntimeException e) {
+                    // Never let an exception stop the worker. The emails of the batch stay in the outbox on disk.
+                    log.error("Unable to send a batch of {} queued emails", batch.size(), e);
+                }
+            }
+        } catch (final InterruptedException ie) {
+            log.info("Mail outbox worker stopped with {} emails queued", this.queue.size());
+        }
+    }
+
+    /**
+     * Send a batch of queued emails over a single connection.
+     *
+     * @param batch The queued emails
+     */
+    private void sendBatch(final List<QueuedEmail> batch) {
+        final List<File> files = new ArrayList<>(batch.size());
+        final List<Properties> messages = new ArrayList<>(batch.size());
+        final List<Integer> attempts = new ArrayList<>(batch.size());
+        final List<SimpleMailMessage> mailMessages = new ArrayList<>(batch.size());
+        for (final QueuedEmail email : batch) {
+            try {
+                final Properties message = readMessage(email.file);
+                final int previousAttempts = Integer.parseInt(message.getProperty(ATTEMPTS_KEY, "0"));
+                final SimpleMailMessage mailMessage = this.toMailMessage(message);
+                files.add(email.file);
+                messages.add(message);
+                attempts.add(previousAttempts);
+                mailMessages.add(mailMessage);
+            } catch (final IOException | RuntimeException e) {
+                log.error("Unable to read queued email {}. Quarantining it.", email.file, e);
+                this.quarantine(email.file);
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+
+        this.rateLimiter.acquire(files.size());
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        Map<Object, Exception> failedMessages = Collections.emptyMap();
+        boolean batchFailed = false;
+        try {
+            this.javaMailSender.send(mailMessages.toArray(new SimpleMailMessage[mailMessages.size()]));
+        } catch (final MailSendException mse) {
+            MetricsUtils.addFailureTagsWithException(tags, mse);
+            failedMessages = mse.getFailedMessages();
+            batchFailed = failedMessages.isEmpty();
+        } catch (final RuntimeException e) {
+            log.warn("Unable to send a batch of {} queued emails", files.size(), e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+            batchFailed = true;
+        } finally {
+            this.registry
+                .timer(this.sendTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            final File file = files.get(i);
+            try {
+                if (!batchFailed && !failedMessages.containsKey(mailMessages.get(i))) {
+                    if (!file.delete()) {
+                        log.error("Unable to delete sent email {}. It will be sent again.", file);
+                    }
+                } else {
+                    this.retry(file, messages.get(i), attempts.get(i) + 1);
+                }
+            } catch (final RuntimeException e) {
+                log.error("Unable to handle queued email {} after sending it. Quarantining it.", file, e);
+                this.quarantine(file);
+            }
+        }
+    }
+
+    private void retry(final File file, final Properties message, final int attempts) {
+        if (attempts >= this.maxAttempts) {
+            log.error("Unable to send email {} to {} after {} attempts. Dropping it.",
+                message.getProperty(SUBJECT_KEY), message.getProperty(TO_KEY), attempts);
+            this.drop(file);
+            return;
+        }
+        message.setProperty(ATTEMPTS_KEY, Integer.toString(attempts));
+        try {
+            writeMessage(file, message);
+        } catch (final IOException ioe) {
+            // Retried anyway. Only the count of attempts is lost.
+            log.warn("Unable to record attempt {} of email {}", attempts, file, ioe);
+        }
+        // Doubled with every attempt. The shift is bounded so it can't overflow.
+        final long backOff = Math.min(this.initialBackOff << Math.min(attempts - 1, 30), this.maxBackOff);
+        log.warn("Unable to send email {}. Retrying it in {} ms", file, backOff);
+        this.enqueue(file, backOff);
+    }
+
+    private void enqueue(final File file, final long delay) {
+        this.queue.add(new QueuedEmail(file, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay),
+            this.sequence.getAndIncrement()));
+    }
+
+    private void drop(final File file) {
+        this.droppedRate.increment();
+        if (!file.delete()) {
+            log.error("Unable to delete dropped email {}", file);
+        }
+    }
+
+    private void quarantine(final File file) {
+        this.quarantinedRate.increment();
+        final File quarantineDir = new File(this.outboxDir, QUARANTINE_DIR);
+        try {
+            if (!quarantineDir.isDirectory() && !quarantineDir.mkdirs()) {
+                throw new IOException("Unable to create mail outbox quarantine directory " + quarantineDir);
+            }
+            Files.move(file.toPath(), new File(quarantineDir, file.getName()).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException ioe) {
+            log.error("Unable to quarantine email {}. Dropping it.", file, ioe);
+            this.drop(file);
+        }
+    }
+
+    private SimpleMailMessage toMailMessage(final Properties message) {
+        final SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setTo(message.getProperty(TO_KEY));
+        mailMessage.setFrom(this.fromAddress);
+        mailMessage.setSubject(message.getProperty(SUBJECT_KEY));
+        mailMessage.setText(message.getProperty(BODY_KEY));
+        return mailMessage;
+    }
+
+    private static Properties readMessage(final File file) throws IOException {
+        final Properties message = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            message.load(in);
+        }
+        return message;
+    }
+
+    private static void writeMessage(final File file, final Properties message) throws IOException {
+        // Replaced in one step so the worker never reads a partially written email
+        final File tmpFile = new File(file.getPath() + TMP_FILE_SUFFIX);
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            message.store(out, null);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * An email in the outbox and when it's due to be sent.
+     */
+    @EqualsAndHashCode(of = "sequence")
+    private static final class QueuedEmail implements Delayed {
+        private final File file;
+        private final long due;
+        private final long sequence;
+
+        private QueuedEmail(final File file, final long due, final long sequence) {
+            this.file = file;
+            this.due = due;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(this.due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            final QueuedEmail otherEmail = (QueuedEmail) other;
+            final int byDue = Long.compare(this.due, otherEmail.due);
+            return byDue != 0 ? byDue : Long.compare(this.sequence, otherEmail.sequence);
+        }
+    }
+}
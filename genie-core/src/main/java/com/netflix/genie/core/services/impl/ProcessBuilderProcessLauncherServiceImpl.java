@@ -0,0 +1,88 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.ProcessLauncherService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SystemUtils;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the ProcessLauncherService which forks every process from the Genie JVM using a ProcessBuilder.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class ProcessBuilderProcessLauncherServiceImpl implements ProcessLauncherService {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int launch(
+        @NotNull final List<String> command,
+        @NotNull final File workingDirectory,
+        @NotNull final File outputFile
+    ) throws IOException {
+        final List<String> processCommand = new ArrayList<>();
+        // If the OS is linux use setsid to launch the process so that the entire process tree
+        // is launched in process group id which is the same as the pid of the parent process
+        if (SystemUtils.IS_OS_LINUX) {
+            processCommand.add("setsid");
+        }
+        processCommand.addAll(command);
+
+        // Cannot convert to executor because it does not provide an api to get process id.
+        final Process process = new ProcessBuilder(processCommand)
+            .directory(workingDirectory)
+            .redirectOutput(outputFile)
+            .redirectError(outputFile)
+            .start();
+        return getProcessId(process);
+    }
+
+    /**
+     * Helper method  to get process id for the given process.
+     *
+     * @param proc java process object representing the job launcher
+     * @return pid for this process
+     * @throws IOException if there is an error getting the process id
+     */
+    private static int getProcessId(final Process proc) throws IOException {
+        try {
+            final Field f = proc.getClass().getDeclaredField(JobConstants.PID);
+            f.setAccessible(true);
+            return f.getInt(proc);
+        } catch (final IllegalAccessException
+            | IllegalArgumentException
+            | NoSuchFieldException
+            | SecurityException e) {
+            final String msg = "Can't get process id for job";
+            log.error(msg, e);
+            throw new IOException(msg, e);
+        }
+    }
+}
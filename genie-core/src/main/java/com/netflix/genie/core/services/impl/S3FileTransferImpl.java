@@ -17,38 +17,82 @@
  */
 package com.netflix.genie.core.services.impl;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3URI;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.properties.S3FileTransferProperties;
-import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.StreamingFileTransfer;
 import com.netflix.genie.core.util.MetricsUtils;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.validator.constraints.NotBlank;
 
 import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
  * An implementation of the FileTransferService interface in which the remote locations are on Amazon S3.
+ * <p>
+ * Files are downloaded with ranged GETs. The first part tells the size of the file so files no larger than a part take
+ * a single request, and the rest of files larger than the configured multipart threshold is downloaded in parallel.
+ * Files larger than the threshold are uploaded with parallel multipart uploads. Each part is retried on its own so a
+ * single bad connection doesn't fail the whole transfer.
  *
  * @author amsharma
  * @since 3.0.0
  */
 @Slf4j
-public class S3FileTransferImpl implements FileTransfer {
+public class S3FileTransferImpl implements StreamingFileTransfer {
+
+    // S3 doesn't allow parts smaller than 5 MB (except the last) or more than 10,000 parts per upload
+    private static final long MIN_PART_SIZE = 5L * 1024L * 1024L;
+    private static final int MAX_PARTS = 10_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PARTS_PER_PART_SIZE_STEP = 1_000;
 
     private final Pattern s3PrefixPattern = Pattern.compile("^s3[n]?://.*$");
     // http://docs.aws.amazon.com/AmazonS3/latest/dev/BucketRestrictions.html#bucketnamingrules
@@ -61,7 +105,14 @@ public class S3FileTransferImpl implements FileTransfer {
     private final Id downloadTimerId;
     private final Id uploadTimerId;
     private final Id getTimerId;
+    private final Id downloadPartTimerId;
+    private final Id uploadPartTimerId;
+    private final Id downloadPartRetryCounterId;
+    private final Id uploadPartRetryCounterId;
+    private final Id downloadThroughputId;
+    private final Id uploadThroughputId;
     private final Counter urlFailingStrictValidationCounter;
+    private final ExecutorService partExecutor;
 
     /**
      * Constructor.
@@ -72,13 +123,44 @@ public class S3FileTransferImpl implements FileTransfer {
     public S3FileTransferImpl(@NotNull final AmazonS3 amazonS3Client,
                               @NotNull final Registry registry,
                               @NotNull final S3FileTransferProperties s3FileTransferProperties) {
+        this(
+            amazonS3Client,
+            registry,
+            s3FileTransferProperties,
+            Executors.newFixedThreadPool(
+                Math.max(1, s3FileTransferProperties.getConcurrency()),
+                new ThreadFactoryBuilder().setNameFormat("genie-s3-part-%d").setDaemon(true).build()
+            )
+        );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param amazonS3Client           An amazon s3 client object
+     * @param registry                 The metrics registry to use
+     * @param s3FileTransferProperties Options
+     * @param partExecutor             The executor the parts of parallel transfers are run on. Its number of threads
+     *                                 bounds the number of parts in flight across all transfers.
+     */
+    public S3FileTransferImpl(@NotNull final AmazonS3 amazonS3Client,
+                              @NotNull final Registry registry,
+                              @NotNull final S3FileTransferProperties s3FileTransferProperties,
+                              @NotNull final ExecutorService partExecutor) {
         this.s3Client = amazonS3Client;
         this.registry = registry;
         this.downloadTimerId = registry.createId("genie.files.s3.download.timer");
         this.uploadTimerId = registry.createId("genie.files.s3.upload.timer");
         this.getTimerId = registry.createId("genie.files.s3.getObjectMetadata.timer");
+        this.downloadPartTimerId = registry.createId("genie.files.s3.download.part.timer");
+        this.uploadPartTimerId = registry.createId("genie.files.s3.upload.part.timer");
+        this.downloadPartRetryCounterId = registry.createId("genie.files.s3.download.partRetry.counter");
+        this.uploadPartRetryCounterId = registry.createId("genie.files.s3.upload.partRetry.counter");
+        this.downloadThroughputId = registry.createId("genie.files.s3.download.throughput");
+        this.uploadThroughputId = registry.createId("genie.files.s3.upload.throughput");
         this.urlFailingStrictValidationCounter = registry.counter("genie.files.s3.failStrictValidation.counter");
         this.s3FileTransferProperties = s3FileTransferProperties;
+        this.partExecutor = partExecutor;
     }
 
     /**
@@ -113,6 +195,11 @@ public class S3FileTransferImpl implements FileTransfer {
 
             final AmazonS3URI s3Uri = getS3Uri(srcRemotePath);
             try {
+                if (this.isParallelTransferEnabled()) {
+                    final long size = this.getFileInParts(s3Uri, new File(dstLocalPath));
+                    this.recordThroughput(this.downloadThroughputId, size, start);
+                    return;
+                }
                 this.s3Client.getObject(
                     new GetObjectRequest(s3Uri.getBucket(), s3Uri.getKey()),
                     new File(dstLocalPath)
@@ -147,8 +234,16 @@ public class S3FileTransferImpl implements FileTransfer {
             log.debug("Called with src path {} and destination path {}", srcLocalPath, dstRemotePath);
 
             final AmazonS3URI s3Uri = getS3Uri(dstRemotePath);
+            final File srcFile = new File(srcLocalPath);
             try {
-                this.s3Client.putObject(s3Uri.getBucket(), s3Uri.getKey(), new File(srcLocalPath));
+                final long size = srcFile.length();
+                if (this.isParallelTransferEnabled()
+                    && size >= this.s3FileTransferProperties.getMultipartThreshold()) {
+                    this.putFileInParts(s3Uri, srcFile, size);
+                    this.recordThroughput(this.uploadThroughputId, size, start);
+                } else {
+                    this.s3Client.putObject(s3Uri.getBucket(), s3Uri.getKey(), srcFile);
+                }
             } catch (AmazonS3Exception ase) {
                 log.error("Error posting file {} to s3 due to exception {}", dstRemotePath, ase);
                 throw new GenieServerException("Error uploading file to s3. Filename: " + dstRemotePath);
@@ -164,6 +259,64 @@ public class S3FileTransferImpl implements FileTransfer {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putStream(
+        @NotBlank(message = "Destination remote path cannot be empty")
+        final String dstRemotePath,
+        @NotNull final Content content
+    ) throws GenieException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            log.debug("Called to stream to destination path {}", dstRemotePath);
+
+            final AmazonS3URI s3Uri = getS3Uri(dstRemotePath);
+            try (MultipartUploadOutputStream out = new MultipartUploadOutputStream(s3Uri.getBucket(), s3Uri.getKey())) {
+                content.writeTo(out);
+                out.complete();
+                this.recordThroughput(this.uploadThroughputId, out.getSize(), start);
+            } catch (final IOException | AmazonClientException e) {
+                log.error("Error streaming to {} in s3", dstRemotePath, e);
+                throw new GenieServerException("Error uploading stream to s3. Filename: " + dstRemotePath, e);
+            }
+        } catch (Throwable t) {
+            MetricsUtils.addFailureTagsWithException(tags, t);
+            throw t;
+        } finally {
+            this.registry.timer(
+                uploadTimerId.withTags(tags)
+            ).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream getStream(
+        @NotBlank(message = "Source path cannot be empty.")
+        final String srcRemotePath,
+        final long first,
+        final long last
+    ) throws GenieException {
+        log.debug("Called to read bytes {}-{} of {}", first, last, srcRemotePath);
+        final AmazonS3URI s3Uri = getS3Uri(srcRemotePath);
+        try {
+            return this.s3Client
+                .getObject(new GetObjectRequest(s3Uri.getBucket(), s3Uri.getKey()).withRange(first, last))
+                .getObjectContent();
+        } catch (final AmazonS3Exception ase) {
+            log.error("Error reading bytes {}-{} of {} from s3", first, last, srcRemotePath, ase);
+            if (ase.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new GenieNotFoundException("No file " + srcRemotePath);
+            }
+            throw new GenieServerException("Error reading file from s3. Filename: " + srcRemotePath, ase);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -193,6 +346,424 @@ public class S3FileTransferImpl implements FileTransfer {
         return lastModTime;
     }
 
+    private boolean isParallelTransferEnabled() {
+        return this.s3FileTransferProperties.getPartSize() > 0;
+    }
+
+    /**
+     * Get the part size to use for a file of the given size. Makes sure S3's limits on the part size and number
+     * of parts are respected.
+     *
+     * @param size The size of the file in bytes
+     * @return The size of the parts in bytes
+     */
+    @VisibleForTesting
+    long getPartSize(final long size) {
+        final long minPartSizeForSize = (size + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(Math.max(this.s3FileTransferProperties.getPartSize(), MIN_PART_SIZE), minPartSizeForSize);
+    }
+
+    /**
+     * Download a file in parts. The first part is requested before the size of the file is known.
+     *
+     * @param s3Uri   The location of the file
+     * @param dstFile The file to download to
+     * @return The size of the file in bytes
+     * @throws GenieException If the file can't be downloaded
+     */
+    private long getFileInParts(final AmazonS3URI s3Uri, final File dstFile) throws GenieException {
+        final String bucket = s3Uri.getBucket();
+        final String key = s3Uri.getKey();
+        final long firstPartSize = this.getPartSize(0L);
+
+        boolean success = false;
+        try {
+            final File parent = dstFile.getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            try (
+                RandomAccessFile file = new RandomAccessFile(dstFile, "rw");
+                FileChannel channel = file.getChannel()
+            ) {
+                final ObjectMetadata metadata;
+                try {
+                    metadata = this.withPartRetries(
+                        () -> this.downloadPart(bucket, key, null, 0L, firstPartSize - 1, channel),
+                        this.downloadPartTimerId,
+                        this.downloadPartRetryCounterId,
+                        String.format("bytes %d-%d of s3://%s/%s", 0L, firstPartSize - 1, bucket, key)
+                    );
+                } catch (final AmazonS3Exception ase) {
+                    if (ase.getStatusCode() != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                        throw ase;
+                    }
+                    // No range of an empty file can be served
+                    file.setLength(0L);
+                    success = true;
+                    return 0L;
+                }
+                final long size = getObjectSize(metadata);
+                file.setLength(size);
+
+                if (size > firstPartSize) {
+                    // Pin every range to the version of the first part so a concurrent overwrite can't mix two versions
+                    final String eTag = metadata.getETag();
+                    final long partSize = size >= this.s3FileTransferProperties.getMultipartThreshold()
+                        ? this.getPartSize(size)
+                        : size - firstPartSize;
+                    log.debug("Downloading s3://{}/{} of {} bytes in parts of {} bytes", bucket, key, size, partSize);
+                    final List<Callable<ObjectMetadata>> parts = new ArrayList<>();
+                    for (long offset = firstPartSize; offset < size; offset += partSize) {
+                        final long first = offset;
+                        final long last = Math.min(size, offset + partSize) - 1;
+                        parts.add(
+                            () -> this.withPartRetries(
+                                () -> this.downloadPart(bucket, key, eTag, first, last, channel),
+                                this.downloadPartTimerId,
+                                this.downloadPartRetryCounterId,
+                                String.format("bytes %d-%d of s3://%s/%s", first, last, bucket, key)
+                            )
+                        );
+                    }
+                    this.runParts(parts);
+                }
+                channel.force(false);
+                success = true;
+                return size;
+            }
+        } catch (final IOException ioe) {
+            throw new GenieServerException("Unable to write to " + dstFile, ioe);
+        } catch (final GenieException | AmazonS3Exception e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new GenieServerException("Failed downloading s3://" + bucket + "/" + key, e);
+        } finally {
+            if (!success && !dstFile.delete()) {
+                log.warn("Unable to delete partially downloaded file {}", dstFile);
+            }
+        }
+    }
+
+    private ObjectMetadata downloadPart(
+        final String bucket,
+        final String key,
+        final String eTag,
+        final long first,
+        final long last,
+        final FileChannel channel
+    ) throws GenieException, IOException {
+        final GetObjectRequest request = new GetObjectRequest(bucket, key).withRange(first, last);
+        if (eTag != null) {
+            request.withMatchingETagConstraint(eTag);
+        }
+        final S3Object object = this.s3Client.getObject(request);
+        if (object == null) {
+            // The constraint wasn't met
+            throw new GenieServerException("s3://" + bucket + "/" + key + " changed while it was being downloaded");
+        }
+        try (
+            S3ObjectInputStream inputStream = object.getObjectContent();
+            ReadableByteChannel source = Channels.newChannel(inputStream)
+        ) {
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = first;
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+            // The range may go past the end of the file
+            final long expected = Math.min(last, getObjectSize(object.getObjectMetadata()) - 1) - first + 1;
+            if (position - first != expected) {
+                throw new IOException(
+                    String.format(
+                        "Expected %d bytes but got %d for range %d-%d", expected, position - first, first, last
+                    )
+                );
+            }
+            return object.getObjectMetadata();
+        }
+    }
+
+    /**
+     * Get the size of the whole object from the metadata of a GET which may have been for a range of it.
+     *
+     * @param metadata The metadata of the response
+     * @return The size of the object in bytes
+     */
+    @VisibleForTesting
+    static long getObjectSize(final ObjectMetadata metadata) {
+        // e.g. bytes 0-1023/146515
+        final Object contentRange = metadata.getRawMetadataValue(Headers.CONTENT_RANGE);
+        if (contentRange != null) {
+            final String total = StringUtils.substringAfterLast(contentRange.toString(), "/").trim();
+            if (StringUtils.isNumeric(total)) {
+                return Long.parseLong(total);
+            }
+        }
+        // The whole object was returned
+        return metadata.getContentLength();
+    }
+
+    private void putFileInParts(final AmazonS3URI s3Uri, final File srcFile, final long size) throws GenieException {
+        final long partSize = this.getPartSize(size);
+        final String bucket = s3Uri.getBucket();
+        final String key = s3Uri.getKey();
+        log.debug("Uploading {} of {} bytes to s3://{}/{} in parts of {} bytes", srcFile, size, bucket, key, partSize);
+
+        final String uploadId = this.s3Client
+            .initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key))
+            .getUploadId();
+        boolean success = false;
+        try {
+            final List<Callable<PartETag>> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize) {
+                final UploadPartRequest request = new UploadPartRequest()
+                    .withBucketName(bucket)
+                    .withKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withFile(srcFile)
+                    .withFileOffset(offset)
+                    .withPartSize(Math.min(partSize, size - offset));
+                parts.add(
+                    () -> this.withPartRetries(
+                        () -> this.s3Client.uploadPart(request).getPartETag(),
+                        this.uploadPartTimerId,
+                        this.uploadPartRetryCounterId,
+                        String.format("part %d of s3://%s/%s", request.getPartNumber(), bucket, key)
+                    )
+                );
+                partNumber++;
+            }
+            // Results are returned in submission order which is the part number order S3 requires
+            final List<PartETag> partETags = this.runParts(parts);
+            this.s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+            success = true;
+        } finally {
+            if (!success) {
+                try {
+                    this.s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+                } catch (final AmazonClientException ace) {
+                    log.error("Unable to abort multipart upload {} to s3://{}/{}", uploadId, bucket, key, ace);
+                }
+            }
+        }
+    }
+
+    private <T> T withPartRetries(
+        final Callable<T> part,
+        final Id timerId,
+        final Id retryCounterId,
+        final String description
+    ) throws Exception {
+        final int attempts = Math.max(0, this.s3FileTransferProperties.getPartRetries()) + 1;
+        for (int attempt = 1; ; attempt++) {
+            final long start = System.nanoTime();
+            final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+            try {
+                return part.call();
+            } catch (final Exception e) {
+                MetricsUtils.addFailureTagsWithException(tags, e);
+                final boolean interrupted = e instanceof InterruptedException || Thread.currentThread().isInterrupted();
+                if (attempt >= attempts || interrupted) {
+                    log.error("Failed transferring {} after {} attempts", description, attempt, e);
+                    throw e;
+                }
+                log.warn("Failed transferring {} on attempt {}. Retrying.", description, attempt, e);
+                this.registry.counter(retryCounterId).increment();
+            } finally {
+                this.registry.timer(timerId.withTags(tags)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private <T> List<T> runParts(final List<Callable<T>> parts) throws GenieException {
+        final List<Future<T>> futures = new ArrayList<>(parts.size());
+        try {
+            for (final Callable<T> part : parts) {
+                futures.add(this.partExecutor.submit(part));
+            }
+            final List<T> results = new ArrayList<>(parts.size());
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new GenieServerException("Interrupted while waiting for parts to transfer", ie);
+        } catch (final ExecutionException ee) {
+            throw new GenieServerException("Failed transferring a part", ee.getCause());
+        } finally {
+            // No-op for the parts which are done. Stops the rest from wasting bandwidth after a failure.
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Uploads what's written to it to S3 without knowing the size up front. Buffers a part at a time and uploads the
+     * full parts of a multipart upload on the part executor while the next ones are written. Content smaller than a
+     * part is uploaded with a single put instead. The part size grows every thousand parts so S3's limit on the number
+     * of parts isn't hit. The upload is aborted if the stream is closed before it was completed.
+     */
+    private final class MultipartUploadOutputStream extends OutputStream {
+        private final String bucket;
+        private final String key;
+        private final long basePartSize;
+        private final int maxPartsInFlight;
+        private final Deque<Future<PartETag>> partsInFlight = new ArrayDeque<>();
+        private final List<PartETag> partETags = new ArrayList<>();
+        private byte[] buffer;
+        private int count;
+        private int partNumber = 1;
+        private long size;
+        private String uploadId;
+        private boolean completed;
+
+        private MultipartUploadOutputStream(final String bucket, final String key) {
+            this.bucket = bucket;
+            this.key = key;
+            this.basePartSize = getPartSize(0);
+            this.maxPartsInFlight = Math.max(1, s3FileTransferProperties.getConcurrency());
+            this.buffer = new byte[(int) this.basePartSize];
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.buffer[this.count++] = (byte) b;
+            if (this.count == this.buffer.length) {
+                this.uploadPart();
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int offset = off;
+            int remaining = len;
+            while (remaining > 0) {
+                final int length = Math.min(remaining, this.buffer.length - this.count);
+                System.arraycopy(b, offset, this.buffer, this.count, length);
+                this.count += length;
+                offset += length;
+                remaining -= length;
+                if (this.count == this.buffer.length) {
+                    this.uploadPart();
+                }
+            }
+        }
+
+        private long getSize() {
+            return this.size;
+        }
+
+        private void complete() throws IOException {
+            if (this.uploadId == null) {
+                final ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(this.count);
+                s3Client.putObject(
+                    new PutObjectRequest(
+                        this.bucket,
+                        this.key,
+                        new ByteArrayInputStream(this.buffer, 0, this.count),
+                        metadata
+                    )
+                );
+                this.size = this.count;
+            } else {
+                if (this.count > 0) {
+                    this.uploadPart();
+                }
+                while (!this.partsInFlight.isEmpty()) {
+                    this.awaitOldestPart();
+                }
+                s3Client.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(this.bucket, this.key, this.uploadId, this.partETags)
+                );
+            }
+            this.completed = true;
+        }
+
+        @Override
+        public void close() {
+            if (this.completed || this.uploadId == null) {
+                return;
+            }
+            this.partsInFlight.forEach(part -> part.cancel(true));
+            try {
+                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(this.bucket, this.key, this.uploadId));
+            } catch (final AmazonClientException ace) {
+                log.error(
+                    "Unable to abort multipart upload {} to s3://{}/{}", this.uploadId, this.bucket, this.key, ace
+                );
+            }
+        }
+
+        private void uploadPart() throws IOException {
+            if (this.uploadId == null) {
+                this.uploadId = s3Client
+                    .initiateMultipartUpload(new InitiateMultipartUploadRequest(this.bucket, this.key))
+                    .getUploadId();
+                log.debug(
+                    "Streaming to s3://{}/{} in parts of at least {} bytes", this.bucket, this.key, this.basePartSize
+                );
+            }
+            while (this.partsInFlight.size() >= this.maxPartsInFlight) {
+                this.awaitOldestPart();
+            }
+            final byte[] part = this.buffer;
+            final int length = this.count;
+            final int number = this.partNumber++;
+            // The request is built per attempt as a retry needs to read the part from the start again
+            this.partsInFlight.add(
+                partExecutor.submit(
+                    () -> withPartRetries(
+                        () -> s3Client.uploadPart(
+                            new UploadPartRequest()
+                                .withBucketName(this.bucket)
+                                .withKey(this.key)
+                                .withUploadId(this.uploadId)
+                                .withPartNumber(number)
+                                .withInputStream(new ByteArrayInputStream(part, 0, length))
+                                .withPartSize(length)
+                        ).getPartETag(),
+                        uploadPartTimerId,
+                        uploadPartRetryCounterId,
+                        String.format("part %d of s3://%s/%s", number, this.bucket, this.key)
+                    )
+                )
+            );
+            this.size += length;
+            final long nextPartSize = this.basePartSize * (1 + (this.partNumber - 1) / PARTS_PER_PART_SIZE_STEP);
+            this.buffer = new byte[(int) Math.min(nextPartSize, Integer.MAX_VALUE - BUFFER_SIZE)];
+            this.count = 0;
+        }
+
+        private void awaitOldestPart() throws IOException {
+            try {
+                this.partETags.add(this.partsInFlight.peek().get());
+                this.partsInFlight.remove();
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for parts to upload");
+            } catch (final ExecutionException ee) {
+                throw new IOException("Failed uploading a part to s3://" + this.bucket + "/" + this.key, ee.getCause());
+            }
+        }
+    }
+
+    private void recordThroughput(final Id throughputId, final long bytes, final long start) {
+        final long elapsed = System.nanoTime() - start;
+        if (elapsed > 0) {
+            this.registry
+                .distributionSummary(throughputId)
+                .record((long) (bytes / (elapsed / (double) TimeUnit.SECONDS.toNanos(1))));
+        }
+    }
+
     @VisibleForTesting
     AmazonS3URI getS3Uri(final String path) throws GenieServerException {
         if (!s3PrefixPattern.matcher(path).matches()) {
@@ -0,0 +1,117 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.Executor;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the PrivilegedOperationService which forks a new sudo process for every operation.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class SudoPrivilegedOperationServiceImpl implements PrivilegedOperationService {
+
+    /**
+     * The exit code reported for an operation whose process couldn't be run at all.
+     */
+    public static final int UNABLE_TO_EXECUTE_EXIT_CODE = -1;
+
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param executor The executor to use to run the sudo processes
+     */
+    public SudoPrivilegedOperationServiceImpl(@NotNull final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> execute(@NotNull final List<PrivilegedOperation> operations) {
+        final List<Integer> exitCodes = new ArrayList<>(operations.size());
+        for (final PrivilegedOperation operation : operations) {
+            final CommandLine commandLine = toCommandLine(operation);
+            log.debug("Running privileged command [{}]", commandLine);
+            try {
+                exitCodes.add(this.executor.execute(commandLine));
+            } catch (final ExecuteException ee) {
+                exitCodes.add(ee.getExitValue());
+            } catch (final IOException ioe) {
+                log.debug("Unable to run privileged command [{}]", commandLine, ioe);
+                exitCodes.add(UNABLE_TO_EXECUTE_EXIT_CODE);
+            }
+        }
+        return exitCodes;
+    }
+
+    private static CommandLine toCommandLine(final PrivilegedOperation operation) {
+        final List<String> arguments = operation.getArguments();
+        switch (operation.getType()) {
+            case USER_EXISTS:
+                // Doesn't need elevated rights
+                return new CommandLine("id").addArgument("-u").addArgument(arguments.get(0));
+            case CREATE_GROUP:
+                return sudo("groupadd").addArgument(arguments.get(0));
+            case CREATE_USER:
+                final CommandLine createUser = sudo("useradd").addArgument(arguments.get(0));
+                if (arguments.size() > 1) {
+                    createUser.addArgument("-G").addArgument(arguments.get(1));
+                }
+                return createUser.addArgument("-M");
+            case CHANGE_OWNER:
+                return sudo("chown").addArgument("-R").addArgument(arguments.get(0)).addArgument(arguments.get(1));
+            case MAKE_GROUP_WRITABLE:
+                return sudo("chmod").addArgument("g+w").addArgument(arguments.get(0));
+            case DELETE:
+                return sudo("rm").addArgument("-rf").addArgument(arguments.get(0));
+            case ARCHIVE:
+                return sudo("tar")
+                    .addArgument("-c")
+                    .addArgument("-z")
+                    .addArgument("-f")
+                    .addArgument(arguments.get(0))
+                    .addArgument("-C")
+                    .addArgument(arguments.get(1))
+                    .addArgument("./");
+            case KILL:
+                return sudo("kill").addArgument(arguments.get(0));
+            default:
+                throw new IllegalArgumentException("Unknown privileged operation type " + operation.getType());
+        }
+    }
+
+    private static CommandLine sudo(final String command) {
+        return new CommandLine("sudo").addArgument(command);
+    }
+}
@@ -0,0 +1,114 @@
+package com.netflix.genie.core.util;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The index of an archive written by the {@link DirectoryArchiver}. Stored next to the archive so single files can
+ * be read out of it with a ranged read of the gzip members holding them instead of downloading the whole archive.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@Setter
+public class ArchiveIndex {
+
+    /**
+     * The suffix added to the location of an archive for the location of its index.
+     */
+    public static final String FILE_SUFFIX = ".index.json";
+
+    private int blockSize;
+    private List<Long> memberOffsets = new ArrayList<>();
+    private long compressedSize;
+    private List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Get the entry of a path.
+     *
+     * @param path The path relative to the archived directory. Empty for the directory itself.
+     * @return The entry or empty if the path isn't in the archive
+     */
+    public Optional<Entry> getEntry(final String path) {
+        final String normalizedPath = normalize(path);
+        return this.entries.stream().filter(entry -> entry.getPath().equals(normalizedPath)).findFirst();
+    }
+
+    /**
+     * Get the entries directly within a directory.
+     *
+     * @param path The path of the directory relative to the archived directory. Empty for the directory itself.
+     * @return The entries of the directory
+     */
+    public List<Entry> getChildren(final String path) {
+        final String normalizedPath = normalize(path);
+        final String prefix = normalizedPath.isEmpty() ? "" : normalizedPath + "/";
+        return this.entries
+            .stream()
+            .filter(
+                entry -> !entry.getPath().isEmpty()
+                    && entry.getPath().startsWith(prefix)
+                    && entry.getPath().indexOf('/', prefix.length()) == -1
+            )
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the offset in the compressed archive of the gzip member holding a byte of the uncompressed archive.
+     *
+     * @param offset The offset in the uncompressed archive
+     * @return The offset the member starts at
+     */
+    public long getMemberStart(final long offset) {
+        return this.memberOffsets.get(this.getMember(offset));
+    }
+
+    /**
+     * Get the offset in the compressed archive right after the gzip member holding a byte of the uncompressed archive.
+     *
+     * @param offset The offset in the uncompressed archive
+     * @return The offset the member ends at, exclusive
+     */
+    public long getMemberEnd(final long offset) {
+        final int member = this.getMember(offset);
+        return member + 1 < this.memberOffsets.size() ? this.memberOffsets.get(member + 1) : this.compressedSize;
+    }
+
+    /**
+     * Get the offset in the uncompressed archive of the first byte of the gzip member holding a byte.
+     *
+     * @param offset The offset in the uncompressed archive
+     * @return The offset of the first byte of the member in the uncompressed archive
+     */
+    public long getMemberUncompressedStart(final long offset) {
+        return (long) this.getMember(offset) * this.blockSize;
+    }
+
+    private int getMember(final long offset) {
+        return (int) Math.min(offset / this.blockSize, this.memberOffsets.size() - 1);
+    }
+
+    private static String normalize(final String path) {
+        return StringUtils.strip(StringUtils.removeStart(StringUtils.defaultString(path), "./"), "/");
+    }
+
+    /**
+     * A file or directory in the archive.
+     */
+    @Getter
+    @Setter
+    public static class Entry {
+        private String path;
+        private boolean directory;
+        private long size;
+        private long lastModified;
+        private long offset;
+    }
+}
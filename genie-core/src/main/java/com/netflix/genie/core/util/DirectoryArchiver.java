@@ -0,0 +1,253 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Writes a directory as a gzipped tar archive straight to a stream without a temporary file. The archive is
+ * compressed in parallel blocks. Entries are named relative to the directory with a leading ./ like
+ * {@code tar -czf archive.tar.gz ./} would. Symbolic links are stored as links and not followed.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class DirectoryArchiver {
+
+    private static final String ROOT = "./";
+    private static final int DEFAULT_DIRECTORY_MODE = 0755;
+    private static final int DEFAULT_FILE_MODE = 0644;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExecutorService compressionExecutor;
+    private final int blockSize;
+    private final int maxBlocksInFlight;
+
+    /**
+     * Constructor.
+     *
+     * @param compressionExecutor The executor to compress the blocks of the archives on
+     * @param blockSize           The number of bytes compressed together
+     * @param maxBlocksInFlight   The maximum number of blocks of an archive held in memory at once
+     */
+    public DirectoryArchiver(
+        final ExecutorService compressionExecutor,
+        final int blockSize,
+        final int maxBlocksInFlight
+    ) {
+        this.compressionExecutor = compressionExecutor;
+        this.blockSize = blockSize;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+    }
+
+    /**
+     * Write the contents of the directory as a gzipped tar archive to the stream.
+     *
+     * @param directory The directory to archive
+     * @param excludes  Glob patterns, like {@code genie/applications/*}{@code /dependencies}, of paths relative to
+     *                  the directory to leave out of the archive. Everything below an excluded directory is left out
+     *                  as well.
+     * @param out       The stream to write the archive to. Not closed.
+     * @return The index of the files and directories in the archive. Symbolic links aren't indexed.
+     * @throws IOException On error reading the directory or writing the archive
+     */
+    public ArchiveIndex archive(
+        final File directory,
+        final Collection<String> excludes,
+        final OutputStream out
+    ) throws IOException {
+        final Path root = directory.toPath();
+        final List<PathMatcher> excludeMatchers = new ArrayList<>(excludes.size());
+        for (final String exclude : excludes) {
+            excludeMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + exclude));
+        }
+
+        final ArchiveIndex index = new ArchiveIndex();
+        index.setBlockSize(this.blockSize);
+        final ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(
+            new CloseShieldOutputStream(out),
+            this.compressionExecutor,
+            this.blockSize,
+            this.maxBlocksInFlight
+        );
+        try (TarWriter tar = new TarWriter(new BufferedOutputStream(gzip, BUFFER_SIZE))) {
+            Files.walkFileTree(
+                root,
+                EnumSet.noneOf(FileVisitOption.class),
+                Integer.MAX_VALUE,
+                new ArchivingVisitor(root, excludeMatchers, tar, index.getEntries())
+            );
+        }
+        index.setMemberOffsets(new ArrayList<>(gzip.getMemberOffsets()));
+        index.setCompressedSize(gzip.getCompressedSize());
+        return index;
+    }
+
+    private static boolean isExcluded(final Path relativePath, final List<PathMatcher> excludeMatchers) {
+        for (final PathMatcher excludeMatcher : excludeMatchers) {
+            if (excludeMatcher.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getName(final Path relativePath) {
+        return ROOT + relativePath.toString().replace(File.separatorChar, '/');
+    }
+
+    private static int getMode(final Path path, final int defaultMode) {
+        try {
+            final Set<PosixFilePermission> permissions
+                = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+            int mode = 0;
+            // The enum is declared in the order of the mode bits starting with the highest
+            for (final PosixFilePermission permission : PosixFilePermission.values()) {
+                mode <<= 1;
+                if (permissions.contains(permission)) {
+                    mode |= 1;
+                }
+            }
+            return mode;
+        } catch (final UnsupportedOperationException | IOException e) {
+            return defaultMode;
+        }
+    }
+
+    /**
+     * Adds every file it visits to the archive.
+     */
+    private static final class ArchivingVisitor extends SimpleFileVisitor<Path> {
+        private final Path root;
+        private final List<PathMatcher> excludeMatchers;
+        private final TarWriter tar;
+        private final List<ArchiveIndex.Entry> entries;
+
+        private ArchivingVisitor(
+            final Path root,
+            final List<PathMatcher> excludeMatchers,
+            final TarWriter tar,
+            final List<ArchiveIndex.Entry> entries
+        ) {
+            this.root = root;
+            this.excludeMatchers = excludeMatchers;
+            this.tar = tar;
+            this.entries = entries;
+        }
+
+        private void addEntry(
+            final Path relativePath,
+            final boolean directory,
+            final long size,
+            final long modified,
+            final long offset
+        ) {
+            final ArchiveIndex.Entry entry = new ArchiveIndex.Entry();
+            entry.setPath(relativePath.toString().replace(File.separatorChar, '/'));
+            entry.setDirectory(directory);
+            entry.setSize(size);
+            entry.setLastModified(modified);
+            entry.setOffset(offset);
+            this.entries.add(entry);
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(
+            final Path dir,
+            final BasicFileAttributes attrs
+        ) throws IOException {
+            final Path relativePath = this.root.relativize(dir);
+            final boolean isRoot = relativePath.toString().isEmpty();
+            if (!isRoot && isExcluded(relativePath, this.excludeMatchers)) {
+                log.debug("Excluding directory {} from the archive", dir);
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            final long modified = attrs.lastModifiedTime().toMillis();
+            this.tar.putDirectory(
+                isRoot ? ROOT : getName(relativePath),
+                getMode(dir, DEFAULT_DIRECTORY_MODE),
+                modified
+            );
+            this.addEntry(relativePath, true, 0L, modified, this.tar.getPosition());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+            final Path relativePath = this.root.relativize(file);
+            if (isExcluded(relativePath, this.excludeMatchers)) {
+                log.debug("Excluding file {} from the archive", file);
+                return FileVisitResult.CONTINUE;
+            }
+            final long modified = attrs.lastModifiedTime().toMillis();
+            if (attrs.isSymbolicLink()) {
+                this.tar.putSymbolicLink(getName(relativePath), Files.readSymbolicLink(file).toString(), modified);
+            } else if (attrs.isRegularFile()) {
+                try (InputStream content = Files.newInputStream(file)) {
+                    final long offset = this.tar.putFile(
+                        getName(relativePath),
+                        getMode(file, DEFAULT_FILE_MODE),
+                        modified,
+                        attrs.size(),
+                        content
+                    );
+                    this.addEntry(relativePath, false, attrs.size(), modified, offset);
+                } catch (final NoSuchFileException nsfe) {
+                    log.debug("File {} was deleted before it could be archived", file);
+                }
+            } else {
+                log.debug("Not archiving {} as it's neither a regular file nor a link", file);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
+            if (exc instanceof NoSuchFileException) {
+                log.debug("File {} was deleted before it could be archived", file);
+                return FileVisitResult.CONTINUE;
+            }
+            throw exc;
+        }
+    }
+}
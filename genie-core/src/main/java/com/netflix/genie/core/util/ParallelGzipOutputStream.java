@@ -0,0 +1,207 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip output stream which compresses blocks of its input in parallel, similar to pigz. Every block is written as
+ * its own gzip member in the order it was received. Concatenated gzip members are a valid gzip stream which gunzip,
+ * tar and {@link java.util.zip.GZIPInputStream} read as one.
+ * <p>
+ * Not thread safe.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int blockSize;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<byte[]>> blocks = new ArrayDeque<>();
+    private final List<Long> memberOffsets = new ArrayList<>();
+    private long compressedSize;
+    private byte[] buffer;
+    private int count;
+    private boolean wroteBlock;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param out               The stream to write the compressed data to. Closed when this stream is closed.
+     * @param executor          The executor to compress the blocks on
+     * @param blockSize         The number of bytes of input compressed together
+     * @param maxBlocksInFlight The maximum number of blocks held in memory waiting to be compressed or written
+     */
+    public ParallelGzipOutputStream(
+        final OutputStream out,
+        final ExecutorService executor,
+        final int blockSize,
+        final int maxBlocksInFlight
+    ) {
+        if (blockSize < 1 || maxBlocksInFlight < 1) {
+            throw new IllegalArgumentException("The block size and the maximum number of blocks must be positive");
+        }
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.buffer = new byte[blockSize];
+    }
+
+    /**
+     * Get the offsets in the compressed stream of the gzip members written so far. Member i holds the input starting
+     * at i times the block size so any part of the input can be decompressed starting at the member which holds it.
+     *
+     * @return The offsets of the members in the order they were written
+     */
+    public List<Long> getMemberOffsets() {
+        return Collections.unmodifiableList(this.memberOffsets);
+    }
+
+    /**
+     * Get the number of compressed bytes written so far.
+     *
+     * @return The size of the compressed stream
+     */
+    public long getCompressedSize() {
+        return this.compressedSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+        int position = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final int copied = Math.min(remaining, this.blockSize - this.count);
+            System.arraycopy(bytes, position, this.buffer, this.count, copied);
+            this.count += copied;
+            position += copied;
+            remaining -= copied;
+            if (this.count == this.blockSize) {
+                this.submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Write out the blocks which are already compressed. A partial block is only compressed once it's full or the
+     * stream is closed so flushing doesn't hurt the compression ratio.
+     *
+     * @throws IOException On error writing to the underlying stream
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!this.blocks.isEmpty() && this.blocks.peekFirst().isDone()) {
+            this.writeOldestBlock();
+        }
+        this.out.flush();
+    }
+
+    /**
+     * Compress the rest of the input, write all the blocks and close the underlying stream.
+     *
+     * @throws IOException On error compressing or writing
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            // An empty input still has to produce a valid gzip stream
+            if (this.count > 0 || !this.wroteBlock) {
+                this.submitBlock();
+            }
+            while (!this.blocks.isEmpty()) {
+                this.writeOldestBlock();
+            }
+        } finally {
+            // Don't leave compression work running if writing failed
+            this.blocks.forEach(block -> block.cancel(true));
+            this.blocks.clear();
+            this.out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] block = this.buffer;
+        final int length = this.count;
+        this.blocks.addLast(this.executor.submit(() -> compress(block, length)));
+        this.wroteBlock = true;
+        this.buffer = new byte[this.blockSize];
+        this.count = 0;
+        while (this.blocks.size() > this.maxBlocksInFlight) {
+            this.writeOldestBlock();
+        }
+    }
+
+    private void writeOldestBlock() throws IOException {
+        final Future<byte[]> block = this.blocks.pollFirst();
+        try {
+            final byte[] member = block.get();
+            this.out.write(member);
+            this.memberOffsets.add(this.compressedSize);
+            this.compressedSize += member.length;
+        } catch (final InterruptedException ie) {
+            block.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a block to be compressed");
+        } catch (final ExecutionException ee) {
+            throw new IOException("Unable to compress block", ee.getCause());
+        }
+    }
+
+    private static byte[] compress(final byte[] block, final int length) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(block, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The resources used by all the processes of a process group at a point in time.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class ProcessGroupUsage {
+
+    private final int numProcesses;
+    private final int numThreads;
+    private final long cpuTime;
+    private final long rss;
+
+    /**
+     * Constructor.
+     *
+     * @param numProcesses The number of processes in the group
+     * @param numThreads   The total number of threads of the processes
+     * @param cpuTime      The user and system CPU time in milliseconds used by the processes and their reaped children
+     * @param rss          The total resident set size of the processes in bytes
+     */
+    public ProcessGroupUsage(final int numProcesses, final int numThreads, final long cpuTime, final long rss) {
+        this.numProcesses = numProcesses;
+        this.numThreads = numThreads;
+        this.cpuTime = cpuTime;
+        this.rss = rss;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Interface for sampling the resources used by many process groups at once.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public interface ProcessGroupUsageSampler {
+
+    /**
+     * Sample the resources currently used by the processes of the given process groups.
+     *
+     * @param processGroupIds The ids of the process groups to sample
+     * @return The usage of every process group which still has processes by its id
+     * @throws IOException If the processes couldn't be sampled
+     */
+    Map<Integer, ProcessGroupUsage> sample(Collection<Integer> processGroupIds) throws IOException;
+}
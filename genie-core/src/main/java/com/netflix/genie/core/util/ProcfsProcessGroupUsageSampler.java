@@ -0,0 +1,157 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of ProcessGroupUsageSampler reading the proc file system of Linux. Every sample reads the stat file
+ * of all the processes once to find the members of the process groups and the status file of every member for its
+ * resident set size.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class ProcfsProcessGroupUsageSampler implements ProcessGroupUsageSampler {
+
+    // The kernel reports CPU times in clock ticks of USER_HZ which is 100 on all the supported architectures
+    private static final long MILLIS_PER_TICK = 10L;
+    private static final long BYTES_PER_KB = 1024L;
+    private static final String RSS_FIELD = "VmRSS:";
+
+    // Indexes of the fields of the stat file following the command name
+    private static final int PROCESS_GROUP_INDEX = 2;
+    private static final int UTIME_INDEX = 11;
+    private static final int CSTIME_INDEX = 14;
+    private static final int NUM_THREADS_INDEX = 17;
+
+    private final File procDirectory;
+
+    /**
+     * Constructor.
+     *
+     * @param procDirectory The mount point of the proc file system
+     */
+    public ProcfsProcessGroupUsageSampler(@NotNull final File procDirectory) {
+        this.procDirectory = procDirectory;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, ProcessGroupUsage> sample(
+        @NotNull final Collection<Integer> processGroupIds
+    ) throws IOException {
+        final Map<Integer, ProcessGroupUsage> usages = new HashMap<>();
+        if (processGroupIds.isEmpty()) {
+            return usages;
+        }
+        final File[] processes = this.procDirectory.listFiles((dir, name) -> StringUtils.isNumeric(name));
+        if (processes == null) {
+            throw new IOException("Unable to list the processes in " + this.procDirectory);
+        }
+        final Set<Integer> groups = new HashSet<>(processGroupIds);
+
+        for (final File process : processes) {
+            final String[] stat = readStat(process);
+            if (stat == null) {
+                continue;
+            }
+            try {
+                final int processGroupId = Integer.parseInt(stat[PROCESS_GROUP_INDEX]);
+                if (!groups.contains(processGroupId)) {
+                    continue;
+                }
+                // utime, stime, cutime and cstime
+                long ticks = 0L;
+                for (int i = UTIME_INDEX; i <= CSTIME_INDEX; i++) {
+                    ticks += Long.parseLong(stat[i]);
+                }
+                final int numThreads = Integer.parseInt(stat[NUM_THREADS_INDEX]);
+                final long rss = readRss(process);
+                usages.merge(
+                    processGroupId,
+                    new ProcessGroupUsage(1, numThreads, ticks * MILLIS_PER_TICK, rss),
+                    (a, b) -> new ProcessGroupUsage(
+                        a.getNumProcesses() + b.getNumProcesses(),
+                        a.getNumThreads() + b.getNumThreads(),
+                        a.getCpuTime() + b.getCpuTime(),
+                        a.getRss() + b.getRss()
+                    )
+                );
+            } catch (final NumberFormatException nfe) {
+                log.debug("Unable to parse the stat file of process {}", process.getName(), nfe);
+            }
+        }
+        return usages;
+    }
+
+    private static String[] readStat(final File process) {
+        final String stat;
+        try {
+            stat = new String(Files.readAllBytes(new File(process, "stat").toPath()), StandardCharsets.UTF_8);
+        } catch (final IOException ioe) {
+            // The process exited since the directory was listed
+            return null;
+        }
+        // The command name can contain spaces and parentheses so only the fields after its end can be split
+        final int commandEnd = stat.lastIndexOf(')');
+        if (commandEnd < 0) {
+            return null;
+        }
+        final String[] fields = StringUtils.split(stat.substring(commandEnd + 1));
+        return fields.length > NUM_THREADS_INDEX ? fields : null;
+    }
+
+    private static long readRss(final File process) {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(new File(process, "status").toPath(), StandardCharsets.UTF_8);
+        } catch (final IOException ioe) {
+            return 0L;
+        }
+        for (final String line : lines) {
+            if (line.startsWith(RSS_FIELD)) {
+                // e.g. VmRSS:	    1234 kB
+                final String[] fields = StringUtils.split(line.substring(RSS_FIELD.length()));
+                try {
+                    return fields.length > 0 ? Long.parseLong(fields[0]) * BYTES_PER_KB : 0L;
+                } catch (final NumberFormatException nfe) {
+                    return 0L;
+                }
+            }
+        }
+        // Kernel threads and zombies have no memory
+        return 0L;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a tar archive to a stream one entry at a time. Uses the GNU tar format so names longer than 100 bytes and
+ * files bigger than 8 GB can be stored. Readable by GNU tar, bsdtar and most tar libraries.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+public class TarWriter implements Closeable {
+
+    static final int BLOCK_SIZE = 512;
+
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_LENGTH = 12;
+    // The biggest size which fits the 11 octal digits of the size field
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+    private static final String LONG_NAME = "././@LongLink";
+    private static final byte[] GNU_MAGIC = "ustar  \0".getBytes(StandardCharsets.US_ASCII);
+    private static final char TYPE_FILE = '0';
+    private static final char TYPE_SYMBOLIC_LINK = '2';
+    private static final char TYPE_DIRECTORY = '5';
+    private static final char TYPE_LONG_LINK_NAME = 'K';
+    private static final char TYPE_LONG_NAME = 'L';
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final CountingOutputStream out;
+    private final byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param out The stream to write the archive to. Closed when the archive is closed.
+     */
+    public TarWriter(final OutputStream out) {
+        this.out = new CountingOutputStream(out);
+    }
+
+    /**
+     * Get the number of bytes of the archive written so far.
+     *
+     * @return The offset in the uncompressed archive the next entry will be written at
+     */
+    public long getPosition() {
+        return this.out.getByteCount();
+    }
+
+    /**
+     * Add a directory.
+     *
+     * @param name     The name of the directory in the archive. A trailing slash is added if missing.
+     * @param mode     The permission bits of the directory
+     * @param modified The last modified time of the directory in epoch milliseconds
+     * @throws IOException On error writing to the stream
+     */
+    public void putDirectory(final String name, final int mode, final long modified) throws IOException {
+        this.writeHeader(name.endsWith("/") ? name : name + "/", TYPE_DIRECTORY, mode, 0L, modified, null);
+    }
+
+    /**
+     * Add a symbolic link. The target isn't followed.
+     *
+     * @param name     The name of the link in the archive
+     * @param target   The target of the link
+     * @param modified The last modified time of the link in epoch milliseconds
+     * @throws IOException On error writing to the stream
+     */
+    public void putSymbolicLink(final String name, final String target, final long modified) throws IOException {
+        this.writeHeader(name, TYPE_SYMBOLIC_LINK, 0777, 0L, modified, target);
+    }
+
+    /**
+     * Add a regular file. Exactly the given number of bytes are stored so a file which grows or shrinks while it's
+     * read can't corrupt the archive. Missing bytes are stored as zeros.
+     *
+     * @param name     The name of the file in the archive
+     * @param mode     The permission bits of the file
+     * @param modified The last modified time of the file in epoch milliseconds
+     * @param size     The size of the file in bytes
+     * @param content  The content of the file. Not closed.
+     * @return The offset of the content of the file in the uncompressed archive
+     * @throws IOException On error reading the content or writing to the stream
+     */
+    public long putFile(
+        final String name,
+        final int mode,
+        final long modified,
+        final long size,
+        final InputStream content
+    ) throws IOException {
+        this.writeHeader(name, TYPE_FILE, mode, size, modified, null);
+        final long offset = this.getPosition();
+        long remaining = size;
+        while (remaining > 0) {
+            final int read = content.read(this.copyBuffer, 0, (int) Math.min(this.copyBuffer.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            this.out.write(this.copyBuffer, 0, read);
+            remaining -= read;
+        }
+        if (remaining > 0) {
+            Arrays.fill(this.copyBuffer, (byte) 0);
+            while (remaining > 0) {
+                final int length = (int) Math.min(this.copyBuffer.length, remaining);
+                this.out.write(this.copyBuffer, 0, length);
+                remaining -= length;
+            }
+        }
+        this.pad(size);
+        return offset;
+    }
+
+    /**
+     * Write the end of the archive and close the stream.
+     *
+     * @throws IOException On error writing to the stream
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.out.write(new byte[2 * BLOCK_SIZE]);
+        } finally {
+            this.out.close();
+        }
+    }
+
+    private void writeHeader(
+        final String name,
+        final char type,
+        final int mode,
+        final long size,
+        final long modified,
+        final String linkName
+    ) throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > NAME_LENGTH) {
+            this.writeLongName(TYPE_LONG_NAME, nameBytes);
+        }
+        final byte[] linkNameBytes = linkName == null ? new byte[0] : linkName.getBytes(StandardCharsets.UTF_8);
+        if (linkNameBytes.length > NAME_LENGTH) {
+            this.writeLongName(TYPE_LONG_LINK_NAME, linkNameBytes);
+        }
+
+        final byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, NAME_LENGTH));
+        writeOctal(header, 100, 8, mode & 07777);
+        writeOctal(header, 108, 8, 0L);
+        writeOctal(header, 116, 8, 0L);
+        writeSize(header, 124, size);
+        writeOctal(header, 136, 12, Math.max(0L, modified / 1000L));
+        header[156] = (byte) type;
+        System.arraycopy(linkNameBytes, 0, header, 157, Math.min(linkNameBytes.length, NAME_LENGTH));
+        System.arraycopy(GNU_MAGIC, 0, header, 257, GNU_MAGIC.length);
+
+        // The checksum is calculated with the checksum field itself filled with spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (final byte b : header) {
+            checksum += b & 0xFF;
+        }
+        writeOctal(header, 148, 7, checksum);
+        header[155] = (byte) ' ';
+
+        this.out.write(header);
+    }
+
+    private void writeLongName(final char type, final byte[] name) throws IOException {
+        // The name is stored NUL terminated as the content of a pseudo entry preceding the real one
+        this.writeHeader(LONG_NAME, type, 0644, name.length + 1, 0L, null);
+        this.out.write(name);
+        this.out.write(0);
+        this.pad(name.length + 1);
+    }
+
+    private void pad(final long written) throws IOException {
+        final int remainder = (int) (written % BLOCK_SIZE);
+        if (remainder != 0) {
+            this.out.write(new byte[BLOCK_SIZE - remainder]);
+        }
+    }
+
+    private static void writeSize(final byte[] header, final int offset, final long size) {
+        if (size <= MAX_OCTAL_SIZE) {
+            writeOctal(header, offset, SIZE_LENGTH, size);
+        } else {
+            // GNU base-256 encoding. The high bit of the first byte marks it.
+            long value = size;
+            for (int i = offset + SIZE_LENGTH - 1; i > offset; i--) {
+                header[i] = (byte) (value & 0xFF);
+                value >>>= 8;
+            }
+            header[offset] = (byte) 0x80;
+        }
+    }
+
+    private static void writeOctal(final byte[] header, final int offset, final int length, final long value) {
+        // Zero padded digits followed by a NUL
+        final String octal = Long.toOctalString(value);
+        final int digits = length - 1;
+        for (int i = 0; i < digits; i++) {
+            final int index = i - (digits - octal.length());
+            header[offset + i] = (byte) (index < 0 ? '0' : octal.charAt(index));
+        }
+        header[offset + digits] = 0;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import com.google.common.base.Joiner;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.validation.constraints.NotNull;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Implementation of BatchProcessChecker for Unix based systems. Where the proc file system is available a process is
+ * running as long as its directory exists so no process has to be forked at all. Otherwise a single ps process checks
+ * all the given processes.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class UnixBatchProcessChecker implements BatchProcessChecker {
+
+    /**
+     * The default mount point of the proc file system.
+     */
+    public static final String PROC_DIRECTORY = "/proc";
+
+    // ps exits with 1 if none of the processes was found
+    private static final int[] PS_EXIT_VALUES = {0, 1};
+
+    private final File procDirectory;
+    private final boolean useProc;
+
+    /**
+     * Constructor.
+     *
+     * @param procDirectory The mount point of the proc file system. If it isn't a directory ps is used instead.
+     */
+    public UnixBatchProcessChecker(@NotNull final File procDirectory) {
+        this.procDirectory = procDirectory;
+        this.useProc = procDirectory.isDirectory();
+        log.info("Checking processes using {}", this.useProc ? procDirectory : "ps");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Integer> getRunningProcesses(@NotNull final Collection<Integer> pids) throws IOException {
+        if (pids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return this.useProc ? this.checkProc(pids) : checkPs(pids);
+    }
+
+    private Set<Integer> checkProc(final Collection<Integer> pids) {
+        final Set<Integer> running = new HashSet<>();
+        for (final Integer pid : pids) {
+            if (new File(this.procDirectory, pid.toString()).isDirectory()) {
+                running.add(pid);
+            }
+        }
+        return running;
+    }
+
+    private static Set<Integer> checkPs(final Collection<Integer> pids) throws IOException {
+        final CommandLine commandLine = new CommandLine("ps")
+            .addArgument("-o")
+            .addArgument("pid=")
+            .addArgument("-p")
+            .addArgument(Joiner.on(',').join(pids));
+
+        // Not the shared executor as the output is needed
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Executor executor = new DefaultExecutor();
+        executor.setStreamHandler(new PumpStreamHandler(output, new ByteArrayOutputStream()));
+        executor.setExitValues(PS_EXIT_VALUES);
+        executor.execute(commandLine);
+
+        final Set<Integer> running = new HashSet<>();
+        for (final String line : StringUtils.split(new String(output.toByteArray(), StandardCharsets.UTF_8), '\n')) {
+            final String pid = line.trim();
+            if (!pid.isEmpty()) {
+                try {
+                    running.add(Integer.parseInt(pid));
+                } catch (final NumberFormatException nfe) {
+                    throw new IOException("Unexpected output [" + line + "] from ps", nfe);
+                }
+            }
+        }
+        return running;
+    }
+}
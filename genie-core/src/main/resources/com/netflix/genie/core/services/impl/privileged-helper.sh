@@ -0,0 +1,62 @@
+#!/bin/bash
+#
+#  Copyright 2017 Netflix, Inc.
+#
+#     Licensed under the Apache License, Version 2.0 (the "License");
+#     you may not use this file except in compliance with the License.
+#     You may obtain a copy of the License at
+#
+#         http://www.apache.org/licenses/LICENSE-2.0
+#
+#     Unless required by applicable law or agreed to in writing, software
+#     distributed under the License is distributed on an "AS IS" BASIS,
+#     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#     See the License for the specific language governing permissions and
+#     limitations under the License.
+#
+
+# Long running helper Genie starts once with elevated rights to execute privileged operations for jobs run as the
+# user who submitted them. Reads one request per line from stdin, the operation type followed by its arguments
+# separated by tabs, and answers each with a line holding the exit code of the operation. Exits when stdin is closed.
+# Only the operations listed here can be requested.
+#
+# Install it as an executable owned by root, e.g. as /usr/local/bin/genie-privileged-helper, and allow the Genie user
+# to run only it through sudo without a password instead of a shell.
+
+IFS=$'\t'
+while read -r -a request; do
+    case "${request[0]}" in
+        USER_EXISTS)
+            id -u "${request[1]}"
+            ;;
+        CREATE_GROUP)
+            groupadd "${request[1]}"
+            ;;
+        CREATE_USER)
+            if [ "${#request[@]}" -gt 2 ]; then
+                useradd "${request[1]}" -G "${request[2]}" -M
+            else
+                useradd "${request[1]}" -M
+            fi
+            ;;
+        CHANGE_OWNER)
+            chown -R "${request[1]}" "${request[2]}"
+            ;;
+        MAKE_GROUP_WRITABLE)
+            chmod g+w "${request[1]}"
+            ;;
+        DELETE)
+            rm -rf "${request[1]}"
+            ;;
+        ARCHIVE)
+            tar -c -z -f "${request[1]}" -C "${request[2]}" ./
+            ;;
+        KILL)
+            kill "${request[1]}"
+            ;;
+        *)
+            false
+            ;;
+    esac < /dev/null > /dev/null 2>&1
+    echo "$?"
+done
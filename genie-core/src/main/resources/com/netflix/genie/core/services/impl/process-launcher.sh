@@ -0,0 +1,46 @@
+#
+#  Copyright 2017 Netflix, Inc.
+#
+#     Licensed under the Apache License, Version 2.0 (the "License");
+#     you may not use this file except in compliance with the License.
+#     You may obtain a copy of the License at
+#
+#         http://www.apache.org/licenses/LICENSE-2.0
+#
+#     Unless required by applicable law or agreed to in writing, software
+#     distributed under the License is distributed on an "AS IS" BASIS,
+#     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#     See the License for the specific language governing permissions and
+#     limitations under the License.
+#
+
+# Long running helper Genie starts once to launch the processes of jobs so the Genie JVM doesn't have to fork for
+# every job. Reads one request per line from stdin, the working directory, the output file and the command followed by
+# its arguments separated by tabs, and answers each with a line holding the process id of the launched process or -1
+# if it couldn't be launched. Exits when stdin is closed.
+#
+# Like the processes launched by the JVM itself every launched process is started with setsid, if available, so it
+# leads a session and process group of its own and the whole process tree of a job can be signalled at once. The
+# launched process isn't a process group leader so setsid doesn't have to fork and the process id answered is the
+# one of the job. Without setsid job control at least puts it into its own process group. Terminated processes are
+# reaped by this shell.
+
+if command -v setsid > /dev/null; then
+    launch=(setsid)
+else
+    launch=()
+    set -m
+fi
+exec 2> /dev/null
+IFS=$'\t'
+while read -r -a request; do
+    if [ "${#request[@]}" -gt 2 ] \
+        && [ -d "${request[0]}" ] \
+        && : >> "${request[1]}" \
+        && command -v "${request[2]}" > /dev/null; then
+        ( cd "${request[0]}" && exec "${launch[@]}" "${request[@]:2}" ) < /dev/null > "${request[1]}" 2>&1 &
+        echo "$!"
+    else
+        echo "-1"
+    fi
+done
@@ -31,6 +31,8 @@ import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.FileTransfer;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import com.netflix.genie.core.services.impl.LocalFileTransferImpl;
+import com.netflix.genie.core.services.impl.ProcessBuilderProcessLauncherServiceImpl;
+import com.netflix.genie.core.services.impl.SudoPrivilegedOperationServiceImpl;
 import com.netflix.spectator.api.Registry;
 import org.apache.commons.exec.Executor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -167,7 +169,9 @@ public class JobConfigTest {
         return new JobKickoffTask(
             jobsProperties.getUsers().isRunAsUserEnabled(),
             jobsProperties.getUsers().isCreationEnabled(),
-            executor,
+            jobsProperties.getUsers().isDirectOwnershipChangeEnabled(),
+            new SudoPrivilegedOperationServiceImpl(executor),
+            new ProcessBuilderProcessLauncherServiceImpl(),
             hostname,
             registry
         );
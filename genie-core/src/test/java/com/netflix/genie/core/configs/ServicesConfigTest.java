@@ -56,6 +56,7 @@ import com.netflix.genie.core.services.impl.JobStateServiceImpl;
 import com.netflix.genie.core.services.impl.LocalJobKillServiceImpl;
 import com.netflix.genie.core.services.impl.LocalJobRunner;
 import com.netflix.genie.core.services.impl.RandomizedClusterLoadBalancerImpl;
+import com.netflix.genie.core.services.impl.SudoPrivilegedOperationServiceImpl;
 import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.spectator.api.Registry;
 import org.apache.commons.exec.Executor;
@@ -215,6 +216,7 @@ public class ServicesConfigTest {
             hostname,
             jobSearchService,
             executor,
+            new SudoPrivilegedOperationServiceImpl(executor),
             false,
             genieEventBus,
             genieWorkingDir,
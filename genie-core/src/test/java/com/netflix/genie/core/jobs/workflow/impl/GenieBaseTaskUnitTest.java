@@ -18,6 +18,7 @@
 package com.netflix.genie.core.jobs.workflow.impl;
 
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.core.jobs.AdminResources;
 import com.netflix.genie.core.jobs.FileType;
 import com.netflix.genie.test.categories.UnitTest;
@@ -27,6 +28,8 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.mockito.Mockito;
 
+import java.util.HashMap;
+
 /**
  * Tests for GenieBaseTask.
  *
@@ -208,4 +211,14 @@ public class GenieBaseTaskUnitTest {
 
         Assert.assertEquals("dirpath/genie/cluster/id/dependencies/filename", localPath);
     }
+
+    /**
+     * Make sure a task can't run without the launch plan of the initial setup.
+     *
+     * @throws GenieException if there is a problem.
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantGetMissingLaunchPlan() throws GenieException {
+        this.genieBaseTask.getLaunchPlanFromContext(new HashMap<>());
+    }
 }
@@ -17,8 +17,13 @@
  */
 package com.netflix.genie.core.jobs.workflow.impl;
 
+import com.google.common.collect.Lists;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
 import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
 import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.spectator.api.Registry;
@@ -34,7 +39,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -231,4 +238,118 @@ public class InitialSetupTaskUnitTest {
             Assert.assertEquals(expectedOutputString, this.initialSetupTask.tagsToString(tags));
         }
     }
+
+    /**
+     * Make sure the launch plan is built once per version of the cluster, command and applications.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void canCacheLaunchPlan() throws Exception {
+        final Date updated = new Date();
+        final Cluster cluster = createCluster(updated);
+        final Command command = createCommand(updated);
+        final List<Application> applications = Lists.newArrayList(createApplication("app1", "setup.sh", updated));
+
+        final JobLaunchPlan launchPlan = this.initialSetupTask.getLaunchPlan(cluster, command, applications);
+        Assert.assertSame(launchPlan, this.initialSetupTask.getLaunchPlan(cluster, command, applications));
+
+        // Any update to one of the resources results in a new plan
+        final Command updatedCommand = createCommand(new Date(updated.getTime() + 1000L));
+        final JobLaunchPlan updatedLaunchPlan
+            = this.initialSetupTask.getLaunchPlan(cluster, updatedCommand, applications);
+        Assert.assertNotSame(launchPlan, updatedLaunchPlan);
+        Assert.assertSame(
+            updatedLaunchPlan,
+            this.initialSetupTask.getLaunchPlan(cluster, updatedCommand, applications)
+        );
+
+        // Resources without an update time can't be cached
+        final Cluster newCluster = new Cluster.Builder("cluster-name", "user", "1.0", ClusterStatus.UP)
+            .withId("cluster-id")
+            .build();
+        Assert.assertNotSame(
+            this.initialSetupTask.getLaunchPlan(newCluster, command, applications),
+            this.initialSetupTask.getLaunchPlan(newCluster, command, applications)
+        );
+    }
+
+    /**
+     * Make sure the launch plan holds the same directories and script fragments the tasks would create per job.
+     *
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void launchPlanMatchesPerJobGeneration() throws Exception {
+        final Date updated = new Date();
+        final Cluster cluster = createCluster(updated);
+        final Command command = createCommand(updated);
+        final List<Application> applications = Lists.newArrayList(
+            createApplication("app1", "s3://bucket/app1/setup.sh", updated),
+            createApplication("app2", null, updated)
+        );
+
+        final JobLaunchPlan launchPlan = this.initialSetupTask.getLaunchPlan(cluster, command, applications);
+
+        final StringWriter expectedEnvironment = new StringWriter();
+        this.initialSetupTask.createApplicationEnvironmentVariables(expectedEnvironment);
+        this.initialSetupTask.createCommandEnvironmentVariables(expectedEnvironment, command);
+        this.initialSetupTask.createClusterEnvironmentVariables(expectedEnvironment, cluster);
+        Assert.assertEquals(expectedEnvironment.getString(), launchPlan.getEnvironment());
+
+        Assert.assertEquals(
+            "# Sourcing setup file from Cluster: cluster-id\n"
+                + "source ${GENIE_JOB_DIR}/genie/cluster/cluster-id/cluster-setup.sh\n"
+                + "\n",
+            launchPlan.getClusterSetup()
+        );
+        Assert.assertEquals("", launchPlan.getCommandSetup());
+        Assert.assertEquals(
+            "# Sourcing setup file from Application: app1\n"
+                + "source ${GENIE_JOB_DIR}/genie/applications/app1/setup.sh\n"
+                + "\n",
+            launchPlan.getApplicationSetup("app1")
+        );
+        Assert.assertEquals("", launchPlan.getApplicationSetup("app2"));
+
+        this.initialSetupTask.createJobDirStructure(this.tempDir.getRoot().getPath(), launchPlan.getDirectories());
+        final File genieDirectory = new File(this.tempDir.getRoot(), JobConstants.GENIE_PATH_VAR);
+        Assert.assertTrue(new File(genieDirectory, JobConstants.LOGS_PATH_VAR).isDirectory());
+        final String[] entityDirectories = {
+            JobConstants.CLUSTER_PATH_VAR + "/cluster-id",
+            JobConstants.COMMAND_PATH_VAR + "/command-id",
+            JobConstants.APPLICATION_PATH_VAR + "/app1",
+            JobConstants.APPLICATION_PATH_VAR + "/app2",
+        };
+        for (final String entityDirectory : entityDirectories) {
+            final File directory = new File(genieDirectory, entityDirectory);
+            Assert.assertTrue(new File(directory, JobConstants.CONFIG_FILE_PATH_PREFIX).isDirectory());
+            Assert.assertTrue(new File(directory, JobConstants.DEPENDENCY_FILE_PATH_PREFIX).isDirectory());
+        }
+    }
+
+    static Cluster createCluster(final Date updated) {
+        return new Cluster.Builder("cluster-name", "user", "1.0", ClusterStatus.UP)
+            .withId("cluster-id")
+            .withUpdated(updated)
+            .withSetupFile("s3://bucket/cluster/cluster-setup.sh")
+            .withTags(new HashSet<>(Arrays.asList("cluster-foo", "cluster-bar")))
+            .build();
+    }
+
+    static Command createCommand(final Date updated) {
+        return new Command.Builder("command-name", "user", "1.0", CommandStatus.ACTIVE, "run", 1000L)
+            .withId("command-id")
+            .withUpdated(updated)
+            .withTags(new HashSet<>(Arrays.asList("cmd-foo", "cmd-bar")))
+            .build();
+    }
+
+    static Application createApplication(final String id, final String setupFile, final Date updated) {
+        return new Application.Builder(id + "-name", "user", "1.0", ApplicationStatus.ACTIVE)
+            .withId(id)
+            .withUpdated(updated)
+            .withSetupFile(setupFile)
+            .build();
+    }
 }
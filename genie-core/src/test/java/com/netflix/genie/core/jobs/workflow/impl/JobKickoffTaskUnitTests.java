@@ -19,21 +19,31 @@ package com.netflix.genie.core.jobs.workflow.impl;
 
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.impl.ProcessBuilderProcessLauncherServiceImpl;
+import com.netflix.genie.core.services.impl.SudoPrivilegedOperationServiceImpl;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.Executor;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Unit Tests for JobKickoffTask class.
@@ -45,6 +55,12 @@ import java.util.List;
 @Slf4j
 public class JobKickoffTaskUnitTests {
 
+    /**
+     * Temporary folder for job directories.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private Executor executor;
     private JobKickoffTask jobKickoffTask;
 
@@ -60,7 +76,9 @@ public class JobKickoffTaskUnitTests {
         jobKickoffTask = new JobKickoffTask(
             false,
             false,
-            this.executor,
+            false,
+            new SudoPrivilegedOperationServiceImpl(this.executor),
+            new ProcessBuilderProcessLauncherServiceImpl(),
             "localhost",
             registry
         );
@@ -167,4 +185,99 @@ public class JobKickoffTaskUnitTests {
             group
         );
     }
+
+    /**
+     * Make sure a user found once isn't checked for again.
+     *
+     * @throws IOException    If there is any problem.
+     * @throws GenieException If there is any problem.
+     */
+    @Test
+    public void canRememberKnownUsers() throws IOException, GenieException {
+        this.jobKickoffTask.createUser("user", "group");
+        this.jobKickoffTask.createUser("user", "group");
+        this.jobKickoffTask.createUser("user2", "group");
+
+        Mockito.verify(this.executor, Mockito.times(2)).execute(Mockito.any(CommandLine.class));
+    }
+
+    /**
+     * Make sure a user which couldn't be created is checked for again by the next job.
+     *
+     * @throws IOException    If there is any problem.
+     * @throws GenieException If there is any problem.
+     */
+    @Test
+    public void wontRememberUsersWhichCouldNotBeCreated() throws IOException, GenieException {
+        Mockito.when(this.executor.execute(Mockito.any(CommandLine.class))).thenThrow(new IOException());
+        for (int i = 0; i < 2; i++) {
+            try {
+                this.jobKickoffTask.createUser("user", null);
+                Assert.fail();
+            } catch (final GenieServerException gse) {
+                log.debug("Expected exception", gse);
+            }
+        }
+
+        Mockito.verify(this.executor, Mockito.times(4)).execute(Mockito.any(CommandLine.class));
+    }
+
+    /**
+     * Make sure the ownership of the job directory can be changed without a privileged operation when Genie has the
+     * rights to do so. Changing the owner to the user running the tests is always allowed.
+     *
+     * @throws IOException    If there is any problem.
+     * @throws GenieException If there is any problem.
+     */
+    @Test
+    public void canChangeOwnershipOfDirectoryDirectly() throws IOException, GenieException {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+        final File jobDir = this.temporaryFolder.newFolder();
+        final File logsDir = new File(jobDir, "genie/logs");
+        Assert.assertTrue(logsDir.mkdirs());
+        Assert.assertTrue(new File(logsDir, "genie.log").createNewFile());
+        final String user = Files.getOwner(jobDir.toPath()).getName();
+
+        final JobKickoffTask task = new JobKickoffTask(
+            true,
+            false,
+            true,
+            new SudoPrivilegedOperationServiceImpl(this.executor),
+            new ProcessBuilderProcessLauncherServiceImpl(),
+            "localhost",
+            Mockito.mock(Registry.class)
+        );
+        task.changeOwnershipOfDirectory(jobDir.getCanonicalPath(), user);
+
+        Mockito.verify(this.executor, Mockito.never()).execute(Mockito.any(CommandLine.class));
+        Assert.assertThat(Files.getOwner(new File(logsDir, "genie.log").toPath()).getName(), Matchers.is(user));
+    }
+
+    /**
+     * Make sure the ownership change falls back to a privileged operation if it can't be done directly.
+     *
+     * @throws IOException    If there is any problem.
+     * @throws GenieException If there is any problem.
+     */
+    @Test
+    public void canFallBackToPrivilegedOwnershipChange() throws IOException, GenieException {
+        final JobKickoffTask task = new JobKickoffTask(
+            true,
+            false,
+            true,
+            new SudoPrivilegedOperationServiceImpl(this.executor),
+            new ProcessBuilderProcessLauncherServiceImpl(),
+            "localhost",
+            Mockito.mock(Registry.class)
+        );
+        final String dir = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()).getAbsolutePath();
+        task.changeOwnershipOfDirectory(dir, "user");
+
+        final ArgumentCaptor<CommandLine> argumentCaptor = ArgumentCaptor.forClass(CommandLine.class);
+        Mockito.verify(this.executor).execute(argumentCaptor.capture());
+        Assert.assertArrayEquals(
+            Arrays.asList("sudo", "chown", "-R", "user", dir).toArray(),
+            argumentCaptor.getValue().toStrings()
+        );
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.jobs.workflow.impl;
+
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.core.jobs.AdminResources;
+import com.netflix.genie.core.jobs.FileType;
+import com.netflix.genie.test.categories.BenchmarkTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A micro benchmark of the run script generation for the cluster, command and applications of a job with and without
+ * the cached launch plan. The timings are only logged. Run with the benchmarkTests task. The generated scripts have to
+ * be identical.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(BenchmarkTest.class)
+@Slf4j
+public class JobLaunchPlanBenchmarkTests {
+
+    private static final String JOB_DIR = "/mnt/genie/jobs/bd2e3b2b-7a9c-4f0d-8a43-4ff2a0c6e1f3";
+    private static final int NUM_APPLICATIONS = 5;
+    private static final int WARM_UP_ITERATIONS = 5_000;
+    private static final int ITERATIONS = 20_000;
+
+    private InitialSetupTask task;
+    private Cluster cluster;
+    private Command command;
+    private List<Application> applications;
+
+    /**
+     * Setup for the benchmark.
+     */
+    @Before
+    public void setup() {
+        this.task = new InitialSetupTask(new DefaultRegistry());
+        final Date updated = new Date();
+        this.cluster = InitialSetupTaskUnitTest.createCluster(updated);
+        this.command = InitialSetupTaskUnitTest.createCommand(updated);
+        this.applications = new ArrayList<>();
+        for (int i = 0; i < NUM_APPLICATIONS; i++) {
+            this.applications.add(
+                InitialSetupTaskUnitTest.createApplication("app" + i, "s3://bucket/app" + i + "/setup.sh", updated)
+            );
+        }
+    }
+
+    /**
+     * Compare the time it takes to generate the run script fragments per job with the time it takes to write them
+     * out of the launch plan.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void benchmarkRunScriptGeneration() throws Exception {
+        Assert.assertEquals(this.generatePerJob(), this.generateFromLaunchPlan());
+
+        long sink = 0;
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            sink += this.generatePerJob().length();
+            sink += this.generateFromLaunchPlan().length();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += this.generatePerJob().length();
+        }
+        final long perJobNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += this.generateFromLaunchPlan().length();
+        }
+        final long launchPlanNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        log.info(
+            "Run script generation for a job with {} applications. Per job: {} ns/op. Launch plan: {} ns/op. ({})",
+            NUM_APPLICATIONS,
+            perJobNanos,
+            launchPlanNanos,
+            sink
+        );
+    }
+
+    private String generatePerJob() throws Exception {
+        final StringWriter writer = new StringWriter();
+        this.task.createApplicationEnvironmentVariables(writer);
+        this.task.createCommandEnvironmentVariables(writer, this.command);
+        this.task.createClusterEnvironmentVariables(writer, this.cluster);
+        this.writeSetup(writer, this.cluster.getId(), this.cluster.getSetupFile(), "Cluster:", AdminResources.CLUSTER);
+        for (final Application application : this.applications) {
+            this.writeSetup(
+                writer,
+                application.getId(),
+                application.getSetupFile(),
+                "Application:",
+                AdminResources.APPLICATION
+            );
+        }
+        this.writeSetup(writer, this.command.getId(), this.command.getSetupFile(), "Command:", AdminResources.COMMAND);
+        return writer.toString();
+    }
+
+    private void writeSetup(
+        final StringWriter writer,
+        final Optional<String> id,
+        final Optional<String> setupFile,
+        final String type,
+        final AdminResources adminResources
+    ) throws Exception {
+        if (setupFile.isPresent()) {
+            final String resourceId = id.orElseThrow(IllegalArgumentException::new);
+            final String localPath = this.task.buildLocalFilePath(
+                JOB_DIR,
+                resourceId,
+                setupFile.get(),
+                FileType.SETUP,
+                adminResources
+            );
+            this.task.generateSetupFileSourceSnippet(resourceId, type, localPath, writer, JOB_DIR);
+        }
+    }
+
+    private String generateFromLaunchPlan() throws Exception {
+        final JobLaunchPlan launchPlan = this.task.getLaunchPlan(this.cluster, this.command, this.applications);
+        final StringWriter writer = new StringWriter();
+        writer.write(launchPlan.getEnvironment());
+        writer.write(launchPlan.getClusterSetup());
+        for (final Application application : this.applications) {
+            final String applicationId = application.getId().orElseThrow(IllegalArgumentException::new);
+            writer.write(launchPlan.getApplicationSetup(applicationId));
+        }
+        writer.write(launchPlan.getCommandSetup());
+        return writer.toString();
+    }
+}
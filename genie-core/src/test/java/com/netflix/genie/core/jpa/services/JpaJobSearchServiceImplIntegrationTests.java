@@ -19,6 +19,7 @@ package com.netflix.genie.core.jpa.services;
 
 import com.github.springtestdbunit.annotation.DatabaseSetup;
 import com.github.springtestdbunit.annotation.DatabaseTearDown;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.netflix.genie.common.dto.Application;
 import com.netflix.genie.common.dto.Job;
@@ -26,6 +27,10 @@ import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.jobs.JobCompletionSnapshot;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.core.services.JobSearchCursor;
+import com.netflix.genie.core.services.JobSearchCursorPage;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.test.categories.IntegrationTest;
 import com.netflix.genie.test.suppliers.RandomSuppliers;
@@ -37,11 +42,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Integration tests for the Job Search Service using JPA.
@@ -235,6 +246,72 @@ public class JpaJobSearchServiceImplIntegrationTests extends DBUnitTestBase {
         }
     }
 
+    /**
+     * Make sure the statuses of many jobs can be found at once, even with more ids than fit in a single query.
+     */
+    @Test
+    public void canGetJobStatuses() {
+        Assert.assertTrue(this.service.getJobStatuses(new ArrayList<>()).isEmpty());
+
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        ids.add(JOB_1_ID);
+        ids.add(JOB_2_ID);
+        ids.add(JOB_3_ID);
+        ids.add(JOB_3_ID);
+        final Map<String, JobStatus> statuses = this.service.getJobStatuses(ids);
+        Assert.assertThat(statuses.size(), Matchers.is(3));
+        Assert.assertThat(statuses.get(JOB_1_ID), Matchers.is(JobStatus.SUCCEEDED));
+        Assert.assertThat(statuses.get(JOB_2_ID), Matchers.is(JobStatus.INIT));
+        Assert.assertThat(statuses.get(JOB_3_ID), Matchers.is(JobStatus.RUNNING));
+    }
+
+    /**
+     * Make sure the search results of jobs can be found by their ids.
+     */
+    @Test
+    public void canGetJobSearchResults() {
+        final Map<String, JobSearchResult> results = this.service.getJobSearchResults(
+            Lists.newArrayList(JOB_3_ID, UUID.randomUUID().toString(), JOB_1_ID)
+        );
+        Assert.assertThat(results.size(), Matchers.is(2));
+        Assert.assertThat(results.get(JOB_1_ID).getName(), Matchers.is("testSparkJob"));
+        Assert.assertThat(results.get(JOB_1_ID).getStatus(), Matchers.is(JobStatus.SUCCEEDED));
+        Assert.assertThat(results.get(JOB_3_ID).getStatus(), Matchers.is(JobStatus.RUNNING));
+    }
+
+    /**
+     * Make sure the fields jobs are indexed by can be read by ids and in the order the jobs were updated.
+     */
+    @Test
+    public void canGetJobSearchSnapshots() {
+        final List<JobSearchSnapshot> snapshots = this.service.getJobSearchSnapshots(
+            Lists.newArrayList(JOB_2_ID, UUID.randomUUID().toString())
+        );
+        Assert.assertThat(snapshots.size(), Matchers.is(1));
+        final JobSearchSnapshot snapshot = snapshots.get(0);
+        Assert.assertThat(snapshot.getId(), Matchers.is(JOB_2_ID));
+        Assert.assertThat(snapshot.getUser(), Matchers.is("tgianos"));
+        Assert.assertThat(snapshot.getStatus(), Matchers.is(JobStatus.INIT));
+        Assert.assertThat(snapshot.getClusterId().orElse(null), Matchers.is("cluster1"));
+        Assert.assertThat(snapshot.getCommandId().orElse(null), Matchers.is("command1"));
+
+        final List<JobSearchSnapshot> first = this.service.getJobSearchSnapshotsUpdatedAfter(new Date(0L), "", 2);
+        Assert.assertThat(
+            first.stream().map(JobSearchSnapshot::getId).collect(Collectors.toList()),
+            Matchers.contains(JOB_1_ID, JOB_2_ID)
+        );
+        final JobSearchSnapshot last = first.get(1);
+        final List<JobSearchSnapshot> second
+            = this.service.getJobSearchSnapshotsUpdatedAfter(last.getUpdated(), last.getId(), 2);
+        Assert.assertThat(
+            second.stream().map(JobSearchSnapshot::getId).collect(Collectors.toList()),
+            Matchers.contains(JOB_3_ID)
+        );
+    }
+
     /**
      * Make sure the getting job request method works.
      *
@@ -325,6 +402,106 @@ public class JpaJobSearchServiceImplIntegrationTests extends DBUnitTestBase {
         Assert.assertThat(applications.get(1).getId().orElseGet(RandomSuppliers.STRING), Matchers.is("app2"));
     }
 
+    /**
+     * Make sure the completion snapshot of a job has everything from the job, its request and its execution.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetJobCompletionSnapshot() throws GenieException {
+        final JobCompletionSnapshot snapshot = this.service.getJobCompletionSnapshot(JOB_1_ID);
+        Assert.assertThat(snapshot.getId(), Matchers.is(JOB_1_ID));
+        Assert.assertThat(snapshot.getStatus(), Matchers.is(JobStatus.SUCCEEDED));
+        Assert.assertThat(snapshot.getProcessId().orElseThrow(IllegalArgumentException::new), Matchers.is(317));
+        Assert.assertThat(snapshot.getName(), Matchers.is("testSparkJob"));
+        Assert.assertThat(snapshot.getUser(), Matchers.is("tgianos"));
+        Assert.assertFalse(snapshot.getEmail().isPresent());
+        Assert.assertFalse(snapshot.getArchiveLocation().isPresent());
+        Assert.assertThat(snapshot.getClusterId().orElseThrow(IllegalArgumentException::new), Matchers.is("cluster1"));
+        Assert.assertThat(snapshot.getCommandId().orElseThrow(IllegalArgumentException::new), Matchers.is("command1"));
+        Assert.assertThat(snapshot.getApplicationIds(), Matchers.contains("app1", "app3"));
+
+        try {
+            this.service.getJobCompletionSnapshot(UUID.randomUUID().toString());
+            Assert.fail();
+        } catch (final GenieException ge) {
+            Assert.assertTrue(ge instanceof GenieNotFoundException);
+        }
+    }
+
+    /**
+     * Make sure we can page through the jobs with cursors in both directions.
+     */
+    @Test
+    public void canFindJobsByCursor() {
+        final JobSearchCursorPage first = this.findJobsByCursor(null);
+        Assert.assertThat(
+            first.getContent().stream().map(JobSearchResult::getId).collect(Collectors.toList()),
+            Matchers.contains(JOB_3_ID, JOB_2_ID)
+        );
+        Assert.assertFalse(first.getPrevious().isPresent());
+        final JobSearchCursor next = first.getNext().orElseThrow(IllegalArgumentException::new);
+        Assert.assertThat(next.getId(), Matchers.is(JOB_2_ID));
+        Assert.assertThat(next.getDirection(), Matchers.is(JobSearchCursor.Direction.NEXT));
+
+        final JobSearchCursorPage second = this.findJobsByCursor(next);
+        Assert.assertThat(
+            second.getContent().stream().map(JobSearchResult::getId).collect(Collectors.toList()),
+            Matchers.contains(JOB_1_ID)
+        );
+        Assert.assertFalse(second.getNext().isPresent());
+        final JobSearchCursor previous = second.getPrevious().orElseThrow(IllegalArgumentException::new);
+        Assert.assertThat(previous.getId(), Matchers.is(JOB_1_ID));
+        Assert.assertThat(previous.getDirection(), Matchers.is(JobSearchCursor.Direction.PREVIOUS));
+
+        final JobSearchCursorPage back = this.findJobsByCursor(previous);
+        Assert.assertThat(
+            back.getContent().stream().map(JobSearchResult::getId).collect(Collectors.toList()),
+            Matchers.contains(JOB_3_ID, JOB_2_ID)
+        );
+        Assert.assertFalse(back.getPrevious().isPresent());
+        Assert.assertThat(back.getNext(), Matchers.is(first.getNext()));
+    }
+
+    /**
+     * Make sure a search which doesn't count the jobs only tells whether there is a next slice and an estimated total
+     * is a full count.
+     */
+    @Test
+    public void canFindJobsWithoutExactCount() {
+        Slice<JobSearchResult> jobs = this.findJobs(new PageRequest(0, 1), JobSearchService.CountMode.NONE);
+        Assert.assertThat(jobs, Matchers.not(Matchers.instanceOf(Page.class)));
+        Assert.assertThat(jobs.getContent().size(), Matchers.is(1));
+        Assert.assertTrue(jobs.hasNext());
+
+        jobs = this.findJobs(new PageRequest(1, 2), JobSearchService.CountMode.NONE);
+        Assert.assertThat(jobs, Matchers.not(Matchers.instanceOf(Page.class)));
+        Assert.assertThat(jobs.getContent().size(), Matchers.is(1));
+        Assert.assertFalse(jobs.hasNext());
+
+        jobs = this.findJobs(new PageRequest(0, 1), JobSearchService.CountMode.ESTIMATE);
+        Assert.assertThat(jobs.getContent().size(), Matchers.is(1));
+        Assert.assertTrue(jobs.hasNext());
+        Assert.assertThat(((Page<JobSearchResult>) jobs).getTotalElements(), Matchers.is(3L));
+    }
+
+    /**
+     * Make sure all the jobs matching the criteria are streamed regardless of the fetch size.
+     */
+    @Test
+    public void canExportJobs() {
+        final List<JobSearchResult> exported = new ArrayList<>();
+        Assert.assertThat(this.exportJobs(null, exported::add), Matchers.is(3L));
+        Assert.assertThat(
+            exported.stream().map(JobSearchResult::getId).collect(Collectors.toList()),
+            Matchers.containsInAnyOrder(JOB_1_ID, JOB_2_ID, JOB_3_ID)
+        );
+
+        exported.clear();
+        Assert.assertThat(this.exportJobs(Sets.newHashSet(JobStatus.RUNNING), exported::add), Matchers.is(1L));
+        Assert.assertThat(exported.get(0).getId(), Matchers.is(JOB_3_ID));
+    }
+
     /**
      * Make sure we can get the correct number of jobs which are active for a given user.
      *
@@ -335,4 +512,64 @@ public class JpaJobSearchServiceImplIntegrationTests extends DBUnitTestBase {
         Assert.assertThat(this.service.getActiveJobCountForUser("nobody"), Matchers.is(0L));
         Assert.assertThat(this.service.getActiveJobCountForUser("tgianos"), Matchers.is(2L));
     }
+
+    private JobSearchCursorPage findJobsByCursor(final JobSearchCursor cursor) {
+        return this.service.findJobsByCursor(
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            cursor,
+            2
+        );
+    }
+
+    private Slice<JobSearchResult> findJobs(final Pageable page, final JobSearchService.CountMode countMode) {
+        return this.service.findJobs(
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            page,
+            countMode
+        );
+    }
+
+    private long exportJobs(final Set<JobStatus> statuses, final Consumer<JobSearchResult> consumer) {
+        return this.service.exportJobs(
+            null,
+            null,
+            null,
+            statuses,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            1,
+            consumer
+        );
+    }
 }
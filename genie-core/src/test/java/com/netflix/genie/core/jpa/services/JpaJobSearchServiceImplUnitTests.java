@@ -19,6 +19,7 @@ package com.netflix.genie.core.jpa.services;
 
 import com.google.common.collect.Lists;
 import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.dto.JobExecution;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.core.jpa.entities.JobEntity;
@@ -36,6 +37,8 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.mockito.Mockito;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -122,6 +125,36 @@ public class JpaJobSearchServiceImplUnitTests {
         this.service.getJobExecution(id);
     }
 
+    /**
+     * Make sure all the job executions are fetched with a single query and keyed by job id.
+     */
+    @Test
+    public void canGetJobExecutions() {
+        Assert.assertTrue(this.service.getJobExecutions(Lists.newArrayList()).isEmpty());
+        Mockito.verify(this.jobExecutionRepository, Mockito.never()).findAll(Mockito.anyCollectionOf(String.class));
+
+        final String id1 = UUID.randomUUID().toString();
+        final String id2 = UUID.randomUUID().toString();
+        final String id3 = UUID.randomUUID().toString();
+        final JobExecutionEntity entity1 = Mockito.mock(JobExecutionEntity.class);
+        final JobExecution execution1 = Mockito.mock(JobExecution.class);
+        Mockito.when(entity1.getId()).thenReturn(id1);
+        Mockito.when(entity1.getDTO()).thenReturn(execution1);
+        final JobExecutionEntity entity2 = Mockito.mock(JobExecutionEntity.class);
+        final JobExecution execution2 = Mockito.mock(JobExecution.class);
+        Mockito.when(entity2.getId()).thenReturn(id2);
+        Mockito.when(entity2.getDTO()).thenReturn(execution2);
+        final List<String> ids = Lists.newArrayList(id1, id2, id3);
+        Mockito.when(this.jobExecutionRepository.findAll(ids)).thenReturn(Lists.newArrayList(entity1, entity2));
+
+        final Map<String, JobExecution> executions = this.service.getJobExecutions(ids);
+        Assert.assertThat(executions.size(), Matchers.is(2));
+        Assert.assertThat(executions.get(id1), Matchers.is(execution1));
+        Assert.assertThat(executions.get(id2), Matchers.is(execution2));
+        Assert.assertFalse(executions.containsKey(id3));
+        Mockito.verify(this.jobExecutionRepository, Mockito.times(1)).findAll(ids);
+    }
+
     /**
      * Test the getJobCluster method.
      *
@@ -50,8 +50,11 @@ public class JobsPropertiesUnitTests {
     public void canConstruct() {
         Assert.assertNotNull(this.properties.getMemory());
         Assert.assertNotNull(this.properties.getForwarding());
+        Assert.assertNotNull(this.properties.getLauncher());
         Assert.assertNotNull(this.properties.getLocations());
         Assert.assertNotNull(this.properties.getMax());
+        Assert.assertNotNull(this.properties.getMonitor());
+        Assert.assertNotNull(this.properties.getSearch());
         Assert.assertNotNull(this.properties.getUsers());
     }
 
@@ -62,14 +65,18 @@ public class JobsPropertiesUnitTests {
     public void canSet() {
         final JobsMemoryProperties memory = Mockito.mock(JobsMemoryProperties.class);
         final JobsForwardingProperties forwarding = Mockito.mock(JobsForwardingProperties.class);
+        final JobsLauncherProperties launcher = Mockito.mock(JobsLauncherProperties.class);
         final JobsLocationsProperties locations = Mockito.mock(JobsLocationsProperties.class);
         final JobsMaxProperties max = Mockito.mock(JobsMaxProperties.class);
+        final JobsMonitorProperties monitor = Mockito.mock(JobsMonitorProperties.class);
         final JobsUsersProperties users = Mockito.mock(JobsUsersProperties.class);
 
         this.properties.setForwarding(forwarding);
+        this.properties.setLauncher(launcher);
         this.properties.setLocations(locations);
         this.properties.setMax(max);
         this.properties.setMemory(memory);
+        this.properties.setMonitor(monitor);
         this.properties.setUsers(users);
     }
 }
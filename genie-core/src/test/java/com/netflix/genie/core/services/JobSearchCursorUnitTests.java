@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services;
+
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Unit tests for JobSearchCursor.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobSearchCursorUnitTests {
+
+    /**
+     * Make sure a cursor can be encoded and decoded again.
+     *
+     * @throws GeniePreconditionException on error
+     */
+    @Test
+    public void canEncodeAndDecode() throws GeniePreconditionException {
+        final JobSearchCursor cursor
+            = new JobSearchCursor(new Date(1456278540000L), "job:1", JobSearchCursor.Direction.PREVIOUS);
+        final String encoded = cursor.encode();
+        Assert.assertThat(encoded, Matchers.not(Matchers.containsString("job")));
+        Assert.assertThat(encoded.matches("[A-Za-z0-9_-]+"), Matchers.is(true));
+
+        final JobSearchCursor decoded = JobSearchCursor.decode(encoded);
+        Assert.assertThat(decoded, Matchers.is(cursor));
+        Assert.assertThat(decoded.getCreated(), Matchers.is(new Date(1456278540000L)));
+        Assert.assertThat(decoded.getId(), Matchers.is("job:1"));
+        Assert.assertThat(decoded.getDirection(), Matchers.is(JobSearchCursor.Direction.PREVIOUS));
+    }
+
+    /**
+     * Make sure a cursor which wasn't encoded by Genie is rejected.
+     *
+     * @throws GeniePreconditionException on invalid cursor
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantDecodeInvalidCursor() throws GeniePreconditionException {
+        JobSearchCursor.decode("not a cursor");
+    }
+
+    /**
+     * Make sure a cursor with a missing field is rejected.
+     *
+     * @throws GeniePreconditionException on invalid cursor
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantDecodeIncompleteCursor() throws GeniePreconditionException {
+        JobSearchCursor.decode(
+            Base64.getUrlEncoder().encodeToString("NEXT:1456278540000".getBytes(StandardCharsets.UTF_8))
+        );
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.util.ArchiveIndex;
+import com.netflix.genie.core.util.DirectoryArchiver;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unit tests for the ArchivedJobServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class ArchivedJobServiceImplUnitTests {
+
+    /**
+     * Temporary folder for the job directories, archives and the cache.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JobSearchService jobSearchService;
+    private ArchivedJobServiceImpl service;
+    private ExecutorService executor;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws Exception on error
+     */
+    @Before
+    public void setup() throws Exception {
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        final JobsProperties jobsProperties = new JobsProperties();
+        jobsProperties.getLocations().setArchiveCache(this.temporaryFolder.newFolder().toURI().toString());
+        this.service = new ArchivedJobServiceImpl(
+            this.jobSearchService,
+            new GenieFileTransferService(scheme -> new LocalFileTransferImpl()),
+            jobsProperties,
+            new DefaultRegistry()
+        );
+        this.executor = Executors.newFixedThreadPool(2);
+    }
+
+    /**
+     * Stop the compression threads.
+     */
+    @After
+    public void cleanup() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Make sure files can be read out of an indexed archive.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canGetFileFromArchive() throws Exception {
+        final String jobId = UUID.randomUUID().toString();
+        final byte[] content = StringUtils.repeat("stdout line\n", 1000).getBytes(StandardCharsets.UTF_8);
+        final File directory = this.temporaryFolder.newFolder();
+        write(new File(directory, "stdout"), content);
+        write(new File(directory, "genie/logs/env.log"), new byte[0]);
+        this.archive(jobId, directory, true);
+
+        final ArchiveIndex index = this.service.getArchiveIndex(jobId).orElseThrow(IllegalStateException::new);
+        Assert.assertThat(index.getChildren("").size(), Matchers.is(2));
+
+        final File stdout = this.service.getFile(jobId, "stdout");
+        Assert.assertThat(Files.readAllBytes(stdout.toPath()), Matchers.is(content));
+        Assert.assertThat(this.service.getFile(jobId, "stdout"), Matchers.is(stdout));
+        Assert.assertThat(this.service.getFile(jobId, "genie/logs/env.log").length(), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure a file spanning several gzip members is read completely even if the archive location hands out the
+     * archive a byte at a time without ever having more available.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canGetFileSpanningMembersFromSlowStream() throws Exception {
+        final JobsProperties jobsProperties = new JobsProperties();
+        jobsProperties.getLocations().setArchiveCache(this.temporaryFolder.newFolder().toURI().toString());
+        final ArchivedJobServiceImpl slowService = new ArchivedJobServiceImpl(
+            this.jobSearchService,
+            new GenieFileTransferService(
+                scheme -> new LocalFileTransferImpl() {
+                    @Override
+                    public InputStream getStream(
+                        final String srcRemotePath,
+                        final long first,
+                        final long last
+                    ) throws GenieException {
+                        return new FilterInputStream(super.getStream(srcRemotePath, first, last)) {
+                            @Override
+                            public int read(final byte[] b, final int off, final int len) throws IOException {
+                                return super.read(b, off, Math.min(len, 1));
+                            }
+
+                            @Override
+                            public int available() {
+                                return 0;
+                            }
+                        };
+                    }
+                }
+            ),
+            jobsProperties,
+            new DefaultRegistry()
+        );
+        final String jobId = UUID.randomUUID().toString();
+        final byte[] content = StringUtils.repeat("stdout line\n", 1000).getBytes(StandardCharsets.UTF_8);
+        final File directory = this.temporaryFolder.newFolder();
+        write(new File(directory, "stdout"), content);
+        this.archive(jobId, directory, true);
+
+        final ArchiveIndex index = slowService.getArchiveIndex(jobId).orElseThrow(IllegalStateException::new);
+        Assert.assertThat(index.getMemberOffsets().size(), Matchers.greaterThan(2));
+        Assert.assertThat(Files.readAllBytes(slowService.getFile(jobId, "stdout").toPath()), Matchers.is(content));
+    }
+
+    /**
+     * Make sure there is no index for jobs archived without one.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void cantGetIndexOfArchiveWithoutIndex() throws Exception {
+        final String jobId = UUID.randomUUID().toString();
+        final File directory = this.temporaryFolder.newFolder();
+        write(new File(directory, "stdout"), new byte[]{1});
+        this.archive(jobId, directory, false);
+
+        Assert.assertFalse(this.service.getArchiveIndex(jobId).isPresent());
+    }
+
+    /**
+     * Make sure asking for a path which isn't a file in the archive is reported as not found.
+     *
+     * @throws Exception on error
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void cantGetDirectoryFromArchive() throws Exception {
+        final String jobId = UUID.randomUUID().toString();
+        final File directory = this.temporaryFolder.newFolder();
+        write(new File(directory, "genie/stdout"), new byte[]{1});
+        this.archive(jobId, directory, true);
+
+        this.service.getFile(jobId, "genie");
+    }
+
+    private void archive(final String jobId, final File directory, final boolean withIndex) throws IOException,
+        GenieException {
+        final File archive = new File(this.temporaryFolder.newFolder(), jobId + ".tar.gz");
+        final ArchiveIndex index;
+        try (OutputStream out = Files.newOutputStream(archive.toPath())) {
+            index = new DirectoryArchiver(this.executor, 1024, 2).archive(directory, Lists.newArrayList(), out);
+        }
+        if (withIndex) {
+            new ObjectMapper().writeValue(new File(archive.getAbsolutePath() + ArchiveIndex.FILE_SUFFIX), index);
+        }
+        Mockito.when(this.jobSearchService.getJob(jobId)).thenReturn(
+            new Job.Builder(jobId, jobId, "1.0", null)
+                .withId(jobId)
+                .withArchiveLocation(archive.toURI().toString())
+                .build()
+        );
+    }
+
+    private static void write(final File file, final byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+}
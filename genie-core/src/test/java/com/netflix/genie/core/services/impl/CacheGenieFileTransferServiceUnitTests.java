@@ -0,0 +1,453 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.ConditionalFileTransfer;
+import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Unit tests for the CacheGenieFileTransferService class, mostly around concurrent refreshes of changed files.
+ *
+ * @author amajumdar
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class CacheGenieFileTransferServiceUnitTests {
+
+    private static final String SLOW_PATH = "fake://bucket/slow.jar";
+    private static final String FAST_PATH = "fake://bucket/fast.jar";
+    private static final int NUM_THREADS = 32;
+
+    /**
+     * Temporary folder for the cache and the destination files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FakeFileTransfer fakeFileTransfer;
+    private CacheGenieFileTransferService service;
+    private ExecutorService executor;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Before
+    public void setup() throws Exception {
+        this.fakeFileTransfer = new FakeFileTransfer();
+        this.service = new CacheGenieFileTransferService(
+            scheme -> this.fakeFileTransfer,
+            this.temporaryFolder.newFolder().getAbsolutePath(),
+            new LocalFileTransferImpl(),
+            0L,
+            new DefaultRegistry()
+        );
+        this.executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    /**
+     * Cleanup after the tests.
+     */
+    @After
+    public void cleanup() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Make sure the lock of a path is shared by everyone who acquired it and only dropped once all of them released
+     * it.
+     */
+    @Test
+    public void canKeepPathLockUntilReleased() {
+        final ReadWriteLock lock = this.service.acquirePathLock(SLOW_PATH);
+        Assert.assertSame(lock, this.service.acquirePathLock(SLOW_PATH));
+        Assert.assertNotSame(lock, this.service.acquirePathLock(FAST_PATH));
+
+        this.service.releasePathLock(SLOW_PATH);
+        Assert.assertSame(lock, this.service.acquirePathLock(SLOW_PATH));
+        this.service.releasePathLock(SLOW_PATH);
+        this.service.releasePathLock(SLOW_PATH);
+
+        Assert.assertNotSame(lock, this.service.acquirePathLock(SLOW_PATH));
+    }
+
+    /**
+     * Make sure that many threads requesting the same changed file only download it once and all get the new content.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void canShareSingleRefreshAcrossThreads() throws Exception {
+        this.fakeFileTransfer.setDelay(SLOW_PATH, 0L);
+        this.fetch(SLOW_PATH);
+        Assert.assertEquals(1, this.fakeFileTransfer.getDownloads(SLOW_PATH));
+
+        this.fakeFileTransfer.setDelay(SLOW_PATH, 200L);
+        this.fakeFileTransfer.modify(SLOW_PATH);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<File>> results = Lists.newArrayList();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            results.add(
+                this.executor.submit(
+                    () -> {
+                        start.await();
+                        return this.fetch(SLOW_PATH);
+                    }
+                )
+            );
+        }
+        start.countDown();
+
+        for (final Future<File> result : results) {
+            final File file = result.get(30, TimeUnit.SECONDS);
+            Assert.assertEquals(
+                this.fakeFileTransfer.getContent(SLOW_PATH),
+                new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+            );
+        }
+        Assert.assertEquals(2, this.fakeFileTransfer.getDownloads(SLOW_PATH));
+    }
+
+    /**
+     * Make sure a slow refresh of one path doesn't block requests for other paths.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void slowRefreshDoesNotBlockOtherPaths() throws Exception {
+        this.fetch(SLOW_PATH);
+        this.fetch(FAST_PATH);
+
+        final CountDownLatch gate = new CountDownLatch(1);
+        this.fakeFileTransfer.setGate(SLOW_PATH, gate);
+        this.fakeFileTransfer.modify(SLOW_PATH);
+        final Future<File> slow = this.executor.submit(() -> this.fetch(SLOW_PATH));
+        Assert.assertTrue(this.fakeFileTransfer.awaitDownloadStarted(SLOW_PATH));
+
+        try {
+            // Both a plain cache hit and a refresh of another path have to complete while the slow one is stuck
+            final List<Future<File>> fast = Lists.newArrayList();
+            for (int i = 0; i < NUM_THREADS - 1; i++) {
+                fast.add(this.executor.submit(() -> this.fetch(FAST_PATH)));
+            }
+            for (final Future<File> result : fast) {
+                Assert.assertTrue(result.get(10, TimeUnit.SECONDS).exists());
+            }
+            this.fakeFileTransfer.modify(FAST_PATH);
+            Assert.assertTrue(this.executor.submit(() -> this.fetch(FAST_PATH)).get(10, TimeUnit.SECONDS).exists());
+            Assert.assertEquals(2, this.fakeFileTransfer.getDownloads(FAST_PATH));
+            Assert.assertFalse(slow.isDone());
+        } finally {
+            gate.countDown();
+        }
+        Assert.assertTrue(slow.get(10, TimeUnit.SECONDS).exists());
+        Assert.assertEquals(2, this.fakeFileTransfer.getDownloads(SLOW_PATH));
+    }
+
+    /**
+     * Make sure an unchanged file is served from the cache.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void canServeUnchangedFileFromCache() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            this.fetch(FAST_PATH);
+        }
+        Assert.assertEquals(1, this.fakeFileTransfer.getDownloads(FAST_PATH));
+    }
+
+    /**
+     * Make sure file transfers which support conditional downloads are checked with a single request which only
+     * transfers the file when it changed.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void canUseConditionalDownloads() throws Exception {
+        final FakeConditionalFileTransfer conditionalFileTransfer = new FakeConditionalFileTransfer();
+        this.service = new CacheGenieFileTransferService(
+            scheme -> conditionalFileTransfer,
+            this.temporaryFolder.newFolder().getAbsolutePath(),
+            new LocalFileTransferImpl(),
+            0L,
+            new DefaultRegistry()
+        );
+
+        // The first request downloads the file without a separate check
+        this.fetch(FAST_PATH);
+        Assert.assertEquals(1, conditionalFileTransfer.downloads.get());
+        Assert.assertEquals(0, conditionalFileTransfer.notModified.get());
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(conditionalFileTransfer.getContent(), this.read(this.fetch(FAST_PATH)));
+        }
+        Assert.assertEquals(1, conditionalFileTransfer.downloads.get());
+        Assert.assertEquals(3, conditionalFileTransfer.notModified.get());
+
+        conditionalFileTransfer.version.incrementAndGet();
+        Assert.assertEquals(conditionalFileTransfer.getContent(), this.read(this.fetch(FAST_PATH)));
+        Assert.assertEquals(conditionalFileTransfer.getContent(), this.read(this.fetch(FAST_PATH)));
+        Assert.assertEquals(2, conditionalFileTransfer.downloads.get());
+        Assert.assertEquals(4, conditionalFileTransfer.notModified.get());
+    }
+
+    /**
+     * Make sure a file checked within the revalidate interval is used without checking it again.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void canSkipChecksWithinRevalidateInterval() throws Exception {
+        final FakeConditionalFileTransfer conditionalFileTransfer = new FakeConditionalFileTransfer();
+        this.service = new CacheGenieFileTransferService(
+            scheme -> conditionalFileTransfer,
+            this.temporaryFolder.newFolder().getAbsolutePath(),
+            new LocalFileTransferImpl(),
+            60_000L,
+            new DefaultRegistry()
+        );
+
+        final String content = conditionalFileTransfer.getContent();
+        Assert.assertEquals(content, this.read(this.fetch(FAST_PATH)));
+        conditionalFileTransfer.version.incrementAndGet();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(content, this.read(this.fetch(FAST_PATH)));
+        }
+        Assert.assertEquals(1, conditionalFileTransfer.downloads.get());
+        Assert.assertEquals(0, conditionalFileTransfer.notModified.get());
+    }
+
+    /**
+     * Make sure many threads requesting a file which is being checked share that check.
+     *
+     * @throws Exception If there is any problem
+     */
+    @Test
+    public void canShareSingleCheckAcrossThreads() throws Exception {
+        final FakeConditionalFileTransfer conditionalFileTransfer = new FakeConditionalFileTransfer();
+        this.service = new CacheGenieFileTransferService(
+            scheme -> conditionalFileTransfer,
+            this.temporaryFolder.newFolder().getAbsolutePath(),
+            new LocalFileTransferImpl(),
+            0L,
+            new DefaultRegistry()
+        );
+        this.fetch(FAST_PATH);
+
+        conditionalFileTransfer.gate = new CountDownLatch(1);
+        final List<Future<File>> results = Lists.newArrayList();
+        try {
+            for (int i = 0; i < NUM_THREADS; i++) {
+                results.add(this.executor.submit(() -> this.fetch(FAST_PATH)));
+            }
+            Assert.assertTrue(conditionalFileTransfer.checkStarted.await(10, TimeUnit.SECONDS));
+            // Give the other threads time to find the check in progress
+            Thread.sleep(200L);
+        } finally {
+            conditionalFileTransfer.gate.countDown();
+        }
+        for (final Future<File> result : results) {
+            Assert.assertEquals(conditionalFileTransfer.getContent(), this.read(result.get(10, TimeUnit.SECONDS)));
+        }
+        Assert.assertEquals(1, conditionalFileTransfer.downloads.get());
+        Assert.assertEquals(1, conditionalFileTransfer.notModified.get());
+    }
+
+    private String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private File fetch(final String path) throws GenieException, IOException {
+        final File dst = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+        this.service.getFile(path, dst.getAbsolutePath());
+        return dst;
+    }
+
+    /**
+     * A remote file system stand in whose downloads can be made slow and whose files can be modified.
+     */
+    private static final class FakeFileTransfer implements FileTransfer {
+        // Whole seconds as some file systems don't keep milliseconds
+        private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+        private final Map<String, Long> modified = new ConcurrentHashMap<>();
+        private final Map<String, Long> delays = new ConcurrentHashMap<>();
+        private final Map<String, CountDownLatch> gates = new ConcurrentHashMap<>();
+        private final Map<String, CountDownLatch> started = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean isValid(final String fileName) throws GenieException {
+            return true;
+        }
+
+        @Override
+        public void getFile(final String srcRemotePath, final String dstLocalPath) throws GenieException {
+            this.downloads.computeIfAbsent(srcRemotePath, key -> new AtomicInteger()).incrementAndGet();
+            this.started.computeIfAbsent(srcRemotePath, key -> new CountDownLatch(1)).countDown();
+            try {
+                final CountDownLatch gate = this.gates.get(srcRemotePath);
+                if (gate != null) {
+                    gate.await();
+                }
+                Thread.sleep(this.delays.getOrDefault(srcRemotePath, 0L));
+                final File dst = new File(dstLocalPath);
+                Files.write(dst.toPath(), this.getContent(srcRemotePath).getBytes(StandardCharsets.UTF_8));
+                if (!dst.setLastModified(this.getLastModifiedTime(srcRemotePath))) {
+                    throw new GenieServerException("Unable to set last modified time of " + dstLocalPath);
+                }
+            } catch (final InterruptedException | IOException e) {
+                throw new GenieServerException("Fake download failed", e);
+            }
+        }
+
+        @Override
+        public void putFile(final String srcLocalPath, final String dstRemotePath) throws GenieException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getLastModifiedTime(final String path) throws GenieException {
+            return this.modified.computeIfAbsent(path, key -> this.clock.get());
+        }
+
+        void modify(final String path) {
+            this.modified.put(path, this.clock.addAndGet(1000L));
+            this.started.remove(path);
+        }
+
+        void setDelay(final String path, final long delay) {
+            this.delays.put(path, delay);
+        }
+
+        void setGate(final String path, final CountDownLatch gate) {
+            this.gates.put(path, gate);
+        }
+
+        boolean awaitDownloadStarted(final String path) throws InterruptedException {
+            return this.started.computeIfAbsent(path, key -> new CountDownLatch(1)).await(10, TimeUnit.SECONDS);
+        }
+
+        int getDownloads(final String path) {
+            return this.downloads.computeIfAbsent(path, key -> new AtomicInteger()).get();
+        }
+
+        String getContent(final String path) throws GenieException {
+            return path + ":" + this.getLastModifiedTime(path);
+        }
+    }
+
+    /**
+     * A remote file system stand in which versions its file with entity tags like an HTTP server would.
+     */
+    private static final class FakeConditionalFileTransfer implements ConditionalFileTransfer {
+        private final AtomicInteger version = new AtomicInteger(1);
+        private final AtomicInteger downloads = new AtomicInteger();
+        private final AtomicInteger notModified = new AtomicInteger();
+        private final CountDownLatch checkStarted = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+
+        @Override
+        public boolean isValid(final String fileName) throws GenieException {
+            return true;
+        }
+
+        @Override
+        public void getFile(final String srcRemotePath, final String dstLocalPath) throws GenieException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<String> getFileIfModified(
+            final String srcRemotePath,
+            final String dstLocalPath,
+            final long lastModified,
+            final String eTag
+        ) throws GenieException {
+            if (eTag != null) {
+                this.checkStarted.countDown();
+                if (this.gate != null) {
+                    try {
+                        this.gate.await();
+                    } catch (final InterruptedException ie) {
+                        throw new GenieServerException("Fake check interrupted", ie);
+                    }
+                }
+            }
+            final String currentETag = "\"" + this.version.get() + "\"";
+            if (currentETag.equals(eTag)) {
+                this.notModified.incrementAndGet();
+                return Optional.empty();
+            }
+            this.downloads.incrementAndGet();
+            try {
+                Files.write(new File(dstLocalPath).toPath(), this.getContent().getBytes(StandardCharsets.UTF_8));
+            } catch (final IOException ioe) {
+                throw new GenieServerException("Fake download failed", ioe);
+            }
+            return Optional.of(currentETag);
+        }
+
+        @Override
+        public void putFile(final String srcLocalPath, final String dstRemotePath) throws GenieException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getLastModifiedTime(final String path) throws GenieException {
+            // Conditional downloads should make this unnecessary
+            throw new UnsupportedOperationException();
+        }
+
+        String getContent() {
+            return "version " + this.version.get();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.dto.search.JobSearchResult;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.events.JobCompletedEvent;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.events.JobStartedEvent;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Unit tests for CachingJobSearchServiceImpl.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class CachingJobSearchServiceImplUnitTests {
+
+    private static final Pageable PAGE = new PageRequest(0, 10);
+
+    private JobSearchService delegate;
+    private Registry registry;
+    private CachingJobSearchServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.delegate = Mockito.mock(JobSearchService.class);
+        this.registry = new DefaultRegistry();
+        this.service = new CachingJobSearchServiceImpl(this.delegate, 60_000L, 100L, this.registry);
+        Mockito
+            .when(
+                this.delegate.findJobs(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(Pageable.class),
+                    Mockito.any(JobSearchService.CountMode.class)
+                )
+            )
+            .thenAnswer(invocation -> new PageImpl<JobSearchResult>(Collections.emptyList()));
+    }
+
+    /**
+     * Make sure the same search is only sent to the delegate once regardless of how its filters are spelled.
+     */
+    @Test
+    public void canCacheSearches() {
+        final Page<JobSearchResult> first = this.findJobs("tgianos", Sets.newHashSet(JobStatus.RUNNING));
+        final Page<JobSearchResult> second = this.findJobs("tgianos", Sets.newHashSet(JobStatus.RUNNING));
+        Assert.assertThat(second, Matchers.sameInstance(first));
+        this.findJobs("tgianos", null);
+        this.findJobs("tgianos", Sets.newHashSet());
+        this.findJobs(" ", null);
+        this.findJobs(null, null);
+        this.verifySearches(3);
+        Assert.assertThat(this.registry.counter("genie.jobs.search.resultCache.hit.rate").count(), Matchers.is(3L));
+        Assert.assertThat(this.registry.counter("genie.jobs.search.resultCache.miss.rate").count(), Matchers.is(3L));
+    }
+
+    /**
+     * Make sure a job event drops the cached searches.
+     */
+    @Test
+    public void canInvalidateOnJobEvent() {
+        this.findJobs("tgianos", null);
+        this.service.onJobEvent(new JobCompletedEvent(UUID.randomUUID().toString(), "tgianos", this));
+        this.findJobs("tgianos", null);
+        this.verifySearches(2);
+    }
+
+    /**
+     * Make sure a job event only drops the cached searches which may list the job.
+     */
+    @Test
+    public void canInvalidateOnlySearchesListingJob() {
+        final String id = UUID.randomUUID().toString();
+        final JobSearchResult job = new JobSearchResult(
+            id, "job", "tgianos", JobStatus.RUNNING, null, null, null, null
+        );
+        Mockito
+            .when(this.delegate.getJobSearchResults(Collections.singleton(id)))
+            .thenReturn(Collections.singletonMap(id, job));
+
+        this.findJobs("tgianos", null);
+        this.findJobs("amajumdar", null);
+        this.findJobs(null, Sets.newHashSet(JobStatus.RUNNING));
+        this.findJobs(null, Sets.newHashSet(JobStatus.SUCCEEDED));
+        this.verifySearches(4);
+
+        final JobExecution execution = new JobExecution.Builder("localhost").withId(id).build();
+        this.service.onJobEvent(new JobStartedEvent(execution, this));
+
+        // Other users and statuses the job didn't leave or enter are still cached
+        this.findJobs("amajumdar", null);
+        this.findJobs(null, Sets.newHashSet(JobStatus.SUCCEEDED));
+        this.verifySearches(4);
+        this.findJobs("tgianos", null);
+        this.findJobs(null, Sets.newHashSet(JobStatus.RUNNING));
+        this.verifySearches(6);
+
+        // Nothing changes until the final status of a finished job was saved
+        this.service.onJobEvent(new JobFinishedEvent(id, JobFinishedReason.PROCESS_COMPLETED, "done", this));
+        this.findJobs(null, Sets.newHashSet(JobStatus.SUCCEEDED));
+        this.verifySearches(6);
+
+        // Then the job may have entered any final status
+        this.findJobs("tg%", null);
+        this.verifySearches(7);
+        this.service.onJobEvent(new JobCompletedEvent(id, "tgianos", this));
+        this.findJobs(null, Sets.newHashSet(JobStatus.SUCCEEDED));
+        this.findJobs("tg%", null);
+        this.findJobs("amajumdar", null);
+        this.verifySearches(9);
+    }
+
+    /**
+     * Make sure the other calls go straight to the delegate.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canDelegate() throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        Mockito.when(this.delegate.getJobStatus(id)).thenReturn(JobStatus.RUNNING);
+        Assert.assertThat(this.service.getJobStatus(id), Matchers.is(JobStatus.RUNNING));
+        Assert.assertThat(this.service.getJobStatus(id), Matchers.is(JobStatus.RUNNING));
+        Mockito.verify(this.delegate, Mockito.times(2)).getJobStatus(id);
+    }
+
+    private Page<JobSearchResult> findJobs(final String user, final Set<JobStatus> statuses) {
+        return this.service.findJobs(
+            null,
+            null,
+            user,
+            statuses,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            PAGE
+        );
+    }
+
+    private void verifySearches(final int times) {
+        Mockito
+            .verify(this.delegate, Mockito.times(times))
+            .findJobs(
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(Pageable.class),
+                Mockito.any(JobSearchService.CountMode.class)
+            );
+    }
+}
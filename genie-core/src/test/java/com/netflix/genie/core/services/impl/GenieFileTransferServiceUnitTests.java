@@ -21,12 +21,16 @@ import com.google.common.collect.ImmutableMap;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.StreamingFileTransfer;
 import com.netflix.genie.test.categories.UnitTest;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.io.File;
 import java.util.Map;
 
 /**
@@ -142,4 +146,34 @@ public class GenieFileTransferServiceUnitTests {
         Mockito.verify(this.s3FileTransfer, Mockito.times(1)).putFile(LOCAL_FILE_PATH, S3_FILE_PATH);
         Mockito.verify(this.localFileTransfer, Mockito.times(0)).putFile(LOCAL_FILE_PATH, S3_FILE_PATH);
     }
+
+    /**
+     * Test the putStream method delegates to file transfers which can stream.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testPutStreamWithStreamingImpl() throws GenieException {
+        final StreamingFileTransfer.Content content = out -> out.write(1);
+
+        this.genieFileTransferService.putStream(S3_FILE_PATH, content);
+        Mockito.verify(this.s3FileTransfer, Mockito.times(1)).putStream(S3_FILE_PATH, content);
+        Mockito.verify(this.s3FileTransfer, Mockito.never()).putFile(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * Test the putStream method writes a temporary file for file transfers which can't stream.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void testPutStreamWithoutStreamingImpl() throws GenieException {
+        final FileTransfer fileTransfer = Mockito.mock(FileTransfer.class);
+        final GenieFileTransferService service = new GenieFileTransferService(scheme -> fileTransfer);
+
+        service.putStream(S3_FILE_PATH, out -> out.write(1));
+        final ArgumentCaptor<String> srcCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(fileTransfer, Mockito.times(1)).putFile(srcCaptor.capture(), Mockito.eq(S3_FILE_PATH));
+        Assert.assertFalse(new File(srcCaptor.getValue()).exists());
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import com.netflix.genie.core.properties.JobsUsersPrivilegedHelperProperties;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for the HelperPrivilegedOperationServiceImpl class. The helper script is run without elevated rights so
+ * only operations on files owned by the user running the tests are exercised.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class HelperPrivilegedOperationServiceImplUnitTests {
+
+    private static final String BASH = "/bin/bash";
+
+    /**
+     * Temporary folder for the files the helper operates on.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private JobsUsersPrivilegedHelperProperties properties;
+    private HelperPrivilegedOperationServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX && new File(BASH).canExecute());
+        this.properties = new JobsUsersPrivilegedHelperProperties();
+        this.properties.setScriptInlined(true);
+        this.service = new HelperPrivilegedOperationServiceImpl(
+            Lists.newArrayList(BASH),
+            this.properties,
+            "test",
+            1,
+            new DefaultRegistry()
+        );
+    }
+
+    /**
+     * Stop the helpers.
+     */
+    @After
+    public void cleanup() {
+        if (this.service != null) {
+            this.service.close();
+        }
+    }
+
+    /**
+     * Make sure a batch of operations is executed in order and the exit code of each is returned.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canExecuteBatch() throws IOException {
+        final File jobDir = this.temporaryFolder.newFolder("job dir");
+        final File logs = new File(jobDir, "logs");
+        Assert.assertTrue(logs.mkdir());
+        Files.write(new File(logs, "stdout").toPath(), "Hello".getBytes(StandardCharsets.UTF_8));
+        final File archive = new File(this.temporaryFolder.getRoot(), "job.tar.gz");
+
+        final List<Integer> exitCodes = this.service.execute(
+            Lists.newArrayList(
+                PrivilegedOperation.makeGroupWritable(logs.getAbsolutePath()),
+                PrivilegedOperation.archive(archive.getAbsolutePath(), jobDir.getAbsolutePath()),
+                PrivilegedOperation.userExists(UUID.randomUUID().toString()),
+                PrivilegedOperation.delete(jobDir.getAbsolutePath())
+            )
+        );
+
+        Assert.assertThat(exitCodes.size(), Matchers.is(4));
+        Assert.assertThat(exitCodes.get(0), Matchers.is(0));
+        Assert.assertThat(exitCodes.get(1), Matchers.is(0));
+        Assert.assertThat(exitCodes.get(2), Matchers.not(0));
+        Assert.assertThat(exitCodes.get(3), Matchers.is(0));
+        Assert.assertTrue(archive.length() > 0);
+        Assert.assertFalse(jobDir.exists());
+    }
+
+    /**
+     * Make sure a failing single operation is reported with its exit code.
+     *
+     * @throws IOException on error
+     */
+    @Test(expected = ExecuteException.class)
+    public void canFailSingleOperation() throws IOException {
+        this.service.execute(PrivilegedOperation.userExists(UUID.randomUUID().toString()));
+    }
+
+    /**
+     * Make sure a helper which isn't running anymore is restarted on the next use.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canRestartHelper() throws IOException {
+        final File file = this.temporaryFolder.newFile();
+        this.service.close();
+
+        this.service.execute(PrivilegedOperation.delete(file.getAbsolutePath()));
+        Assert.assertFalse(file.exists());
+    }
+
+    /**
+     * Make sure the helper script installed on its own, which is what sudo is limited to by default, can be run.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canRunInstalledHelperScript() throws IOException {
+        final File script = this.temporaryFolder.newFile("genie-privileged-helper");
+        Files.write(
+            script.toPath(),
+            Resources.toByteArray(
+                Resources.getResource(
+                    HelperPrivilegedOperationServiceImpl.class,
+                    HelperPrivilegedOperationServiceImpl.SCRIPT_RESOURCE
+                )
+            )
+        );
+        final File file = this.temporaryFolder.newFile();
+        this.properties.setScriptInlined(false);
+        try (HelperPrivilegedOperationServiceImpl installed = new HelperPrivilegedOperationServiceImpl(
+            Lists.newArrayList(BASH, script.getAbsolutePath()),
+            this.properties,
+            "test",
+            1,
+            new DefaultRegistry()
+        )) {
+            installed.execute(PrivilegedOperation.delete(file.getAbsolutePath()));
+        }
+        Assert.assertFalse(file.exists());
+    }
+
+    /**
+     * Make sure arguments which could be mistaken for options or break the protocol are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void cantCreateOperationWithInvalidArgument() {
+        PrivilegedOperation.changeOwner("user", "/tmp\n-rf /");
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ * Unit tests for the HelperProcessLauncherServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class HelperProcessLauncherServiceImplUnitTests {
+
+    private static final String BASH = "/bin/bash";
+    private static final long WAIT_MILLIS = 10_000L;
+
+    /**
+     * Temporary folder for the working directories of the launched processes.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HelperProcessLauncherServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX && new File(BASH).canExecute());
+        this.service = new HelperProcessLauncherServiceImpl(1, new DefaultRegistry());
+    }
+
+    /**
+     * Stop the launchers.
+     */
+    @After
+    public void cleanup() {
+        if (this.service != null) {
+            this.service.close();
+        }
+    }
+
+    /**
+     * Make sure a process is launched in the working directory as the leader of its own process group and its output
+     * is redirected.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canLaunch() throws Exception {
+        final File workingDirectory = this.temporaryFolder.newFolder("job dir");
+        final File outputFile = new File(workingDirectory, "genie.log");
+
+        final int pid = this.service.launch(
+            Lists.newArrayList("sh", "-c", "echo \"$(pwd -P) $$ $(ps -o pgid= -p $$)\" && echo error >&2"),
+            workingDirectory,
+            outputFile
+        );
+
+        Assert.assertThat(pid, Matchers.greaterThan(0));
+        final String[] output = this.waitForOutput(outputFile, 2);
+        Assert.assertThat(output[0].trim().split(" +"), Matchers.arrayContaining(
+            workingDirectory.getCanonicalPath(),
+            Integer.toString(pid),
+            Integer.toString(pid)
+        ));
+        Assert.assertThat(output[1], Matchers.is("error"));
+    }
+
+    /**
+     * Make sure a process is launched with setsid on Linux like the processes launched by the JVM so it leads a
+     * session of its own.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canLaunchAsSessionLeader() throws Exception {
+        Assume.assumeTrue(SystemUtils.IS_OS_LINUX);
+        final File workingDirectory = this.temporaryFolder.newFolder();
+        final File outputFile = new File(workingDirectory, "genie.log");
+
+        final int pid = this.service.launch(
+            Lists.newArrayList("sh", "-c", "ps -o sid= -p $$"),
+            workingDirectory,
+            outputFile
+        );
+
+        Assert.assertThat(pid, Matchers.greaterThan(0));
+        Assert.assertThat(this.waitForOutput(outputFile, 1)[0].trim(), Matchers.is(Integer.toString(pid)));
+    }
+
+    /**
+     * Make sure a process can't be launched in a directory which doesn't exist.
+     *
+     * @throws IOException on error
+     */
+    @Test(expected = IOException.class)
+    public void cantLaunchInMissingDirectory() throws IOException {
+        final File workingDirectory = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+        this.service.launch(Lists.newArrayList("true"), workingDirectory, new File(workingDirectory, "genie.log"));
+    }
+
+    /**
+     * Make sure a command which doesn't exist isn't launched.
+     *
+     * @throws IOException on error
+     */
+    @Test(expected = IOException.class)
+    public void cantLaunchMissingCommand() throws IOException {
+        final File workingDirectory = this.temporaryFolder.newFolder();
+        this.service.launch(
+            Lists.newArrayList(UUID.randomUUID().toString()),
+            workingDirectory,
+            new File(workingDirectory, "genie.log")
+        );
+    }
+
+    /**
+     * Make sure a launcher which isn't running anymore is restarted on the next use.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canRestartLauncher() throws Exception {
+        final File workingDirectory = this.temporaryFolder.newFolder();
+        final File outputFile = new File(workingDirectory, "genie.log");
+        this.service.close();
+
+        Assert.assertThat(
+            this.service.launch(Lists.newArrayList("echo", "restarted"), workingDirectory, outputFile),
+            Matchers.greaterThan(0)
+        );
+        Assert.assertThat(this.waitForOutput(outputFile, 1)[0], Matchers.is("restarted"));
+    }
+
+    private String[] waitForOutput(final File outputFile, final int lines) throws Exception {
+        final long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (outputFile.exists()) {
+                final String[] output = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8)
+                    .split("\n");
+                if (output.length >= lines && !output[0].isEmpty()) {
+                    return output;
+                }
+            }
+            Thread.sleep(10L);
+        }
+        throw new AssertionError("No output written to " + outputFile);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the HelperProcessPool class.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class HelperProcessPoolUnitTests {
+
+    private static final String BASH = "/bin/bash";
+
+    private Counter startCounter;
+    private HelperProcessPool pool;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX && new File(BASH).canExecute());
+        this.startCounter = new DefaultRegistry().counter("helper.start.rate");
+    }
+
+    /**
+     * Stop the helpers.
+     */
+    @After
+    public void cleanup() {
+        if (this.pool != null) {
+            this.pool.close();
+        }
+    }
+
+    /**
+     * Make sure a batch larger than the maximum batch size is split and answered in order.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSplitLargeBatches() throws IOException {
+        // Answers every request with the request itself
+        this.pool = new HelperProcessPool(
+            ImmutableList.of(BASH, "-c", "while read -r line; do echo \"$line\"; done"),
+            null,
+            1,
+            10_000L,
+            2,
+            this.startCounter
+        );
+        final List<String> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(HelperProcessPool.toRequest(ImmutableList.of("request" + i)));
+        }
+
+        Assert.assertThat(this.pool.execute(requests), Matchers.is(requests));
+        Assert.assertThat(this.startCounter.count(), Matchers.is(1L));
+    }
+
+    /**
+     * Make sure a helper which doesn't answer in time is killed and replaced.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canReplaceHelperWhichTimedOut() throws IOException {
+        // Never answers
+        this.pool = new HelperProcessPool(
+            ImmutableList.of(BASH, "-c", "while read -r line; do sleep 60; done"),
+            null,
+            1,
+            100L,
+            10,
+            this.startCounter
+        );
+
+        final long start = System.currentTimeMillis();
+        try {
+            this.pool.execute(ImmutableList.of(HelperProcessPool.toRequest(ImmutableList.of("request"))));
+            Assert.fail();
+        } catch (final IOException ioe) {
+            Assert.assertThat(ioe.getMessage(), Matchers.containsString("didn't answer within 100ms"));
+        }
+        Assert.assertThat(System.currentTimeMillis() - start, Matchers.lessThan(10_000L));
+        Assert.assertThat(this.startCounter.count(), Matchers.is(2L));
+    }
+}
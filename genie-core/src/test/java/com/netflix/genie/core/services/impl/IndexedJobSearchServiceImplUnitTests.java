@@ -0,0 +1,284 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.dto.search.JobSearchResult;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Unit tests for IndexedJobSearchServiceImpl.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class IndexedJobSearchServiceImplUnitTests {
+
+    private static final Pageable PAGE = new PageRequest(0, 10, Sort.Direction.DESC, "created");
+    private static final long MAX_LAG = 60_000L;
+
+    /**
+     * Temporary folder that will be deleted at the end of tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JobSearchService delegate;
+    private JobSearchIndex index;
+    private Registry registry;
+    private IndexedJobSearchServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.delegate = Mockito.mock(JobSearchService.class);
+        this.index = new JobSearchIndex(this.folder.getRoot());
+        this.registry = new DefaultRegistry();
+        this.service = new IndexedJobSearchServiceImpl(this.delegate, this.index, MAX_LAG, this.registry);
+        Mockito
+            .when(
+                this.delegate.findJobs(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(Pageable.class),
+                    Mockito.any(JobSearchService.CountMode.class)
+                )
+            )
+            .thenAnswer(invocation -> new PageImpl<JobSearchResult>(Collections.emptyList()));
+    }
+
+    /**
+     * Cleanup after the tests.
+     *
+     * @throws IOException on error
+     */
+    @After
+    public void cleanup() throws IOException {
+        this.index.close();
+    }
+
+    /**
+     * Make sure free text searches find the ids in the index and read the jobs from the delegate in index order.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canFindJobsInIndex() throws IOException {
+        this.index.update(Lists.newArrayList(job("job1", 1L), job("job2", 2L), job("job3", 3L)));
+        this.index.commit(System.currentTimeMillis());
+        final JobSearchResult result1 = result("job1");
+        final JobSearchResult result3 = result("job3");
+        // job2 was purged from the database since it was indexed
+        Mockito
+            .when(this.delegate.getJobSearchResults(Lists.newArrayList("job3", "job2", "job1")))
+            .thenReturn(ImmutableMap.of("job1", result1, "job3", result3));
+
+        final Page<JobSearchResult> page = this.findJobs("hive%");
+        Assert.assertThat(page.getContent(), Matchers.contains(result3, result1));
+        Assert.assertThat(page.getTotalElements(), Matchers.is(2L));
+        this.verifySearches(0);
+        Assert.assertThat(this.registry.counter("genie.jobs.search.index.fallback.rate").count(), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure jobs which changed so they no longer match since they were indexed aren't returned.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canDropJobsChangedSinceIndexed() throws IOException {
+        this.index.update(Lists.newArrayList(job("job1", 1L), job("job2", 2L)));
+        this.index.commit(System.currentTimeMillis());
+        final JobSearchResult result1 = result("job1");
+        // job2 finished since it was indexed as running
+        final JobSearchResult result2 = new JobSearchResult(
+            "job2", "hive-etl", "tgianos", JobStatus.SUCCEEDED, new Date(2L), new Date(3L), null, null
+        );
+        Mockito
+            .when(this.delegate.getJobSearchResults(Lists.newArrayList("job2", "job1")))
+            .thenReturn(ImmutableMap.of("job1", result1, "job2", result2));
+
+        final Page<JobSearchResult> page = this.service.findJobs(
+            null,
+            "hive%",
+            null,
+            Sets.newHashSet(JobStatus.RUNNING),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            PAGE
+        );
+        Assert.assertThat(page.getContent(), Matchers.contains(result1));
+        Assert.assertThat(page.getTotalElements(), Matchers.is(1L));
+        this.verifySearches(0);
+    }
+
+    /**
+     * Make sure searches without free text parameters go to the delegate.
+     */
+    @Test
+    public void canDelegateOtherSearches() {
+        this.findJobs("hive");
+        this.findJobs(null);
+        this.verifySearches(2);
+        Assert.assertThat(this.registry.counter("genie.jobs.search.index.fallback.rate").count(), Matchers.is(0L));
+    }
+
+    /**
+     * Make sure free text searches fall back to the delegate if the index was never built or lags too far behind.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canFallBack() throws IOException {
+        this.findJobs("hive%");
+        this.verifySearches(1);
+
+        this.index.update(Lists.newArrayList(job("job1", 1L)));
+        this.index.commit(System.currentTimeMillis() - MAX_LAG - 1_000L);
+        this.findJobs("hive%");
+        this.verifySearches(2);
+        Assert.assertThat(this.registry.counter("genie.jobs.search.index.fallback.rate").count(), Matchers.is(2L));
+        Mockito.verify(this.delegate, Mockito.never()).getJobSearchResults(Mockito.any());
+    }
+
+    /**
+     * Make sure the other calls go straight to the delegate.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canDelegate() throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        Mockito.when(this.delegate.getJobStatus(id)).thenReturn(JobStatus.RUNNING);
+        Assert.assertThat(this.service.getJobStatus(id), Matchers.is(JobStatus.RUNNING));
+        Mockito.verify(this.delegate, Mockito.times(1)).getJobStatus(id);
+    }
+
+    private Page<JobSearchResult> findJobs(final String name) {
+        return this.service.findJobs(
+            null,
+            name,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            PAGE
+        );
+    }
+
+    private void verifySearches(final int times) {
+        Mockito
+            .verify(this.delegate, Mockito.times(times))
+            .findJobs(
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(Pageable.class),
+                Mockito.any(JobSearchService.CountMode.class)
+            );
+    }
+
+    private static JobSearchSnapshot job(final String id, final long created) {
+        return new JobSearchSnapshot(
+            id,
+            "hive-etl",
+            "tgianos",
+            JobStatus.RUNNING,
+            Sets.newHashSet("genie.id:" + id),
+            null,
+            null,
+            null,
+            null,
+            new Date(created),
+            new Date(created),
+            null,
+            null
+        );
+    }
+
+    private static JobSearchResult result(final String id) {
+        return new JobSearchResult(id, "hive-etl", "tgianos", JobStatus.RUNNING, null, null, null, null);
+    }
+}
@@ -125,6 +125,7 @@ public class JobCoordinatorServiceImplUnitTests {
         this.jobPersistenceService = Mockito.mock(JobPersistenceService.class);
         this.jobKillService = Mockito.mock(JobKillService.class);
         this.jobStateService = Mockito.mock(JobStateService.class);
+        Mockito.when(this.jobStateService.isAcceptingJobs()).thenReturn(true);
         this.jobSearchService = Mockito.mock(JobSearchService.class);
         this.jobsProperties = new JobsProperties();
         this.jobsProperties.getLocations().setArchives(BASE_ARCHIVE_LOCATION);
@@ -869,6 +870,53 @@ public class JobCoordinatorServiceImplUnitTests {
         }
     }
 
+    /**
+     * Make sure jobs are admitted based on the observed memory usage of the running jobs when enabled.
+     *
+     * @throws GenieException If there is any problem
+     */
+    @Test
+    public void canCoordinateJobByObservedMemoryUsage() throws GenieException {
+        this.jobsProperties.getMemory().setAdmitByObservedUsage(true);
+        final Set<String> commandCriteria = Sets.newHashSet(UUID.randomUUID().toString());
+
+        final JobRequest jobRequest = this.getJobRequest(true, commandCriteria, null, null);
+        final JobMetadata jobMetadata = this.getJobMetadata();
+
+        final String clusterId = UUID.randomUUID().toString();
+        final Cluster cluster = Mockito.mock(Cluster.class);
+        Mockito.when(cluster.getId()).thenReturn(Optional.of(clusterId));
+        Mockito
+            .when(this.clusterService.chooseClusterForJobRequest(jobRequest))
+            .thenReturn(Lists.newArrayList(cluster));
+
+        final String commandId = UUID.randomUUID().toString();
+        final Command command = Mockito.mock(Command.class);
+        Mockito.when(command.getId()).thenReturn(Optional.of(commandId));
+        Mockito.when(command.getMemory()).thenReturn(Optional.empty());
+        Mockito.when(command.getTags()).thenReturn(commandCriteria);
+        Mockito
+            .when(
+                this.clusterService.getCommandsForCluster(Mockito.eq(clusterId), Mockito.anySetOf(CommandStatus.class))
+            )
+            .thenReturn(Lists.newArrayList(command));
+        Mockito.when(this.commandService.getApplicationsForCommand(commandId)).thenReturn(Lists.newArrayList());
+
+        // The requested memory of the running jobs would leave no room but they use far less
+        Mockito
+            .when(this.jobStateService.getUsedMemory())
+            .thenReturn(this.jobsProperties.getMemory().getMaxSystemMemory());
+        Mockito.when(this.jobStateService.getObservedUsedMemory()).thenReturn(MEMORY);
+
+        this.jobCoordinatorService.coordinateJob(jobRequest, jobMetadata);
+
+        Mockito.verify(this.jobStateService, Mockito.times(1)).getObservedUsedMemory();
+        Mockito.verify(this.jobStateService, Mockito.never()).getUsedMemory();
+        Mockito
+            .verify(this.jobStateService, Mockito.times(1))
+            .schedule(JOB_1_ID, jobRequest, cluster, command, Lists.newArrayList(), MEMORY);
+    }
+
     /**
      * Test the coordinate job method allows a job through if the job user limit is exceeded but the limit itself is
      * disabled.
@@ -1264,6 +1312,27 @@ public class JobCoordinatorServiceImplUnitTests {
         this.jobCoordinatorService.coordinateJob(request, Mockito.mock(JobMetadata.class));
     }
 
+    /**
+     * Make sure no job is created until the node accepts jobs.
+     *
+     * @throws GenieException On error
+     */
+    @Test(expected = GenieServerUnavailableException.class)
+    public void cantCoordinateUntilAcceptingJobs() throws GenieException {
+        final JobRequest request = getJobRequest(false, null, null, null);
+        final JobMetadata metadata = Mockito.mock(JobMetadata.class);
+        Mockito.when(this.jobStateService.isAcceptingJobs()).thenReturn(false);
+
+        try {
+            this.jobCoordinatorService.coordinateJob(request, metadata);
+        } finally {
+            Mockito
+                .verify(this.jobPersistenceService, Mockito.never())
+                .createJob(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+            Mockito.verify(this.jobStateService, Mockito.never()).init(Mockito.anyString());
+        }
+    }
+
     /**
      * Make sure if the job with id already exists.
      *
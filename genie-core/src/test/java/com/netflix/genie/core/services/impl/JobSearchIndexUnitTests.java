@@ -0,0 +1,282 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Unit tests for JobSearchIndex.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobSearchIndexUnitTests {
+
+    private static final Pageable PAGE = new PageRequest(0, 10, Sort.Direction.DESC, "created");
+
+    /**
+     * Temporary folder that will be deleted at the end of tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JobSearchIndex index;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.index = new JobSearchIndex(this.folder.getRoot());
+    }
+
+    /**
+     * Cleanup after the tests.
+     *
+     * @throws IOException on error
+     */
+    @After
+    public void cleanup() throws IOException {
+        this.index.close();
+    }
+
+    /**
+     * Make sure nothing is found before the index was built and only what was committed is found after.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canOnlyFindCommittedJobs() throws IOException {
+        Assert.assertFalse(this.findIds("%", null).isPresent());
+        Assert.assertFalse(this.index.getIndexedUntil().isPresent());
+
+        this.index.update(Lists.newArrayList(job("job1", "hive-etl", JobStatus.RUNNING, 1L, null)));
+        Assert.assertFalse(this.findIds("%", null).isPresent());
+        this.index.commit(10L);
+        Assert.assertThat(this.findIds("%", null).get().getContent(), Matchers.contains("job1"));
+        Assert.assertThat(this.index.getIndexedUntil().getAsLong(), Matchers.is(10L));
+        Assert.assertThat(this.index.getNumJobs(), Matchers.is(1));
+
+        this.index.update(Lists.newArrayList(job("job2", "hive-etl", JobStatus.RUNNING, 2L, null)));
+        this.index.discardChanges();
+        Assert.assertTrue(this.index.isWritable());
+        Assert.assertThat(this.findIds("%", null).get().getContent(), Matchers.contains("job1"));
+    }
+
+    /**
+     * Make sure patterns, tags and statuses filter the jobs like the database would.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canFilterJobs() throws IOException {
+        this.index.update(
+            Lists.newArrayList(
+                job("job1", "hive-etl", JobStatus.RUNNING, 1L, null),
+                job("job2", "hive_etl", JobStatus.SUCCEEDED, 2L, 5L),
+                job("job3", "pig-etl", JobStatus.FAILED, 3L, 6L)
+            )
+        );
+        this.index.commit(10L);
+
+        Assert.assertThat(this.findIds("hive%", null).get().getContent(), Matchers.contains("job2", "job1"));
+        Assert.assertThat(this.findIds("hive\\_%", null).get().getContent(), Matchers.contains("job2"));
+        Assert.assertThat(this.findIds("hive_etl", null).get().getContent(), Matchers.contains("job2"));
+        Assert.assertThat(this.findIds("%etl", null).get().getContent(), Matchers.contains("job3", "job2", "job1"));
+        Assert.assertThat(this.findIds("HIVE%", null).get().getContent(), Matchers.empty());
+        Assert.assertThat(
+            this.findIds("%etl", Sets.newHashSet(JobStatus.SUCCEEDED, JobStatus.FAILED)).get().getContent(),
+            Matchers.contains("job3", "job2")
+        );
+
+        final Optional<Page<String>> tagged = this.index.findJobIds(
+            null,
+            null,
+            null,
+            null,
+            Sets.newHashSet("type:hive"),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            new Date(5L),
+            new Date(6L),
+            PAGE
+        );
+        Assert.assertThat(tagged.get().getContent(), Matchers.contains("job2"));
+    }
+
+    /**
+     * Make sure pages are found in the requested order and a sort the index can't do falls back.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canPageAndSort() throws IOException {
+        this.index.update(
+            Lists.newArrayList(
+                job("job1", "a", JobStatus.SUCCEEDED, 1L, 9L),
+                job("job2", "b", JobStatus.RUNNING, 2L, null),
+                job("job3", "c", JobStatus.FAILED, 3L, 7L)
+            )
+        );
+        // Replaces the previous version of the job
+        this.index.update(Lists.newArrayList(job("job2", "b", JobStatus.SUCCEEDED, 2L, 8L)));
+        this.index.commit(10L);
+
+        final Page<String> page = this.findIds("%", null, new PageRequest(1, 2, Sort.Direction.ASC, "finished"))
+            .get();
+        Assert.assertThat(page.getContent(), Matchers.contains("job1"));
+        Assert.assertThat(page.getTotalElements(), Matchers.is(3L));
+        Assert.assertThat(
+            this.findIds("%", null, new PageRequest(0, 10, Sort.Direction.DESC, "name")).get().getContent(),
+            Matchers.contains("job3", "job2", "job1")
+        );
+        Assert.assertFalse(this.findIds("%", null, new PageRequest(0, 10, Sort.Direction.ASC, "archiveLocation"))
+            .isPresent());
+    }
+
+    /**
+     * Make sure only one index opened on the same directory writes to it and the other one sees its commits.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canOnlyHaveOneWriter() throws IOException {
+        final JobSearchIndex reader = new JobSearchIndex(this.folder.getRoot());
+        Assert.assertTrue(this.index.isWritable());
+        Assert.assertFalse(reader.isWritable());
+        Assert.assertFalse(reader.tryOpenWriter());
+
+        this.index.update(Lists.newArrayList(job("job1", "hive-etl", JobStatus.RUNNING, 1L, null)));
+        this.index.commit(10L);
+        reader.refresh();
+        Assert.assertThat(reader.getIndexedUntil().getAsLong(), Matchers.is(10L));
+        Assert.assertThat(reader.getNumJobs(), Matchers.is(1));
+        try {
+            reader.deleteAll();
+            Assert.fail();
+        } catch (final IllegalStateException ise) {
+            // Expected
+        }
+
+        // As if the node writing to the index went away
+        this.index.close();
+        this.index = reader;
+        Assert.assertTrue(reader.tryOpenWriter());
+    }
+
+    /**
+     * Make sure SQL like patterns are converted to wildcards.
+     */
+    @Test
+    public void canConvertToWildcard() {
+        Assert.assertThat(JobSearchIndex.toWildcard("a%b_c*d?e\\f"), Matchers.is("a*b?c\\*d\\?ef"));
+        Assert.assertThat(JobSearchIndex.toWildcard("a\\%b\\_c\\\\"), Matchers.is("a%b_c\\\\"));
+        Assert.assertThat(JobSearchIndex.toWildcard("a\\"), Matchers.is("a\\\\"));
+    }
+
+    /**
+     * Make sure only searches which make the database scan the jobs are free text searches.
+     */
+    @Test
+    public void canTellFreeTextSearches() {
+        Assert.assertFalse(JobSearchIndex.isFreeTextSearch(null, null, null, null, null, null));
+        Assert.assertFalse(JobSearchIndex.isFreeTextSearch("job1", "name", "user", Sets.newHashSet(), "c", "c"));
+        Assert.assertTrue(JobSearchIndex.isFreeTextSearch(null, "name%", null, null, null, null));
+        Assert.assertTrue(JobSearchIndex.isFreeTextSearch(null, null, null, null, "%cluster", null));
+        Assert.assertTrue(JobSearchIndex.isFreeTextSearch(null, null, null, Sets.newHashSet("a"), null, null));
+    }
+
+    private Optional<Page<String>> findIds(final String name, final Set<JobStatus> statuses) throws IOException {
+        return this.findIds(name, statuses, PAGE);
+    }
+
+    private Optional<Page<String>> findIds(
+        final String name,
+        final Set<JobStatus> statuses,
+        final Pageable page
+    ) throws IOException {
+        return this.index.findJobIds(
+            null,
+            name,
+            null,
+            statuses,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            page
+        );
+    }
+
+    private static JobSearchSnapshot job(
+        final String id,
+        final String name,
+        final JobStatus status,
+        final long created,
+        final Long finished
+    ) {
+        return new JobSearchSnapshot(
+            id,
+            name,
+            "tgianos",
+            status,
+            Sets.newHashSet("genie.id:" + id, "type:" + name.substring(0, name.length() - 4)),
+            "cluster",
+            "cluster1",
+            "command",
+            "command1",
+            new Date(created),
+            new Date(created),
+            new Date(created),
+            finished == null ? null : new Date(finished)
+        );
+    }
+}
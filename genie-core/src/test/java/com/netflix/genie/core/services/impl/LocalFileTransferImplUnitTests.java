@@ -18,6 +18,7 @@
 package com.netflix.genie.core.services.impl;
 
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.test.categories.UnitTest;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -29,6 +30,8 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.UUID;
 
 /**
@@ -146,6 +149,55 @@ public class LocalFileTransferImplUnitTests {
         Assert.assertTrue(dstFile3.exists());
     }
 
+    /**
+     * Test the putStream method.
+     *
+     * @throws GenieException If there is any problem
+     * @throws IOException    If there is any problem
+     */
+    @Test
+    public void canPutStream() throws GenieException, IOException {
+        final File notExistsFolder = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+        final File dstFile = new File(notExistsFolder, UUID.randomUUID().toString());
+        Assert.assertFalse(dstFile.exists());
+
+        this.localFileTransfer.putStream(
+            dstFile.getAbsolutePath(),
+            out -> out.write("some content".getBytes(StandardCharsets.UTF_8))
+        );
+        Assert.assertThat(
+            new String(Files.readAllBytes(dstFile.toPath()), StandardCharsets.UTF_8),
+            Matchers.is("some content")
+        );
+        Assert.assertThat(notExistsFolder.list(), Matchers.arrayWithSize(1));
+    }
+
+    /**
+     * Make sure nothing is left behind when writing the content fails.
+     *
+     * @throws GenieException If there is any problem
+     * @throws IOException    If there is any problem
+     */
+    @Test
+    public void putStreamLeavesNothingBehindOnFailure() throws GenieException, IOException {
+        final File folder = this.temporaryFolder.newFolder();
+        final File dstFile = new File(folder, UUID.randomUUID().toString());
+
+        try {
+            this.localFileTransfer.putStream(
+                dstFile.getAbsolutePath(),
+                out -> {
+                    out.write(1);
+                    throw new IOException("failed");
+                }
+            );
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Assert.assertThat(gse.getCause(), Matchers.instanceOf(IOException.class));
+        }
+        Assert.assertThat(folder.list(), Matchers.emptyArray());
+    }
+
     /**
      * Make sure the last modified time is accurate.
      *
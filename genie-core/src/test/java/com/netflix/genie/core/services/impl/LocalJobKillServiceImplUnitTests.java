@@ -86,6 +86,7 @@ public class LocalJobKillServiceImplUnitTests {
             HOSTNAME,
             this.jobSearchService,
             this.executor,
+            new SudoPrivilegedOperationServiceImpl(this.executor),
             false,
             this.genieEventBus,
             this.genieWorkingDir,
@@ -222,6 +223,7 @@ public class LocalJobKillServiceImplUnitTests {
             HOSTNAME,
             this.jobSearchService,
             this.executor,
+            new SudoPrivilegedOperationServiceImpl(this.executor),
             true,
             this.genieEventBus,
             this.genieWorkingDir,
@@ -0,0 +1,274 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.properties.MailOutboxProperties;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the OutboxMailServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class OutboxMailServiceImplUnitTests {
+
+    private static final String FROM_ADDRESS = "genie@geniehost.com";
+    private static final long TIMEOUT = 10_000L;
+
+    /**
+     * Temporary folder that will be deleted at the end of tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JavaMailSender mailSender;
+    private BlockingQueue<SimpleMailMessage[]> batches;
+    private MailOutboxProperties properties;
+    private File outboxDir;
+    private OutboxMailServiceImpl mailService;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.mailSender = Mockito.mock(JavaMailSender.class);
+        this.batches = new LinkedBlockingQueue<>();
+        this.properties = new MailOutboxProperties();
+        this.properties.setInitialBackOff(1L);
+        this.properties.setMaxBackOff(1L);
+        this.outboxDir = this.folder.newFolder();
+    }
+
+    /**
+     * Stop the worker after every test.
+     */
+    @After
+    public void tearDown() {
+        if (this.mailService != null) {
+            this.mailService.close();
+        }
+    }
+
+    /**
+     * Make sure the emails are queued and sent by the worker.
+     *
+     * @throws GenieException       on error
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canSendQueuedEmails() throws GenieException, IOException, InterruptedException {
+        this.mockSend(null);
+        this.mailService = this.newMailService();
+
+        this.mailService.sendEmail("a@geniehost.com", "subject1", "body1");
+        this.mailService.sendEmail("b@geniehost.com", "subject2", null);
+
+        final SimpleMailMessage first = this.nextMessage();
+        Assert.assertThat(first.getTo()[0], Matchers.is("a@geniehost.com"));
+        Assert.assertThat(first.getFrom(), Matchers.is(FROM_ADDRESS));
+        Assert.assertThat(first.getSubject(), Matchers.is("subject1"));
+        Assert.assertThat(first.getText(), Matchers.is("body1"));
+        final SimpleMailMessage second = this.nextMessage();
+        Assert.assertThat(second.getTo()[0], Matchers.is("b@geniehost.com"));
+        Assert.assertThat(second.getText(), Matchers.nullValue());
+        this.waitForEmptyOutbox();
+    }
+
+    /**
+     * Make sure the emails still queued when the outbox was closed are sent once it's opened again.
+     *
+     * @throws GenieException       on error
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canResumeQueuedEmails() throws GenieException, IOException, InterruptedException {
+        this.mockSend(new MailSendException("Mail server connection failed"));
+        this.properties.setInitialBackOff(TIMEOUT * 10);
+        this.properties.setMaxBackOff(TIMEOUT * 10);
+        this.mailService = this.newMailService();
+        this.mailService.sendEmail("a@geniehost.com", "subject", "body");
+        this.nextMessage();
+        this.mailService.close();
+        Assert.assertThat(this.listOutbox().length, Matchers.is(1));
+
+        Mockito.reset(this.mailSender);
+        this.mockSend(null);
+        this.mailService = this.newMailService();
+        Assert.assertThat(this.nextMessage().getSubject(), Matchers.is("subject"));
+        this.waitForEmptyOutbox();
+    }
+
+    /**
+     * Make sure an email rejected by the mail server is dropped after the configured number of attempts.
+     *
+     * @throws GenieException       on error
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canDropEmailAfterMaxAttempts() throws GenieException, IOException, InterruptedException {
+        this.properties.setMaxAttempts(2);
+        Mockito.doAnswer(
+            invocation -> {
+                final SimpleMailMessage[] batch = toBatch(invocation.getArguments());
+                this.batches.add(batch);
+                throw new MailSendException(ImmutableMap.of(batch[0], new Exception("rejected")));
+            }
+        ).when(this.mailSender).send(Mockito.<SimpleMailMessage>anyVararg());
+        this.mailService = this.newMailService();
+
+        this.mailService.sendEmail("a@geniehost.com", "subject", "body");
+        Assert.assertThat(this.nextMessage().getSubject(), Matchers.is("subject"));
+        Assert.assertThat(this.nextMessage().getSubject(), Matchers.is("subject"));
+        this.waitForEmptyOutbox();
+        Assert.assertNull(this.batches.poll(100L, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Make sure an email waiting to be retried doesn't hold up the emails queued after it.
+     *
+     * @throws GenieException       on error
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canSendOtherEmailsWhileRetrying() throws GenieException, IOException, InterruptedException {
+        this.properties.setInitialBackOff(TIMEOUT * 10);
+        this.properties.setMaxBackOff(TIMEOUT * 10);
+        Mockito.doAnswer(
+            invocation -> {
+                final SimpleMailMessage[] batch = toBatch(invocation.getArguments());
+                this.batches.add(batch);
+                if ("rejected".equals(batch[0].getSubject())) {
+                    throw new MailSendException(ImmutableMap.of(batch[0], new Exception("rejected")));
+                }
+                return null;
+            }
+        ).when(this.mailSender).send(Mockito.<SimpleMailMessage>anyVararg());
+        this.mailService = this.newMailService();
+
+        this.mailService.sendEmail("a@geniehost.com", "rejected", "body");
+        Assert.assertThat(this.nextMessage().getSubject(), Matchers.is("rejected"));
+        this.mailService.sendEmail("b@geniehost.com", "accepted", "body");
+        Assert.assertThat(this.nextMessage().getSubject(), Matchers.is("accepted"));
+        Assert.assertThat(this.mailService.getNumQueued(), Matchers.is(1));
+    }
+
+    /**
+     * Make sure an email which can't be read is quarantined and the worker keeps sending the others.
+     *
+     * @throws GenieException       on error
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canQuarantineBadEmails() throws GenieException, IOException, InterruptedException {
+        final File badEmail = new File(this.outboxDir, "0000000000000-bad" + OutboxMailServiceImpl.MESSAGE_FILE_SUFFIX);
+        Files.write(badEmail.toPath(), "to=a@geniehost.com\nattempts=many\n".getBytes(StandardCharsets.UTF_8));
+        this.mockSend(null);
+        this.mailService = this.newMailService();
+
+        this.mailService.sendEmail("b@geniehost.com", "subject", "body");
+        Assert.assertThat(this.nextMessage().getSubject(), Matchers.is("subject"));
+        this.waitForEmptyOutbox();
+        Assert.assertTrue(new File(new File(this.outboxDir, "quarantine"), badEmail.getName()).isFile());
+    }
+
+    private OutboxMailServiceImpl newMailService() throws IOException {
+        return new OutboxMailServiceImpl(
+            this.mailSender,
+            FROM_ADDRESS,
+            this.outboxDir,
+            this.properties,
+            new DefaultRegistry()
+        );
+    }
+
+    private void mockSend(final RuntimeException exception) {
+        Mockito.doAnswer(
+            invocation -> {
+                this.batches.add(toBatch(invocation.getArguments()));
+                if (exception != null) {
+                    throw exception;
+                }
+                return null;
+            }
+        ).when(this.mailSender).send(Mockito.<SimpleMailMessage>anyVararg());
+    }
+
+    private SimpleMailMessage nextMessage() throws InterruptedException {
+        final SimpleMailMessage[] batch = this.batches.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(batch);
+        // Emails queued while a batch is sent go into the next one
+        if (batch.length > 1) {
+            final SimpleMailMessage[] rest = new SimpleMailMessage[batch.length - 1];
+            System.arraycopy(batch, 1, rest, 0, rest.length);
+            this.batches.add(rest);
+        }
+        return batch[0];
+    }
+
+    private File[] listOutbox() {
+        return this.outboxDir.listFiles((dir, name) -> name.endsWith(OutboxMailServiceImpl.MESSAGE_FILE_SUFFIX));
+    }
+
+    private void waitForEmptyOutbox() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (this.listOutbox().length > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertThat(this.listOutbox().length, Matchers.is(0));
+        Assert.assertThat(this.mailService.getNumQueued(), Matchers.is(0));
+    }
+
+    private static SimpleMailMessage[] toBatch(final Object[] arguments) {
+        final SimpleMailMessage[] batch = new SimpleMailMessage[arguments.length];
+        System.arraycopy(arguments, 0, batch, 0, arguments.length);
+        return batch;
+    }
+}
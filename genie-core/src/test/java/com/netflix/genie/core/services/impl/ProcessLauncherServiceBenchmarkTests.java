@@ -0,0 +1,166 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.core.services.ProcessLauncherService;
+import com.netflix.genie.test.categories.BenchmarkTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A benchmark of concurrent job launches through a ProcessBuilder in the JVM and through the pre-spawned launcher
+ * processes. The timings are only logged. Run with the benchmarkTests task.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(BenchmarkTest.class)
+@Slf4j
+public class ProcessLauncherServiceBenchmarkTests {
+
+    private static final int CONCURRENT_LAUNCHES = 64;
+    private static final int ROUNDS = 5;
+    private static final int LAUNCHER_POOL_SIZE = 2;
+
+    /**
+     * Temporary folder for the working directories of the launched processes.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File[] workingDirectories;
+
+    /**
+     * Setup for the benchmark.
+     *
+     * @throws Exception on error
+     */
+    @Before
+    public void setup() throws Exception {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX && new File("/bin/bash").canExecute());
+        this.workingDirectories = new File[CONCURRENT_LAUNCHES];
+        for (int i = 0; i < CONCURRENT_LAUNCHES; i++) {
+            this.workingDirectories[i] = this.temporaryFolder.newFolder("job" + i);
+        }
+    }
+
+    /**
+     * Compare the latency and throughput of launching many jobs at once with both launchers.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void benchmarkConcurrentLaunches() throws Exception {
+        final ProcessLauncherService processBuilderLauncher = new ProcessBuilderProcessLauncherServiceImpl();
+        final HelperProcessLauncherServiceImpl helperLauncher
+            = new HelperProcessLauncherServiceImpl(LAUNCHER_POOL_SIZE, new DefaultRegistry());
+        final ExecutorService executorService = Executors.newFixedThreadPool(CONCURRENT_LAUNCHES);
+        try {
+            // Warm up both
+            this.launchConcurrently(processBuilderLauncher, executorService);
+            this.launchConcurrently(helperLauncher, executorService);
+
+            final long[] processBuilderLatencies = new long[CONCURRENT_LAUNCHES * ROUNDS];
+            final long[] helperLatencies = new long[CONCURRENT_LAUNCHES * ROUNDS];
+            long processBuilderNanos = 0;
+            long helperNanos = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                long[] latencies = this.launchConcurrently(processBuilderLauncher, executorService);
+                processBuilderNanos += System.nanoTime() - start;
+                System.arraycopy(latencies, 0, processBuilderLatencies, round * CONCURRENT_LAUNCHES, latencies.length);
+
+                start = System.nanoTime();
+                latencies = this.launchConcurrently(helperLauncher, executorService);
+                helperNanos += System.nanoTime() - start;
+                System.arraycopy(latencies, 0, helperLatencies, round * CONCURRENT_LAUNCHES, latencies.length);
+            }
+
+            this.report("ProcessBuilder", processBuilderLatencies, processBuilderNanos);
+            this.report("Launcher helper", helperLatencies, helperNanos);
+        } finally {
+            executorService.shutdownNow();
+            helperLauncher.close();
+        }
+    }
+
+    private long[] launchConcurrently(
+        final ProcessLauncherService launcher,
+        final ExecutorService executorService
+    ) throws Exception {
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final List<Future<Long>> futures = new ArrayList<>(CONCURRENT_LAUNCHES);
+        for (final File workingDirectory : this.workingDirectories) {
+            futures.add(
+                executorService.submit(
+                    () -> {
+                        startSignal.await();
+                        final long start = System.nanoTime();
+                        final int pid = launcher.launch(
+                            Lists.newArrayList("true"),
+                            workingDirectory,
+                            new File(workingDirectory, "genie.log")
+                        );
+                        final long latency = System.nanoTime() - start;
+                        Assert.assertTrue(pid > 0);
+                        return latency;
+                    }
+                )
+            );
+        }
+        startSignal.countDown();
+        final long[] latencies = new long[CONCURRENT_LAUNCHES];
+        for (int i = 0; i < CONCURRENT_LAUNCHES; i++) {
+            latencies[i] = futures.get(i).get(1, TimeUnit.MINUTES);
+        }
+        return latencies;
+    }
+
+    private void report(final String launcher, final long[] latencies, final long totalNanos) {
+        Arrays.sort(latencies);
+        log.info(
+            "{}: {} concurrent launches x {} rounds. Latency p50 {} us, p99 {} us, max {} us. {} launches/s",
+            launcher,
+            CONCURRENT_LAUNCHES,
+            ROUNDS,
+            TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length / 2]),
+            TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length * 99 / 100]),
+            TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length - 1]),
+            latencies.length * TimeUnit.SECONDS.toNanos(1) / totalNanos
+        );
+    }
+}
@@ -17,12 +17,24 @@
  */
 package com.netflix.genie.core.services.impl;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.AmazonS3URI;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import com.google.common.collect.ImmutableMap;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
@@ -30,22 +42,35 @@ import com.netflix.genie.core.properties.S3FileTransferProperties;
 import com.netflix.genie.core.util.MetricsUtils;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Timer;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class to test the S3FileTransferImpl class.
@@ -64,6 +89,13 @@ public class S3FileTransferImplUnitTests {
     private static final Map SUCCESS_TAGS = MetricsUtils.newSuccessTagsMap();
     private static final Map FAILURE_TAGS =
         MetricsUtils.newFailureTagsMapForException(new GenieServerException("test"));
+    private static final long MB = 1024L * 1024L;
+
+    /**
+     * Temporary folder for the files transferred in parts.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     private S3FileTransferImpl s3FileTransfer;
     private AmazonS3Client s3Client;
@@ -462,4 +494,301 @@ public class S3FileTransferImplUnitTests {
             Assert.assertEquals(FAILURE_TAGS, tagsCaptor.getValue());
         }
     }
+
+    /**
+     * Make sure the part size respects the limits of S3.
+     */
+    @Test
+    public void canGetPartSize() {
+        final S3FileTransferProperties properties = new S3FileTransferProperties();
+        final S3FileTransferImpl transfer = new S3FileTransferImpl(this.s3Client, new DefaultRegistry(), properties);
+        Assert.assertEquals(16 * MB, transfer.getPartSize(100 * MB));
+        properties.setPartSize(MB);
+        Assert.assertEquals(5 * MB, transfer.getPartSize(100 * MB));
+        // At most 10,000 parts
+        Assert.assertEquals(10 * MB, transfer.getPartSize(100_000 * MB));
+    }
+
+    /**
+     * Make sure a large file is downloaded with parallel ranged GETs and that a failed part is retried.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void canGetFileInParts() throws GenieException, IOException {
+        final byte[] data = this.randomBytes(12 * MB + 17);
+
+        // In memory stand in for S3 which fails the first request for the second part
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        Mockito
+            .when(this.s3Client.getObject(Mockito.any(GetObjectRequest.class)))
+            .thenAnswer(
+                invocation -> {
+                    final GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+                    final long[] range = request.getRange();
+                    // Every part after the first is pinned to the version of the first
+                    Assert.assertEquals(
+                        range[0] == 0L ? null : Arrays.asList("etag"),
+                        request.getMatchingETagConstraints()
+                    );
+                    if (range[0] == 5 * MB && failed.compareAndSet(false, true)) {
+                        throw new AmazonClientException("Connection reset");
+                    }
+                    return this.getRange(data, range);
+                }
+            );
+
+        final DefaultRegistry registry = new DefaultRegistry();
+        final S3FileTransferImpl transfer = this.createParallelTransfer(registry);
+        final File dst = new File(this.temporaryFolder.getRoot(), "parts/downloaded");
+        transfer.getFile(S3_PATH, dst.getAbsolutePath());
+
+        Assert.assertArrayEquals(data, Files.readAllBytes(dst.toPath()));
+        // 3 parts plus one retry without asking for the size first
+        Mockito.verify(this.s3Client, Mockito.times(4)).getObject(Mockito.any(GetObjectRequest.class));
+        Mockito.verify(this.s3Client, Mockito.never()).getObject(Mockito.any(GetObjectRequest.class), Mockito.any());
+        Mockito.verify(this.s3Client, Mockito.never()).getObjectMetadata(Mockito.anyString(), Mockito.anyString());
+        Assert.assertEquals(1L, registry.counter("genie.files.s3.download.partRetry.counter").count());
+        Assert.assertEquals(1L, registry.distributionSummary("genie.files.s3.download.throughput").count());
+    }
+
+    /**
+     * Make sure a file no larger than a part is downloaded with a single request.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void canGetSmallFileInOneRequest() throws GenieException, IOException {
+        final byte[] data = this.randomBytes(MB);
+        Mockito
+            .when(this.s3Client.getObject(Mockito.any(GetObjectRequest.class)))
+            .thenAnswer(
+                invocation -> this.getRange(data, ((GetObjectRequest) invocation.getArguments()[0]).getRange())
+            );
+
+        final File dst = new File(this.temporaryFolder.getRoot(), "small");
+        this.createParallelTransfer(new DefaultRegistry()).getFile(S3_PATH, dst.getAbsolutePath());
+
+        Assert.assertArrayEquals(data, Files.readAllBytes(dst.toPath()));
+        Mockito.verify(this.s3Client, Mockito.times(1)).getObject(Mockito.any(GetObjectRequest.class));
+        Mockito.verify(this.s3Client, Mockito.never()).getObjectMetadata(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * Make sure the size of an object is read from the content range of a ranged GET.
+     */
+    @Test
+    public void canGetObjectSize() {
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(1024L);
+        Assert.assertEquals(1024L, S3FileTransferImpl.getObjectSize(metadata));
+        metadata.setHeader(Headers.CONTENT_RANGE, "bytes 0-1023/146515");
+        Assert.assertEquals(146515L, S3FileTransferImpl.getObjectSize(metadata));
+        metadata.setHeader(Headers.CONTENT_RANGE, "bytes 0-1023/*");
+        Assert.assertEquals(1024L, S3FileTransferImpl.getObjectSize(metadata));
+    }
+
+    /**
+     * Make sure a large file is uploaded with a parallel multipart upload.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void canPutFileInParts() throws GenieException, IOException {
+        final byte[] data = this.randomBytes(11 * MB);
+        final File src = this.temporaryFolder.newFile();
+        Files.write(src.toPath(), data);
+
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("uploadId");
+        Mockito
+            .when(this.s3Client.initiateMultipartUpload(Mockito.any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(initiateResult);
+        // In memory stand in for S3 which stores the parts it receives
+        final Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+        Mockito
+            .when(this.s3Client.uploadPart(Mockito.any(UploadPartRequest.class)))
+            .thenAnswer(
+                invocation -> {
+                    final UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+                    Assert.assertEquals("uploadId", request.getUploadId());
+                    final byte[] part = new byte[(int) request.getPartSize()];
+                    try (RandomAccessFile file = new RandomAccessFile(request.getFile(), "r")) {
+                        file.seek(request.getFileOffset());
+                        file.readFully(part);
+                    }
+                    uploadedParts.put(request.getPartNumber(), part);
+                    final UploadPartResult result = new UploadPartResult();
+                    result.setPartNumber(request.getPartNumber());
+                    result.setETag("etag" + request.getPartNumber());
+                    return result;
+                }
+            );
+        Mockito
+            .when(this.s3Client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(new CompleteMultipartUploadResult());
+
+        final DefaultRegistry registry = new DefaultRegistry();
+        this.createParallelTransfer(registry).putFile(src.getAbsolutePath(), S3_PATH);
+
+        final ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor
+            = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        Mockito.verify(this.s3Client).completeMultipartUpload(completeCaptor.capture());
+        final List<PartETag> partETags = completeCaptor.getValue().getPartETags();
+        Assert.assertEquals(3, partETags.size());
+        final byte[] uploaded = new byte[data.length];
+        int offset = 0;
+        for (int i = 0; i < partETags.size(); i++) {
+            Assert.assertEquals(i + 1, partETags.get(i).getPartNumber());
+            final byte[] part = uploadedParts.get(i + 1);
+            System.arraycopy(part, 0, uploaded, offset, part.length);
+            offset += part.length;
+        }
+        Assert.assertEquals(data.length, offset);
+        Assert.assertArrayEquals(data, uploaded);
+        Mockito.verify(this.s3Client, Mockito.never()).putObject(Mockito.any(), Mockito.any(), Mockito.any(File.class));
+        Mockito
+            .verify(this.s3Client, Mockito.never())
+            .abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+        Assert.assertEquals(1L, registry.distributionSummary("genie.files.s3.upload.throughput").count());
+    }
+
+    /**
+     * Make sure a multipart upload is aborted when a part keeps failing.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test(expected = GenieServerException.class)
+    public void canAbortPutFileInParts() throws GenieException, IOException {
+        final File src = this.temporaryFolder.newFile();
+        Files.write(src.toPath(), this.randomBytes(6 * MB));
+
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("uploadId");
+        Mockito
+            .when(this.s3Client.initiateMultipartUpload(Mockito.any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(initiateResult);
+        Mockito
+            .when(this.s3Client.uploadPart(Mockito.any(UploadPartRequest.class)))
+            .thenThrow(new AmazonClientException("Connection reset"));
+
+        final DefaultRegistry registry = new DefaultRegistry();
+        try {
+            this.createParallelTransfer(registry).putFile(src.getAbsolutePath(), S3_PATH);
+        } finally {
+            Mockito
+                .verify(this.s3Client, Mockito.times(1))
+                .abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+            Mockito
+                .verify(this.s3Client, Mockito.never())
+                .completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class));
+            // At least the part which failed the transfer was retried twice. The other may have been cancelled.
+            Assert.assertTrue(registry.counter("genie.files.s3.upload.partRetry.counter").count() >= 2L);
+        }
+    }
+
+    /**
+     * Make sure a stream larger than a part is uploaded in parts in order.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void canPutStreamInParts() throws GenieException, IOException {
+        final byte[] data = this.randomBytes(11 * MB);
+
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("uploadId");
+        Mockito
+            .when(this.s3Client.initiateMultipartUpload(Mockito.any(InitiateMultipartUploadRequest.class)))
+            .thenReturn(initiateResult);
+        final Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+        Mockito
+            .when(this.s3Client.uploadPart(Mockito.any(UploadPartRequest.class)))
+            .thenAnswer(
+                invocation -> {
+                    final UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+                    final byte[] part = new byte[(int) request.getPartSize()];
+                    Assert.assertEquals(part.length, request.getInputStream().read(part));
+                    uploadedParts.put(request.getPartNumber(), part);
+                    final UploadPartResult result = new UploadPartResult();
+                    result.setPartNumber(request.getPartNumber());
+                    result.setETag("etag" + request.getPartNumber());
+                    return result;
+                }
+            );
+        Mockito
+            .when(this.s3Client.completeMultipartUpload(Mockito.any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(new CompleteMultipartUploadResult());
+
+        this.createParallelTransfer(new DefaultRegistry()).putStream(S3_PATH, out -> out.write(data));
+
+        final ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor
+            = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        Mockito.verify(this.s3Client).completeMultipartUpload(completeCaptor.capture());
+        final List<PartETag> partETags = completeCaptor.getValue().getPartETags();
+        Assert.assertEquals(3, partETags.size());
+        final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (int i = 0; i < partETags.size(); i++) {
+            Assert.assertEquals(i + 1, partETags.get(i).getPartNumber());
+            uploaded.write(uploadedParts.get(i + 1));
+        }
+        Assert.assertArrayEquals(data, uploaded.toByteArray());
+        Mockito
+            .verify(this.s3Client, Mockito.never())
+            .abortMultipartUpload(Mockito.any(AbortMultipartUploadRequest.class));
+    }
+
+    /**
+     * Make sure a stream smaller than a part is uploaded with a single request.
+     *
+     * @throws GenieException On error
+     */
+    @Test
+    public void canPutSmallStreamInOneRequest() throws GenieException {
+        Mockito
+            .when(this.s3Client.putObject(Mockito.any(PutObjectRequest.class)))
+            .thenReturn(new PutObjectResult());
+
+        this.createParallelTransfer(new DefaultRegistry()).putStream(S3_PATH, out -> out.write(new byte[]{1, 2, 3}));
+
+        final ArgumentCaptor<PutObjectRequest> putCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        Mockito.verify(this.s3Client).putObject(putCaptor.capture());
+        Assert.assertEquals(S3_BUCKET, putCaptor.getValue().getBucketName());
+        Assert.assertEquals(S3_KEY, putCaptor.getValue().getKey());
+        Assert.assertEquals(3L, putCaptor.getValue().getMetadata().getContentLength());
+        Mockito
+            .verify(this.s3Client, Mockito.never())
+            .initiateMultipartUpload(Mockito.any(InitiateMultipartUploadRequest.class));
+    }
+
+    private S3FileTransferImpl createParallelTransfer(final Registry registry) {
+        final S3FileTransferProperties properties = new S3FileTransferProperties();
+        properties.setMultipartThreshold(5 * MB);
+        properties.setPartSize(5 * MB);
+        properties.setConcurrency(4);
+        properties.setPartRetries(2);
+        return new S3FileTransferImpl(this.s3Client, registry, properties);
+    }
+
+    private S3Object getRange(final byte[] data, final long[] range) {
+        final int first = (int) range[0];
+        final int last = (int) Math.min(range[1], data.length - 1);
+        final S3Object object = new S3Object();
+        object.getObjectMetadata().setContentLength(last - first + 1);
+        object.getObjectMetadata().setHeader(Headers.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + data.length);
+        object.getObjectMetadata().setHeader(Headers.ETAG, "etag");
+        object.setObjectContent(new ByteArrayInputStream(data, first, last - first + 1));
+        return object;
+    }
+
+    private byte[] randomBytes(final long size) {
+        final byte[] bytes = new byte[(int) size];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
 }
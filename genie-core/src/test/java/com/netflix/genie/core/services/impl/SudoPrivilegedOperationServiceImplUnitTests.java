@@ -0,0 +1,98 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.services.impl;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.test.categories.UnitTest;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteException;
+import org.apache.commons.exec.Executor;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Unit tests for the SudoPrivilegedOperationServiceImpl class.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class SudoPrivilegedOperationServiceImplUnitTests {
+
+    private Executor executor;
+    private SudoPrivilegedOperationServiceImpl service;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.executor = Mockito.mock(Executor.class);
+        this.service = new SudoPrivilegedOperationServiceImpl(this.executor);
+    }
+
+    /**
+     * Make sure every operation of a batch is run as its own sudo command and the exit codes are collected.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canExecuteBatch() throws IOException {
+        Mockito
+            .when(this.executor.execute(Mockito.any(CommandLine.class)))
+            .thenReturn(0)
+            .thenThrow(new ExecuteException("blah", 9))
+            .thenThrow(new IOException());
+
+        final List<Integer> exitCodes = this.service.execute(
+            Lists.newArrayList(
+                PrivilegedOperation.archive("/jobs/1/genie/logs/1.tar.gz", "/jobs/1"),
+                PrivilegedOperation.createUser("user", "group"),
+                PrivilegedOperation.kill(1234)
+            )
+        );
+
+        Assert.assertThat(
+            exitCodes,
+            Matchers.contains(0, 9, SudoPrivilegedOperationServiceImpl.UNABLE_TO_EXECUTE_EXIT_CODE)
+        );
+        final ArgumentCaptor<CommandLine> captor = ArgumentCaptor.forClass(CommandLine.class);
+        Mockito.verify(this.executor, Mockito.times(3)).execute(captor.capture());
+        Assert.assertArrayEquals(
+            new String[]{"sudo", "tar", "-c", "-z", "-f", "/jobs/1/genie/logs/1.tar.gz", "-C", "/jobs/1", "./"},
+            captor.getAllValues().get(0).toStrings()
+        );
+        Assert.assertArrayEquals(
+            new String[]{"sudo", "useradd", "user", "-G", "group", "-M"},
+            captor.getAllValues().get(1).toStrings()
+        );
+        Assert.assertArrayEquals(
+            new String[]{"sudo", "kill", "1234"},
+            captor.getAllValues().get(2).toStrings()
+        );
+    }
+}
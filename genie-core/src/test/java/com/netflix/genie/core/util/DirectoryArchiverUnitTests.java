@@ -0,0 +1,217 @@
+package com.netflix.genie.core.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.netflix.genie.test.categories.UnitTest;
+import org.apache.commons.lang3.StringUtils;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Unit tests for the DirectoryArchiver and TarWriter classes.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class DirectoryArchiverUnitTests {
+
+    /**
+     * Temporary folder for the directories to archive.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private DirectoryArchiver archiver;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.executor = Executors.newFixedThreadPool(2);
+        this.archiver = new DirectoryArchiver(this.executor, 1024, 2);
+    }
+
+    /**
+     * Stop the compression threads.
+     */
+    @After
+    public void cleanup() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Make sure all the files and directories end up in the archive with their content.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canArchiveDirectory() throws IOException {
+        final File directory = this.temporaryFolder.newFolder();
+        final String longName = StringUtils.repeat("a", 150);
+        final byte[] largeContent = StringUtils.repeat("stdout line\n", 1000).getBytes(StandardCharsets.UTF_8);
+        write(new File(directory, "run"), "#!/bin/bash".getBytes(StandardCharsets.UTF_8));
+        write(new File(directory, "genie/logs/genie.log"), largeContent);
+        write(new File(directory, "genie/" + longName), new byte[0]);
+
+        final Map<String, byte[]> entries = this.archive(directory, Lists.newArrayList());
+
+        Assert.assertThat(
+            entries.keySet(),
+            Matchers.containsInAnyOrder(
+                "./", "./run", "./genie/", "./genie/logs/", "./genie/logs/genie.log", "./genie/" + longName
+            )
+        );
+        Assert.assertThat(entries.get("./run"), Matchers.is("#!/bin/bash".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertThat(entries.get("./genie/logs/genie.log"), Matchers.is(largeContent));
+        Assert.assertThat(entries.get("./genie/" + longName).length, Matchers.is(0));
+    }
+
+    /**
+     * Make sure excluded paths and everything below them are left out of the archive.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canExclude() throws IOException {
+        final File directory = this.temporaryFolder.newFolder();
+        write(new File(directory, "run"), new byte[]{1});
+        write(new File(directory, "genie/applications/spark/dependencies/spark.tar.gz"), new byte[]{2});
+        write(new File(directory, "genie/applications/spark/setup"), new byte[]{3});
+
+        final Map<String, byte[]> entries = this.archive(
+            directory,
+            Lists.newArrayList("genie/applications/*/dependencies", "run")
+        );
+
+        Assert.assertThat(
+            entries.keySet(),
+            Matchers.containsInAnyOrder(
+                "./", "./genie/", "./genie/applications/", "./genie/applications/spark/",
+                "./genie/applications/spark/setup"
+            )
+        );
+    }
+
+    /**
+     * Make sure the index of an archive can be used to read single files out of their gzip members.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canReadFilesWithIndex() throws IOException {
+        final File directory = this.temporaryFolder.newFolder();
+        final byte[] largeContent = StringUtils.repeat("stderr line\n", 1000).getBytes(StandardCharsets.UTF_8);
+        final byte[] smallContent = "#!/bin/bash".getBytes(StandardCharsets.UTF_8);
+        write(new File(directory, "run"), smallContent);
+        write(new File(directory, "genie/logs/genie.log"), largeContent);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ArchiveIndex index = this.archiver.archive(directory, Lists.newArrayList(), out);
+        final byte[] archive = out.toByteArray();
+
+        Assert.assertThat(index.getBlockSize(), Matchers.is(1024));
+        Assert.assertThat(index.getCompressedSize(), Matchers.is((long) archive.length));
+        Assert.assertThat(index.getMemberOffsets().size(), Matchers.greaterThan(1));
+        Assert.assertTrue(index.getEntry("").orElseThrow(IllegalStateException::new).isDirectory());
+        Assert.assertTrue(index.getEntry("genie/logs/").orElseThrow(IllegalStateException::new).isDirectory());
+        Assert.assertFalse(index.getEntry("missing").isPresent());
+        Assert.assertThat(index.getChildren("").size(), Matchers.is(2));
+        Assert.assertThat(index.getChildren("genie/logs").size(), Matchers.is(1));
+
+        Assert.assertThat(readWithIndex(archive, index, "./run"), Matchers.is(smallContent));
+        Assert.assertThat(readWithIndex(archive, index, "genie/logs/genie.log"), Matchers.is(largeContent));
+    }
+
+    private Map<String, byte[]> archive(final File directory, final Iterable<String> excludes) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.archiver.archive(directory, Lists.newArrayList(excludes), out);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return readTar(ByteStreams.toByteArray(in));
+        }
+    }
+
+    private static byte[] readWithIndex(
+        final byte[] archive,
+        final ArchiveIndex index,
+        final String path
+    ) throws IOException {
+        final ArchiveIndex.Entry entry = index.getEntry(path).orElseThrow(IllegalStateException::new);
+        final long first = entry.getOffset();
+        final long last = first + entry.getSize() - 1;
+        final int memberStart = (int) index.getMemberStart(first);
+        final int memberEnd = (int) index.getMemberEnd(last);
+        try (
+            InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(archive, memberStart, memberEnd - memberStart)
+            )
+        ) {
+            ByteStreams.skipFully(in, first - index.getMemberUncompressedStart(first));
+            final byte[] content = new byte[(int) entry.getSize()];
+            ByteStreams.readFully(in, content);
+            return content;
+        }
+    }
+
+    private static void write(final File file, final byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+
+    /**
+     * Reads the names and contents of the entries of a tar archive with GNU long names.
+     */
+    private static Map<String, byte[]> readTar(final byte[] tar) {
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        String longName = null;
+        int offset = 0;
+        while (offset + TarWriter.BLOCK_SIZE <= tar.length && tar[offset] != 0) {
+            final String name = readString(tar, offset, 100);
+            final int size = Integer.parseInt(readString(tar, offset + 124, 12).trim(), 8);
+            final char type = (char) tar[offset + 156];
+            final byte[] content = Arrays.copyOfRange(
+                tar,
+                offset + TarWriter.BLOCK_SIZE,
+                offset + TarWriter.BLOCK_SIZE + size
+            );
+            if (type == 'L') {
+                longName = new String(content, StandardCharsets.UTF_8).replace("\0", "");
+            } else {
+                entries.put(longName == null ? name : longName, content);
+                longName = null;
+            }
+            offset += TarWriter.BLOCK_SIZE * (1 + (size + TarWriter.BLOCK_SIZE - 1) / TarWriter.BLOCK_SIZE);
+        }
+        return entries;
+    }
+
+    private static String readString(final byte[] block, final int offset, final int length) {
+        int end = offset;
+        while (end < offset + length && block[end] != 0) {
+            end++;
+        }
+        return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+    }
+}
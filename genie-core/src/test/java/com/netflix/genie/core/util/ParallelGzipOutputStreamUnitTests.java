@@ -0,0 +1,103 @@
+package com.netflix.genie.core.util;
+
+import com.google.common.io.ByteStreams;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Unit tests for the ParallelGzipOutputStream class.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class ParallelGzipOutputStreamUnitTests {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private ExecutorService executor;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    /**
+     * Stop the compression threads.
+     */
+    @After
+    public void cleanup() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Make sure input spanning many blocks is decompressed to the same bytes in the same order.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canCompressManyBlocks() throws IOException {
+        final byte[] input = new byte[BLOCK_SIZE * 20 + 17];
+        new Random(42).nextBytes(input);
+        // Make some of it compressible
+        for (int i = 0; i < input.length; i += 3) {
+            input[i] = 'a';
+        }
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, this.executor, BLOCK_SIZE, 3)) {
+            // Mix single bytes and arrays crossing the block boundaries
+            out.write(input[0]);
+            out.write(input, 1, BLOCK_SIZE * 5);
+            out.flush();
+            out.write(input, BLOCK_SIZE * 5 + 1, input.length - BLOCK_SIZE * 5 - 1);
+        }
+
+        Assert.assertThat(decompress(compressed.toByteArray()), Matchers.is(input));
+    }
+
+    /**
+     * Make sure a valid gzip stream is written even if nothing was written to the stream.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canCompressNothing() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, this.executor, BLOCK_SIZE, 3).close();
+
+        Assert.assertThat(compressed.size(), Matchers.greaterThan(0));
+        Assert.assertThat(decompress(compressed.toByteArray()).length, Matchers.is(0));
+    }
+
+    /**
+     * Make sure the stream can't be used with invalid sizes.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void cantCreateWithInvalidBlockSize() {
+        new ParallelGzipOutputStream(new ByteArrayOutputStream(), this.executor, 0, 3);
+    }
+
+    private static byte[] decompress(final byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+}
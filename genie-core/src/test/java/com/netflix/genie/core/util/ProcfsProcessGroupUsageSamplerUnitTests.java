@@ -0,0 +1,135 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Unit tests for ProcfsProcessGroupUsageSampler.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class ProcfsProcessGroupUsageSamplerUnitTests {
+
+    /**
+     * Temporary folder standing in for the proc file system.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Make sure the usage of all the processes of a group is summed up and other processes are ignored.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSampleProcessGroups() throws IOException {
+        // A command name with spaces and parentheses mustn't shift the fields
+        this.createProcess(100, "run (1)", 100, 150, 50, 100, 0, 1, 2048L);
+        this.createProcess(101, "java", 100, 1000, 200, 0, 0, 30, 1_048_576L);
+        this.createProcess(200, "other", 200, 5, 5, 0, 0, 1, 4096L);
+        this.createProcess(300, "unrelated", 300, 5, 5, 0, 0, 1, 4096L);
+        this.temporaryFolder.newFolder("self");
+        this.temporaryFolder.newFolder("400");
+        final ProcessGroupUsageSampler sampler = new ProcfsProcessGroupUsageSampler(this.temporaryFolder.getRoot());
+
+        final Map<Integer, ProcessGroupUsage> usages = sampler.sample(Lists.newArrayList(100, 200, 500));
+
+        Assert.assertThat(usages.size(), Matchers.is(2));
+        Assert.assertThat(
+            usages.get(100),
+            Matchers.is(new ProcessGroupUsage(2, 31, 15_000L, (2048L + 1_048_576L) * 1024L))
+        );
+        Assert.assertThat(usages.get(200), Matchers.is(new ProcessGroupUsage(1, 1, 100L, 4096L * 1024L)));
+        Assert.assertTrue(sampler.sample(Lists.newArrayList()).isEmpty());
+    }
+
+    /**
+     * Make sure a missing proc file system is reported.
+     *
+     * @throws IOException on error
+     */
+    @Test(expected = IOException.class)
+    public void cantSampleWithoutProc() throws IOException {
+        new ProcfsProcessGroupUsageSampler(new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()))
+            .sample(Lists.newArrayList(100));
+    }
+
+    /**
+     * Make sure the process group of this JVM can be sampled from the real proc file system.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSampleRealProcessGroup() throws IOException {
+        final File proc = new File(UnixBatchProcessChecker.PROC_DIRECTORY);
+        Assume.assumeTrue(new File(proc, "self/stat").isFile());
+        final String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        final String stat
+            = new String(Files.readAllBytes(new File(proc, pid + "/stat").toPath()), StandardCharsets.UTF_8);
+        final int processGroupId = Integer.parseInt(stat.substring(stat.lastIndexOf(')') + 2).split(" ")[2]);
+
+        final ProcessGroupUsage usage
+            = new ProcfsProcessGroupUsageSampler(proc).sample(Lists.newArrayList(processGroupId)).get(processGroupId);
+
+        Assert.assertNotNull(usage);
+        Assert.assertThat(usage.getNumProcesses(), Matchers.greaterThanOrEqualTo(1));
+        Assert.assertThat(usage.getNumThreads(), Matchers.greaterThan(1));
+        Assert.assertThat(usage.getRss(), Matchers.greaterThan(0L));
+    }
+
+    private void createProcess(
+        final int pid,
+        final String name,
+        final int processGroupId,
+        final long utime,
+        final long stime,
+        final long cutime,
+        final long cstime,
+        final int numThreads,
+        final long rssKb
+    ) throws IOException {
+        final File process = this.temporaryFolder.newFolder(Integer.toString(pid));
+        final String stat = pid + " (" + name + ") S 1 " + processGroupId + " " + processGroupId
+            + " 0 -1 4194560 100 0 0 0 "
+            + utime + " " + stime + " " + cutime + " " + cstime
+            + " 20 0 " + numThreads + " 0 12345 1000000 250 18446744073709551615\n";
+        Files.write(new File(process, "stat").toPath(), stat.getBytes(StandardCharsets.UTF_8));
+        final String status = "Name:\t" + name + "\nState:\tS (sleeping)\nVmHWM:\t    9999 kB\nVmRSS:\t    "
+            + rssKb + " kB\nThreads:\t" + numThreads + "\n";
+        Files.write(new File(process, "status").toPath(), status.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.core.util;
+
+import com.google.common.collect.Lists;
+import com.netflix.genie.test.categories.UnitTest;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * Unit tests for UnixBatchProcessChecker.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class UnixBatchProcessCheckerUnitTests {
+
+    // Above the maximum process id of Linux
+    private static final int NOT_RUNNING_PID = 4_194_999;
+
+    /**
+     * Temporary folder standing in for the proc file system.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+    }
+
+    /**
+     * Make sure the processes are checked through the proc file system if it's available.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canCheckProcessesWithProc() throws IOException {
+        this.temporaryFolder.newFolder("3808");
+        final BatchProcessChecker checker = new UnixBatchProcessChecker(this.temporaryFolder.getRoot());
+
+        Assert.assertThat(
+            checker.getRunningProcesses(Lists.newArrayList(3808, 3809)),
+            Matchers.contains(3808)
+        );
+        Assert.assertThat(checker.getRunningProcesses(Lists.<Integer>newArrayList()), Matchers.empty());
+    }
+
+    /**
+     * Make sure the processes are checked with ps if the proc file system isn't available.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canCheckProcessesWithPs() throws IOException {
+        final int pid = Integer.parseInt(ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+        final BatchProcessChecker checker
+            = new UnixBatchProcessChecker(new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()));
+
+        Assert.assertThat(
+            checker.getRunningProcesses(Lists.newArrayList(pid, NOT_RUNNING_PID)),
+            Matchers.contains(pid)
+        );
+        Assert.assertThat(checker.getRunningProcesses(Lists.newArrayList(NOT_RUNNING_PID)), Matchers.empty());
+    }
+}
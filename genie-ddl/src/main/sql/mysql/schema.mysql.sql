@@ -349,6 +349,7 @@ CREATE TABLE `jobs` (
   KEY `JOBS_CLUSTER_NAME_INDEX` (`cluster_name`),
   KEY `JOBS_COMMAND_NAME_INDEX` (`command_name`),
   KEY `JOBS_TAGS_INDEX` (`tags`),
+  KEY `JOBS_UPDATED_INDEX` (`updated`),
   CONSTRAINT `jobs_ibfk_1` FOREIGN KEY (`id`) REFERENCES `job_requests` (`id`) ON DELETE CASCADE,
   CONSTRAINT `jobs_ibfk_2` FOREIGN KEY (`cluster_id`) REFERENCES `clusters` (`id`),
   CONSTRAINT `jobs_ibfk_3` FOREIGN KEY (`command_id`) REFERENCES `commands` (`id`)
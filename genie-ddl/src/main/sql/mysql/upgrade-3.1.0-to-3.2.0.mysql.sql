@@ -0,0 +1,10 @@
+BEGIN;
+SELECT CURRENT_TIMESTAMP AS '', 'Upgrading from 3.1.0 schema to 3.2.0 schema' AS '';
+
+SELECT CURRENT_TIMESTAMP AS '', 'Upgrading jobs table' AS '';
+
+ALTER TABLE `jobs`
+  ADD INDEX `JOBS_UPDATED_INDEX` (`updated`);
+
+SELECT CURRENT_TIMESTAMP AS '', 'Finished upgrading from 3.1.0 schema to 3.2.0 schema' AS '';
+COMMIT;
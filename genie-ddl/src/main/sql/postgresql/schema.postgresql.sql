@@ -463,6 +463,13 @@ CREATE INDEX jobs_status_index ON jobs USING btree (status);
 CREATE INDEX jobs_tags_index ON jobs USING btree (tags);
 
 
+--
+-- Name: jobs_updated_index; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX jobs_updated_index ON jobs USING btree (updated);
+
+
 --
 -- Name: jobs_user_index; Type: INDEX; Schema: public; Owner: -
 --
@@ -0,0 +1,9 @@
+BEGIN;
+SELECT CURRENT_TIMESTAMP, 'Upgrading from 3.1.0 schema to 3.2.0 schema';
+
+SELECT CURRENT_TIMESTAMP, 'Upgrading jobs table';
+
+CREATE INDEX jobs_updated_index ON jobs USING btree (updated);
+
+SELECT CURRENT_TIMESTAMP, 'Finished upgrading from 3.1.0 schema to 3.2.0 schema';
+COMMIT;
@@ -28,18 +28,25 @@ import com.netflix.genie.core.jobs.workflow.impl.JobKickoffTask;
 import com.netflix.genie.core.jobs.workflow.impl.JobTask;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.core.services.AttachmentService;
+import com.netflix.genie.core.services.PrivilegedOperationService;
+import com.netflix.genie.core.services.ProcessLauncherService;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import com.netflix.genie.core.services.impl.LocalFileTransferImpl;
 import com.netflix.genie.web.services.impl.HttpFileTransferImpl;
 import com.netflix.spectator.api.Registry;
-import org.apache.commons.exec.Executor;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Configuration for Jobs Setup and Run.
  *
@@ -59,6 +66,39 @@ public class JobConfig {
         return new LocalFileTransferImpl();
     }
 
+    /**
+     * Get the RestTemplate used to download files over http[s]. Backed by a pool of keep-alive connections so that
+     * repeated downloads and conditional checks of files on the same hosts don't pay for a new connection each time.
+     *
+     * @param maxConnections         The maximum number of pooled connections across all hosts
+     * @param maxConnectionsPerRoute The maximum number of pooled connections to a single host
+     * @param httpConnectTimeout     http connection timeout in milliseconds
+     * @param httpReadTimeout        http read timeout in milliseconds
+     * @return The rest template to use
+     */
+    @Bean(name = "genieFileTransferRestTemplate")
+    public RestTemplate fileTransferRestTemplate(
+        @Value("${genie.http.fileTransfer.maxConnections:200}") final int maxConnections,
+        @Value("${genie.http.fileTransfer.maxConnectionsPerRoute:20}") final int maxConnectionsPerRoute,
+        @Value("${genie.http.connect.timeout:2000}") final int httpConnectTimeout,
+        @Value("${genie.http.read.timeout:10000}") final int httpReadTimeout
+    ) {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        final HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(
+            HttpClients
+                .custom()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(1L, TimeUnit.MINUTES)
+                .build()
+        );
+        factory.setConnectTimeout(httpConnectTimeout);
+        factory.setReadTimeout(httpReadTimeout);
+        return new RestTemplate(factory);
+    }
+
     /**
      * Bean to create a http[s] file transfer object.
      *
@@ -68,7 +108,10 @@ public class JobConfig {
      */
     @Bean(name = {"file.system.http", "file.system.https"})
     @Order(value = 3)
-    public HttpFileTransferImpl httpFileTransfer(final RestTemplate restTemplate, final Registry registry) {
+    public HttpFileTransferImpl httpFileTransfer(
+        @Qualifier("genieFileTransferRestTemplate") final RestTemplate restTemplate,
+        final Registry registry
+    ) {
         return new HttpFileTransferImpl(restTemplate, registry);
     }
 
@@ -169,10 +212,11 @@ public class JobConfig {
     /**
      * Create an Job Kickoff Task bean that runs the job.
      *
-     * @param jobsProperties The various jobs properties
-     * @param executor       An instance of an executor
-     * @param hostName       Host on which the job will run
-     * @param registry       The metrics registry to use
+     * @param jobsProperties             The various jobs properties
+     * @param privilegedOperationService The service to use to create users and change directory ownership
+     * @param processLauncherService     The service to use to launch the processes of jobs
+     * @param hostName                   Host on which the job will run
+     * @param registry                   The metrics registry to use
      * @return An application task object
      */
     @Bean
@@ -180,14 +224,18 @@ public class JobConfig {
     @Autowired
     public WorkflowTask jobKickoffTask(
         final JobsProperties jobsProperties,
-        final Executor executor,
+        @Qualifier("jobKickoffPrivilegedOperationService")
+        final PrivilegedOperationService privilegedOperationService,
+        final ProcessLauncherService processLauncherService,
         final String hostName,
         final Registry registry
     ) {
         return new JobKickoffTask(
             jobsProperties.getUsers().isRunAsUserEnabled(),
             jobsProperties.getUsers().isCreationEnabled(),
-            executor,
+            jobsProperties.getUsers().isDirectOwnershipChangeEnabled(),
+            privilegedOperationService,
+            processLauncherService,
             hostName,
             registry
         );
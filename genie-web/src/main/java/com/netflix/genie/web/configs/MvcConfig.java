@@ -19,6 +19,7 @@ package com.netflix.genie.web.configs;
 
 import com.google.common.collect.Lists;
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.services.ArchivedJobService;
 import com.netflix.genie.web.resources.handlers.GenieResourceHttpRequestHandler;
 import com.netflix.genie.web.resources.writers.DefaultDirectoryWriter;
 import com.netflix.genie.web.resources.writers.DirectoryWriter;
@@ -186,9 +187,10 @@ public class MvcConfig extends WebMvcConfigurerAdapter {
     /**
      * Get a static resource handler for Genie Jobs.
      *
-     * @param directoryWriter The directory writer to use for converting directory resources
-     * @param context         The spring application context
-     * @param jobsDir         The location the user is requesting the jobs be stored
+     * @param directoryWriter    The directory writer to use for converting directory resources
+     * @param context            The spring application context
+     * @param jobsDir            The location the user is requesting the jobs be stored
+     * @param archivedJobService The service to serve the output of jobs which aren't on this node from their archives
      * @return The genie resource http request handler.
      */
     @Bean
@@ -196,9 +198,11 @@ public class MvcConfig extends WebMvcConfigurerAdapter {
     public GenieResourceHttpRequestHandler genieResourceHttpRequestHandler(
         final DirectoryWriter directoryWriter,
         final ApplicationContext context,
-        final Resource jobsDir
+        final Resource jobsDir,
+        final ArchivedJobService archivedJobService
     ) {
-        final GenieResourceHttpRequestHandler handler = new GenieResourceHttpRequestHandler(directoryWriter);
+        final GenieResourceHttpRequestHandler handler
+            = new GenieResourceHttpRequestHandler(directoryWriter, archivedJobService);
         handler.setApplicationContext(context);
         handler.setLocations(Lists.newArrayList(jobsDir));
 
@@ -20,6 +20,7 @@ package com.netflix.genie.web.configs;
 import com.netflix.genie.core.properties.DataServiceRetryProperties;
 import com.netflix.genie.core.properties.HealthProperties;
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.properties.MailOutboxProperties;
 import com.netflix.genie.core.properties.S3FileTransferProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -67,6 +68,17 @@ public class PropertiesConfig {
         return new HealthProperties();
     }
 
+    /**
+     * All the properties related to the outbox emails are queued in.
+     *
+     * @return The mail outbox properties structure
+     */
+    @Bean
+    @ConfigurationProperties("genie.mail.outbox")
+    public MailOutboxProperties mailOutboxProperties() {
+        return new MailOutboxProperties();
+    }
+
     /**
      * All the properties related to configuring S3 file transfer.
      *
@@ -33,8 +33,13 @@ import com.netflix.genie.core.jpa.services.JpaClusterServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaCommandServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaJobPersistenceServiceImpl;
 import com.netflix.genie.core.jpa.services.JpaJobSearchServiceImpl;
+import com.netflix.genie.core.properties.JobsLauncherProperties;
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.properties.JobsSearchProperties;
+import com.netflix.genie.core.properties.JobsUsersPrivilegedHelperProperties;
+import com.netflix.genie.core.properties.MailOutboxProperties;
 import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ArchivedJobService;
 import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.ClusterLoadBalancer;
 import com.netflix.genie.core.services.ClusterService;
@@ -47,18 +52,31 @@ import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.core.services.JobStateService;
 import com.netflix.genie.core.services.JobSubmitterService;
 import com.netflix.genie.core.services.MailService;
+import com.netflix.genie.core.services.PrivilegedOperationService;
+import com.netflix.genie.core.services.ProcessLauncherService;
+import com.netflix.genie.core.services.impl.ArchivedJobServiceImpl;
 import com.netflix.genie.core.services.impl.CacheGenieFileTransferService;
+import com.netflix.genie.core.services.impl.CachingJobSearchServiceImpl;
 import com.netflix.genie.core.services.impl.DefaultMailServiceImpl;
 import com.netflix.genie.core.services.impl.FileSystemAttachmentService;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.core.services.impl.HelperPrivilegedOperationServiceImpl;
+import com.netflix.genie.core.services.impl.HelperProcessLauncherServiceImpl;
+import com.netflix.genie.core.services.impl.IndexedJobSearchServiceImpl;
 import com.netflix.genie.core.services.impl.JobCoordinatorServiceImpl;
+import com.netflix.genie.core.services.impl.JobSearchIndex;
 import com.netflix.genie.core.services.impl.LocalFileTransferImpl;
 import com.netflix.genie.core.services.impl.LocalJobKillServiceImpl;
 import com.netflix.genie.core.services.impl.LocalJobRunner;
 import com.netflix.genie.core.services.impl.MailServiceImpl;
+import com.netflix.genie.core.services.impl.OutboxMailServiceImpl;
+import com.netflix.genie.core.services.impl.ProcessBuilderProcessLauncherServiceImpl;
 import com.netflix.genie.core.services.impl.RandomizedClusterLoadBalancerImpl;
+import com.netflix.genie.core.services.impl.SudoPrivilegedOperationServiceImpl;
 import com.netflix.spectator.api.Registry;
+import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.Executor;
+import org.apache.commons.lang3.SystemUtils;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -67,10 +85,15 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.mail.javamail.JavaMailSender;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Configuration for all the services.
@@ -82,18 +105,33 @@ import java.util.List;
 public class ServicesConfig {
 
     /**
-     * Returns a bean for mail service impl using the Spring Mail.
+     * Returns a bean for mail service impl using the Spring Mail. Queues the emails in an outbox sent by a worker if
+     * the outbox is enabled.
      *
-     * @param javaMailSender An implementation of the JavaMailSender interface.
-     * @param fromAddress    The from email address for the email.
+     * @param javaMailSender       An implementation of the JavaMailSender interface.
+     * @param fromAddress          The from email address for the email.
+     * @param mailOutboxProperties The properties of the mail outbox
+     * @param registry             The metrics registry to use
      * @return An instance of MailService implementation.
+     * @throws IOException If the outbox directory can't be created or read
      */
     @Bean
     @ConditionalOnProperty("spring.mail.host")
     public MailService getJavaMailSenderMailService(
         final JavaMailSender javaMailSender,
-        @Value("${genie.mail.fromAddress}") final String fromAddress
-    ) {
+        @Value("${genie.mail.fromAddress}") final String fromAddress,
+        final MailOutboxProperties mailOutboxProperties,
+        final Registry registry
+    ) throws IOException {
+        if (mailOutboxProperties.isEnabled()) {
+            return new OutboxMailServiceImpl(
+                javaMailSender,
+                fromAddress,
+                new DefaultResourceLoader().getResource(mailOutboxProperties.getLocation()).getFile(),
+                mailOutboxProperties,
+                registry
+            );
+        }
         return new MailServiceImpl(javaMailSender, fromAddress);
     }
 
@@ -156,32 +194,92 @@ public class ServicesConfig {
     }
 
     /**
-     * Get JPA based implementation of the JobSearchService.
+     * Get the embedded index to serve job searches with free text parameters from if enabled.
+     *
+     * @param jobsProperties The jobs properties to use
+     * @return The job search index
+     * @throws IOException If the index can't be opened
+     */
+    @Bean
+    @ConditionalOnProperty("genie.jobs.search.index.enabled")
+    public JobSearchIndex jobSearchIndex(final JobsProperties jobsProperties) throws IOException {
+        return new JobSearchIndex(
+            new DefaultResourceLoader().getResource(jobsProperties.getSearch().getIndex().getLocation()).getFile()
+        );
+    }
+
+    /**
+     * Get JPA based implementation of the JobSearchService. Declared as a bean of its own so its entity manager is
+     * injected and its transactions and validation are applied before any decorator wraps it.
      *
      * @param jobRepository          The repository to use for job entities
      * @param jobRequestRepository   The repository to use for job request entities
      * @param jobExecutionRepository The repository to use for job execution entities
      * @param clusterRepository      The repository to use for cluster entities
      * @param commandRepository      The repository to use for command entities
+     * @param jobsProperties         The jobs properties to use
      * @return A job search service instance.
      */
     @Bean
-    public JobSearchService jobSearchService(
+    public JobSearchService jpaJobSearchService(
         final JpaJobRepository jobRepository,
         final JpaJobRequestRepository jobRequestRepository,
         final JpaJobExecutionRepository jobExecutionRepository,
         final JpaClusterRepository clusterRepository,
-        final JpaCommandRepository commandRepository
+        final JpaCommandRepository commandRepository,
+        final JobsProperties jobsProperties
     ) {
         return new JpaJobSearchServiceImpl(
             jobRepository,
             jobRequestRepository,
             jobExecutionRepository,
             clusterRepository,
-            commandRepository
+            commandRepository,
+            jobsProperties.getSearch().getCountEstimateTtl()
         );
     }
 
+    /**
+     * Get the JobSearchService the rest of the system uses. Searches with free text parameters are served from the
+     * job search index in front of the JPA based implementation if enabled. The pages found by job searches are cached
+     * for a short time in front of that if enabled.
+     *
+     * @param jpaJobSearchService The JPA based implementation to search the database with
+     * @param jobsProperties      The jobs properties to use
+     * @param jobSearchIndex      The job search index if enabled
+     * @param registry            The metrics registry to use
+     * @return A job search service instance.
+     */
+    @Bean
+    @Primary
+    public JobSearchService jobSearchService(
+        @Qualifier("jpaJobSearchService") final JobSearchService jpaJobSearchService,
+        final JobsProperties jobsProperties,
+        final Optional<JobSearchIndex> jobSearchIndex,
+        final Registry registry
+    ) {
+        final JobsSearchProperties searchProperties = jobsProperties.getSearch();
+        JobSearchService jobSearchService = jpaJobSearchService;
+        if (jobSearchIndex.isPresent()) {
+            jobSearchService = new IndexedJobSearchServiceImpl(
+                jobSearchService,
+                jobSearchIndex.get(),
+                searchProperties.getIndex().getMaxLag(),
+                registry
+            );
+        }
+        if (searchProperties.isResultCacheEnabled()) {
+            return new CachingJobSearchServiceImpl(
+                jobSearchService,
+                searchProperties.getResultCacheTtl(),
+                searchProperties.getResultCacheMaxSize(),
+                registry
+            );
+        } else {
+            return jobSearchService;
+        }
+    }
+
     /**
      * Get JPA based implementation of the JobPersistenceService.
      *
@@ -220,11 +318,13 @@ public class ServicesConfig {
      *
      * @param hostName         The name of the host this Genie node is running on.
      * @param jobSearchService The job search service to use to locate job information.
-     * @param executor         The executor to use to run system processes.
-     * @param jobsProperties   The jobs properties to use
-     * @param genieEventBus    The application event bus to use to publish system wide events
-     * @param genieWorkingDir  Working directory for genie where it creates jobs directories.
-     * @param objectMapper     The Jackson ObjectMapper used to serialize from/to JSON
+     * @param executor                   The executor to use to run system processes.
+     * @param privilegedOperationService The service to use to kill jobs run as the user who submitted them. The one
+     *                                   kept for the short operations jobs wait for.
+     * @param jobsProperties             The jobs properties to use
+     * @param genieEventBus              The application event bus to use to publish system wide events
+     * @param genieWorkingDir            Working directory for genie where it creates jobs directories.
+     * @param objectMapper               The Jackson ObjectMapper used to serialize from/to JSON
      * @return A job kill service instance.
      */
     @Bean
@@ -232,6 +332,8 @@ public class ServicesConfig {
         final String hostName,
         final JobSearchService jobSearchService,
         final Executor executor,
+        @Qualifier("jobKickoffPrivilegedOperationService")
+        final PrivilegedOperationService privilegedOperationService,
         final JobsProperties jobsProperties,
         final GenieEventBus genieEventBus,
         @Qualifier("jobsDir") final Resource genieWorkingDir,
@@ -241,6 +343,7 @@ public class ServicesConfig {
             hostName,
             jobSearchService,
             executor,
+            privilegedOperationService,
             jobsProperties.getUsers().isRunAsUserEnabled(),
             genieEventBus,
             genieWorkingDir,
@@ -248,6 +351,83 @@ public class ServicesConfig {
         );
     }
 
+    /**
+     * Get the service to execute the operations which need elevated rights when jobs are run as the user who
+     * submitted them. Uses a pool of persistent helper processes if enabled. Forks a sudo process per operation
+     * otherwise. Meant for the operations which may take long, i.e. deleting and archiving job directories.
+     *
+     * @param jobsProperties The jobs properties to use
+     * @param executor       The executor to use to run system processes
+     * @param registry       The metrics registry to use
+     * @return The privileged operation service
+     * @throws IOException If the helper processes can't be started
+     */
+    @Bean
+    @Primary
+    public PrivilegedOperationService privilegedOperationService(
+        final JobsProperties jobsProperties,
+        final Executor executor,
+        final Registry registry
+    ) throws IOException {
+        final JobsUsersPrivilegedHelperProperties helperProperties = jobsProperties.getUsers().getPrivilegedHelper();
+        return this.newPrivilegedOperationService(
+            helperProperties,
+            "default",
+            helperProperties.getPoolSize(),
+            executor,
+            registry
+        );
+    }
+
+    /**
+     * Get the service to execute the short operations which need elevated rights and which jobs wait for, i.e.
+     * creating users, changing ownership and killing jobs. Has helper processes of its own so these never wait behind
+     * a long delete or archive.
+     *
+     * @param jobsProperties The jobs properties to use
+     * @param executor       The executor to use to run system processes
+     * @param registry       The metrics registry to use
+     * @return The privileged operation service
+     * @throws IOException If the helper processes can't be started
+     */
+    @Bean
+    public PrivilegedOperationService jobKickoffPrivilegedOperationService(
+        final JobsProperties jobsProperties,
+        final Executor executor,
+        final Registry registry
+    ) throws IOException {
+        final JobsUsersPrivilegedHelperProperties helperProperties = jobsProperties.getUsers().getPrivilegedHelper();
+        return this.newPrivilegedOperationService(
+            helperProperties,
+            "kickoff",
+            helperProperties.getKickoffPoolSize(),
+            executor,
+            registry
+        );
+    }
+
+    /**
+     * Get the service to launch the processes of jobs. Uses a pool of pre-spawned launcher processes if enabled and
+     * supported by the operating system. Forks every process from the Genie JVM otherwise.
+     *
+     * @param jobsProperties The jobs properties to use
+     * @param registry       The metrics registry to use
+     * @return The process launcher service
+     * @throws IOException If the launcher processes can't be started
+     */
+    @Bean
+    public ProcessLauncherService processLauncherService(
+        final JobsProperties jobsProperties,
+        final Registry registry
+    ) throws IOException {
+        final JobsLauncherProperties launcherProperties = jobsProperties.getLauncher();
+        if (launcherProperties.isHelperEnabled() && SystemUtils.IS_OS_UNIX) {
+            return new HelperProcessLauncherServiceImpl(launcherProperties.getHelperPoolSize(), registry);
+        } else {
+            return new ProcessBuilderProcessLauncherServiceImpl();
+        }
+    }
+
     /**
      * Get a Randomized Cluster load balancer.
      *
@@ -278,18 +458,46 @@ public class ServicesConfig {
      * @param fileTransferFactory file transfer implementation factory
      * @param baseCacheLocation   file cache location
      * @param localFileTransfer   local file transfer service
+     * @param revalidateInterval  how long, in milliseconds, to use a cached file without checking if it changed
      * @param registry            Registry
-     * @return A singleton for GenieFileTransferService
+     * @return A singleton for CacheGenieFileTransferService
      * @throws GenieException If there is any problem
      */
     @Bean
-    public GenieFileTransferService cacheGenieFileTransferService(
+    public CacheGenieFileTransferService cacheGenieFileTransferService(
         final FileTransferFactory fileTransferFactory,
         @Value("${genie.file.cache.location}") final String baseCacheLocation,
         final LocalFileTransferImpl localFileTransfer,
+        @Value("${genie.file.cache.revalidateInterval}") final long revalidateInterval,
         final Registry registry
     ) throws GenieException {
-        return new CacheGenieFileTransferService(fileTransferFactory, baseCacheLocation, localFileTransfer, registry);
+        return new CacheGenieFileTransferService(
+            fileTransferFactory,
+            baseCacheLocation,
+            localFileTransfer,
+            revalidateInterval,
+            registry
+        );
+    }
+
+    /**
+     * Get an instance of the service which reads the output of finished jobs out of their archives.
+     *
+     * @param jobSearchService         The job search service to use
+     * @param genieFileTransferService The file transfer service to read the archives with
+     * @param jobsProperties           The properties relating to jobs
+     * @param registry                 The metrics registry to use
+     * @return An instance of the ArchivedJobService
+     * @throws GenieException If there is any problem
+     */
+    @Bean
+    public ArchivedJobService archivedJobService(
+        final JobSearchService jobSearchService,
+        @Qualifier("genieFileTransferService") final GenieFileTransferService genieFileTransferService,
+        final JobsProperties jobsProperties,
+        final Registry registry
+    ) throws GenieException {
+        return new ArchivedJobServiceImpl(jobSearchService, genieFileTransferService, jobsProperties, registry);
     }
 
     /**
@@ -389,4 +597,24 @@ public class ServicesConfig {
         factoryBean.setServiceLocatorInterface(FileTransferFactory.class);
         return factoryBean;
     }
+
+    private PrivilegedOperationService newPrivilegedOperationService(
+        final JobsUsersPrivilegedHelperProperties helperProperties,
+        final String poolName,
+        final int poolSize,
+        final Executor executor,
+        final Registry registry
+    ) throws IOException {
+        if (helperProperties.isEnabled()) {
+            return new HelperPrivilegedOperationServiceImpl(
+                Arrays.asList(CommandLine.parse(helperProperties.getCommand()).toStrings()),
+                helperProperties,
+                poolName,
+                poolSize,
+                registry
+            );
+        } else {
+            return new SudoPrivilegedOperationServiceImpl(executor);
+        }
+    }
 }
@@ -18,20 +18,32 @@
 package com.netflix.genie.web.controllers;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.genie.common.dto.JobMetadata;
 import com.netflix.genie.common.dto.JobRequest;
+import com.netflix.genie.common.dto.JobResourceUsage;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.JobStatusMessages;
 import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GeniePreconditionException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.exceptions.GenieTimeoutException;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.properties.JobsSearchProperties;
 import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.JobCoordinatorService;
+import com.netflix.genie.core.services.JobResourceUsageService;
+import com.netflix.genie.core.services.JobSearchCursor;
+import com.netflix.genie.core.services.JobSearchCursorPage;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.web.hateoas.assemblers.ApplicationResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.ClusterResourceAssembler;
@@ -47,20 +59,24 @@ import com.netflix.genie.web.hateoas.resources.JobExecutionResource;
 import com.netflix.genie.web.hateoas.resources.JobRequestResource;
 import com.netflix.genie.web.hateoas.resources.JobResource;
 import com.netflix.genie.web.hateoas.resources.JobSearchResultResource;
+import com.netflix.genie.web.properties.JobStatusWatchProperties;
 import com.netflix.genie.web.resources.handlers.GenieResourceHttpRequestHandler;
+import com.netflix.genie.web.tasks.job.JobStatusWatcher;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
-import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resources;
 import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -80,27 +96,51 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpMessageConverterExtractor;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.PreDestroy;
 import javax.servlet.ServletException;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -120,9 +160,12 @@ public class JobRestController {
     private static final String JOB_API_TEMPLATE = "/api/v3/jobs/{id}";
     private static final String EMPTY_STRING = "";
     private static final String COMMA = ",";
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final long EXPORT_POLL_INTERVAL = 100L;
 
     private final JobCoordinatorService jobCoordinatorService;
     private final JobSearchService jobSearchService;
+    private final JobResourceUsageService jobResourceUsageService;
     private final AttachmentService attachmentService;
     private final ApplicationResourceAssembler applicationResourceAssembler;
     private final ClusterResourceAssembler clusterResourceAssembler;
@@ -135,6 +178,16 @@ public class JobRestController {
     private final RestTemplate restTemplate;
     private final GenieResourceHttpRequestHandler resourceHttpRequestHandler;
     private final JobsProperties jobsProperties;
+    private final JobStatusWatcher jobStatusWatcher;
+    private final JobStatusWatchProperties jobStatusWatchProperties;
+    private final ObjectWriter exportWriter;
+    private final ObjectWriter exportErrorWriter;
+    // Reads the exported jobs from the database so a slow client never holds the database connection for long
+    private final ExecutorService exportExecutor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("genie-job-export-%d").setDaemon(true).build()
+    );
+    // Bounds the number of database connections held by exports. Given back once the export stopped reading.
+    private final Semaphore exportPermits;
 
     // Metrics
     private final Counter submitJobWithoutAttachmentsRate;
@@ -145,6 +198,7 @@ public class JobRestController {
      *
      * @param jobCoordinatorService            The job coordinator service to use.
      * @param jobSearchService                 The search service to use
+     * @param jobResourceUsageService          The service to get the resource usage of jobs on this node from
      * @param attachmentService                The attachment service to use to save attachments.
      * @param applicationResourceAssembler     Assemble application resources out of applications
      * @param clusterResourceAssembler         Assemble cluster resources out of applications
@@ -158,12 +212,17 @@ public class JobRestController {
      * @param resourceHttpRequestHandler       The handler to return requests for static resources on the
      *                                         Genie File System.
      * @param jobsProperties                   All the properties associated with jobs
+     * @param jobStatusWatcher                 The watcher to wait for the status of jobs to change with
+     * @param jobStatusWatchProperties         The properties of the requests waiting for the status of jobs
+     * @param objectMapper                     The mapper of the REST API to write exported jobs with
      * @param registry                         The metrics registry to use
      */
     @Autowired
+    @SuppressWarnings("checkstyle:parameternumber")
     public JobRestController(
         final JobCoordinatorService jobCoordinatorService,
         final JobSearchService jobSearchService,
+        final JobResourceUsageService jobResourceUsageService,
         final AttachmentService attachmentService,
         final ApplicationResourceAssembler applicationResourceAssembler,
         final ClusterResourceAssembler clusterResourceAssembler,
@@ -176,10 +235,14 @@ public class JobRestController {
         @Qualifier("genieRestTemplate") final RestTemplate restTemplate,
         final GenieResourceHttpRequestHandler resourceHttpRequestHandler,
         final JobsProperties jobsProperties,
+        final JobStatusWatcher jobStatusWatcher,
+        final JobStatusWatchProperties jobStatusWatchProperties,
+        final ObjectMapper objectMapper,
         final Registry registry
     ) {
         this.jobCoordinatorService = jobCoordinatorService;
         this.jobSearchService = jobSearchService;
+        this.jobResourceUsageService = jobResourceUsageService;
         this.attachmentService = attachmentService;
         this.applicationResourceAssembler = applicationResourceAssembler;
         this.clusterResourceAssembler = clusterResourceAssembler;
@@ -192,6 +255,11 @@ public class JobRestController {
         this.restTemplate = restTemplate;
         this.resourceHttpRequestHandler = resourceHttpRequestHandler;
         this.jobsProperties = jobsProperties;
+        this.jobStatusWatcher = jobStatusWatcher;
+        this.jobStatusWatchProperties = jobStatusWatchProperties;
+        this.exportWriter = objectMapper.writerFor(JobSearchResult.class);
+        this.exportErrorWriter = objectMapper.writer();
+        this.exportPermits = new Semaphore(jobsProperties.getSearch().getExportMaxConcurrent());
 
         // Set up the metrics
         this.submitJobWithoutAttachmentsRate = registry.counter("genie.api.v3.jobs.submitJobWithoutAttachments.rate");
@@ -364,10 +432,109 @@ public class JobRestController {
     public JsonNode getJobStatus(
         @PathVariable("id") final String id) throws GenieException {
         log.debug("[getJobStatus] Called for job with id: {}", id);
-        final JsonNodeFactory factory = JsonNodeFactory.instance;
-        return factory
-            .objectNode()
-            .set("status", factory.textNode(this.jobSearchService.getJobStatus(id).toString()));
+        return toStatusNode(this.jobSearchService.getJobStatus(id));
+    }
+
+    /**
+     * Get the statuses of many jobs with a single request.
+     *
+     * @param ids The ids of the jobs
+     * @return The statuses keyed by job id. Ids of jobs which don't exist are missing.
+     * @throws GenieException If too many ids were sent
+     */
+    @PostMapping(
+        value = "/statuses",
+        consumes = MediaType.APPLICATION_JSON_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public JsonNode getJobStatuses(@RequestBody final Set<String> ids) throws GenieException {
+        log.debug("[getJobStatuses] Called for {} jobs", ids.size());
+        final int maxStatusIds = this.jobsProperties.getSearch().getMaxStatusIds();
+        if (ids.size() > maxStatusIds) {
+            throw new GeniePreconditionException(
+                "Can't get the statuses of more than " + maxStatusIds + " jobs at once. Got " + ids.size()
+            );
+        }
+        final ObjectNode statuses = JsonNodeFactory.instance.objectNode();
+        this.jobSearchService
+            .getJobStatuses(ids)
+            .forEach((id, status) -> statuses.put(id, status.toString()));
+        return statuses;
+    }
+
+    /**
+     * Wait for the status of a job to change from the given one. The request is answered as soon as the status is
+     * different or with the current status once the wait time is over. No request thread is held while waiting.
+     *
+     * @param id          id for job
+     * @param knownStatus The status of the job the caller knows about
+     * @param waitTime    The maximum time to wait for in milliseconds. Capped by the server.
+     * @return The status of the job as one of: {@link JobStatus}
+     * @throws GenieException on error
+     */
+    @GetMapping(value = "/{id}/status", produces = MediaType.APPLICATION_JSON_VALUE, params = "waitForChange")
+    public DeferredResult<JsonNode> waitForJobStatusChange(
+        @PathVariable("id") final String id,
+        @RequestParam("waitForChange") final String knownStatus,
+        @RequestParam(value = "waitTime", required = false) final Long waitTime
+    ) throws GenieException {
+        log.debug("[waitForJobStatusChange] Called for job with id {} and status {}", id, knownStatus);
+        final JobStatus known = JobStatus.parse(knownStatus);
+        final DeferredResult<JsonNode> result = new DeferredResult<>(this.getWaitTime(waitTime));
+
+        final JobStatus current = this.jobSearchService.getJobStatus(id);
+        if (current != known || current.isFinished()) {
+            result.setResult(toStatusNode(current));
+            return result;
+        }
+
+        final Runnable stopWatching = this.jobStatusWatcher.watch(
+            id,
+            known,
+            status -> result.setResult(toStatusNode(status))
+        );
+        result.onCompletion(stopWatching);
+        result.onTimeout(
+            () -> {
+                try {
+                    result.setResult(toStatusNode(this.jobSearchService.getJobStatus(id)));
+                } catch (final GenieException ge) {
+                    result.setErrorResult(ge);
+                }
+            }
+        );
+        return result;
+    }
+
+    /**
+     * Stream the status of a job as server sent events. The current status is sent right away and every change after
+     * that until the job finished or the wait time is over. No request thread is held while waiting.
+     *
+     * @param id       id for job
+     * @param waitTime The maximum time to keep the stream open for in milliseconds. Capped by the server.
+     * @return The emitter of the status events
+     * @throws GenieException on error
+     * @throws IOException    If the first event can't be sent
+     */
+    @GetMapping(value = "/{id}/status", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobStatus(
+        @PathVariable("id") final String id,
+        @RequestParam(value = "waitTime", required = false) final Long waitTime
+    ) throws GenieException, IOException {
+        log.debug("[streamJobStatus] Called for job with id {}", id);
+        final SseEmitter emitter = new SseEmitter(this.getWaitTime(waitTime));
+        final JobStatus current = this.jobSearchService.getJobStatus(id);
+        emitter.send(toStatusEvent(current));
+        if (current.isFinished()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        final AtomicReference<Runnable> stopWatching = new AtomicReference<>();
+        this.watchJobStatus(id, current, emitter, stopWatching);
+        emitter.onCompletion(() -> stopWatching.get().run());
+        emitter.onTimeout(() -> stopWatching.get().run());
+        return emitter;
     }
 
     /**
@@ -386,6 +553,9 @@ public class JobRestController {
      * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
      * @param minFinished The time which the job had to finish after in order to be return (inclusive)
      * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param count       How the total number of jobs is found. One of exact (the default), estimate, which reuses a
+     *                    recent count, or none, which leaves out the page totals and only links to the next and
+     *                    previous pages if there are any.
      * @param page        page information for job
      * @param assembler   The paged resources assembler to use
      * @return successful response, or one with HTTP error code
@@ -393,7 +563,8 @@ public class JobRestController {
      */
     @GetMapping(produces = MediaTypes.HAL_JSON_VALUE)
     @ResponseStatus(HttpStatus.OK)
-    public PagedResources<JobSearchResultResource> findJobs(
+    @SuppressWarnings("checkstyle:parameternumber")
+    public Resources<JobSearchResultResource> findJobs(
         @RequestParam(value = "id", required = false) final String id,
         @RequestParam(value = "name", required = false) final String name,
         @RequestParam(value = "user", required = false) final String user,
@@ -407,16 +578,17 @@ public class JobRestController {
         @RequestParam(value = "maxStarted", required = false) final Long maxStarted,
         @RequestParam(value = "minFinished", required = false) final Long minFinished,
         @RequestParam(value = "maxFinished", required = false) final Long maxFinished,
+        @RequestParam(value = "count", required = false, defaultValue = "exact") final String count,
         @PageableDefault(sort = {"created"}, direction = Sort.Direction.DESC) final Pageable page,
         final PagedResourcesAssembler<JobSearchResult> assembler
     ) throws GenieException {
         log.info(
             "[getJobs] Called with "
                 + "[id | jobName | user | statuses | clusterName "
-                + "| clusterId | minStarted | maxStarted | minFinished | maxFinished | page]"
+                + "| clusterId | minStarted | maxStarted | minFinished | maxFinished | count | page]"
         );
         log.info(
-            "{} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {}",
+            "{} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {} | {}",
             id,
             name,
             user,
@@ -430,17 +602,16 @@ public class JobRestController {
             maxStarted,
             minFinished,
             maxFinished,
+            count,
             page
         );
 
-        Set<JobStatus> enumStatuses = null;
-        if (statuses != null && !statuses.isEmpty()) {
-            enumStatuses = EnumSet.noneOf(JobStatus.class);
-            for (final String status : statuses) {
-                if (StringUtils.isNotBlank(status)) {
-                    enumStatuses.add(JobStatus.parse(status));
-                }
-            }
+        final Set<JobStatus> enumStatuses = this.parseStatuses(statuses);
+        final JobSearchService.CountMode countMode;
+        try {
+            countMode = JobSearchService.CountMode.valueOf(count.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException iae) {
+            throw new GeniePreconditionException("Invalid count " + count + ". Expected exact, estimate or none.");
         }
 
         // Build the self link which will be used for the next, previous, etc links
@@ -462,33 +633,344 @@ public class JobRestController {
                         maxStarted,
                         minFinished,
                         maxFinished,
+                        count,
                         page,
                         assembler
                     )
             ).withSelfRel();
 
-        return assembler.toResource(
-            this.jobSearchService.findJobs(
-                id,
-                name,
-                user,
-                enumStatuses,
-                tags,
-                clusterName,
-                clusterId,
-                commandName,
-                commandId,
-                minStarted == null ? null : new Date(minStarted),
-                maxStarted == null ? null : new Date(maxStarted),
-                minFinished == null ? null : new Date(minFinished),
-                maxFinished == null ? null : new Date(maxFinished),
-                page
-            ),
-            this.jobSearchResultResourceAssembler,
-            self
+        final Slice<JobSearchResult> jobs = this.jobSearchService.findJobs(
+            id,
+            name,
+            user,
+            enumStatuses,
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted == null ? null : new Date(minStarted),
+            maxStarted == null ? null : new Date(maxStarted),
+            minFinished == null ? null : new Date(minFinished),
+            maxFinished == null ? null : new Date(maxFinished),
+            page,
+            countMode
+        );
+        if (jobs instanceof Page) {
+            return assembler.toResource((Page<JobSearchResult>) jobs, this.jobSearchResultResourceAssembler, self);
+        }
+
+        // The jobs weren't counted so there are no totals to tell, only whether there are pages around this one
+        final Link expandedSelf = self.expand();
+        final List<Link> links = new ArrayList<>();
+        links.add(withPage(expandedSelf, page, Link.REL_SELF));
+        if (jobs.hasNext()) {
+            links.add(withPage(expandedSelf, jobs.nextPageable(), Link.REL_NEXT));
+        }
+        if (jobs.hasPrevious()) {
+            links.add(withPage(expandedSelf, jobs.previousPageable(), Link.REL_PREVIOUS));
+        }
+        return new Resources<>(
+            jobs
+                .getContent()
+                .stream()
+                .map(this.jobSearchResultResourceAssembler::toResource)
+                .collect(Collectors.toList()),
+            links
         );
     }
 
+    /**
+     * Get jobs for given filter criteria one page at a time using a cursor instead of a page number. The jobs are
+     * sorted by creation time, newest first, regardless of the requested sort. An empty cursor gets the first page.
+     * The next and previous links of the response carry the cursors to the pages around it. Page sizes above the
+     * configured maximum are reduced to it.
+     *
+     * @param id          id for job
+     * @param name        name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user        user who submitted job
+     * @param statuses    statuses of jobs to find
+     * @param tags        tags for the job
+     * @param clusterName the name of the cluster
+     * @param clusterId   the id of the cluster
+     * @param commandName the name of the command run by the job
+     * @param commandId   the id of the command run by the job
+     * @param minStarted  The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param cursor      The opaque cursor from the next or previous link of a previous response. Empty for the first
+     *                    page.
+     * @param page        page information for job. Only the size is used.
+     * @return successful response, or one with HTTP error code
+     * @throws GenieException For any error
+     */
+    @GetMapping(produces = MediaTypes.HAL_JSON_VALUE, params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public Resources<JobSearchResultResource> findJobsByCursor(
+        @RequestParam(value = "id", required = false) final String id,
+        @RequestParam(value = "name", required = false) final String name,
+        @RequestParam(value = "user", required = false) final String user,
+        @RequestParam(value = "status", required = false) final Set<String> statuses,
+        @RequestParam(value = "tag", required = false) final Set<String> tags,
+        @RequestParam(value = "clusterName", required = false) final String clusterName,
+        @RequestParam(value = "clusterId", required = false) final String clusterId,
+        @RequestParam(value = "commandName", required = false) final String commandName,
+        @RequestParam(value = "commandId", required = false) final String commandId,
+        @RequestParam(value = "minStarted", required = false) final Long minStarted,
+        @RequestParam(value = "maxStarted", required = false) final Long maxStarted,
+        @RequestParam(value = "minFinished", required = false) final Long minFinished,
+        @RequestParam(value = "maxFinished", required = false) final Long maxFinished,
+        @RequestParam(value = "cursor") final String cursor,
+        @PageableDefault(sort = {"created"}, direction = Sort.Direction.DESC) final Pageable page
+    ) throws GenieException {
+        log.debug("[findJobsByCursor] Called with cursor {} and page size {}", cursor, page.getPageSize());
+        final int pageSize = Math.min(page.getPageSize(), this.jobsProperties.getSearch().getMaxCursorPageSize());
+
+        final JobSearchCursorPage results = this.jobSearchService.findJobsByCursor(
+            id,
+            name,
+            user,
+            this.parseStatuses(statuses),
+            tags,
+            clusterName,
+            clusterId,
+            commandName,
+            commandId,
+            minStarted == null ? null : new Date(minStarted),
+            maxStarted == null ? null : new Date(maxStarted),
+            minFinished == null ? null : new Date(minFinished),
+            maxFinished == null ? null : new Date(maxFinished),
+            StringUtils.isBlank(cursor) ? null : JobSearchCursor.decode(cursor),
+            pageSize
+        );
+
+        final Link self = ControllerLinkBuilder
+            .linkTo(
+                ControllerLinkBuilder
+                    .methodOn(JobRestController.class)
+                    .findJobsByCursor(
+                        id,
+                        name,
+                        user,
+                        statuses,
+                        tags,
+                        clusterName,
+                        clusterId,
+                        commandName,
+                        commandId,
+                        minStarted,
+                        maxStarted,
+                        minFinished,
+                        maxFinished,
+                        cursor,
+                        page
+                    )
+            ).withSelfRel()
+            .expand();
+        final List<Link> links = new ArrayList<>();
+        links.add(self);
+        results
+            .getNext()
+            .ifPresent(next -> links.add(withCursor(self, next, Link.REL_NEXT)));
+        results
+            .getPrevious()
+            .ifPresent(previous -> links.add(withCursor(self, previous, Link.REL_PREVIOUS)));
+
+        return new Resources<>(
+            results
+                .getContent()
+                .stream()
+                .map(this.jobSearchResultResourceAssembler::toResource)
+                .collect(Collectors.toList()),
+            links
+        );
+    }
+
+    /**
+     * Export all the jobs which match the given filter criteria as newline delimited JSON. The jobs are written to the
+     * response while they're read from the database, in no particular order, so neither the memory used nor the time
+     * to the first job grow with the number of jobs found.
+     * <p>
+     * The jobs are read from the database on a thread of their own and handed over to the request thread through a
+     * buffer of one fetch. An export which would return more than the maximum number of jobs or take longer than the
+     * maximum time is aborted, as is one whose client doesn't take the jobs written to it for longer than the write
+     * timeout, so the database is never held by a slow client. The response is already committed by then so the
+     * export ends with a {@code {"error":"<reason>"}} line instead of a job to tell the client it's incomplete.
+     * <p>
+     * Only so many exports run at once as each holds a database connection. Further ones are rejected with a 503.
+     *
+     * @param id          id for job
+     * @param name        name of job (can be a SQL-style pattern such as HIVE%)
+     * @param user        user who submitted job
+     * @param statuses    statuses of jobs to find
+     * @param tags        tags for the job
+     * @param clusterName the name of the cluster
+     * @param clusterId   the id of the cluster
+     * @param commandName the name of the command run by the job
+     * @param commandId   the id of the command run by the job
+     * @param minStarted  The time which the job had to start after in order to be return (inclusive)
+     * @param maxStarted  The time which the job had to start before in order to be returned (exclusive)
+     * @param minFinished The time which the job had to finish after in order to be return (inclusive)
+     * @param maxFinished The time which the job had to finish before in order to be returned (exclusive)
+     * @param response    The servlet response to write the jobs to
+     * @throws GenieException For any error
+     * @throws IOException    If the jobs can't be written to the response
+     */
+    @GetMapping(value = "/export", produces = NDJSON_MEDIA_TYPE)
+    public void exportJobs(
+        @RequestParam(value = "id", required = false) final String id,
+        @RequestParam(value = "name", required = false) final String name,
+        @RequestParam(value = "user", required = false) final String user,
+        @RequestParam(value = "status", required = false) final Set<String> statuses,
+        @RequestParam(value = "tag", required = false) final Set<String> tags,
+        @RequestParam(value = "clusterName", required = false) final String clusterName,
+        @RequestParam(value = "clusterId", required = false) final String clusterId,
+        @RequestParam(value = "commandName", required = false) final String commandName,
+        @RequestParam(value = "commandId", required = false) final String commandId,
+        @RequestParam(value = "minStarted", required = false) final Long minStarted,
+        @RequestParam(value = "maxStarted", required = false) final Long maxStarted,
+        @RequestParam(value = "minFinished", required = false) final Long minFinished,
+        @RequestParam(value = "maxFinished", required = false) final Long maxFinished,
+        final HttpServletResponse response
+    ) throws GenieException, IOException {
+        log.info("[exportJobs] Called for user {} and statuses {}", user, statuses);
+        final Set<JobStatus> enumStatuses = this.parseStatuses(statuses);
+        final JobsSearchProperties searchProperties = this.jobsProperties.getSearch();
+        final int fetchSize = searchProperties.getExportFetchSize();
+        final long maxJobs = searchProperties.getExportMaxJobs();
+        final long deadline = System.currentTimeMillis() + searchProperties.getExportTimeout();
+        final long writeTimeout = searchProperties.getExportWriteTimeout();
+
+        if (!this.exportPermits.tryAcquire()) {
+            throw new GenieServerUnavailableException(
+                "Already running the maximum of " + searchProperties.getExportMaxConcurrent() + " exports. Retry later."
+            );
+        }
+        final BlockingQueue<JobSearchResult> jobs = new ArrayBlockingQueue<>(fetchSize);
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final AtomicLong found = new AtomicLong();
+        final Future<Long> export;
+        try {
+            export = this.exportExecutor.submit(
+                () -> {
+                    try {
+                        return this.jobSearchService.exportJobs(
+                            id,
+                            name,
+                            user,
+                            enumStatuses,
+                            tags,
+                            clusterName,
+                            clusterId,
+                            commandName,
+                            commandId,
+                            minStarted == null ? null : new Date(minStarted),
+                            maxStarted == null ? null : new Date(maxStarted),
+                            minFinished == null ? null : new Date(minFinished),
+                            maxFinished == null ? null : new Date(maxFinished),
+                            fetchSize,
+                            job -> {
+                                if (aborted.get()) {
+                                    throw new IllegalStateException("Export aborted by the request");
+                                }
+                                if (found.incrementAndGet() > maxJobs) {
+                                    throw new IllegalStateException("Export found more than " + maxJobs + " jobs");
+                                }
+                                if (System.currentTimeMillis() > deadline) {
+                                    throw new IllegalStateException("Export took longer than the maximum time");
+                                }
+                                try {
+                                    if (!jobs.offer(job, writeTimeout, TimeUnit.MILLISECONDS)) {
+                                        throw new IllegalStateException(
+                                            "Export client took no jobs for " + writeTimeout + "ms"
+                                        );
+                                    }
+                                } catch (final InterruptedException ie) {
+                                    Thread.currentThread().interrupt();
+                                    throw new IllegalStateException("Export interrupted", ie);
+                                }
+                            }
+                        );
+                    } finally {
+                        this.exportPermits.release();
+                    }
+                }
+            );
+        } catch (final RejectedExecutionException ree) {
+            this.exportPermits.release();
+            throw new GenieServerUnavailableException("Not accepting exports while shutting down", ree);
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON_MEDIA_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final OutputStream out = response.getOutputStream();
+        try {
+            while (true) {
+                final JobSearchResult job = jobs.poll(EXPORT_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    this.writeExportedJob(out, job);
+                } else if (export.isDone()) {
+                    // Whatever was handed over before the export ended
+                    JobSearchResult remaining;
+                    while ((remaining = jobs.poll()) != null) {
+                        this.writeExportedJob(out, remaining);
+                    }
+                    break;
+                } else if (System.currentTimeMillis() > deadline + writeTimeout) {
+                    // The database didn't return the next job in time
+                    throw new GenieTimeoutException("Export took longer than the maximum time");
+                }
+            }
+            out.flush();
+            log.info("[exportJobs] Exported {} jobs", export.get());
+        } catch (final GenieTimeoutException gte) {
+            this.writeExportError(out, gte.getMessage());
+            throw gte;
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            this.writeExportError(out, "Interrupted while exporting jobs");
+            throw new GenieServerException("Interrupted while exporting jobs", ie);
+        } catch (final ExecutionException ee) {
+            this.writeExportError(out, ee.getCause().getMessage());
+            throw new GenieServerException("Unable to export jobs", ee.getCause());
+        } finally {
+            // Stop reading from the database if the export is still running. Most likely the client went away.
+            aborted.set(true);
+        }
+    }
+
+    private void writeExportedJob(final OutputStream out, final JobSearchResult job) throws IOException {
+        out.write(this.exportWriter.writeValueAsBytes(job));
+        out.write('\n');
+    }
+
+    /**
+     * End an export which was aborted with an error record the client can tell from a job. Best effort as the client
+     * may be gone.
+     *
+     * @param out    The output stream of the response
+     * @param reason Why the export was aborted
+     */
+    private void writeExportError(final OutputStream out, final String reason) {
+        try {
+            out.write(this.exportErrorWriter.writeValueAsBytes(Collections.singletonMap("error", reason)));
+            out.write('\n');
+            out.flush();
+        } catch (final IOException ioe) {
+            log.debug("Unable to tell the export client the export was aborted", ioe);
+        }
+    }
+
+    /**
+     * Stop reading the jobs of the exports still running.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.exportExecutor.shutdownNow();
+    }
+
     /**
      * Kill job based on given job ID.
      *
@@ -630,6 +1112,104 @@ public class JobRestController {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Get the resources currently used by all the processes of a running job.
+     *
+     * @param id            The id of the job
+     * @param forwardedFrom The host this request was forwarded from if present
+     * @param request       the servlet request
+     * @return The latest resource usage sampled for the job
+     * @throws GenieException If the job isn't running or its usage wasn't sampled yet
+     */
+    @GetMapping(value = "/{id}/resourceUsage", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public JobResourceUsage getJobResourceUsage(
+        @PathVariable("id") final String id,
+        @RequestHeader(name = JobConstants.GENIE_FORWARDED_FROM_HEADER, required = false) final String forwardedFrom,
+        final HttpServletRequest request
+    ) throws GenieException {
+        log.debug("[getJobResourceUsage] Called for job with id: {}", id);
+
+        // The usage is only known on the node running the job
+        if (this.jobsProperties.getForwarding().isEnabled() && forwardedFrom == null) {
+            final String jobHostname = this.jobSearchService.getJobHost(id);
+            if (!this.hostName.equals(jobHostname)) {
+                log.debug("Job {} is not running on this node. Forwarding to {}", id, jobHostname);
+                final String forwardHost = this.buildForwardHost(jobHostname);
+                try {
+                    return this.restTemplate.execute(
+                        forwardHost + JOB_API_TEMPLATE + "/resourceUsage",
+                        HttpMethod.GET,
+                        forwardRequest -> copyRequestHeaders(request, forwardRequest),
+                        new HttpMessageConverterExtractor<>(
+                            JobResourceUsage.class,
+                            this.restTemplate.getMessageConverters()
+                        ),
+                        id
+                    );
+                } catch (final HttpStatusCodeException e) {
+                    if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+                        throw new GenieNotFoundException(e.getStatusText(), e);
+                    }
+                    throw new GenieServerException("Failed getting the resource usage from " + forwardHost, e);
+                } catch (final RestClientException e) {
+                    throw new GenieServerException("Failed getting the resource usage from " + forwardHost, e);
+                }
+            }
+        }
+
+        return this.jobResourceUsageService
+            .getResourceUsage(id)
+            .orElseThrow(
+                () -> new GenieNotFoundException("No resource usage of job " + id + " was sampled on this node")
+            );
+    }
+
+    private long getWaitTime(final Long waitTime) {
+        final long maxWaitTime = this.jobStatusWatchProperties.getMaxWaitTime();
+        return waitTime == null
+            ? Math.min(this.jobStatusWatchProperties.getDefaultWaitTime(), maxWaitTime)
+            : Math.max(1L, Math.min(waitTime, maxWaitTime));
+    }
+
+    private void watchJobStatus(
+        final String id,
+        final JobStatus knownStatus,
+        final SseEmitter emitter,
+        final AtomicReference<Runnable> stopWatching
+    ) {
+        stopWatching.set(
+            this.jobStatusWatcher.watch(
+                id,
+                knownStatus,
+                status -> {
+                    try {
+                        emitter.send(toStatusEvent(status));
+                        if (status.isFinished()) {
+                            emitter.complete();
+                        } else {
+                            this.watchJobStatus(id, status, emitter, stopWatching);
+                        }
+                    } catch (final IOException ioe) {
+                        log.debug("Unable to send the status of job {}. Client most likely went away.", id, ioe);
+                        emitter.completeWithError(ioe);
+                    }
+                }
+            )
+        );
+    }
+
+    private static JsonNode toStatusNode(final JobStatus status) {
+        final JsonNodeFactory factory = JsonNodeFactory.instance;
+        return factory
+            .objectNode()
+            .set("status", factory.textNode(status.toString()));
+    }
+
+    private static SseEmitter.SseEventBuilder toStatusEvent(final JobStatus status) {
+        return SseEmitter.event().name("status").data(toStatusNode(status), MediaType.APPLICATION_JSON);
+    }
+
     /**
      * Get the job output directory.
      *
@@ -683,20 +1263,29 @@ public class JobRestController {
                         id,
                         path == null ? EMPTY_STRING : path
                     );
+                    //No need to search on this node
+                    return;
                 } catch (final HttpStatusCodeException e) {
                     log.error("Failed getting the remote job output from {}. Error: {}", forwardHost, e.getMessage());
                     response.sendError(e.getStatusCode().value(), e.getStatusText());
+                    return;
+                } catch (final ResourceAccessException e) {
+                    if (response.isCommitted()) {
+                        log.error("Lost the connection to {} while copying the job output", forwardHost, e);
+                        return;
+                    }
+                    // The node the job ran on is gone. Serve the output from the job archive if there is one.
+                    log.warn("Unable to reach {}. Looking for the output of job {} in its archive", forwardHost, id);
+                    response.reset();
                 } catch (final Exception e) {
                     log.error("Failed getting the remote job output from {}. Error: {}", forwardHost, e.getMessage());
                     response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage());
+                    return;
                 }
-
-                //No need to search on this node
-                return;
             }
         }
 
-        log.info("Job {} is running or was run on this node. Fetching requested resource...", id);
+        log.info("Fetching the requested resource of job {} from this node or its archive...", id);
         if (StringUtils.isNotBlank(path)) {
             request.setAttribute(GenieResourceHttpRequestHandler.GENIE_JOB_IS_ROOT_DIRECTORY, false);
         } else {
@@ -708,6 +1297,47 @@ public class JobRestController {
         this.resourceHttpRequestHandler.handleRequest(request, response);
     }
 
+    private Set<JobStatus> parseStatuses(final Set<String> statuses) throws GenieException {
+        Set<JobStatus> enumStatuses = null;
+        if (statuses != null && !statuses.isEmpty()) {
+            enumStatuses = EnumSet.noneOf(JobStatus.class);
+            for (final String status : statuses) {
+                if (StringUtils.isNotBlank(status)) {
+                    enumStatuses.add(JobStatus.parse(status));
+                }
+            }
+        }
+        return enumStatuses;
+    }
+
+    private static Link withPage(final Link self, final Pageable page, final String rel) {
+        final UriComponentsBuilder builder = UriComponentsBuilder
+            .fromUriString(self.getHref())
+            .replaceQueryParam("page", page.getPageNumber())
+            .replaceQueryParam("size", page.getPageSize())
+            .replaceQueryParam("sort");
+        if (page.getSort() != null) {
+            for (final Sort.Order order : page.getSort()) {
+                builder.queryParam(
+                    "sort",
+                    order.getProperty() + "," + order.getDirection().name().toLowerCase(Locale.ENGLISH)
+                );
+            }
+        }
+        return new Link(builder.build().toUriString(), rel);
+    }
+
+    private static Link withCursor(final Link self, final JobSearchCursor cursor, final String rel) {
+        return new Link(
+            UriComponentsBuilder
+                .fromUriString(self.getHref())
+                .replaceQueryParam("cursor", cursor.encode())
+                .build()
+                .toUriString(),
+            rel
+        );
+    }
+
     private String buildForwardHost(final String jobHostname) {
         return this.jobsProperties.getForwarding().getScheme()
             + "://"
@@ -0,0 +1,103 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.endpoints;
+
+import com.netflix.genie.core.services.impl.JobSearchIndex;
+import com.netflix.genie.web.tasks.node.JobSearchIndexTask;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.mvc.AbstractNamedMvcEndpoint;
+import org.springframework.boot.actuate.endpoint.mvc.ActuatorGetMapping;
+import org.springframework.boot.actuate.endpoint.mvc.ActuatorPostMapping;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Actuator endpoint to check on the embedded job search index and to rebuild it from the database on demand. The
+ * rebuild runs in the background. Searches keep being served from the index as it was until it is done.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@ConditionalOnProperty("genie.jobs.search.index.enabled")
+@Component
+public class JobSearchIndexMvcEndpoint extends AbstractNamedMvcEndpoint {
+
+    private final JobSearchIndex jobSearchIndex;
+    private final JobSearchIndexTask jobSearchIndexTask;
+
+    /**
+     * Constructor.
+     *
+     * @param jobSearchIndex     The index to report on
+     * @param jobSearchIndexTask The task keeping the index up to date
+     */
+    @Autowired
+    public JobSearchIndexMvcEndpoint(
+        @NotNull final JobSearchIndex jobSearchIndex,
+        @NotNull final JobSearchIndexTask jobSearchIndexTask
+    ) {
+        super("jobSearchIndex", "/jobSearchIndex", true);
+        this.jobSearchIndex = jobSearchIndex;
+        this.jobSearchIndexTask = jobSearchIndexTask;
+    }
+
+    /**
+     * Get the status of the index as seen by the searches of this node.
+     *
+     * @return The status
+     * @throws IOException If the index can't be read
+     */
+    @ActuatorGetMapping
+    @ResponseBody
+    public Map<String, Object> getStatus() throws IOException {
+        final Map<String, Object> status = new LinkedHashMap<>();
+        status.put("writable", this.jobSearchIndex.isWritable());
+        status.put("jobs", this.jobSearchIndex.getNumJobs());
+        final OptionalLong indexedUntil = this.jobSearchIndex.getIndexedUntil();
+        if (indexedUntil.isPresent()) {
+            status.put("indexedUntil", indexedUntil.getAsLong());
+            status.put("lag", System.currentTimeMillis() - indexedUntil.getAsLong());
+        }
+        status.put("rebuildRequested", this.jobSearchIndexTask.isRebuildRequested());
+        return status;
+    }
+
+    /**
+     * Rebuild the index from the database in the background. Only the node which writes to the index can rebuild it.
+     *
+     * @return Accepted if the rebuild will start with the next pass or conflict if another node writes to the index
+     */
+    @ActuatorPostMapping("/rebuild")
+    @ResponseBody
+    public ResponseEntity<Void> rebuild() {
+        if (!this.jobSearchIndex.isWritable()) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        this.jobSearchIndexTask.requestRebuild();
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+}
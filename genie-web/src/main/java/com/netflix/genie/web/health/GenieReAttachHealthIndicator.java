@@ -0,0 +1,61 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.health;
+
+import com.netflix.genie.web.tasks.job.JobMonitoringCoordinator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A health indicator which keeps the node out of service until the jobs which were running on it when it started are
+ * monitored again.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Component
+public class GenieReAttachHealthIndicator implements HealthIndicator {
+
+    private static final String RE_ATTACHED_KEY = "reAttached";
+
+    private final JobMonitoringCoordinator jobMonitoringCoordinator;
+
+    /**
+     * Constructor.
+     *
+     * @param jobMonitoringCoordinator The coordinator which re-attaches to the running jobs on startup
+     */
+    @Autowired
+    public GenieReAttachHealthIndicator(@NotNull final JobMonitoringCoordinator jobMonitoringCoordinator) {
+        this.jobMonitoringCoordinator = jobMonitoringCoordinator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Health health() {
+        final boolean reAttached = this.jobMonitoringCoordinator.isReAttached();
+        final Health.Builder builder = reAttached ? Health.up() : Health.outOfService();
+        return builder.withDetail(RE_ATTACHED_KEY, reAttached).build();
+    }
+}
@@ -39,5 +39,5 @@ public class ClusterCheckerProperties {
     private int port = 8080;
     private long rate = 300_000L;
     private int lostThreshold = 3;
-    private String healthIndicatorsToIgnore = "memory,genieMemory,discoveryComposite";
+    private String healthIndicatorsToIgnore = "memory,genieMemory,genieReAttach,discoveryComposite";
 }
@@ -0,0 +1,46 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Properties controlling the behavior of the dependency prefetch node task.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@ConfigurationProperties(prefix = "genie.tasks.dependencyPrefetch")
+@Component
+@Getter
+@Setter
+@Validated
+public class DependencyPrefetchProperties {
+    private boolean enabled;
+    private long rate = 300_000L;
+    private double maxFilesPerSecond = 10.0D;
+    private int pageSize = 100;
+    private Set<String> tags = new HashSet<>();
+}
@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Properties controlling how requests waiting for the status of a job to change are served.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@ConfigurationProperties(prefix = "genie.jobs.statusWatch")
+@Component
+@Getter
+@Setter
+@Validated
+public class JobStatusWatchProperties {
+    @Min(1)
+    private long sweepInterval = 500L;
+    @Min(1)
+    private long pollInterval = 5_000L;
+    @Min(1)
+    private long defaultWaitTime = 30_000L;
+    @Min(1)
+    private long maxWaitTime = 60_000L;
+    @Min(1)
+    private int notifyThreads = 4;
+}
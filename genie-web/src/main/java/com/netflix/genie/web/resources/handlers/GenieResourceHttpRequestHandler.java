@@ -17,8 +17,13 @@
  */
 package com.netflix.genie.web.resources.handlers;
 
+import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.ArchivedJobService;
+import com.netflix.genie.core.util.ArchiveIndex;
 import com.netflix.genie.web.resources.writers.DirectoryWriter;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -35,6 +40,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Optional;
 
 /**
  * Class extends ResourceHttpRequestHandler to override handling a request to return directory listing if it
@@ -56,7 +62,10 @@ public class GenieResourceHttpRequestHandler extends ResourceHttpRequestHandler
     private static final String CONTENT_LENGTH = "Content-Length";
     private static final String BYTES = "bytes";
 
+    private static final String ARCHIVED_FILE = GenieResourceHttpRequestHandler.class.getName() + ".archivedFile";
+
     private DirectoryWriter directoryWriter;
+    private ArchivedJobService archivedJobService;
 
     /**
      * Constructor.
@@ -64,8 +73,23 @@ public class GenieResourceHttpRequestHandler extends ResourceHttpRequestHandler
      * @param directoryWriter The class to use to convert directories to representations like HTML
      */
     public GenieResourceHttpRequestHandler(final DirectoryWriter directoryWriter) {
+        this(directoryWriter, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directoryWriter    The class to use to convert directories to representations like HTML
+     * @param archivedJobService The service to read the output of jobs whose directory isn't on this node out of
+     *                           their archives with. Null to not fall back to archives.
+     */
+    public GenieResourceHttpRequestHandler(
+        final DirectoryWriter directoryWriter,
+        final ArchivedJobService archivedJobService
+    ) {
         super();
         this.directoryWriter = directoryWriter;
+        this.archivedJobService = archivedJobService;
     }
 
     /**
@@ -85,59 +109,41 @@ public class GenieResourceHttpRequestHandler extends ResourceHttpRequestHandler
         final String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
         final Resource resource = this.getLocations().get(0).createRelative(path);
         if (!resource.exists()) {
-            response.sendError(HttpStatus.NOT_FOUND.value());
+            if (this.archivedJobService != null) {
+                this.handleArchivedRequest(path, request, response);
+            } else {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+            }
             return;
         }
 
         final File file = resource.getFile();
         if (file.isDirectory()) {
-            final Object rootDirAttribute = request.getAttribute(GENIE_JOB_IS_ROOT_DIRECTORY);
-            final boolean isRootDirectory;
-            if (rootDirAttribute != null) {
-                isRootDirectory = (Boolean) rootDirAttribute;
-            } else {
-                isRootDirectory = true;
-            }
-            final String accept = request.getHeader(HttpHeaders.ACCEPT);
-            final String requestUrl;
-            if (request.getHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER) != null) {
-                requestUrl = request.getHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER);
-            } else {
-                requestUrl = request.getRequestURL().toString();
-            }
-
-            try {
-                if (accept != null && accept.contains(MediaType.TEXT_HTML_VALUE)) {
-                    response.setContentType(MediaType.TEXT_HTML_VALUE);
-                    response
-                        .getOutputStream()
-                        .write(
-                            this.directoryWriter.toHtml(
-                                file,
-                                requestUrl,
-                                !isRootDirectory
-                            ).getBytes(UTF_8)
-                        );
-                } else {
-                    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-                    response
-                        .getOutputStream()
-                        .write(
-                            this.directoryWriter.toJson(
-                                file,
-                                requestUrl,
-                                !isRootDirectory
-                            ).getBytes(UTF_8)
-                        );
-                }
-            } catch (final Exception e) {
-                throw new ServletException(e);
-            }
+            this.writeDirectory(
+                request,
+                response,
+                (requestUrl, includeParent) -> this.directoryWriter.toHtml(file, requestUrl, includeParent),
+                (requestUrl, includeParent) -> this.directoryWriter.toJson(file, requestUrl, includeParent)
+            );
         } else {
             super.handleRequest(request, response);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Overriding to serve the local copy of a file read out of the archive of a job.
+     */
+    @Override
+    protected Resource getResource(final HttpServletRequest request) throws IOException {
+        final Object archivedFile = request.getAttribute(ARCHIVED_FILE);
+        if (archivedFile != null) {
+            return new FileSystemResource((File) archivedFile);
+        }
+        return super.getResource(request);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -177,4 +183,93 @@ public class GenieResourceHttpRequestHandler extends ResourceHttpRequestHandler
         final MediaType mediaType = super.getMediaType(request, resource);
         return mediaType == null ? MediaType.TEXT_PLAIN : mediaType;
     }
+
+    /**
+     * Serve the output of a job whose directory isn't on this node out of its archive.
+     */
+    private void handleArchivedRequest(
+        final String path,
+        final HttpServletRequest request,
+        final HttpServletResponse response
+    ) throws ServletException, IOException {
+        final String jobId = StringUtils.substringBefore(path, "/");
+        final String archivePath = StringUtils.substringAfter(path, "/");
+        try {
+            final Optional<ArchiveIndex> index = this.archivedJobService.getArchiveIndex(jobId);
+            final Optional<ArchiveIndex.Entry> entry
+                = index.flatMap(archiveIndex -> archiveIndex.getEntry(archivePath));
+            if (!entry.isPresent()) {
+                response.sendError(HttpStatus.NOT_FOUND.value());
+            } else if (entry.get().isDirectory()) {
+                this.writeDirectory(
+                    request,
+                    response,
+                    (requestUrl, includeParent) ->
+                        this.directoryWriter.toHtml(index.get(), archivePath, requestUrl, includeParent),
+                    (requestUrl, includeParent) ->
+                        this.directoryWriter.toJson(index.get(), archivePath, requestUrl, includeParent)
+                );
+            } else {
+                request.setAttribute(ARCHIVED_FILE, this.archivedJobService.getFile(jobId, archivePath));
+                super.handleRequest(request, response);
+            }
+        } catch (final GenieException ge) {
+            response.sendError(ge.getErrorCode(), ge.getMessage());
+        }
+    }
+
+    private void writeDirectory(
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final DirectoryRenderer htmlRenderer,
+        final DirectoryRenderer jsonRenderer
+    ) throws ServletException {
+        final Object rootDirAttribute = request.getAttribute(GENIE_JOB_IS_ROOT_DIRECTORY);
+        final boolean isRootDirectory;
+        if (rootDirAttribute != null) {
+            isRootDirectory = (Boolean) rootDirAttribute;
+        } else {
+            isRootDirectory = true;
+        }
+        final String accept = request.getHeader(HttpHeaders.ACCEPT);
+        final String requestUrl;
+        if (request.getHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER) != null) {
+            requestUrl = request.getHeader(JobConstants.GENIE_FORWARDED_FROM_HEADER);
+        } else {
+            requestUrl = request.getRequestURL().toString();
+        }
+
+        try {
+            if (accept != null && accept.contains(MediaType.TEXT_HTML_VALUE)) {
+                response.setContentType(MediaType.TEXT_HTML_VALUE);
+                response
+                    .getOutputStream()
+                    .write(htmlRenderer.render(requestUrl, !isRootDirectory).getBytes(UTF_8));
+            } else {
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response
+                    .getOutputStream()
+                    .write(jsonRenderer.render(requestUrl, !isRootDirectory).getBytes(UTF_8));
+            }
+        } catch (final Exception e) {
+            throw new ServletException(e);
+        }
+    }
+
+    /**
+     * Renders a directory with the directory writer.
+     */
+    @FunctionalInterface
+    private interface DirectoryRenderer {
+
+        /**
+         * Render the directory.
+         *
+         * @param requestUrl    The URL of the request for the directory
+         * @param includeParent Whether to include a reference to the parent directory
+         * @return The representation of the directory
+         * @throws Exception for any conversion problem
+         */
+        String render(String requestUrl, boolean includeParent) throws Exception;
+    }
 }
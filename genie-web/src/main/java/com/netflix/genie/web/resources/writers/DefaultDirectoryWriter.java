@@ -23,6 +23,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.collect.Lists;
 import com.netflix.genie.common.util.JsonDateDeserializer;
 import com.netflix.genie.common.util.JsonDateSerializer;
+import com.netflix.genie.core.util.ArchiveIndex;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.apache.catalina.util.ConcurrentDateFormat;
@@ -69,8 +70,55 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
         @URL final String requestURL,
         final boolean includeParent
     ) throws IOException {
+        return this.toHtml(directory.getName(), this.getDirectory(directory, requestURL, includeParent));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toJson(
+        @NotNull final File directory,
+        @URL final String requestURL,
+        final boolean includeParent
+    ) throws Exception {
         final Directory dir = this.getDirectory(directory, requestURL, includeParent);
+        final ObjectMapper mapper = new ObjectMapper();
+        return mapper.writeValueAsString(dir);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toHtml(
+        @NotNull final ArchiveIndex index,
+        @NotNull final String path,
+        @URL final String requestURL,
+        final boolean includeParent
+    ) throws IOException {
+        final String name = StringUtils.isBlank(path)
+            ? StringUtils.substringAfterLast(StringUtils.removeEnd(requestURL, "/"), "/")
+            : StringUtils.substringAfterLast("/" + StringUtils.removeEnd(path, "/"), "/");
+        return this.toHtml(name, this.getDirectory(index, path, requestURL, includeParent));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toJson(
+        @NotNull final ArchiveIndex index,
+        @NotNull final String path,
+        @URL final String requestURL,
+        final boolean includeParent
+    ) throws Exception {
+        final Directory dir = this.getDirectory(index, path, requestURL, includeParent);
+        final ObjectMapper mapper = new ObjectMapper();
+        return mapper.writeValueAsString(dir);
+    }
+
+    private String toHtml(final String name, final Directory dir) {
         final StringBuilder builder = new StringBuilder();
 
         // Render the page header
@@ -78,7 +126,7 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
         builder.append("<html>");
         builder.append("<head>");
         builder.append("<title>");
-        builder.append(directory.getName());
+        builder.append(name);
         builder.append("</title>");
         builder.append("<style type=\"text/css\"><!--");
         builder.append(DEFAULT_CSS);
@@ -87,7 +135,7 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
 
         // Body
         builder.append("<body>");
-        builder.append("<h1>").append(directory.getName()).append("</h1>");
+        builder.append("<h1>").append(name).append("</h1>");
 
         builder.append("<HR size=\"1\" noshade=\"noshade\">");
 
@@ -141,20 +189,6 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
         return builder.toString();
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public String toJson(
-        @NotNull final File directory,
-        @URL final String requestURL,
-        final boolean includeParent
-    ) throws Exception {
-        final Directory dir = this.getDirectory(directory, requestURL, includeParent);
-        final ObjectMapper mapper = new ObjectMapper();
-        return mapper.writeValueAsString(dir);
-    }
-
     private void writeFileHtml(
         final StringBuilder builder,
         final boolean shade,
@@ -192,18 +226,7 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
         final Directory dir = new Directory();
 
         if (includeParent) {
-            final Entry parent = new Entry();
-            String url = requestUrl;
-            if (url.charAt(url.length() - 1) == '/') {
-                url = url.substring(0, url.length() - 2);
-            }
-            // Rip off the last directory
-            url = url.substring(0, url.lastIndexOf('/'));
-            parent.setName("../");
-            parent.setUrl(url);
-            parent.setSize(0L);
-            parent.setLastModified(new Date(directory.getParentFile().getAbsoluteFile().lastModified()));
-            dir.setParent(parent);
+            dir.setParent(getParent(requestUrl, directory.getParentFile().getAbsoluteFile().lastModified()));
         }
 
         final File[] files = directory.listFiles();
@@ -228,6 +251,74 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
             }
         }
 
+        sort(dir);
+        return dir;
+    }
+
+    protected Directory getDirectory(
+        final ArchiveIndex index,
+        final String path,
+        final String requestUrl,
+        final boolean includeParent
+    ) {
+        final ArchiveIndex.Entry directory = index
+            .getEntry(path)
+            .filter(ArchiveIndex.Entry::isDirectory)
+            .orElseThrow(() -> new IllegalArgumentException("Input path is not a directory of the archive."));
+        if (StringUtils.isBlank(requestUrl)) {
+            throw new IllegalArgumentException("No request url entered. Unable to continue.");
+        }
+        final Directory dir = new Directory();
+
+        if (includeParent) {
+            final String parentPath = StringUtils.substringBeforeLast(directory.getPath(), "/");
+            final long parentLastModified = index
+                .getEntry(parentPath.equals(directory.getPath()) ? "" : parentPath)
+                .map(ArchiveIndex.Entry::getLastModified)
+                .orElse(directory.getLastModified());
+            dir.setParent(getParent(requestUrl, parentLastModified));
+        }
+
+        dir.setDirectories(Lists.newArrayList());
+        dir.setFiles(Lists.newArrayList());
+        final String baseURL = requestUrl.endsWith("/") ? requestUrl : requestUrl + "/";
+        for (final ArchiveIndex.Entry child : index.getChildren(path)) {
+            final String name = StringUtils.substringAfterLast("/" + child.getPath(), "/");
+            final Entry entry = new Entry();
+            entry.setLastModified(new Date(child.getLastModified()));
+            if (child.isDirectory()) {
+                entry.setName(name + "/");
+                entry.setUrl(baseURL + name + "/");
+                entry.setSize(0L);
+                dir.getDirectories().add(entry);
+            } else {
+                entry.setName(name);
+                entry.setUrl(baseURL + name);
+                entry.setSize(child.getSize());
+                dir.getFiles().add(entry);
+            }
+        }
+
+        sort(dir);
+        return dir;
+    }
+
+    private static Entry getParent(final String requestUrl, final long lastModified) {
+        final Entry parent = new Entry();
+        String url = requestUrl;
+        if (url.charAt(url.length() - 1) == '/') {
+            url = url.substring(0, url.length() - 2);
+        }
+        // Rip off the last directory
+        url = url.substring(0, url.lastIndexOf('/'));
+        parent.setName("../");
+        parent.setUrl(url);
+        parent.setSize(0L);
+        parent.setLastModified(new Date(lastModified));
+        return parent;
+    }
+
+    private static void sort(final Directory dir) {
         dir.getDirectories().sort(
             (final Entry entry1, final Entry entry2) -> entry1.getName().compareTo(entry2.getName())
         );
@@ -235,8 +326,6 @@ public class DefaultDirectoryWriter implements DirectoryWriter {
         dir.getFiles().sort(
             (final Entry entry1, final Entry entry2) -> entry1.getName().compareTo(entry2.getName())
         );
-
-        return dir;
     }
 
     @Data
@@ -17,6 +17,7 @@
  */
 package com.netflix.genie.web.resources.writers;
 
+import com.netflix.genie.core.util.ArchiveIndex;
 import org.hibernate.validator.constraints.URL;
 
 import javax.validation.constraints.NotNull;
@@ -59,4 +60,38 @@ public interface DirectoryWriter {
         @URL final String requestURL,
         final boolean includeParent
     ) throws Exception;
+
+    /**
+     * Convert a directory of an archive to an String containing a full valid HTML page.
+     *
+     * @param index         The index of the archive. Not null.
+     * @param path          The path of the directory in the archive. Empty for the archived directory itself.
+     * @param requestURL    The URL of the request that kicked off this process
+     * @param includeParent Whether the conversion should include reference to the parent directory.
+     * @return String HTML representation of the directory
+     * @throws Exception for any conversion problem
+     */
+    String toHtml(
+        @NotNull final ArchiveIndex index,
+        @NotNull final String path,
+        @URL final String requestURL,
+        final boolean includeParent
+    ) throws Exception;
+
+    /**
+     * Convert a directory of an archive to an String of JSON.
+     *
+     * @param index         The index of the archive. Not null.
+     * @param path          The path of the directory in the archive. Empty for the archived directory itself.
+     * @param requestURL    The URL of the request that kicked off this process
+     * @param includeParent Whether the conversion should include reference to the parent directory.
+     * @return String JSON representation of the directory
+     * @throws Exception for any conversion problem
+     */
+    String toJson(
+        @NotNull final ArchiveIndex index,
+        @NotNull final String path,
+        @URL final String requestURL,
+        final boolean includeParent
+    ) throws Exception;
 }
@@ -20,7 +20,7 @@ package com.netflix.genie.web.services.impl;
 import com.google.common.collect.Lists;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
-import com.netflix.genie.core.services.FileTransfer;
+import com.netflix.genie.core.services.ConditionalFileTransfer;
 import com.netflix.genie.core.util.MetricsUtils;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
@@ -28,28 +28,37 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.validator.routines.UrlValidator;
 import org.hibernate.validator.constraints.NotBlank;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.time.Instant;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
  * An implementation of the FileTransferService interface in which the remote locations are available via http[s].
+ * Supports conditional GET requests using the ETag and Last-Modified validators of the server.
  *
  * @author tgianos
  * @since 3.0.0
  */
 @Slf4j
-public class HttpFileTransferImpl implements FileTransfer {
+public class HttpFileTransferImpl implements ConditionalFileTransfer {
+
+    private static final String MODIFIED_TAG = "modified";
 
     private final UrlValidator validator
         = new UrlValidator(new String[]{"http", "https"}, UrlValidator.ALLOW_LOCAL_URLS);
@@ -58,6 +67,7 @@ public class HttpFileTransferImpl implements FileTransfer {
     private final Id downloadTimerId;
     private final Id uploadTimerId;
     private final Id getLastModifiedTimerId;
+    private final Id conditionalDownloadTimerId;
 
     /**
      * Constructor.
@@ -71,6 +81,7 @@ public class HttpFileTransferImpl implements FileTransfer {
         this.downloadTimerId = registry.createId("genie.files.http.download.timer");
         this.uploadTimerId = registry.createId("genie.files.http.upload.timer");
         this.getLastModifiedTimerId = registry.createId("genie.files.http.getLastModified.timer");
+        this.conditionalDownloadTimerId = registry.createId("genie.files.http.conditionalDownload.timer");
     }
 
     /**
@@ -106,9 +117,7 @@ public class HttpFileTransferImpl implements FileTransfer {
                 HttpMethod.GET,
                 requestEntity -> requestEntity.getHeaders().setAccept(Lists.newArrayList(MediaType.ALL)),
                 (ResponseExtractor<Void>) response -> {
-                    // Documentation I could find pointed to the HttpEntity reading the bytes off
-                    // the stream so this should resolve memory problems if the file returned is large
-                    FileUtils.copyInputStreamToFile(response.getBody(), outputFile);
+                    this.writeFile(response.getBody(), response.getHeaders(), outputFile);
                     return null;
                 }
             );
@@ -122,6 +131,61 @@ public class HttpFileTransferImpl implements FileTransfer {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> getFileIfModified(
+        @NotBlank(message = "Source file path cannot be empty.")
+        final String srcRemotePath,
+        @NotBlank(message = "Destination local path cannot be empty")
+        final String dstLocalPath,
+        final long lastModified,
+        @Nullable final String eTag
+    ) throws GenieException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        log.debug("Called with src path {}, destination path {} and ETag {}", srcRemotePath, dstLocalPath, eTag);
+
+        try {
+            final File outputFile = new File(dstLocalPath);
+            if (!this.isValid(srcRemotePath)) {
+                throw new GenieServerException("Unable to download " + srcRemotePath + " not a valid URL");
+            }
+            final Optional<String> newETag = this.restTemplate.execute(
+                srcRemotePath,
+                HttpMethod.GET,
+                requestEntity -> {
+                    final HttpHeaders headers = requestEntity.getHeaders();
+                    headers.setAccept(Lists.newArrayList(MediaType.ALL));
+                    if (eTag != null) {
+                        headers.setIfNoneMatch(eTag);
+                    }
+                    if (lastModified > 0) {
+                        headers.setIfModifiedSince(lastModified);
+                    }
+                },
+                (ResponseExtractor<Optional<String>>) response -> {
+                    if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                        return Optional.empty();
+                    }
+                    this.writeFile(response.getBody(), response.getHeaders(), outputFile);
+                    final String responseETag = response.getHeaders().getETag();
+                    return Optional.of(responseETag == null ? "" : responseETag);
+                }
+            );
+            tags.put(MODIFIED_TAG, String.valueOf(newETag.isPresent()));
+            return newETag;
+        } catch (GenieException | RuntimeException e) {
+            MetricsUtils.addFailureTagsWithException(tags, e);
+            throw e;
+        } finally {
+            this.registry.timer(
+                conditionalDownloadTimerId.withTags(tags)
+            ).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -175,4 +239,19 @@ public class HttpFileTransferImpl implements FileTransfer {
         }
         return lastModtime;
     }
+
+    private void writeFile(
+        final InputStream body,
+        final HttpHeaders headers,
+        final File outputFile
+    ) throws IOException {
+        // Documentation I could find pointed to the HttpEntity reading the bytes off
+        // the stream so this should resolve memory problems if the file returned is large
+        FileUtils.copyInputStreamToFile(body, outputFile);
+        // Keep the time of the remote file so later If-Modified-Since requests compare against the server's clock
+        final long lastModified = headers.getLastModified();
+        if (lastModified > 0 && !outputFile.setLastModified(lastModified)) {
+            log.warn("Unable to set the last modified time of {} to {}", outputFile, lastModified);
+        }
+    }
 }
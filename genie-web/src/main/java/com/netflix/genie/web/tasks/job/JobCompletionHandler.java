@@ -17,13 +17,18 @@
  */
 package com.netflix.genie.web.tasks.job;
 
-import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.properties.JobsProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+
 /**
  * Handles the job finished event.
  *
@@ -37,25 +42,45 @@ public class JobCompletionHandler {
     private final JobCompletionService jobCompletionService;
 
     /**
-     * Constructor.
+     * Constructor. Schedules the sweeps of the pending archives which follow the one run on startup.
      *
      * @param jobCompletionService An implementation of the job completion service.
+     * @param scheduler            The scheduler to run the sweeps of the pending archives with
+     * @param jobsProperties       The properties relating to running jobs
      */
     @Autowired
     public JobCompletionHandler(
-        final JobCompletionService jobCompletionService
+        final JobCompletionService jobCompletionService,
+        @Qualifier("genieTaskScheduler") final TaskScheduler scheduler,
+        final JobsProperties jobsProperties
     ) {
         this.jobCompletionService = jobCompletionService;
+        final long sweepInterval = jobsProperties.getCompletion().getPendingArchivesSweepInterval();
+        scheduler.scheduleWithFixedDelay(
+            this.jobCompletionService::resumePendingArchives,
+            new Date(System.currentTimeMillis() + sweepInterval),
+            sweepInterval
+        );
     }
 
     /**
      * Event listener for when a job is completed. Updates the status of the job.
      *
      * @param event The Spring Boot application ready event to startup on
-     * @throws GenieException If there is any problem
      */
     @EventListener
-    public void handleJobCompletion(final JobFinishedEvent event) throws GenieException {
+    public void handleJobCompletion(final JobFinishedEvent event) {
         jobCompletionService.handleJobCompletion(event);
     }
+
+    /**
+     * Once the application is up resume archiving the directories of the jobs which finished before it was stopped.
+     *
+     * @param event The spring event indicating the application is ready
+     */
+    @EventListener
+    public void onStartup(final ContextRefreshedEvent event) {
+        log.info("Application is ready according to event {}. Resuming pending job archives", event);
+        jobCompletionService.resumePendingArchives();
+    }
 }
@@ -21,24 +21,31 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
-import com.netflix.genie.common.dto.Application;
-import com.netflix.genie.common.dto.Job;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.genie.common.dto.JobExecution;
-import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.JobStatusMessages;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.events.GenieEventBus;
+import com.netflix.genie.core.events.JobCompletedEvent;
 import com.netflix.genie.core.events.JobFinishedEvent;
 import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.jobs.JobCompletionSnapshot;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.jobs.JobDoneFile;
 import com.netflix.genie.core.jobs.JobKillReasonFile;
+import com.netflix.genie.core.properties.JobsArchiveProperties;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.core.services.JobPersistenceService;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.core.services.MailService;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
 import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.core.util.ArchiveIndex;
+import com.netflix.genie.core.util.DirectoryArchiver;
 import com.netflix.genie.core.util.MetricsConstants;
 import com.netflix.genie.core.util.MetricsUtils;
 import com.netflix.spectator.api.Id;
@@ -51,20 +58,39 @@ import org.apache.commons.exec.PumpStreamHandler;
 import org.apache.commons.io.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * A class that has the methods to perform various tasks when a job completes.
+ * A class that has the methods to perform various tasks when a job completes. The work is split into stages which each
+ * run on their own bounded pool of threads. The final status of a job is committed first by the status stage which
+ * then hands the job over to the archive stage and the email stage so a slow archive upload or mail server doesn't
+ * hold up the status of other jobs. A marker is kept for every job until its directory has been archived so the
+ * archiving can be resumed after a restart, and retried by the sweeps of the pending archives when it failed or the
+ * archive stage had no room for the job. Everything the stages need to know about a job is read with a single query
+ * into a {@link JobCompletionSnapshot} when it finishes.
  *
  * @author amsharma
  * @author tgianos
@@ -80,15 +106,30 @@ public class JobCompletionService {
     private final JobSearchService jobSearchService;
     private final GenieFileTransferService genieFileTransferService;
     private final File baseWorkingDir;
+    private final File pendingArchivesDir;
     private final MailService mailServiceImpl;
     private final Executor executor;
+    private final PrivilegedOperationService privilegedOperationService;
     private final boolean deleteArchiveFile;
     private final boolean deleteDependencies;
     private final boolean runAsUserEnabled;
+    private final boolean streamingArchiveEnabled;
+    private final List<String> archiveExcludes;
+    private final ExecutorService compressionExecutor;
+    private final DirectoryArchiver directoryArchiver;
+    private final GenieEventBus genieEventBus;
+
+    // The stages of the completion of a job
+    private final ExecutorService statusStage;
+    private final ExecutorService archiveStage;
+    private final ExecutorService emailStage;
+    private final Set<String> archivesInProgress = ConcurrentHashMap.newKeySet();
 
     // Metrics
     private final Registry registry;
     private final Id jobCompletionTimerId;
+    private final Id archiveTimerId;
+    private final Id emailTimerId;
     private final Id errorCounterId;
     private final RetryTemplate retryTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -96,14 +137,16 @@ public class JobCompletionService {
     /**
      * Constructor.
      *
-     * @param jobSearchService         An implementation of the job search service.
-     * @param jobPersistenceService    An implementation of the job persistence service.
-     * @param genieFileTransferService An implementation of the Genie File Transfer service.
-     * @param genieWorkingDir          The working directory where all job directories are created.
-     * @param mailServiceImpl          An implementation of the mail service.
-     * @param registry                 The metrics registry to use
-     * @param jobsProperties           The properties relating to running jobs
-     * @param retryTemplate            Retry template for retrying remote calls
+     * @param jobSearchService           An implementation of the job search service.
+     * @param jobPersistenceService      An implementation of the job persistence service.
+     * @param genieFileTransferService   An implementation of the Genie File Transfer service.
+     * @param genieWorkingDir            The working directory where all job directories are created.
+     * @param mailServiceImpl            An implementation of the mail service.
+     * @param registry                   The metrics registry to use
+     * @param jobsProperties             The properties relating to running jobs
+     * @param retryTemplate              Retry template for retrying remote calls
+     * @param privilegedOperationService The service to use to archive and delete files of jobs run as their user
+     * @param genieEventBus              The event bus to tell about the jobs whose final status was saved
      * @throws GenieException if there is a problem
      */
     @Autowired
@@ -115,7 +158,74 @@ public class JobCompletionService {
         final MailService mailServiceImpl,
         final Registry registry,
         final JobsProperties jobsProperties,
-        @Qualifier("genieRetryTemplate") @NotNull final RetryTemplate retryTemplate
+        @Qualifier("genieRetryTemplate") @NotNull final RetryTemplate retryTemplate,
+        @NotNull final PrivilegedOperationService privilegedOperationService,
+        @NotNull final GenieEventBus genieEventBus
+    ) throws GenieException {
+        this(
+            jobPersistenceService,
+            jobSearchService,
+            genieFileTransferService,
+            genieWorkingDir,
+            mailServiceImpl,
+            registry,
+            jobsProperties,
+            retryTemplate,
+            privilegedOperationService,
+            genieEventBus,
+            newStage(
+                "status",
+                jobsProperties.getCompletion().getStatusThreads(),
+                jobsProperties,
+                new ThreadPoolExecutor.CallerRunsPolicy()
+            ),
+            newStage(
+                "archive",
+                jobsProperties.getCompletion().getArchiveThreads(),
+                jobsProperties,
+                new ThreadPoolExecutor.AbortPolicy()
+            ),
+            newStage(
+                "email",
+                jobsProperties.getCompletion().getEmailThreads(),
+                jobsProperties,
+                new ThreadPoolExecutor.AbortPolicy()
+            )
+        );
+    }
+
+    /**
+     * Constructor which runs the stages on the given executors.
+     *
+     * @param jobSearchService           An implementation of the job search service.
+     * @param jobPersistenceService      An implementation of the job persistence service.
+     * @param genieFileTransferService   An implementation of the Genie File Transfer service.
+     * @param genieWorkingDir            The working directory where all job directories are created.
+     * @param mailServiceImpl            An implementation of the mail service.
+     * @param registry                   The metrics registry to use
+     * @param jobsProperties             The properties relating to running jobs
+     * @param retryTemplate              Retry template for retrying remote calls
+     * @param privilegedOperationService The service to use to archive and delete files of jobs run as their user
+     * @param genieEventBus              The event bus to tell about the jobs whose final status was saved
+     * @param statusStage                The executor to commit the final status of the jobs on
+     * @param archiveStage               The executor to archive the directories of the jobs on
+     * @param emailStage                 The executor to send the emails for the jobs on
+     * @throws GenieException if there is a problem
+     */
+    JobCompletionService(
+        final JobPersistenceService jobPersistenceService,
+        final JobSearchService jobSearchService,
+        final GenieFileTransferService genieFileTransferService,
+        final Resource genieWorkingDir,
+        final MailService mailServiceImpl,
+        final Registry registry,
+        final JobsProperties jobsProperties,
+        final RetryTemplate retryTemplate,
+        final PrivilegedOperationService privilegedOperationService,
+        final GenieEventBus genieEventBus,
+        final ExecutorService statusStage,
+        final ExecutorService archiveStage,
+        final ExecutorService emailStage
     ) throws GenieException {
         this.jobPersistenceService = jobPersistenceService;
         this.jobSearchService = jobSearchService;
@@ -125,8 +235,24 @@ public class JobCompletionService {
         this.deleteDependencies = jobsProperties.getCleanup().isDeleteDependencies();
         this.runAsUserEnabled = jobsProperties.getUsers().isRunAsUserEnabled();
 
+        // The JVM can't read the directories of jobs run as their user so those are still archived with tar
+        final JobsArchiveProperties archiveProperties = jobsProperties.getArchive();
+        this.streamingArchiveEnabled = archiveProperties.isStreamingEnabled() && !this.runAsUserEnabled;
+        this.archiveExcludes = new ArrayList<>(archiveProperties.getExcludes());
+        this.compressionExecutor = Executors.newFixedThreadPool(
+            archiveProperties.getCompressionThreads(),
+            new ThreadFactoryBuilder().setNameFormat("genie-archive-gzip-%d").setDaemon(true).build()
+        );
+        this.directoryArchiver = new DirectoryArchiver(
+            this.compressionExecutor,
+            archiveProperties.getBlockSize(),
+            archiveProperties.getMaxBlocksInFlight()
+        );
+
         this.executor = new DefaultExecutor();
         this.executor.setStreamHandler(new PumpStreamHandler(null, null));
+        this.privilegedOperationService = privilegedOperationService;
+        this.genieEventBus = genieEventBus;
 
         try {
             this.baseWorkingDir = genieWorkingDir.getFile();
@@ -134,50 +260,120 @@ public class JobCompletionService {
             throw new GenieServerException("Could not load the base path from resource");
         }
 
+        final String pendingArchivesLocation = jobsProperties.getLocations().getPendingArchives();
+        try {
+            this.pendingArchivesDir = new DefaultResourceLoader().getResource(pendingArchivesLocation).getFile();
+        } catch (IOException ioe) {
+            throw new GenieServerException("Could not load the pending archives path " + pendingArchivesLocation);
+        }
+        if (!this.pendingArchivesDir.isDirectory() && !this.pendingArchivesDir.mkdirs()) {
+            throw new GenieServerException("Unable to create pending archives directory " + this.pendingArchivesDir);
+        }
+
+        this.statusStage = statusStage;
+        this.archiveStage = archiveStage;
+        this.emailStage = emailStage;
+
         // Set up the metrics
         this.registry = registry;
         this.jobCompletionTimerId = registry.createId("genie.jobs.completion.timer");
+        this.archiveTimerId = registry.createId("genie.jobs.completion.archive.timer");
+        this.emailTimerId = registry.createId("genie.jobs.completion.email.timer");
         this.errorCounterId = registry.createId("genie.jobs.errors.count");
+        this.registerQueueGauge("status", statusStage);
+        this.registerQueueGauge("archive", archiveStage);
+        this.registerQueueGauge("email", emailStage);
         // Retry template
         this.retryTemplate = retryTemplate;
     }
 
     /**
-     * Event listener for when a job is completed. Updates the status of the job.
+     * Hand a finished job over to the status stage.
      *
-     * @param event The Spring Boot application ready event to startup on
-     * @throws GenieException If there is any problem
+     * @param event The event of the finished job
      */
-    void handleJobCompletion(final JobFinishedEvent event) throws GenieException {
+    void handleJobCompletion(final JobFinishedEvent event) {
+        this.statusStage.execute(() -> this.completeJob(event));
+    }
+
+    /**
+     * Archive the directories of the finished jobs which are still waiting to be archived. These are the jobs which
+     * weren't archived yet when this node stopped, whose archiving failed or which the archive stage had no room for.
+     * Jobs already waiting in or handled by the archive stage are left to it.
+     */
+    void resumePendingArchives() {
+        final File[] markers = this.pendingArchivesDir.listFiles(File::isFile);
+        if (markers == null || markers.length == 0) {
+            return;
+        }
+        log.info("Resuming archiving of {} jobs", markers.length);
+        for (final File marker : markers) {
+            final String jobId = marker.getName();
+            if (this.archivesInProgress.contains(jobId)) {
+                continue;
+            }
+            try {
+                final JobCompletionSnapshot job = this.retryTemplate.execute(context -> this.getSnapshot(jobId));
+                if (job.getStatus().isActive()) {
+                    // The marker was left by a status update which never committed. Archived once the job finishes.
+                    log.info("Job {} is still active. Not resuming archiving.", jobId);
+                } else {
+                    this.scheduleArchive(job);
+                }
+            } catch (final GenieNotFoundException gnfe) {
+                log.error("Job {} doesn't exist. Dropping its pending archive.", jobId, gnfe);
+                this.removePendingArchive(jobId);
+            } catch (final Exception e) {
+                log.error("Unable to resume archiving for job: {}", jobId, e);
+                this.incrementErrorCounter("JOB_ARCHIVE_RESUME_FAILURE", e);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting new work. Jobs which weren't archived yet are resumed on the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.statusStage.shutdown();
+        this.archiveStage.shutdown();
+        this.emailStage.shutdown();
+        this.compressionExecutor.shutdown();
+    }
+
+    /**
+     * Commit the final status of a job and hand it over to the archive and email stages.
+     *
+     * @param event The event of the finished job
+     */
+    void completeJob(final JobFinishedEvent event) {
         final long start = System.nanoTime();
         final String jobId = event.getId();
         final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
 
         try {
-            final Job job = this.retryTemplate.execute(context -> this.getJob(jobId));
+            final JobCompletionSnapshot job = this.retryTemplate.execute(context -> this.getSnapshot(jobId));
 
             final JobStatus status = job.getStatus();
 
             // Make sure the job isn't already done before doing something
             if (status.isActive()) {
+                // Before the status is committed so a restart can't lose the archiving of the job
+                this.addPendingArchive(jobId);
+                JobCompletionSnapshot finishedJob = job;
                 try {
-                    this.retryTemplate.execute(context -> this.updateJob(job, event, tags));
+                    finishedJob = job.withStatus(
+                        this.retryTemplate.execute(context -> this.updateJob(job, event, tags))
+                    );
+                    // Lets the searches cached since the job finished be dropped now they'd find its final status
+                    this.genieEventBus.publishSynchronousEvent(new JobCompletedEvent(jobId, job.getUser(), this));
                 } catch (final Exception e) {
                     log.error("Failed updating for job: {}", jobId, e);
                 }
-                // Things that should be done either way
-                try {
-                    this.retryTemplate.execute(context -> this.processJobDir(job));
-                } catch (final Exception e) {
-                    log.error("Failed archiving directory for job: {}", jobId, e);
-                    this.incrementErrorCounter("JOB_DIRECTORY_FAILURE", e);
-                }
-                try {
-                    this.retryTemplate.execute(context -> sendEmail(jobId));
-                } catch (final Exception e) {
-                    log.error("Failed sending email for job: {}", jobId, e);
-                    this.incrementErrorCounter("JOB_UPDATE_FAILURE", e);
-                }
+                // Things that should be done either way. The later stages get the final status without a query.
+                final JobCompletionSnapshot completedJob = finishedJob;
+                this.scheduleArchive(completedJob);
+                this.scheduleEmail(completedJob);
             }
         } catch (final Exception e) {
             log.error("Failed getting job with id: {}", jobId, e);
@@ -189,12 +385,128 @@ public class JobCompletionService {
         }
     }
 
-    private Job getJob(final String jobId) throws GenieException {
-        return this.jobSearchService.getJob(jobId);
+    private void scheduleArchive(final JobCompletionSnapshot job) {
+        final String jobId = job.getId();
+        if (!this.archivesInProgress.add(jobId)) {
+            log.debug("Directory of job {} is already waiting to be archived", jobId);
+            return;
+        }
+        try {
+            this.archiveStage.execute(() -> this.archiveJob(job));
+        } catch (final RejectedExecutionException ree) {
+            // Never archived on the calling thread. The pending archive is picked up by a later sweep.
+            this.archivesInProgress.remove(jobId);
+            log.warn("Archive stage is full. Leaving job {} to the sweep of the pending archives.", jobId);
+            this.incrementErrorCounter("JOB_ARCHIVE_REJECTED", ree);
+        }
+    }
+
+    private void scheduleEmail(final JobCompletionSnapshot job) {
+        try {
+            this.emailStage.execute(() -> this.emailJob(job));
+        } catch (final RejectedExecutionException ree) {
+            // Never sent on the calling thread as a slow mail server would hold up the status of other jobs
+            log.error("Email stage is full. Dropping email for job: {}", job.getId());
+            this.incrementErrorCounter("JOB_EMAIL_REJECTED", ree);
+        }
+    }
+
+    private void archiveJob(final JobCompletionSnapshot job) {
+        final String jobId = job.getId();
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            this.retryTemplate.execute(context -> this.processJobDir(job));
+            this.removePendingArchive(jobId);
+        } catch (final Exception e) {
+            // The pending archive is kept for a later sweep to retry
+            log.error("Failed archiving directory for job: {}", jobId, e);
+            this.incrementErrorCounter("JOB_DIRECTORY_FAILURE", e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+        } finally {
+            this.archivesInProgress.remove(jobId);
+            this.registry
+                .timer(this.archiveTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void emailJob(final JobCompletionSnapshot job) {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            this.retryTemplate.execute(context -> sendEmail(job));
+        } catch (final Exception e) {
+            log.error("Failed sending email for job: {}", job.getId(), e);
+            this.incrementErrorCounter("JOB_UPDATE_FAILURE", e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+        } finally {
+            this.registry
+                .timer(this.emailTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void addPendingArchive(final String jobId) {
+        try {
+            if (!new File(this.pendingArchivesDir, jobId).createNewFile()) {
+                log.debug("Archive of job {} is already pending", jobId);
+            }
+        } catch (final IOException ioe) {
+            log.error("Unable to record pending archive for job: {}", jobId, ioe);
+            this.incrementErrorCounter("JOB_ARCHIVE_MARKER_FAILURE", ioe);
+        }
     }
 
-    private Void updateJob(
-        final Job job,
+    private void removePendingArchive(final String jobId) {
+        final File marker = new File(this.pendingArchivesDir, jobId);
+        if (marker.exists() && !marker.delete()) {
+            log.error("Unable to remove pending archive for job: {}", jobId);
+            this.incrementErrorCounter("JOB_ARCHIVE_MARKER_FAILURE");
+        }
+    }
+
+    private void registerQueueGauge(final String stage, final ExecutorService stageExecutor) {
+        if (stageExecutor instanceof ThreadPoolExecutor) {
+            this.registry.collectionSize(
+                "genie.jobs.completion." + stage + ".queue.gauge",
+                ((ThreadPoolExecutor) stageExecutor).getQueue()
+            );
+        }
+    }
+
+    private static ExecutorService newStage(
+        final String stage,
+        final int threads,
+        final JobsProperties properties,
+        final RejectedExecutionHandler rejectedExecutionHandler
+    ) {
+        return new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(properties.getCompletion().getQueueCapacity()),
+            new ThreadFactoryBuilder().setNameFormat("genie-job-completion-" + stage + "-%d").setDaemon(true).build(),
+            rejectedExecutionHandler
+        );
+    }
+
+    private JobCompletionSnapshot getSnapshot(final String jobId) throws GenieException {
+        return this.jobSearchService.getJobCompletionSnapshot(jobId);
+    }
+
+    /**
+     * Commit the final status of a job.
+     *
+     * @param job   The snapshot of the job read when it finished
+     * @param event The event of the finished job
+     * @param tags  The tags of the completion timer to add the final state to
+     * @return The final status of the job. The status the job had if it couldn't be determined.
+     * @throws GenieException If the status can't be committed
+     */
+    private JobStatus updateJob(
+        final JobCompletionSnapshot job,
         final JobFinishedEvent event,
         final Map<String, String> tags
     ) throws GenieException {
@@ -202,6 +514,7 @@ public class JobCompletionService {
 
             final String jobId = event.getId();
             final JobStatus status = job.getStatus();
+            JobStatus finalStatus = status;
             // Now we know this job should be marked in one of the finished states
             JobStatus eventStatus = null;
             if (status == JobStatus.INIT) {
@@ -228,10 +541,9 @@ public class JobCompletionService {
             } else {
                 if (event.getReason() != JobFinishedReason.SYSTEM_CRASH) {
                     try {
-                        final String finalStatus =
-                            this.retryTemplate.execute(context -> updateFinalStatusForJob(jobId).toString());
-                        tags.put(JOB_FINAL_STATE, finalStatus);
-                        cleanupProcesses(jobId);
+                        finalStatus = this.retryTemplate.execute(context -> updateFinalStatusForJob(jobId));
+                        tags.put(JOB_FINAL_STATE, finalStatus.toString());
+                        cleanupProcesses(job.withStatus(finalStatus));
                     } catch (Exception e) {
                         log.error("Failed updating the exit code and status for job: {}", jobId, e);
                     }
@@ -244,24 +556,25 @@ public class JobCompletionService {
             if (eventStatus != null) {
                 tags.put(JOB_FINAL_STATE, status.toString());
                 this.jobPersistenceService.updateJobStatus(jobId, eventStatus, event.getMessage());
+                finalStatus = eventStatus;
             }
+            return finalStatus;
         } catch (Throwable t) {
             incrementErrorCounter("JOB_UPDATE_FAILURE", t);
             throw t;
         }
-        return null;
     }
 
     /**
      * An external fail-safe mechanism to clean up processes left behind by the run.sh after the
      * job is killed or failed. This method is a no-op for jobs whose status is INVALID.
      *
-     * @param jobId The id of the job to cleanup processes for.
+     * @param job The job to cleanup processes for.
      */
-    private void cleanupProcesses(final String jobId) {
+    private void cleanupProcesses(final JobCompletionSnapshot job) {
         try {
-            if (!this.jobSearchService.getJobStatus(jobId).equals(JobStatus.INVALID)) {
-                this.jobSearchService.getJobExecution(jobId).getProcessId().ifPresent(pid -> {
+            if (!job.getStatus().equals(JobStatus.INVALID)) {
+                job.getProcessId().ifPresent(pid -> {
                     try {
                         final CommandLine commandLine = new CommandLine(JobConstants.UNIX_PKILL_COMMAND);
                         commandLine.addArgument(JobConstants.getKillFlag());
@@ -277,9 +590,6 @@ public class JobCompletionService {
                     }
                 });
             }
-        } catch (final GenieException ge) {
-            log.error("Unable to cleanup process for job due to exception. {}", jobId, ge);
-            incrementErrorCounter("JOB_CLEANUP_FAILURE", ge);
         } catch (Throwable t) {
             incrementErrorCounter("JOB_PROCESS_CLEANUP_FAILURE", t);
             throw t;
@@ -380,10 +690,10 @@ public class JobCompletionService {
     /**
      * Delete application, cluster, command dependencies from the job working directory to save space.
      *
-     * @param jobId  The ID of the job to delete dependencies for
+     * @param job    The job to delete dependencies for
      * @param jobDir The job working directory
      */
-    private void deleteDependenciesDirectories(final String jobId, final File jobDir) {
+    private void deleteDependenciesDirectories(final JobCompletionSnapshot job, final File jobDir) {
         log.debug("Deleting dependencies.");
 
         if (jobDir.exists()) {
@@ -391,93 +701,62 @@ public class JobCompletionService {
             final Collection<File> dependencyDirectories = Sets.newHashSet();
 
             // Collect application dependencies
-            try {
-                for (Application application : this.jobSearchService.getJobApplications(jobId)) {
-                    application.getId().ifPresent(
-                        appId ->
-                            dependencyDirectories.add(
-                                new File(
-                                    jobDir,
-                                    JobConstants.GENIE_PATH_VAR
-                                        + JobConstants.FILE_PATH_DELIMITER
-                                        + JobConstants.APPLICATION_PATH_VAR
-                                        + JobConstants.FILE_PATH_DELIMITER
-                                        + appId
-                                        + JobConstants.FILE_PATH_DELIMITER
-                                        + JobConstants.DEPENDENCY_FILE_PATH_PREFIX
-                                )
-                            )
-                    );
-                }
-            } catch (GenieException e) {
-                log.error(
-                    "Error collecting application dependencies for job: {} due to error {}",
-                    jobId,
-                    e);
-                incrementErrorCounter("DELETE_APPLICATION_DEPENDENCIES_FAILURE", e);
+            for (final String appId : job.getApplicationIds()) {
+                dependencyDirectories.add(
+                    new File(
+                        jobDir,
+                        JobConstants.GENIE_PATH_VAR
+                            + JobConstants.FILE_PATH_DELIMITER
+                            + JobConstants.APPLICATION_PATH_VAR
+                            + JobConstants.FILE_PATH_DELIMITER
+                            + appId
+                            + JobConstants.FILE_PATH_DELIMITER
+                            + JobConstants.DEPENDENCY_FILE_PATH_PREFIX
+                    )
+                );
             }
 
             // Collect cluster dependencies
-            try {
-                this.jobSearchService.getJobCluster(jobId).getId().ifPresent(
-                    clusterId ->
-                        dependencyDirectories.add(
-                            new File(
-                                jobDir,
-                                JobConstants.GENIE_PATH_VAR
-                                    + JobConstants.FILE_PATH_DELIMITER
-                                    + JobConstants.CLUSTER_PATH_VAR
-                                    + JobConstants.FILE_PATH_DELIMITER
-                                    + clusterId
-                                    + JobConstants.FILE_PATH_DELIMITER
-                                    + JobConstants.DEPENDENCY_FILE_PATH_PREFIX
-                            )
+            job.getClusterId().ifPresent(
+                clusterId ->
+                    dependencyDirectories.add(
+                        new File(
+                            jobDir,
+                            JobConstants.GENIE_PATH_VAR
+                                + JobConstants.FILE_PATH_DELIMITER
+                                + JobConstants.CLUSTER_PATH_VAR
+                                + JobConstants.FILE_PATH_DELIMITER
+                                + clusterId
+                                + JobConstants.FILE_PATH_DELIMITER
+                                + JobConstants.DEPENDENCY_FILE_PATH_PREFIX
                         )
-                );
-            } catch (GenieException e) {
-                log.error(
-                    "Error collecting cluster dependency for job: {} due to error {}",
-                    jobId,
-                    e);
-                incrementErrorCounter("DELETE_CLUSTER_DEPENDENCIES_FAILURE", e);
-            }
+                    )
+            );
 
             // Collect command dependencies
-            try {
-                this.jobSearchService.getJobCommand(jobId).getId().ifPresent(
-                    commandId ->
-                        dependencyDirectories.add(
-                            new File(
-                                jobDir,
-                                JobConstants.GENIE_PATH_VAR
-                                    + JobConstants.FILE_PATH_DELIMITER
-                                    + JobConstants.COMMAND_PATH_VAR
-                                    + JobConstants.FILE_PATH_DELIMITER
-                                    + commandId
-                                    + JobConstants.FILE_PATH_DELIMITER
-                                    + JobConstants.DEPENDENCY_FILE_PATH_PREFIX
-                            )
+            job.getCommandId().ifPresent(
+                commandId ->
+                    dependencyDirectories.add(
+                        new File(
+                            jobDir,
+                            JobConstants.GENIE_PATH_VAR
+                                + JobConstants.FILE_PATH_DELIMITER
+                                + JobConstants.COMMAND_PATH_VAR
+                                + JobConstants.FILE_PATH_DELIMITER
+                                + commandId
+                                + JobConstants.FILE_PATH_DELIMITER
+                                + JobConstants.DEPENDENCY_FILE_PATH_PREFIX
                         )
-                );
-            } catch (GenieException e) {
-                log.error(
-                    "Error collecting command dependency for job: {} due to error {}",
-                    jobId,
-                    e);
-                incrementErrorCounter("DELETE_COMMAND_DEPENDENCIES_FAILURE", e);
-            }
+                    )
+            );
 
-            // Delete all dependencies
+            // Delete all dependencies. With elevated rights in a single batch.
+            final List<PrivilegedOperation> deleteOperations = new ArrayList<>();
             for (File dependencyDirectory : dependencyDirectories) {
                 if (dependencyDirectory.exists()) {
                     try {
                         if (this.runAsUserEnabled) {
-                            final CommandLine deleteCommand = new CommandLine("sudo");
-                            deleteCommand.addArgument("rm");
-                            deleteCommand.addArgument("-rf");
-                            deleteCommand.addArgument(dependencyDirectory.getCanonicalPath());
-                            log.debug("Delete command is {}", deleteCommand);
-                            this.executor.execute(deleteCommand);
+                            deleteOperations.add(PrivilegedOperation.delete(dependencyDirectory.getCanonicalPath()));
                         } else {
                             FileUtils.deleteDirectory(dependencyDirectory);
                         }
@@ -494,6 +773,25 @@ public class JobCompletionService {
                     }
                 }
             }
+            if (!deleteOperations.isEmpty()) {
+                log.debug("Delete operations are {}", deleteOperations);
+                try {
+                    final List<Integer> exitCodes = this.privilegedOperationService.execute(deleteOperations);
+                    for (int i = 0; i < exitCodes.size(); i++) {
+                        if (exitCodes.get(i) != 0) {
+                            incrementErrorCounter("DELETE_DEPENDENCIES_FAILURE");
+                            log.error(
+                                "Error deleting dependency directory: {}. Exit code {}",
+                                deleteOperations.get(i).getArguments().get(0),
+                                exitCodes.get(i)
+                            );
+                        }
+                    }
+                } catch (IOException e) {
+                    incrementErrorCounter("DELETE_DEPENDENCIES_FAILURE");
+                    log.error("Error deleting dependency directories: {}", deleteOperations, e);
+                }
+            }
         }
     }
 
@@ -503,74 +801,96 @@ public class JobCompletionService {
      * @param job The job.
      * @throws GenieException if there is any problem
      */
-    private boolean processJobDir(final Job job) throws GenieException, IOException {
+    private boolean processJobDir(final JobCompletionSnapshot job) throws GenieException, IOException {
         log.debug("Got a job finished event. Will process job directory.");
         boolean result = false;
-        final Optional<String> oJobId = job.getId();
 
         // The deletion of dependencies and archiving only happens for job requests which are not Invalid.
-        if (oJobId.isPresent() && !(this.jobSearchService.getJobStatus(oJobId.get()).equals(JobStatus.INVALID))) {
-            final String jobId = oJobId.get();
+        if (!job.getStatus().equals(JobStatus.INVALID)) {
+            final String jobId = job.getId();
             final File jobDir = new File(this.baseWorkingDir, jobId);
 
             if (jobDir.exists()) {
                 if (this.deleteDependencies) {
-                    this.deleteDependenciesDirectories(jobId, jobDir);
+                    this.deleteDependenciesDirectories(job, jobDir);
                 }
 
                 final Optional<String> archiveLocation = job.getArchiveLocation();
                 if (archiveLocation.isPresent() && !Strings.isNullOrEmpty(archiveLocation.get())) {
                     log.debug("Archiving job directory");
-                    // Create the tar file
-                    final File localArchiveFile = new File(jobDir, "genie/logs/" + jobId + ".tar.gz");
-
-                    final CommandLine commandLine;
-                    if (this.runAsUserEnabled) {
-                        commandLine = new CommandLine("sudo");
-                        commandLine.addArgument("tar");
+                    if (this.streamingArchiveEnabled) {
+                        // Compressed and uploaded straight from the job directory without a local archive file
+                        final AtomicReference<ArchiveIndex> index = new AtomicReference<>();
+                        try {
+                            this.genieFileTransferService.putStream(
+                                archiveLocation.get(),
+                                out -> index.set(this.directoryArchiver.archive(jobDir, this.archiveExcludes, out))
+                            );
+                            // Lets the output of the job be served from the archive once its node is gone
+                            this.genieFileTransferService.putStream(
+                                archiveLocation.get() + ArchiveIndex.FILE_SUFFIX,
+                                out -> out.write(this.objectMapper.writeValueAsBytes(index.get()))
+                            );
+                        } catch (Throwable t) {
+                            incrementErrorCounter("JOB_ARCHIVAL_FAILURE", t);
+                            throw t;
+                        }
                     } else {
-                        commandLine = new CommandLine("tar");
-                    }
-                    commandLine.addArgument("-c");
-                    commandLine.addArgument("-z");
-                    commandLine.addArgument("-f");
-                    commandLine.addArgument(localArchiveFile.getCanonicalPath());
-                    commandLine.addArgument("./");
-
-                    this.executor.setWorkingDirectory(jobDir);
-
-                    log.debug("Archive command : {}", commandLine);
-                    try {
-                        this.executor.execute(commandLine);
-                    } catch (Throwable t) {
-                        incrementErrorCounter("JOB_ARCHIVAL_FAILURE", t);
-                        throw t;
-                    }
+                        // Create the tar file
+                        final File localArchiveFile = new File(jobDir, "genie/logs/" + jobId + ".tar.gz");
 
-                    // Upload the tar file to remote location
-                    this.genieFileTransferService.putFile(localArchiveFile.getCanonicalPath(), archiveLocation.get());
-
-                    // At this point the archive file is successfully uploaded to archive location specified in the job.
-                    // Now we can delete it from local disk to save space if enabled.
-                    if (this.deleteArchiveFile) {
-                        log.debug("Deleting archive file");
                         try {
                             if (this.runAsUserEnabled) {
-                                final CommandLine deleteCommand = new CommandLine("sudo");
-                                deleteCommand.addArgument("rm");
-                                deleteCommand.addArgument("-f");
-                                deleteCommand.addArgument(localArchiveFile.getCanonicalPath());
-
-                                this.executor.setWorkingDirectory(jobDir);
-                                log.debug("Delete command: {}", deleteCommand);
-                                this.executor.execute(deleteCommand);
-                            } else if (!localArchiveFile.delete()) {
-                                log.error("Failed to delete archive file for job: {}", jobId);
-                                incrementErrorCounter("JOB_ARCHIVE_DELETION_FAILURE");
+                                this.privilegedOperationService.execute(
+                                    PrivilegedOperation.archive(
+                                        localArchiveFile.getCanonicalPath(),
+                                        jobDir.getCanonicalPath()
+                                    )
+                                );
+                            } else {
+                                final CommandLine commandLine = new CommandLine("tar");
+                                commandLine.addArgument("-c");
+                                commandLine.addArgument("-z");
+                                commandLine.addArgument("-f");
+                                commandLine.addArgument(localArchiveFile.getCanonicalPath());
+                                commandLine.addArgument("./");
+
+                                // Jobs are archived on several threads at once so each gets an executor of its own
+                                final Executor archiveExecutor = new DefaultExecutor();
+                                archiveExecutor.setStreamHandler(new PumpStreamHandler(null, null));
+                                archiveExecutor.setWorkingDirectory(jobDir);
+
+                                log.debug("Archive command : {}", commandLine);
+                                archiveExecutor.execute(commandLine);
+                            }
+                        } catch (Throwable t) {
+                            incrementErrorCounter("JOB_ARCHIVAL_FAILURE", t);
+                            throw t;
+                        }
+
+                        // Upload the tar file to remote location
+                        this.genieFileTransferService.putFile(
+                            localArchiveFile.getCanonicalPath(),
+                            archiveLocation.get()
+                        );
+
+                        // At this point the archive file is successfully uploaded to archive location specified in
+                        // the job. Now we can delete it from local disk to save space if enabled.
+                        if (this.deleteArchiveFile) {
+                            log.debug("Deleting archive file");
+                            try {
+                                if (this.runAsUserEnabled) {
+                                    this.privilegedOperationService.execute(
+                                        PrivilegedOperation.delete(localArchiveFile.getCanonicalPath())
+                                    );
+                                } else if (!localArchiveFile.delete()) {
+                                    log.error("Failed to delete archive file for job: {}", jobId);
+                                    incrementErrorCounter("JOB_ARCHIVE_DELETION_FAILURE");
+                                }
+                            } catch (final Exception e) {
+                                log.error("Failed to delete archive file for job: {}", jobId, e);
+                                incrementErrorCounter("JOB_ARCHIVE_DELETION_FAILURE", e);
                             }
-                        } catch (final Exception e) {
-                            log.error("Failed to delete archive file for job: {}", jobId, e);
-                            incrementErrorCounter("JOB_ARCHIVE_DELETION_FAILURE", e);
                         }
                     }
                     result = true;
@@ -583,23 +903,23 @@ public class JobCompletionService {
     /**
      * Sends an email when the job is completed. Returns true if an email has been sent.
      *
-     * @param jobId The job id.
+     * @param job The job.
      * @throws GenieException If there is any problem.
      */
-    private boolean sendEmail(final String jobId) throws GenieException {
-        final JobRequest jobRequest = this.jobSearchService.getJobRequest(jobId);
+    private boolean sendEmail(final JobCompletionSnapshot job) throws GenieException {
+        final String jobId = job.getId();
         boolean result = false;
-        final Optional<String> email = jobRequest.getEmail();
+        final Optional<String> email = job.getEmail();
 
         if (email.isPresent() && !Strings.isNullOrEmpty(email.get())) {
             log.debug("Got a job finished event. Sending email: {}", email.get());
-            final JobStatus status = this.jobSearchService.getJobStatus(jobId);
+            final JobStatus status = job.getStatus();
 
             final StringBuilder subject = new StringBuilder()
                 .append("Genie Job Finished. Id: [")
                 .append(jobId)
                 .append("], Name: [")
-                .append(jobRequest.getName())
+                .append(job.getName())
                 .append("], Status: [")
                 .append(status)
                 .append("].");
@@ -609,18 +929,18 @@ public class JobCompletionService {
                 .append(jobId)
                 .append("]\n")
                 .append("Name: [")
-                .append(jobRequest.getName())
+                .append(job.getName())
                 .append("]\n")
                 .append("Status: [")
                 .append(status)
                 .append("]\n")
                 .append("User: [")
-                .append(jobRequest.getUser())
+                .append(job.getUser())
                 .append("]\n")
                 .append("Tags: ")
-                .append(jobRequest.getTags())
+                .append(job.getTags())
                 .append("\n");
-            jobRequest
+            job
                 .getDescription()
                 .ifPresent(
                     description ->
@@ -0,0 +1,230 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.util.BatchProcessChecker;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.NotNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Watches the genie directories of the jobs running on this node for the done file the run script moves into place
+ * once the job command exited. As soon as the done file is there and the process of the job is gone the job is
+ * reported finished through its {@link JobMonitor} instead of on its next check. The regular checks stay in place as
+ * the safety net for file systems where watching isn't reliable.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+class JobDoneFileWatcher implements Closeable {
+
+    private static final String DONE_FILE_NAME = new File(JobConstants.GENIE_DONE_FILE_NAME).getName();
+    // How long to wait before checking again whether the process of a job with a done file exited
+    private static final long PENDING_RECHECK_INTERVAL = 50L;
+    private static final long IDLE_WAKEUP_INTERVAL = 1000L;
+
+    private final ConcurrentMap<WatchKey, JobMonitor> monitors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, WatchKey> keys = new ConcurrentHashMap<>();
+    private final Set<JobMonitor> pending = ConcurrentHashMap.newKeySet();
+    private final BatchProcessChecker processChecker;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final Counter detectedRate;
+
+    /**
+     * Constructor. Starts the thread waiting for file system events.
+     *
+     * @param processChecker The checker to use to find out whether the process of a job with a done file exited
+     * @param registry       The metrics registry to use
+     * @throws IOException If the file system can't be watched
+     */
+    JobDoneFileWatcher(
+        @NotNull final BatchProcessChecker processChecker,
+        @NotNull final Registry registry
+    ) throws IOException {
+        this.processChecker = processChecker;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.detectedRate = registry.counter("genie.jobs.monitor.doneFileDetected.rate");
+        registry.mapSize("genie.jobs.monitor.watched.gauge", this.keys);
+
+        this.thread = new Thread(this::processEvents, "genie-done-file-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Start watching for the done file of a job. If the directory can't be watched the job is left to the regular
+     * checks.
+     *
+     * @param monitor        The monitor of the job
+     * @param genieDirectory The genie directory inside the job directory where the run script puts the done file
+     */
+    void watch(@NotNull final JobMonitor monitor, @NotNull final File genieDirectory) {
+        final WatchKey key;
+        try {
+            key = genieDirectory.toPath().register(
+                this.watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY
+            );
+        } catch (final IOException | ClosedWatchServiceException e) {
+            log.warn("Unable to watch {} for the done file of job {}", genieDirectory, monitor.getId(), e);
+            return;
+        }
+        this.monitors.put(key, monitor);
+        this.keys.put(monitor.getId(), key);
+
+        // The job may have finished before its directory was registered
+        if (isDone(genieDirectory.toPath())) {
+            this.pending.add(monitor);
+        }
+    }
+
+    /**
+     * Stop watching for the done file of a job.
+     *
+     * @param id The id of the job
+     */
+    void unwatch(@NotNull final String id) {
+        final WatchKey key = this.keys.remove(id);
+        if (key != null) {
+            key.cancel();
+            this.monitors.remove(key);
+        }
+        this.pending.removeIf(monitor -> monitor.getId().equals(id));
+    }
+
+    /**
+     * Get the number of jobs currently watched.
+     *
+     * @return The number of watched jobs
+     */
+    int getNumWatched() {
+        return this.keys.size();
+    }
+
+    /**
+     * Stop watching all the jobs.
+     */
+    @Override
+    public void close() {
+        this.thread.interrupt();
+        try {
+            this.watchService.close();
+        } catch (final IOException ioe) {
+            log.debug("Unable to close the watch service", ioe);
+        }
+    }
+
+    private void processEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final WatchKey key = this.watchService.poll(
+                    this.pending.isEmpty() ? IDLE_WAKEUP_INTERVAL : PENDING_RECHECK_INTERVAL,
+                    TimeUnit.MILLISECONDS
+                );
+                if (key != null) {
+                    this.handle(key);
+                }
+                this.checkPending();
+            } catch (final ClosedWatchServiceException cwse) {
+                return;
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final RuntimeException re) {
+                // Never let the thread die as the jobs would only be detected finished by the regular checks
+                log.error("Unable to process the done file events", re);
+            }
+        }
+    }
+
+    private void handle(final WatchKey key) {
+        boolean doneFileChanged = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                || DONE_FILE_NAME.equals(String.valueOf(event.context()))) {
+                doneFileChanged = true;
+            }
+        }
+        final JobMonitor monitor = this.monitors.get(key);
+        if (monitor == null) {
+            key.cancel();
+            return;
+        }
+        if (!key.reset()) {
+            // The directory is gone
+            this.unwatch(monitor.getId());
+            return;
+        }
+        if (doneFileChanged && isDone((Path) key.watchable())) {
+            this.pending.add(monitor);
+        }
+    }
+
+    private void checkPending() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        final Set<Integer> running;
+        try {
+            running = this.processChecker.getRunningProcesses(
+                this.pending.stream().map(JobMonitor::getProcessId).collect(Collectors.toSet())
+            );
+        } catch (final IOException ioe) {
+            log.debug("Unable to check the processes of the jobs with a done file", ioe);
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        for (final JobMonitor monitor : this.pending) {
+            // The run script writes the done file right before it exits
+            if (monitor.isFinished() || !running.contains(monitor.getProcessId())) {
+                this.unwatch(monitor.getId());
+                if (!monitor.isFinished()) {
+                    this.detectedRate.increment();
+                    monitor.check(false, now);
+                }
+            }
+        }
+    }
+
+    private static boolean isDone(final Path genieDirectory) {
+        // The done file is only complete once its content is written by the run script or one of its trap handlers
+        return genieDirectory.resolve(DONE_FILE_NAME).toFile().length() > 0;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.genie.web.tasks.node.NodeTask;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single task which ships the bytes appended to the logs of all the jobs running on this node to their archive
+ * locations while they run so a lost node doesn't take the logs with it. Every pass uploads what was appended to a log
+ * since the previous one as a chunk named after the offset it starts at. The offsets already shipped are checkpointed
+ * in the job directory so shipping resumes where it stopped when this node restarts. A chunk uploaded again after a
+ * crash before its checkpoint overwrites itself. Once a job finished the remaining bytes are shipped with the next
+ * pass and the job is dropped.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class JobLogShipper extends NodeTask {
+
+    /**
+     * The suffix added to the archive location of a job to get the location its log chunks are shipped under.
+     */
+    public static final String CHUNKS_SUFFIX = ".logs/";
+
+    /**
+     * The path of the checkpoint file relative to the job directory.
+     */
+    static final String CHECKPOINT_FILE_PATH = "genie/logs/shipped-logs.properties";
+
+    /**
+     * The paths of the logs shipped relative to the job directory.
+     */
+    static final List<String> LOG_PATHS = ImmutableList.of(
+        JobConstants.STDOUT_LOG_FILE_NAME,
+        JobConstants.STDERR_LOG_FILE_NAME,
+        JobConstants.GENIE_LOG_PATH.substring(1)
+    );
+
+    private static final String CHUNK_NAME_FORMAT = "%s.%020d";
+
+    private final ConcurrentMap<String, ShippedJob> jobs = new ConcurrentHashMap<>();
+    private final JobSearchService jobSearchService;
+    private final GenieFileTransferService genieFileTransferService;
+    private final long shipInterval;
+    private final long maxChunkSize;
+    private final Registry registry;
+    private final Id shipTimerId;
+    private final Counter shippedBytes;
+    private final Counter failures;
+
+    /**
+     * Constructor.
+     *
+     * @param jobSearchService         The service to find the archive locations of the jobs with
+     * @param genieFileTransferService The service to upload the chunks with
+     * @param shipInterval             The time to wait between two passes in milliseconds
+     * @param maxChunkSize             The maximum number of bytes of a log uploaded as one chunk
+     * @param registry                 The metrics registry to use
+     */
+    JobLogShipper(
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final GenieFileTransferService genieFileTransferService,
+        @Min(1) final long shipInterval,
+        @Min(1) final long maxChunkSize,
+        @NotNull final Registry registry
+    ) {
+        this.jobSearchService = jobSearchService;
+        this.genieFileTransferService = genieFileTransferService;
+        this.shipInterval = shipInterval;
+        this.maxChunkSize = maxChunkSize;
+        this.registry = registry;
+        this.shipTimerId = registry.createId("genie.jobs.logShipping.ship.timer");
+        this.shippedBytes = registry.counter("genie.jobs.logShipping.bytes.rate");
+        this.failures = registry.counter("genie.jobs.logShipping.failure.rate");
+    }
+
+    /**
+     * Start shipping the logs of a job with every pass.
+     *
+     * @param id     The id of the job
+     * @param jobDir The working directory of the job
+     */
+    void track(@NotNull final String id, @NotNull final File jobDir) {
+        this.jobs.putIfAbsent(id, new ShippedJob(jobDir));
+    }
+
+    /**
+     * Ship what remains of the logs of a job with the next pass and stop shipping them after that.
+     *
+     * @param id The id of the job
+     */
+    void untrack(@NotNull final String id) {
+        final ShippedJob job = this.jobs.get(id);
+        if (job != null) {
+            job.finished = true;
+        }
+    }
+
+    /**
+     * Get the number of jobs whose logs are currently shipped.
+     *
+     * @return The number of jobs
+     */
+    int getNumTracked() {
+        return this.jobs.size();
+    }
+
+    /**
+     * Ship the logs of all the jobs.
+     */
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            this.ship();
+        } catch (final RuntimeException e) {
+            // Never let an exception escape as it would stop the scheduling of all further passes
+            log.error("Unable to ship the logs of the running jobs", e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+        } finally {
+            this.registry
+                .timer(this.shipTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Ship the bytes appended to the logs of all the jobs since the previous pass.
+     */
+    void ship() {
+        for (final Map.Entry<String, ShippedJob> entry : this.jobs.entrySet()) {
+            final String id = entry.getKey();
+            final ShippedJob job = entry.getValue();
+            // Read before shipping so a job reported finished during this pass gets one more for what it wrote last
+            final boolean finished = job.finished;
+            try {
+                this.shipJob(id, job);
+            } catch (final GenieException | IOException e) {
+                log.error("Unable to ship the logs of job {}", id, e);
+                this.failures.increment();
+            }
+            if (finished) {
+                this.jobs.remove(id);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GenieTaskScheduleType getScheduleType() {
+        return GenieTaskScheduleType.FIXED_DELAY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFixedDelay() {
+        return this.shipInterval;
+    }
+
+    private void shipJob(final String id, final ShippedJob job) throws GenieException, IOException {
+        if (job.chunksLocation == null) {
+            final Optional<String> archiveLocation = this.jobSearchService.getJob(id).getArchiveLocation();
+            job.chunksLocation = archiveLocation.isPresent() && !Strings.isNullOrEmpty(archiveLocation.get())
+                ? Optional.of(archiveLocation.get() + CHUNKS_SUFFIX)
+                : Optional.empty();
+            job.checkpoint = readCheckpoint(new File(job.jobDir, CHECKPOINT_FILE_PATH));
+        }
+        if (!job.chunksLocation.isPresent()) {
+            // Nothing to ship to
+            return;
+        }
+
+        boolean shipped = false;
+        for (final String path : LOG_PATHS) {
+            final File logFile = new File(job.jobDir, path);
+            long offset = Long.parseLong(job.checkpoint.getProperty(path, "0"));
+            while (offset < logFile.length()) {
+                final long length = this.shipChunk(logFile, offset, job.chunksLocation.get() + path);
+                if (length == 0) {
+                    break;
+                }
+                offset += length;
+                job.checkpoint.setProperty(path, Long.toString(offset));
+                shipped = true;
+            }
+        }
+        if (shipped) {
+            writeCheckpoint(new File(job.jobDir, CHECKPOINT_FILE_PATH), job.checkpoint);
+        }
+    }
+
+    private long shipChunk(
+        final File logFile,
+        final long offset,
+        final String chunkPrefix
+    ) throws GenieException, IOException {
+        final File chunk = File.createTempFile("genie-log-chunk", null);
+        try {
+            final long length;
+            try (
+                FileChannel in = new FileInputStream(logFile).getChannel();
+                FileChannel out = new FileOutputStream(chunk).getChannel()
+            ) {
+                length = in.transferTo(offset, Math.min(this.maxChunkSize, in.size() - offset), out);
+            }
+            this.genieFileTransferService.putFile(
+                chunk.getCanonicalPath(),
+                String.format(CHUNK_NAME_FORMAT, chunkPrefix, offset)
+            );
+            this.shippedBytes.increment(length);
+            return length;
+        } finally {
+            if (!chunk.delete()) {
+                log.warn("Unable to delete log chunk {}", chunk);
+            }
+        }
+    }
+
+    private static Properties readCheckpoint(final File checkpointFile) throws IOException {
+        final Properties checkpoint = new Properties();
+        if (checkpointFile.isFile()) {
+            try (InputStream in = new FileInputStream(checkpointFile)) {
+                checkpoint.load(in);
+            }
+        }
+        return checkpoint;
+    }
+
+    private static void writeCheckpoint(final File checkpointFile, final Properties checkpoint) throws IOException {
+        // Replaced in one step so a crash never leaves a partial checkpoint behind
+        final File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            checkpoint.store(out, null);
+        }
+        Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The shipping state of a single job. Only ever used by the thread running the passes apart from the flag.
+     */
+    private static final class ShippedJob {
+        private final File jobDir;
+        private Optional<String> chunksLocation;
+        private Properties checkpoint;
+        private volatile boolean finished;
+
+        private ShippedJob(final File jobDir) {
+            this.jobDir = jobDir;
+        }
+    }
+}
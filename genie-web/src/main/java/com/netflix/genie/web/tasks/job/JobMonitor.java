@@ -19,45 +19,39 @@ package com.netflix.genie.web.tasks.job;
 
 import com.netflix.genie.common.dto.JobExecution;
 import com.netflix.genie.common.dto.JobStatusMessages;
-import com.netflix.genie.common.exceptions.GenieTimeoutException;
 import com.netflix.genie.core.events.GenieEventBus;
 import com.netflix.genie.core.events.JobFinishedEvent;
 import com.netflix.genie.core.events.JobFinishedReason;
 import com.netflix.genie.core.events.KillJobEvent;
 import com.netflix.genie.core.properties.JobsProperties;
-import com.netflix.genie.core.util.ProcessChecker;
-import com.netflix.genie.core.util.UnixProcessChecker;
-import com.netflix.genie.web.tasks.GenieTaskScheduleType;
-import com.netflix.genie.web.tasks.node.NodeTask;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.exec.ExecuteException;
-import org.apache.commons.exec.Executor;
 import org.apache.commons.lang3.SystemUtils;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
-import java.util.Date;
 
 /**
- * Given a process id this class will check if the job client process is running or not.
+ * The monitoring state of a single job client process. Checked by the {@link JobMonitorSweeper} together with all the
+ * other jobs running on this node.
  *
  * @author tgianos
  * @since 3.0.0
  */
 @Slf4j
-public class JobMonitor extends NodeTask {
+public class JobMonitor {
 
     // How many error iterations we can handle
     // TODO: Make this a variable
     private static final int MAX_ERRORS = 5;
     private final String id;
-    private final JobExecution execution;
-    private final ProcessChecker processChecker;
+    private final int processId;
+    private final long checkDelay;
+    private final long timeout;
     private final GenieEventBus genieEventBus;
     private final File stdOut;
     private final File stdErr;
@@ -72,6 +66,8 @@ public class JobMonitor extends NodeTask {
     private final Counter stdOutTooLarge;
     private final Counter stdErrTooLarge;
     private int errorCount;
+    private long nextCheck;
+    private boolean finished;
 
     /**
      * Constructor.
@@ -79,7 +75,6 @@ public class JobMonitor extends NodeTask {
      * @param execution      The job execution object including the pid
      * @param stdOut         The std out output file
      * @param stdErr         The std err output file
-     * @param executor       The process executor to use
      * @param genieEventBus  The event bus implementation to use
      * @param registry       The metrics event registry
      * @param jobsProperties The properties for jobs
@@ -88,7 +83,6 @@ public class JobMonitor extends NodeTask {
         @Valid final JobExecution execution,
         @NotNull final File stdOut,
         @NotNull final File stdErr,
-        @NotNull final Executor executor,
         @NonNull final GenieEventBus genieEventBus,
         @NotNull final Registry registry,
         @NotNull final JobsProperties jobsProperties
@@ -99,19 +93,20 @@ public class JobMonitor extends NodeTask {
 
         this.errorCount = 0;
         this.id = execution.getId().orElseThrow(IllegalArgumentException::new);
-        this.execution = execution;
+        this.processId = execution.getProcessId().orElseThrow(IllegalArgumentException::new);
+        this.checkDelay = execution.getCheckDelay().orElseThrow(IllegalArgumentException::new);
+        this.timeout = execution.getTimeout().orElseThrow(IllegalArgumentException::new).getTime();
         this.genieEventBus = genieEventBus;
 
-        final int processId = execution.getProcessId().orElseThrow(IllegalArgumentException::new);
-        final Date timeout = execution.getTimeout().orElseThrow(IllegalArgumentException::new);
-        this.processChecker = new UnixProcessChecker(processId, executor, timeout);
-
         this.stdOut = stdOut;
         this.stdErr = stdErr;
 
         this.maxStdOutLength = jobsProperties.getMax().getStdOutSize();
         this.maxStdErrLength = jobsProperties.getMax().getStdErrSize();
 
+        // Check right away on the first sweep
+        this.nextCheck = 0L;
+
         this.successfulCheckRate = registry.counter("genie.jobs.successfulStatusCheck.rate");
         this.timeoutRate = registry.counter("genie.jobs.timeout.rate");
         this.finishedRate = registry.counter("genie.jobs.finished.rate");
@@ -121,44 +116,69 @@ public class JobMonitor extends NodeTask {
     }
 
     /**
-     * This will check the process identified by the pid supplied to the constructor. If the pid no longer exists fires
-     * an event to the system saying the job is done.
+     * Get the id of the job.
+     *
+     * @return The job id
      */
-    @Override
-    public void run() {
-        try {
-            // Blocks until result
-            this.processChecker.checkProcess();
-            log.debug("Job {} is still running...", this.id);
-            if (this.errorCount != 0) {
-                this.errorCount = 0;
-            }
-
-            if (this.stdOut.exists() && this.stdOut.length() > this.maxStdOutLength) {
-                this.genieEventBus.publishSynchronousEvent(
-                    new KillJobEvent(this.id, JobStatusMessages.JOB_EXCEEDED_STDOUT_LENGTH, this)
-                );
-                this.stdOutTooLarge.increment();
-                return;
-            }
-
-            if (this.stdErr.exists() && this.stdErr.length() > this.maxStdErrLength) {
-                this.genieEventBus.publishSynchronousEvent(
-                    new KillJobEvent(this.id, JobStatusMessages.JOB_EXCEEDED_STDERR_LENGTH, this)
-                );
-                this.stdErrTooLarge.increment();
-                return;
-            }
-
-            this.successfulCheckRate.increment();
-        } catch (final GenieTimeoutException gte) {
-            log.info("Job {} has timed out", this.execution.getId(), gte);
-            this.timeoutRate.increment();
-            this.genieEventBus.publishSynchronousEvent(
-                new KillJobEvent(this.id, JobStatusMessages.JOB_EXCEEDED_TIMEOUT, this)
-            );
-        } catch (final ExecuteException ee) {
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the id of the job client process.
+     *
+     * @return The process id
+     */
+    public int getProcessId() {
+        return this.processId;
+    }
+
+    /**
+     * Get the minimum time between two checks of this job.
+     *
+     * @return The check delay in milliseconds
+     */
+    public long getCheckDelay() {
+        return this.checkDelay;
+    }
+
+    /**
+     * Whether the check delay of this job has passed since its last check. Never true once the job was found to be
+     * finished.
+     *
+     * @param now The current time in milliseconds since the epoch
+     * @return True if the job should be checked now
+     */
+    public synchronized boolean isCheckDue(final long now) {
+        return !this.finished && now >= this.nextCheck;
+    }
+
+    /**
+     * Whether the job was already found to be finished by any of the checks.
+     *
+     * @return True if the finished event of the job was already sent
+     */
+    public synchronized boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * Evaluate the state of the job given whether the process identified by the pid supplied to the constructor is
+     * still running. If it isn't fires an event to the system saying the job is done. If it is the timeout and the
+     * sizes of the output files of the job are checked. Does nothing once the job was found to be finished so the
+     * event is only ever sent once no matter how many ways the completion was detected.
+     *
+     * @param running Whether the process of the job is still running
+     * @param now     The current time in milliseconds since the epoch
+     */
+    public synchronized void check(final boolean running, final long now) {
+        if (this.finished) {
+            return;
+        }
+        this.nextCheck = now + this.checkDelay;
+        if (!running) {
             log.info("Job {} has finished", this.id);
+            this.finished = true;
             this.finishedRate.increment();
             this.genieEventBus.publishAsynchronousEvent(
                 new JobFinishedEvent(
@@ -168,51 +188,76 @@ public class JobMonitor extends NodeTask {
                     this
                 )
             );
-        } catch (final IOException ioe) {
-            // Some other error
-            log.error(
-                "Some IOException happened unable to check process status for pid {}",
-                this.execution.getProcessId(),
-                ioe
+            return;
+        }
+
+        log.debug("Job {} is still running...", this.id);
+        if (this.errorCount != 0) {
+            this.errorCount = 0;
+        }
+
+        if (now > this.timeout) {
+            log.info("Job {} has timed out", this.id);
+            this.timeoutRate.increment();
+            this.genieEventBus.publishSynchronousEvent(
+                new KillJobEvent(this.id, JobStatusMessages.JOB_EXCEEDED_TIMEOUT, this)
             );
-            this.errorCount++;
-            this.unsuccessfulCheckRate.increment();
-            // If this keeps throwing errors out we should kill the job
-            if (this.errorCount > MAX_ERRORS) {
-                // TODO: What if they throw an exception?
-                this.genieEventBus.publishSynchronousEvent(
-                    new KillJobEvent(
-                        this.id,
-                        JobStatusMessages.JOB_PROCESS_NOT_FOUND,
-                        this
-                    )
-                );
-                // Also send a job finished event
-                this.genieEventBus.publishAsynchronousEvent(
-                    new JobFinishedEvent(
-                        this.id,
-                        JobFinishedReason.KILLED,
-                        JobStatusMessages.JOB_PROCESS_NOT_FOUND,
-                        this
-                    )
-                );
-            }
+            return;
         }
-    }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public GenieTaskScheduleType getScheduleType() {
-        return GenieTaskScheduleType.FIXED_DELAY;
+        if (this.stdOut.exists() && this.stdOut.length() > this.maxStdOutLength) {
+            this.genieEventBus.publishSynchronousEvent(
+                new KillJobEvent(this.id, JobStatusMessages.JOB_EXCEEDED_STDOUT_LENGTH, this)
+            );
+            this.stdOutTooLarge.increment();
+            return;
+        }
+
+        if (this.stdErr.exists() && this.stdErr.length() > this.maxStdErrLength) {
+            this.genieEventBus.publishSynchronousEvent(
+                new KillJobEvent(this.id, JobStatusMessages.JOB_EXCEEDED_STDERR_LENGTH, this)
+            );
+            this.stdErrTooLarge.increment();
+            return;
+        }
+
+        this.successfulCheckRate.increment();
     }
 
     /**
-     * {@inheritDoc}
+     * Record that the state of the process of the job couldn't be checked. If this keeps happening the job is killed.
+     *
+     * @param ioe The error which occurred while checking the process
+     * @param now The current time in milliseconds since the epoch
      */
-    @Override
-    public long getFixedDelay() {
-        return this.execution.getCheckDelay().orElseThrow(IllegalArgumentException::new);
+    public synchronized void checkFailed(final IOException ioe, final long now) {
+        if (this.finished) {
+            return;
+        }
+        this.nextCheck = now + this.checkDelay;
+        log.error("Some IOException happened unable to check process status for pid {}", this.processId, ioe);
+        this.errorCount++;
+        this.unsuccessfulCheckRate.increment();
+        // If this keeps throwing errors out we should kill the job
+        if (this.errorCount > MAX_ERRORS) {
+            this.finished = true;
+            // TODO: What if they throw an exception?
+            this.genieEventBus.publishSynchronousEvent(
+                new KillJobEvent(
+                    this.id,
+                    JobStatusMessages.JOB_PROCESS_NOT_FOUND,
+                    this
+                )
+            );
+            // Also send a job finished event
+            this.genieEventBus.publishAsynchronousEvent(
+                new JobFinishedEvent(
+                    this.id,
+                    JobFinishedReason.KILLED,
+                    JobStatusMessages.JOB_PROCESS_NOT_FOUND,
+                    this
+                )
+            );
+        }
     }
 }
@@ -0,0 +1,175 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.netflix.genie.core.util.BatchProcessChecker;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.genie.web.tasks.node.NodeTask;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single task which checks all the jobs running on this node in one pass. Every sweep collects the jobs whose check
+ * delay has passed, checks all their processes at once and then evaluates the timeout and output limits of every job.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class JobMonitorSweeper extends NodeTask {
+
+    private final ConcurrentMap<String, JobMonitor> monitors = new ConcurrentHashMap<>();
+    private final BatchProcessChecker processChecker;
+    private final long sweepInterval;
+    private final Registry registry;
+    private final Id sweepTimerId;
+
+    /**
+     * Constructor.
+     *
+     * @param processChecker The checker to use to find out which job processes are still running
+     * @param sweepInterval  The time to wait between two sweeps in milliseconds
+     * @param registry       The metrics registry to use
+     */
+    JobMonitorSweeper(
+        @NotNull final BatchProcessChecker processChecker,
+        @Min(1) final long sweepInterval,
+        @NotNull final Registry registry
+    ) {
+        this.processChecker = processChecker;
+        this.sweepInterval = sweepInterval;
+        this.registry = registry;
+        this.sweepTimerId = registry.createId("genie.jobs.monitor.sweep.timer");
+        this.registry.mapSize("genie.jobs.monitor.tracked.gauge", this.monitors);
+    }
+
+    /**
+     * Start checking a job with every sweep. Replaces any monitor already tracked for the same job.
+     *
+     * @param monitor The monitor of the job
+     * @return A future which stops the tracking of the job when cancelled
+     */
+    Future<?> track(@NotNull final JobMonitor monitor) {
+        this.monitors.put(monitor.getId(), monitor);
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        future.whenComplete((result, throwable) -> this.monitors.remove(monitor.getId(), monitor));
+        return future;
+    }
+
+    /**
+     * Get the number of jobs currently tracked.
+     *
+     * @return The number of tracked jobs
+     */
+    int getNumTracked() {
+        return this.monitors.size();
+    }
+
+    /**
+     * Check all the jobs which are due.
+     */
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            this.sweep(System.currentTimeMillis());
+        } catch (final RuntimeException re) {
+            // Never let an exception escape as it would stop the scheduling of all further sweeps
+            log.error("Unable to sweep the running jobs", re);
+            MetricsUtils.addFailureTagsWithException(tags, re);
+        } finally {
+            this.registry
+                .timer(this.sweepTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Check all the jobs which are due at the given time.
+     *
+     * @param now The current time in milliseconds since the epoch
+     */
+    void sweep(final long now) {
+        final List<JobMonitor> due = new ArrayList<>();
+        final Set<Integer> pids = new HashSet<>();
+        for (final JobMonitor monitor : this.monitors.values()) {
+            if (monitor.isCheckDue(now)) {
+                due.add(monitor);
+                pids.add(monitor.getProcessId());
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        final Set<Integer> running;
+        try {
+            running = this.processChecker.getRunningProcesses(pids);
+        } catch (final IOException ioe) {
+            for (final JobMonitor monitor : due) {
+                monitor.checkFailed(ioe, now);
+            }
+            return;
+        }
+
+        for (final JobMonitor monitor : due) {
+            // The job may have finished while its process was being checked
+            if (this.monitors.get(monitor.getId()) != monitor) {
+                continue;
+            }
+            try {
+                monitor.check(running.contains(monitor.getProcessId()), now);
+            } catch (final RuntimeException re) {
+                log.error("Unable to check job {}", monitor.getId(), re);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GenieTaskScheduleType getScheduleType() {
+        return GenieTaskScheduleType.FIXED_DELAY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFixedDelay() {
+        return this.sweepInterval;
+    }
+}
@@ -17,11 +17,14 @@
  */
 package com.netflix.genie.web.tasks.job;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobResourceUsage;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.JobStatusMessages;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.events.GenieEventBus;
 import com.netflix.genie.core.events.JobFinishedEvent;
@@ -29,13 +32,19 @@ import com.netflix.genie.core.events.JobFinishedReason;
 import com.netflix.genie.core.events.JobStartedEvent;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.services.JobResourceUsageService;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import com.netflix.genie.core.services.impl.JobStateServiceImpl;
+import com.netflix.genie.core.util.BatchProcessChecker;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.genie.core.util.ProcfsProcessGroupUsageSampler;
+import com.netflix.genie.core.util.UnixBatchProcessChecker;
 import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.exec.Executor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationEvent;
@@ -46,11 +55,19 @@ import org.springframework.core.io.Resource;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A Task to monitor running jobs on a Genie node.
@@ -61,14 +78,30 @@ import java.util.concurrent.ScheduledFuture;
 @Component
 @Primary
 @Slf4j
-public class JobMonitoringCoordinator extends JobStateServiceImpl {
+public class JobMonitoringCoordinator extends JobStateServiceImpl implements JobResourceUsageService {
     private final String hostName;
     private final JobSearchService jobSearchService;
-    private final Executor executor;
     private final File jobsDir;
     private final JobsProperties jobsProperties;
+    private final JobMonitorSweeper sweeper;
+    // Null unless watching for the done files of the jobs is enabled
+    private final JobDoneFileWatcher doneFileWatcher;
+    // Null unless sampling the resource usage of the jobs is enabled and the proc file system is available
+    private final JobResourceUsageSampler usageSampler;
+    // Null unless shipping the logs of the jobs while they run is enabled
+    private final JobLogShipper logShipper;
+
+    // Jobs created after this were submitted to this node after it started and need no re-attaching
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicBoolean reAttached = new AtomicBoolean(false);
+    // Re-attaches while the container starts so the health indicator keeps the node out of service meanwhile
+    private final ExecutorService reAttacher = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("genie-re-attach-%d").setDaemon(true).build()
+    );
 
     private final Counter unableToReAttach;
+    private final Counter reAttachedJobs;
+    private final Id reAttachTimerId;
 
     /**
      * Constructor.
@@ -77,11 +110,11 @@ public class JobMonitoringCoordinator extends JobStateServiceImpl {
      * @param jobSearchService    The search service to use to find jobs
      * @param genieEventBus       The Genie event bus to use for publishing events
      * @param scheduler           The task scheduler to use to register scheduling of job checkers
-     * @param executor            The executor to use to launch processes
      * @param registry            The metrics registry
      * @param jobsDir             The directory where job output is stored
      * @param jobsProperties      The properties pertaining to jobs
      * @param jobSubmitterService implementation of the job submitter service
+     * @param fileTransferService The file transfer service to ship the logs of the running jobs with
      * @throws IOException on error with the filesystem
      */
     @Autowired
@@ -90,39 +123,90 @@ public class JobMonitoringCoordinator extends JobStateServiceImpl {
         final JobSearchService jobSearchService,
         final GenieEventBus genieEventBus,
         @Qualifier("genieTaskScheduler") final TaskScheduler scheduler,
-        final Executor executor,
         final Registry registry,
         final Resource jobsDir,
         final JobsProperties jobsProperties,
-        final JobSubmitterService jobSubmitterService
+        final JobSubmitterService jobSubmitterService,
+        @Qualifier("genieFileTransferService") final GenieFileTransferService fileTransferService
     ) throws IOException {
         super(jobSubmitterService, scheduler, genieEventBus, registry);
         this.hostName = hostName;
         this.jobSearchService = jobSearchService;
-        this.executor = executor;
         this.jobsDir = jobsDir.getFile();
         this.jobsProperties = jobsProperties;
 
+        // A single task checks all the jobs on this node instead of one per job
+        final BatchProcessChecker processChecker
+            = new UnixBatchProcessChecker(new File(UnixBatchProcessChecker.PROC_DIRECTORY));
+        this.sweeper = new JobMonitorSweeper(
+            processChecker,
+            jobsProperties.getMonitor().getSweepInterval(),
+            registry
+        );
+        this.scheduler.scheduleWithFixedDelay(this.sweeper, this.sweeper.getFixedDelay());
+
+        // Finished jobs are detected as soon as their done file appears. The sweeper remains the safety net.
+        this.doneFileWatcher = jobsProperties.getMonitor().isDoneFileWatchEnabled()
+            ? new JobDoneFileWatcher(processChecker, registry)
+            : null;
+
+        final File procDirectory = new File(UnixBatchProcessChecker.PROC_DIRECTORY);
+        if (jobsProperties.getMonitor().isUsageSamplingEnabled() && procDirectory.isDirectory()) {
+            this.usageSampler = new JobResourceUsageSampler(
+                new ProcfsProcessGroupUsageSampler(procDirectory),
+                jobsProperties.getMonitor().getUsageSampleInterval(),
+                registry
+            );
+            this.scheduler.scheduleWithFixedDelay(this.usageSampler, this.usageSampler.getFixedDelay());
+        } else {
+            this.usageSampler = null;
+        }
+
+        // The JVM can't read the logs of jobs run as their user
+        if (jobsProperties.getMonitor().isLogShippingEnabled() && !jobsProperties.getUsers().isRunAsUserEnabled()) {
+            this.logShipper = new JobLogShipper(
+                jobSearchService,
+                fileTransferService,
+                jobsProperties.getMonitor().getLogShipInterval(),
+                jobsProperties.getMonitor().getLogShipMaxChunkSize(),
+                registry
+            );
+            this.scheduler.scheduleWithFixedDelay(this.logShipper, this.logShipper.getFixedDelay());
+        } else {
+            this.logShipper = null;
+        }
+
         // Automatically track the number of jobs running on this node
         this.unableToReAttach = registry.counter("genie.jobs.unableToReAttach.rate");
+        this.reAttachedJobs = registry.counter("genie.jobs.reAttached.rate");
+        this.reAttachTimerId = registry.createId("genie.jobs.reAttach.timer");
     }
 
     /**
      * When this application is fully up and running this method should be triggered by an event. It will query the
      * database to find any jobs already running on this node that aren't in the map. The use case for this is if
      * the Genie application crashes when it comes back up it can find the jobs again and not leave them orphaned.
+     * The jobs are re-attached to on a thread of their own so the container starts meanwhile and the node reports
+     * as out of service until it is done.
      *
-     * @param event The spring ready event indicating the application is ready to start taking load
-     * @throws GenieException on unrecoverable error
+     * @param event The spring event indicating the application context is ready
      */
     @EventListener
-    public void onStartup(final ContextRefreshedEvent event) throws GenieException {
-        this.reAttach(event);
+    public void onStartup(final ContextRefreshedEvent event) {
+        this.reAttacher.execute(
+            () -> {
+                try {
+                    this.reAttach(event);
+                } catch (final GenieException | RuntimeException e) {
+                    log.error("Unable to re-attach to the jobs active on this node at startup", e);
+                }
+            }
+        );
     }
 
     /**
-     * This event is fired when a job is started on this Genie node. Will create a JobMonitor and schedule it
-     * for monitoring.
+     * This event is fired when a job is started on this Genie node. Will create a JobMonitor and add it to the jobs
+     * checked by the sweeper.
      *
      * @param event The event of the started job
      */
@@ -134,7 +218,7 @@ public class JobMonitoringCoordinator extends JobStateServiceImpl {
     }
 
     /**
-     * When a job is finished this event is fired. This method will cancel the task monitoring the job process.
+     * When a job is finished this event is fired. This method will stop the monitoring of the job process.
      *
      * @param event the event of the finished job
      * @throws GenieException When a job execution can't be found (should never happen)
@@ -142,44 +226,153 @@ public class JobMonitoringCoordinator extends JobStateServiceImpl {
     @EventListener
     public void onJobFinished(final JobFinishedEvent event) throws GenieException {
         done(event.getId());
+        if (this.doneFileWatcher != null) {
+            this.doneFileWatcher.unwatch(event.getId());
+        }
+        if (this.usageSampler != null) {
+            this.usageSampler.untrack(event.getId());
+        }
+        if (this.logShipper != null) {
+            this.logShipper.untrack(event.getId());
+        }
     }
 
-    private void reAttach(final ApplicationEvent event) throws GenieException {
-        log.info("Application is ready according to event {}. Attempting to re-attach to any active jobs", event);
-        final Set<Job> jobsOnHost = this.jobSearchService.getAllActiveJobsOnHost(this.hostName);
-        if (jobsOnHost.isEmpty()) {
-            log.info("No jobs currently active on this node.");
-            return;
-        } else {
-            log.info("{} jobs currently active on this node at startup", jobsOnHost.size());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<JobResourceUsage> getResourceUsage(final String jobId) {
+        return this.usageSampler == null ? Optional.empty() : this.usageSampler.getResourceUsage(jobId);
+    }
+
+    /**
+     * Get the peak memory sampled for the job plus headroom, at least the requested memory until the job was sampled
+     * enough times.
+     *
+     * @param jobId           The id of the job
+     * @param requestedMemory The memory requested by the job in MB
+     * @return The memory to account for the job in MB
+     */
+    @Override
+    protected int getObservedMemory(final String jobId, final int requestedMemory) {
+        return this.usageSampler == null
+            ? requestedMemory
+            : this.usageSampler.getAdmissionMemory(
+                jobId,
+                requestedMemory,
+                this.jobsProperties.getMemory().getObservedUsageMinSamples(),
+                this.jobsProperties.getMemory().getObservedUsageHeadroom()
+            );
+    }
+
+    /**
+     * Stop watching for the done files of the jobs before this object is destroyed.
+     */
+    @PreDestroy
+    public void preDestroy() {
+        this.reAttacher.shutdownNow();
+        if (this.doneFileWatcher != null) {
+            this.doneFileWatcher.close();
         }
+    }
+
+    /**
+     * Whether the jobs which were running on this node when it started have been re-attached to.
+     *
+     * @return True once the re-attach on startup has finished, even if it failed
+     */
+    public boolean isReAttached() {
+        return this.reAttached.get();
+    }
 
-        for (final Job job : jobsOnHost) {
-            final String id = job.getId().orElseThrow(() -> new GenieServerException("Job has no id!"));
-            if (jobExists(id)) {
-                log.info("Job {} is already being tracked. Ignoring.", id);
-            } else if (job.getStatus() != JobStatus.RUNNING) {
-                this.genieEventBus.publishAsynchronousEvent(
-                    new JobFinishedEvent(
-                        id, JobFinishedReason.SYSTEM_CRASH, JobStatusMessages.SYSTEM_CRASHED_WHILE_JOB_STARTING, this
-                    )
-                );
+    /**
+     * New jobs are only admitted once the jobs which were running on this node when it started are re-attached to.
+     * Otherwise their memory wouldn't be accounted for.
+     *
+     * @return True once the re-attach on startup has finished
+     */
+    @Override
+    public boolean isAcceptingJobs() {
+        return this.isReAttached();
+    }
+
+    /**
+     * Re-attach to the jobs active on this node.
+     *
+     * @param event The event which triggered the re-attach
+     * @throws GenieException on unrecoverable error
+     */
+    void reAttach(final ApplicationEvent event) throws GenieException {
+        log.info("Application is ready according to event {}. Attempting to re-attach to any active jobs", event);
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            final Set<Job> jobsOnHost = this.jobSearchService.getAllActiveJobsOnHost(this.hostName);
+            if (jobsOnHost.isEmpty()) {
+                log.info("No jobs currently active on this node.");
             } else {
-                try {
-                    final JobExecution jobExecution = this.jobSearchService.getJobExecution(id);
-                    init(id);
-                    setMemoryAndTask(id, jobExecution.getMemory().orElse(0), scheduleMonitor(jobExecution));
-                    log.info("Re-attached a job monitor to job {}", id);
-                } catch (final GenieException ge) {
-                    log.error("Unable to re-attach to job {}.", id, ge);
-                    this.genieEventBus.publishAsynchronousEvent(
-                        new JobFinishedEvent(
-                            id, JobFinishedReason.SYSTEM_CRASH, JobStatusMessages.UNABLE_TO_RE_ATTACH_ON_STARTUP, this
-                        )
-                    );
-                    this.unableToReAttach.increment();
+                log.info("{} jobs currently active on this node at startup", jobsOnHost.size());
+                final List<String> runningJobIds = new ArrayList<>(jobsOnHost.size());
+                for (final Job job : jobsOnHost) {
+                    final String id = job.getId().orElseThrow(() -> new GenieServerException("Job has no id!"));
+                    if (jobExists(id)) {
+                        log.info("Job {} is already being tracked. Ignoring.", id);
+                    } else if (job.getCreated().map(created -> created.getTime() > this.startTime).orElse(false)) {
+                        log.info("Job {} was submitted after this node started. Ignoring.", id);
+                    } else if (job.getStatus() != JobStatus.RUNNING) {
+                        this.genieEventBus.publishAsynchronousEvent(
+                            new JobFinishedEvent(
+                                id,
+                                JobFinishedReason.SYSTEM_CRASH,
+                                JobStatusMessages.SYSTEM_CRASHED_WHILE_JOB_STARTING,
+                                this
+                            )
+                        );
+                    } else {
+                        runningJobIds.add(id);
+                    }
                 }
+                if (!runningJobIds.isEmpty()) {
+                    this.reAttachRunningJobs(runningJobIds);
+                }
+            }
+        } catch (final Throwable t) {
+            MetricsUtils.addFailureTagsWithException(tags, t);
+            throw t;
+        } finally {
+            // Never keep the node out of service for good. Whatever failed was logged and counted.
+            this.reAttached.set(true);
+            this.registry
+                .timer(this.reAttachTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void reAttachRunningJobs(final List<String> jobIds) {
+        // Fetch all the executions at once. Scheduling a monitor is in memory only.
+        final Map<String, JobExecution> jobExecutions = this.jobSearchService.getJobExecutions(jobIds);
+        for (final String id : jobIds) {
+            this.reAttachJob(id, jobExecutions.get(id));
+        }
+    }
+
+    private void reAttachJob(final String id, final JobExecution jobExecution) {
+        try {
+            if (jobExecution == null) {
+                throw new GenieNotFoundException("No job execution with id " + id);
             }
+            init(id);
+            setMemoryAndTask(id, jobExecution.getMemory().orElse(0), scheduleMonitor(jobExecution));
+            this.reAttachedJobs.increment();
+            log.info("Re-attached a job monitor to job {}", id);
+        } catch (final GenieException | RuntimeException e) {
+            log.error("Unable to re-attach to job {}.", id, e);
+            this.genieEventBus.publishAsynchronousEvent(
+                new JobFinishedEvent(
+                    id, JobFinishedReason.SYSTEM_CRASH, JobStatusMessages.UNABLE_TO_RE_ATTACH_ON_STARTUP, this
+                )
+            );
+            this.unableToReAttach.increment();
         }
     }
 
@@ -192,24 +385,20 @@ public class JobMonitoringCoordinator extends JobStateServiceImpl {
             jobExecution,
             stdOut,
             stdErr,
-            this.executor,
             this.genieEventBus,
             this.registry,
             this.jobsProperties
         );
-        final ScheduledFuture<?> future;
-        switch (monitor.getScheduleType()) {
-            case TRIGGER:
-                future = this.scheduler.schedule(monitor, monitor.getTrigger());
-                break;
-            case FIXED_DELAY:
-                future = this.scheduler.scheduleWithFixedDelay(monitor, monitor.getFixedDelay());
-                break;
-            case FIXED_RATE:
-                future = this.scheduler.scheduleAtFixedRate(monitor, monitor.getFixedRate());
-                break;
-            default:
-                throw new UnsupportedOperationException("Unknown schedule type: " + monitor.getScheduleType());
+        final Future<?> future = this.sweeper.track(monitor);
+        if (this.doneFileWatcher != null) {
+            this.doneFileWatcher.watch(monitor, new File(this.jobsDir, jobId + "/" + JobConstants.GENIE_PATH_VAR));
+        }
+        if (this.usageSampler != null) {
+            // The job process is the leader of its own process group
+            this.usageSampler.track(jobId, monitor.getProcessId(), jobExecution.getMemory().orElse(0));
+        }
+        if (this.logShipper != null) {
+            this.logShipper.track(jobId, new File(this.jobsDir, jobId));
         }
         log.info("Scheduled job monitoring for Job {}", jobExecution.getId());
         return future;
@@ -0,0 +1,280 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.netflix.genie.common.dto.JobResourceUsage;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.genie.core.util.ProcessGroupUsage;
+import com.netflix.genie.core.util.ProcessGroupUsageSampler;
+import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.genie.web.tasks.node.NodeTask;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A single task which samples the CPU time, memory and threads used by the process groups of all the jobs running on
+ * this node in one pass. The job processes run in their own process group so everything they started is accounted
+ * for.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Slf4j
+public class JobResourceUsageSampler extends NodeTask {
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+    private static final long PERCENT = 100L;
+
+    private final ConcurrentMap<String, SampledJob> jobs = new ConcurrentHashMap<>();
+    private final ProcessGroupUsageSampler sampler;
+    private final long sampleInterval;
+    private final Registry registry;
+    private final Id sampleTimerId;
+    private final AtomicLong totalRss;
+    private final AtomicLong totalThreads;
+    private final Counter cpuTimeRate;
+    private final DistributionSummary peakRssDistribution;
+    private final DistributionSummary memoryUtilizationDistribution;
+
+    /**
+     * Constructor.
+     *
+     * @param sampler        The sampler to use to read the usage of the process groups
+     * @param sampleInterval The time to wait between two samples in milliseconds
+     * @param registry       The metrics registry to use
+     */
+    JobResourceUsageSampler(
+        @NotNull final ProcessGroupUsageSampler sampler,
+        @Min(1) final long sampleInterval,
+        @NotNull final Registry registry
+    ) {
+        this.sampler = sampler;
+        this.sampleInterval = sampleInterval;
+        this.registry = registry;
+        this.sampleTimerId = registry.createId("genie.jobs.usage.sample.timer");
+        this.totalRss = registry.gauge("genie.jobs.usage.rss.gauge", new AtomicLong());
+        this.totalThreads = registry.gauge("genie.jobs.usage.threads.gauge", new AtomicLong());
+        this.cpuTimeRate = registry.counter("genie.jobs.usage.cpuTime.rate");
+        this.peakRssDistribution = registry.distributionSummary("genie.jobs.usage.peakRss.distribution");
+        this.memoryUtilizationDistribution
+            = registry.distributionSummary("genie.jobs.usage.memoryUtilization.distribution");
+    }
+
+    /**
+     * Start sampling a job with every pass.
+     *
+     * @param id              The id of the job
+     * @param processGroupId  The id of the process group of the job
+     * @param requestedMemory The memory requested by the job in MB
+     */
+    void track(@NotNull final String id, final int processGroupId, final int requestedMemory) {
+        this.jobs.put(id, new SampledJob(processGroupId, requestedMemory));
+    }
+
+    /**
+     * Stop sampling a job. Records how much of its requested memory the job used at its peak.
+     *
+     * @param id The id of the job
+     */
+    void untrack(@NotNull final String id) {
+        final SampledJob job = this.jobs.remove(id);
+        if (job == null || job.usage == null) {
+            return;
+        }
+        final long peakRss = job.usage.getPeakRss();
+        this.peakRssDistribution.record(peakRss);
+        if (job.requestedMemory > 0) {
+            this.memoryUtilizationDistribution.record(peakRss * PERCENT / (job.requestedMemory * BYTES_PER_MB));
+        }
+    }
+
+    /**
+     * Get the latest resource usage sampled for a job.
+     *
+     * @param id The id of the job
+     * @return The usage or empty if the job isn't tracked or wasn't sampled yet
+     */
+    Optional<JobResourceUsage> getResourceUsage(@NotNull final String id) {
+        final SampledJob job = this.jobs.get(id);
+        return job == null ? Optional.empty() : Optional.ofNullable(job.usage);
+    }
+
+    /**
+     * Get the highest memory a job was observed to use.
+     *
+     * @param id The id of the job
+     * @return The peak resident set size of the job in MB rounded up or empty if the job wasn't sampled yet
+     */
+    Optional<Integer> getObservedMemory(@NotNull final String id) {
+        return this.getResourceUsage(id)
+            .map(usage -> (int) ((usage.getPeakRss() + BYTES_PER_MB - 1) / BYTES_PER_MB));
+    }
+
+    /**
+     * Get the memory to account for a job when deciding whether new jobs fit on this node. That is the peak memory the
+     * job was observed to use plus the given headroom. Until the job was sampled the given number of times it may not
+     * have reached its peak yet, so it's accounted at least the memory it requested meanwhile.
+     *
+     * @param id              The id of the job
+     * @param requestedMemory The memory requested by the job in MB
+     * @param minSamples      The number of samples after which the observed memory alone is trusted
+     * @param headroom        The factor to apply to the observed memory to leave room for the job to grow
+     * @return The memory to account for the job in MB
+     */
+    int getAdmissionMemory(
+        @NotNull final String id,
+        final int requestedMemory,
+        final int minSamples,
+        final double headroom
+    ) {
+        final SampledJob job = this.jobs.get(id);
+        final Optional<Integer> observedMemory = this.getObservedMemory(id);
+        if (job == null || !observedMemory.isPresent()) {
+            return requestedMemory;
+        }
+        final int admissionMemory = (int) Math.ceil(observedMemory.get() * headroom);
+        return job.samples.get() < minSamples ? Math.max(requestedMemory, admissionMemory) : admissionMemory;
+    }
+
+    /**
+     * Get the number of jobs currently sampled.
+     *
+     * @return The number of sampled jobs
+     */
+    int getNumTracked() {
+        return this.jobs.size();
+    }
+
+    /**
+     * Sample all the jobs.
+     */
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            this.sample(new Date());
+        } catch (final IOException | RuntimeException e) {
+            // Never let an exception escape as it would stop the scheduling of all further samples
+            log.error("Unable to sample the resource usage of the running jobs", e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+        } finally {
+            this.registry
+                .timer(this.sampleTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Sample all the jobs at the given time.
+     *
+     * @param now The time of the sample
+     * @throws IOException If the processes couldn't be sampled
+     */
+    void sample(@NotNull final Date now) throws IOException {
+        if (this.jobs.isEmpty()) {
+            this.totalRss.set(0L);
+            this.totalThreads.set(0L);
+            return;
+        }
+        final Set<Integer> processGroupIds = this.jobs.values()
+            .stream()
+            .map(job -> job.processGroupId)
+            .collect(Collectors.toSet());
+        final Map<Integer, ProcessGroupUsage> usages = this.sampler.sample(processGroupIds);
+
+        long rss = 0L;
+        long threads = 0L;
+        for (final Map.Entry<String, SampledJob> entry : this.jobs.entrySet()) {
+            final SampledJob job = entry.getValue();
+            final ProcessGroupUsage usage = usages.get(job.processGroupId);
+            if (usage == null) {
+                // The processes are gone. Keep the last sample until the job is done.
+                continue;
+            }
+            final JobResourceUsage previous = job.usage;
+            // The CPU time of processes which exited without being reaped by the group is lost so never go back
+            final long previousCpuTime = previous == null ? 0L : previous.getCpuTime();
+            final long cpuTime = Math.max(previousCpuTime, usage.getCpuTime());
+            final long peakRss = Math.max(previous == null ? 0L : previous.getPeakRss(), usage.getRss());
+            this.cpuTimeRate.increment(cpuTime - previousCpuTime);
+            job.usage = new JobResourceUsage(
+                entry.getKey(),
+                now,
+                usage.getNumProcesses(),
+                usage.getNumThreads(),
+                cpuTime,
+                usage.getRss(),
+                peakRss
+            );
+            job.samples.incrementAndGet();
+            rss += usage.getRss();
+            threads += usage.getNumThreads();
+        }
+        this.totalRss.set(rss);
+        this.totalThreads.set(threads);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GenieTaskScheduleType getScheduleType() {
+        return GenieTaskScheduleType.FIXED_DELAY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFixedDelay() {
+        return this.sampleInterval;
+    }
+
+    /**
+     * The sampling state of a single job.
+     */
+    private static final class SampledJob {
+        private final int processGroupId;
+        private final int requestedMemory;
+        private volatile JobResourceUsage usage;
+        private final AtomicInteger samples = new AtomicInteger();
+
+        private SampledJob(final int processGroupId, final int requestedMemory) {
+            this.processGroupId = processGroupId;
+            this.requestedMemory = requestedMemory;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobStartedEvent;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.genie.web.properties.JobStatusWatchProperties;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tells the requests waiting for the status of a job to change once it did so they don't have to poll for it. The jobs
+ * run on this node are checked as soon as they started or finished. As the final status of a job is only saved a bit
+ * after it finished those are checked with every sweep until it is. All the other jobs, including the ones run on
+ * other nodes, are checked from the database every poll interval. The statuses of all the jobs due are looked up at
+ * once with every sweep no matter how many requests wait for them. The requests are told on a pool of notifier threads
+ * of their own so a slow client never holds up the sweeps, which share the task scheduler with job monitoring.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Component
+@Slf4j
+public class JobStatusWatcher implements Runnable {
+
+    private final JobSearchService jobSearchService;
+    private final long pollInterval;
+    private final ConcurrentMap<String, List<Waiter>> waiters = new ConcurrentHashMap<>();
+    // The jobs to check with the next sweep. True if they need to be checked until they reach a final status.
+    private final ConcurrentMap<String, Boolean> changedJobs = new ConcurrentHashMap<>();
+    private final ExecutorService notifier;
+    private final Registry registry;
+    private final Id sweepTimerId;
+
+    // Only ever used by the thread running the sweeps
+    private long lastPoll;
+
+    /**
+     * Constructor. Schedules the sweeps with the task scheduler.
+     *
+     * @param properties       The properties to use
+     * @param scheduler        The scheduler to run the sweeps with
+     * @param jobSearchService The service to get the status of the jobs from
+     * @param registry         The metrics registry to use
+     */
+    @Autowired
+    public JobStatusWatcher(
+        @NotNull final JobStatusWatchProperties properties,
+        @Qualifier("genieTaskScheduler") @NotNull final TaskScheduler scheduler,
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final Registry registry
+    ) {
+        this(
+            properties,
+            scheduler,
+            jobSearchService,
+            registry,
+            Executors.newFixedThreadPool(
+                properties.getNotifyThreads(),
+                new ThreadFactoryBuilder().setNameFormat("genie-job-status-notifier-%d").setDaemon(true).build()
+            )
+        );
+    }
+
+    /**
+     * Constructor. Schedules the sweeps with the task scheduler.
+     *
+     * @param properties       The properties to use
+     * @param scheduler        The scheduler to run the sweeps with
+     * @param jobSearchService The service to get the status of the jobs from
+     * @param registry         The metrics registry to use
+     * @param notifier         The executor to tell the waiters about the status of their jobs with
+     */
+    JobStatusWatcher(
+        @NotNull final JobStatusWatchProperties properties,
+        @NotNull final TaskScheduler scheduler,
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final Registry registry,
+        @NotNull final ExecutorService notifier
+    ) {
+        this.jobSearchService = jobSearchService;
+        this.notifier = notifier;
+        this.pollInterval = properties.getPollInterval();
+        this.registry = registry;
+        this.sweepTimerId = registry.createId("genie.jobs.statusWatch.sweep.timer");
+        registry.mapSize("genie.jobs.statusWatch.watchedJobs.gauge", this.waiters);
+        scheduler.scheduleWithFixedDelay(this, properties.getSweepInterval());
+    }
+
+    /**
+     * Call the given listener once the status of the job is no longer the given one. The listener is called on one of
+     * the notifier threads. It may block on a slow client but holds up the other waiters sharing the thread meanwhile.
+     *
+     * @param id          The id of the job
+     * @param knownStatus The status of the job the caller knows about
+     * @param listener    The listener to call with the new status
+     * @return The handle to stop waiting with, e.g. once the request timed out
+     */
+    public Runnable watch(
+        @NotNull final String id,
+        @NotNull final JobStatus knownStatus,
+        @NotNull final Consumer<JobStatus> listener
+    ) {
+        final Waiter waiter = new Waiter(knownStatus, listener);
+        this.waiters.compute(
+            id,
+            (key, jobWaiters) -> {
+                final List<Waiter> newWaiters = jobWaiters == null ? new CopyOnWriteArrayList<>() : jobWaiters;
+                newWaiters.add(waiter);
+                return newWaiters;
+            }
+        );
+        // The status may have changed before the waiter was added. Find out with the next sweep.
+        this.changedJobs.putIfAbsent(id, false);
+        return () -> this.removeWaiter(id, waiter);
+    }
+
+    /**
+     * Check the job with the next sweep as it started running on this node.
+     *
+     * @param event The event of the started job
+     */
+    @EventListener
+    public void onJobStarted(final JobStartedEvent event) {
+        if (this.waiters.containsKey(event.getId())) {
+            this.changedJobs.putIfAbsent(event.getId(), false);
+        }
+    }
+
+    /**
+     * Check the job with every sweep until its final status is saved as it finished on this node.
+     *
+     * @param event The event of the finished job
+     */
+    @EventListener
+    public void onJobFinished(final JobFinishedEvent event) {
+        if (this.waiters.containsKey(event.getId())) {
+            this.changedJobs.put(event.getId(), true);
+        }
+    }
+
+    /**
+     * Check the jobs which changed and, once every poll interval, all the jobs waited for.
+     */
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            this.sweep(System.currentTimeMillis());
+        } catch (final RuntimeException e) {
+            // Never let an exception escape as it would stop the scheduling of all further sweeps
+            log.error("Unable to check the status of the jobs waited for", e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+        } finally {
+            this.registry
+                .timer(this.sweepTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Get the number of jobs waited for.
+     *
+     * @return The number of jobs
+     */
+    int getNumWatched() {
+        return this.waiters.size();
+    }
+
+    /**
+     * Check the status of the jobs due.
+     *
+     * @param now The current time in milliseconds
+     */
+    void sweep(final long now) {
+        final Set<String> ids = new HashSet<>(this.changedJobs.keySet());
+        if (now - this.lastPoll >= this.pollInterval) {
+            ids.addAll(this.waiters.keySet());
+            this.lastPoll = now;
+        }
+        ids.removeIf(
+            id -> {
+                if (this.waiters.containsKey(id)) {
+                    return false;
+                }
+                this.changedJobs.remove(id);
+                return true;
+            }
+        );
+        if (ids.isEmpty()) {
+            return;
+        }
+        final Map<String, JobStatus> statuses = this.jobSearchService.getJobStatuses(ids);
+        for (final String id : ids) {
+            final JobStatus status = statuses.get(id);
+            if (status == null) {
+                log.warn("No job with id {} exists to tell its waiters about", id);
+                this.changedJobs.remove(id);
+                continue;
+            }
+            if (status.isFinished() || !this.changedJobs.getOrDefault(id, false)) {
+                this.changedJobs.remove(id);
+            }
+            this.notifyWaiters(id, status);
+        }
+    }
+
+    private void notifyWaiters(final String id, final JobStatus status) {
+        final List<Waiter> jobWaiters = this.waiters.get(id);
+        if (jobWaiters == null) {
+            return;
+        }
+        final List<Waiter> notified = new ArrayList<>();
+        for (final Waiter waiter : jobWaiters) {
+            if (waiter.knownStatus != status) {
+                notified.add(waiter);
+            }
+        }
+        for (final Waiter waiter : notified) {
+            this.removeWaiter(id, waiter);
+            try {
+                this.notifier.execute(
+                    () -> {
+                        try {
+                            waiter.listener.accept(status);
+                        } catch (final RuntimeException e) {
+                            log.error("Unable to tell a waiter of job {} about its status {}", id, status, e);
+                        }
+                    }
+                );
+            } catch (final RejectedExecutionException ree) {
+                log.debug("Not telling a waiter of job {} about its status {} while shutting down", id, status, ree);
+            }
+        }
+    }
+
+    /**
+     * Stop telling the waiters about the status of their jobs.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.notifier.shutdownNow();
+    }
+
+    private void removeWaiter(final String id, final Waiter waiter) {
+        this.waiters.computeIfPresent(
+            id,
+            (key, jobWaiters) -> {
+                jobWaiters.remove(waiter);
+                return jobWaiters.isEmpty() ? null : jobWaiters;
+            }
+        );
+    }
+
+    /**
+     * A request waiting for the status of a job to change.
+     */
+    private static final class Waiter {
+        private final JobStatus knownStatus;
+        private final Consumer<JobStatus> listener;
+
+        private Waiter(final JobStatus knownStatus, final Consumer<JobStatus> listener) {
+            this.knownStatus = knownStatus;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.node;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
+import com.netflix.genie.common.dto.BaseDTO;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.ExecutionEnvironmentDTO;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.impl.CacheGenieFileTransferService;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.genie.web.properties.DependencyPrefetchProperties;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * This task runs on every Genie node and warms the local file cache with the setup files, configurations and
+ * dependencies of the UP clusters, ACTIVE commands and the ACTIVE applications of those commands so that job setup
+ * doesn't have to pay for the downloads inline.
+ * <p>
+ * The first run (at startup) prefetches everything. Every following run only prefetches the resources which were
+ * updated since the previous run. As the updated times are stored in the database this also picks up changes made
+ * through other Genie nodes.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@ConditionalOnProperty("genie.tasks.dependencyPrefetch.enabled")
+@Component
+@Slf4j
+public class DependencyPrefetchTask implements Runnable {
+
+    private static final Set<ClusterStatus> CLUSTER_STATUSES = EnumSet.of(ClusterStatus.UP);
+    private static final Set<CommandStatus> COMMAND_STATUSES = EnumSet.of(CommandStatus.ACTIVE);
+    private static final Set<ApplicationStatus> APPLICATION_STATUSES = EnumSet.of(ApplicationStatus.ACTIVE);
+
+    private final DependencyPrefetchProperties properties;
+    private final ClusterService clusterService;
+    private final CommandService commandService;
+    private final ApplicationService applicationService;
+    private final CacheGenieFileTransferService fileTransferService;
+    private final RateLimiter rateLimiter;
+
+    private final Registry registry;
+    private final Id runTimerId;
+    private final Counter prefetchedFilesCounter;
+    private final Counter unableToPrefetchFilesCounter;
+    private final AtomicLong numberOfFilesToPrefetch;
+
+    // The time the last successful run started. Null until the first full prefetch went through.
+    private Date lastRun;
+
+    /**
+     * Constructor. Schedules this task to be run by the task scheduler.
+     *
+     * @param properties          The dependency prefetch properties to use
+     * @param scheduler           The scheduler to use to schedule the task
+     * @param clusterService      The service to find clusters with
+     * @param commandService      The service to find commands with
+     * @param applicationService  The service to find applications with
+     * @param fileTransferService The caching file transfer service whose cache should be warmed
+     * @param registry            The metrics registry
+     * @throws GeniePreconditionException If the configured rate limit isn't positive
+     */
+    @Autowired
+    public DependencyPrefetchTask(
+        @NotNull final DependencyPrefetchProperties properties,
+        @Qualifier("genieTaskScheduler") @NotNull final TaskScheduler scheduler,
+        @NotNull final ClusterService clusterService,
+        @NotNull final CommandService commandService,
+        @NotNull final ApplicationService applicationService,
+        @NotNull final CacheGenieFileTransferService fileTransferService,
+        @NotNull final Registry registry
+    ) throws GeniePreconditionException {
+        if (properties.getMaxFilesPerSecond() <= 0) {
+            throw new GeniePreconditionException(
+                "The maximum number of files to prefetch per second must be positive. Was "
+                    + properties.getMaxFilesPerSecond()
+            );
+        }
+        this.properties = properties;
+        this.clusterService = clusterService;
+        this.commandService = commandService;
+        this.applicationService = applicationService;
+        this.fileTransferService = fileTransferService;
+        this.rateLimiter = RateLimiter.create(properties.getMaxFilesPerSecond());
+
+        this.registry = registry;
+        this.runTimerId = registry.createId("genie.tasks.dependencyPrefetch.run.timer");
+        this.prefetchedFilesCounter = registry.counter("genie.tasks.dependencyPrefetch.prefetchedFiles.rate");
+        this.unableToPrefetchFilesCounter
+            = registry.counter("genie.tasks.dependencyPrefetch.unableToPrefetchFiles.rate");
+        this.numberOfFilesToPrefetch
+            = registry.gauge("genie.tasks.dependencyPrefetch.numberOfFilesToPrefetch.gauge", new AtomicLong());
+
+        // Fixed delay so runs never overlap. The first run happens right away which warms the cache at startup.
+        scheduler.scheduleWithFixedDelay(this, properties.getRate());
+    }
+
+    /**
+     * Find the files of all the resources updated since the last run (or all of them if this is the first run) and
+     * make sure they're in the local file cache.
+     */
+    @Override
+    public void run() {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        final Date runStart = new Date();
+        // Overlap the previous window a bit to account for clock differences between the nodes. Prefetching a file
+        // which is already cached and unchanged is cheap.
+        final Date since = this.lastRun == null
+            ? null
+            : new Date(this.lastRun.getTime() - this.properties.getRate());
+        try {
+            log.info("Running dependency prefetch task for resources updated since {}...", since);
+            final Set<String> files = this.findFiles(since);
+            this.numberOfFilesToPrefetch.set(files.size());
+            long failed = 0;
+            for (final String file : files) {
+                if (!this.prefetch(file)) {
+                    failed++;
+                }
+            }
+            this.lastRun = runStart;
+            log.info("Finished prefetching {} files. Unable to prefetch {} of them.", files.size(), failed);
+        } catch (final Exception e) {
+            // Don't let the exception escape or the scheduler will never run the task again
+            log.error("Unable to find the files to prefetch. Will try again on the next run.", e);
+            MetricsUtils.addFailureTagsWithException(tags, e);
+        } finally {
+            this.registry
+                .timer(this.runTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Find all the files which should be in the cache.
+     *
+     * @param since Only consider resources updated after this time. Null for all resources.
+     * @return The de-duplicated remote paths of the files
+     * @throws GenieException On error getting the applications for a command
+     */
+    Set<String> findFiles(final Date since) throws GenieException {
+        final Set<String> files = new LinkedHashSet<>();
+        final Set<String> resourceTags = this.properties.getTags();
+
+        final List<Cluster> clusters = this.getAll(
+            page -> this.clusterService.getClusters(null, CLUSTER_STATUSES, resourceTags, since, null, page)
+        );
+        clusters.forEach(cluster -> this.addFiles(files, cluster));
+
+        // Commands can't be searched by update time so always get all of them. Their ids are needed to know if an
+        // updated application is relevant anyway.
+        final List<Command> commands = this.getAll(
+            page -> this.commandService.getCommands(null, null, COMMAND_STATUSES, resourceTags, page)
+        );
+        final Set<String> commandIds = new HashSet<>();
+        for (final Command command : commands) {
+            final String commandId = command.getId().orElseThrow(IllegalArgumentException::new);
+            commandIds.add(commandId);
+            if (this.isUpdatedSince(command, since)) {
+                this.addFiles(files, command);
+                for (final Application application : this.commandService.getApplicationsForCommand(commandId)) {
+                    if (APPLICATION_STATUSES.contains(application.getStatus())) {
+                        this.addFiles(files, application);
+                    }
+                }
+            }
+        }
+
+        // Applications updated on their own which are used by any of the commands
+        if (since != null) {
+            final List<Application> applications = this.getAll(
+                page -> this.applicationService.getApplications(null, null, APPLICATION_STATUSES, null, null, page)
+            );
+            for (final Application application : applications) {
+                if (!this.isUpdatedSince(application, since)) {
+                    continue;
+                }
+                final String applicationId = application.getId().orElseThrow(IllegalArgumentException::new);
+                final boolean used = this.applicationService
+                    .getCommandsForApplication(applicationId, COMMAND_STATUSES)
+                    .stream()
+                    .anyMatch(command -> commandIds.contains(command.getId().orElse(null)));
+                if (used) {
+                    this.addFiles(files, application);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    private boolean prefetch(final String file) {
+        this.rateLimiter.acquire();
+        try {
+            this.fileTransferService.prefetchFile(file);
+            this.prefetchedFilesCounter.increment();
+            return true;
+        } catch (final GenieException ge) {
+            log.error("Unable to prefetch file {}. Continuing.", file, ge);
+            this.unableToPrefetchFilesCounter.increment();
+            return false;
+        }
+    }
+
+    private void addFiles(final Set<String> files, final ExecutionEnvironmentDTO resource) {
+        resource.getSetupFile().filter(StringUtils::isNotBlank).ifPresent(files::add);
+        files.addAll(resource.getConfigs());
+        files.addAll(resource.getDependencies());
+    }
+
+    private boolean isUpdatedSince(final BaseDTO resource, final Date since) {
+        return since == null || resource.getUpdated().map(updated -> !updated.before(since)).orElse(true);
+    }
+
+    private <T> List<T> getAll(final Function<Pageable, Page<T>> query) {
+        final List<T> results = new ArrayList<>();
+        Page<T> page = query.apply(new PageRequest(0, this.properties.getPageSize(), Sort.Direction.ASC, "id"));
+        results.addAll(page.getContent());
+        while (page.hasNext()) {
+            page = query.apply(page.nextPageable());
+            results.addAll(page.getContent());
+        }
+        return results;
+    }
+}
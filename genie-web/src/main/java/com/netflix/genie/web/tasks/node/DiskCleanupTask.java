@@ -22,13 +22,13 @@ import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
 import com.netflix.genie.web.properties.DiskCleanupProperties;
 import com.netflix.genie.web.tasks.TaskUtils;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.Executor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,8 +42,10 @@ import org.springframework.stereotype.Component;
 import javax.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -60,7 +62,7 @@ public class DiskCleanupTask implements Runnable {
     private final File jobsDir;
     private final JobSearchService jobSearchService;
     private final boolean runAsUser;
-    private final Executor processExecutor;
+    private final PrivilegedOperationService privilegedOperationService;
 
     private final AtomicLong numberOfDeletedJobDirs;
     private final AtomicLong numberOfDirsUnableToDelete;
@@ -70,13 +72,13 @@ public class DiskCleanupTask implements Runnable {
     /**
      * Constructor. Schedules this task to be run by the task scheduler.
      *
-     * @param properties       The disk cleanup properties to use.
-     * @param scheduler        The scheduler to use to schedule the cron trigger.
-     * @param jobsDir          The resource representing the location of the job directory
-     * @param jobSearchService The service to find jobs with
-     * @param jobsProperties   The jobs properties to use
-     * @param processExecutor  The process executor to use to delete directories
-     * @param registry         The metrics registry
+     * @param properties                 The disk cleanup properties to use.
+     * @param scheduler                  The scheduler to use to schedule the cron trigger.
+     * @param jobsDir                    The resource representing the location of the job directory
+     * @param jobSearchService           The service to find jobs with
+     * @param jobsProperties             The jobs properties to use
+     * @param privilegedOperationService The service to use to delete directories of jobs run as their user
+     * @param registry                   The metrics registry
      * @throws IOException When it is unable to open a file reference to the job directory
      */
     @Autowired
@@ -86,7 +88,7 @@ public class DiskCleanupTask implements Runnable {
         @NotNull final Resource jobsDir,
         @NotNull final JobSearchService jobSearchService,
         @NotNull final JobsProperties jobsProperties,
-        @NotNull final Executor processExecutor,
+        @NotNull final PrivilegedOperationService privilegedOperationService,
         @NotNull final Registry registry
     ) throws IOException {
         // Job Directory is guaranteed to exist by the MvcConfig bean creation but just in case someone overrides
@@ -98,7 +100,7 @@ public class DiskCleanupTask implements Runnable {
         this.jobsDir = jobsDir.getFile();
         this.jobSearchService = jobSearchService;
         this.runAsUser = jobsProperties.getUsers().isRunAsUserEnabled();
-        this.processExecutor = processExecutor;
+        this.privilegedOperationService = privilegedOperationService;
 
         this.numberOfDeletedJobDirs
             = registry.gauge("genie.tasks.diskCleanup.numberDeletedJobDirs.gauge", new AtomicLong());
@@ -133,6 +135,8 @@ public class DiskCleanupTask implements Runnable {
         // For each of the directories figure out if we need to delete the files or not
         long deletedCount = 0;
         long unableToDeleteCount = 0;
+        // Directories of jobs run as their user are deleted in one batch at the end
+        final List<File> privilegedDeletes = new ArrayList<>();
         for (final File dir : jobDirs) {
             if (!dir.isDirectory()) {
                 log.info("File {} isn't a directory. Skipping.", dir.getName());
@@ -152,19 +156,15 @@ public class DiskCleanupTask implements Runnable {
                 TaskUtils.subtractDaysFromDate(retentionThreshold, this.properties.getRetention());
                 final Optional<Date> finished = job.getFinished();
                 if (finished.isPresent() && finished.get().before(retentionThreshold.getTime())) {
-                    log.info("Attempting to delete job directory for job {}", id);
                     if (this.runAsUser) {
-                        final CommandLine commandLine = new CommandLine("sudo");
-                        commandLine.addArgument("rm");
-                        commandLine.addArgument("-rf");
-                        commandLine.addArgument(dir.getAbsolutePath());
-                        this.processExecutor.execute(commandLine);
+                        privilegedDeletes.add(dir);
                     } else {
+                        log.info("Attempting to delete job directory for job {}", id);
                         // Save forking a process ourselves if we don't have to
                         FileUtils.deleteDirectory(dir);
+                        deletedCount++;
+                        log.info("Successfully deleted job directory for job {}", id);
                     }
-                    deletedCount++;
-                    log.info("Successfully deleted job directory for job {}", id);
                 }
             } catch (final GenieException ge) {
                 log.error("Unable to get job {}. Continuing.", id, ge);
@@ -176,7 +176,40 @@ public class DiskCleanupTask implements Runnable {
                 unableToDeleteCount++;
             }
         }
+        if (!privilegedDeletes.isEmpty()) {
+            final long privilegedDeletedCount = this.deletePrivileged(privilegedDeletes);
+            deletedCount += privilegedDeletedCount;
+            unableToDeleteCount += privilegedDeletes.size() - privilegedDeletedCount;
+        }
         this.numberOfDeletedJobDirs.set(deletedCount);
         this.numberOfDirsUnableToDelete.set(unableToDeleteCount);
     }
+
+    private long deletePrivileged(final List<File> dirs) {
+        log.info("Attempting to delete {} job directories", dirs.size());
+        final List<PrivilegedOperation> operations = new ArrayList<>(dirs.size());
+        for (final File dir : dirs) {
+            operations.add(PrivilegedOperation.delete(dir.getAbsolutePath()));
+        }
+        final List<Integer> exitCodes;
+        try {
+            exitCodes = this.privilegedOperationService.execute(operations);
+        } catch (final IOException ioe) {
+            log.error("Unable to delete job directories {}", dirs, ioe);
+            this.unableToDeleteJobDirCounter.increment(dirs.size());
+            return 0;
+        }
+        long deletedCount = 0;
+        for (int i = 0; i < dirs.size(); i++) {
+            final String id = dirs.get(i).getName();
+            if (exitCodes.get(i) == 0) {
+                deletedCount++;
+                log.info("Successfully deleted job directory for job {}", id);
+            } else {
+                log.error("Unable to delete job directory for job with id: {}. Exit code {}", id, exitCodes.get(i));
+                this.unableToDeleteJobDirCounter.increment();
+            }
+        }
+        return deletedCount;
+    }
 }
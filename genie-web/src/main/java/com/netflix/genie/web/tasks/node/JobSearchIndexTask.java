@@ -0,0 +1,342 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.node;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.genie.core.events.BaseJobEvent;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.properties.JobsSearchIndexProperties;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.impl.JobSearchIndex;
+import com.netflix.genie.core.util.MetricsUtils;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the embedded job search index up to date with the database. Only the node which writes to the index does
+ * anything but refreshing what its searches see.
+ * <p>
+ * The jobs of the events published on this node, e.g. a job being scheduled, starting or finishing, are indexed with
+ * the next pass so they can be searched for within the refresh interval. As the final status of a job is only saved
+ * a bit after it finished those are indexed with every pass until it is. Every catch up interval all the jobs updated
+ * in the database since the previous catch up are indexed as well. This picks up the jobs of the other nodes and
+ * anything the events missed. The index is rebuilt from scratch when it was never built or on demand. Searches keep
+ * being served from the previous commit of the index while it is rebuilt.
+ * <p>
+ * A rebuild or catch up may read the whole jobs table so the passes run on a thread of their own. The task scheduler
+ * shared with job monitoring only hands them over and never waits for them.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@ConditionalOnProperty("genie.jobs.search.index.enabled")
+@Component
+@Slf4j
+public class JobSearchIndexTask implements Runnable {
+
+    private final JobSearchIndex jobSearchIndex;
+    private final JobSearchService jobSearchService;
+    private final JobsSearchIndexProperties properties;
+    // The jobs to index with the next pass
+    private final ConcurrentMap<String, ChangedJob> changedJobs = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicBoolean passRunning = new AtomicBoolean();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("genie-job-search-indexer-%d").setDaemon(true).build()
+    );
+    private final Registry registry;
+    private final Id catchUpTimerId;
+    private final Id rebuildTimerId;
+    private final Timer eventLagTimer;
+    private final Counter indexedJobs;
+    private final AtomicLong lag;
+
+    // Only ever used by the thread running the passes
+    private long indexedUntil;
+    private long lastCatchUp;
+
+    /**
+     * Constructor. Schedules the passes with the task scheduler.
+     *
+     * @param jobsProperties   The jobs properties to use
+     * @param scheduler        The scheduler to run the passes with
+     * @param jobSearchIndex   The index to keep up to date
+     * @param jobSearchService The service to read the jobs to index from
+     * @param registry         The metrics registry to use
+     */
+    @Autowired
+    public JobSearchIndexTask(
+        @NotNull final JobsProperties jobsProperties,
+        @Qualifier("genieTaskScheduler") @NotNull final TaskScheduler scheduler,
+        @NotNull final JobSearchIndex jobSearchIndex,
+        @NotNull final JobSearchService jobSearchService,
+        @NotNull final Registry registry
+    ) {
+        this.jobSearchIndex = jobSearchIndex;
+        this.jobSearchService = jobSearchService;
+        this.properties = jobsProperties.getSearch().getIndex();
+        this.registry = registry;
+        this.catchUpTimerId = registry.createId("genie.jobs.search.index.catchUp.timer");
+        this.rebuildTimerId = registry.createId("genie.jobs.search.index.rebuild.timer");
+        this.eventLagTimer = registry.timer("genie.jobs.search.index.eventLag.timer");
+        this.indexedJobs = registry.counter("genie.jobs.search.index.indexedJobs.rate");
+        this.lag = registry.gauge("genie.jobs.search.index.lag.gauge", new AtomicLong());
+        scheduler.scheduleWithFixedDelay(this, this.properties.getRefreshInterval());
+    }
+
+    /**
+     * Index the job with the next pass as it changed on this node. If it finished it is indexed with every pass until
+     * its final status is saved.
+     *
+     * @param event The event of the job
+     */
+    @EventListener
+    public void onJobEvent(final BaseJobEvent event) {
+        if (!this.jobSearchIndex.isWritable()) {
+            return;
+        }
+        if (event instanceof JobFinishedEvent) {
+            this.changedJobs.put(event.getId(), new ChangedJob(event.getTimestamp(), true));
+        } else {
+            this.changedJobs.putIfAbsent(event.getId(), new ChangedJob(event.getTimestamp(), false));
+        }
+    }
+
+    /**
+     * Rebuild the index from the database with the next pass.
+     */
+    public void requestRebuild() {
+        log.info("Rebuild of the job search index requested");
+        this.rebuildRequested.set(true);
+    }
+
+    /**
+     * Whether a rebuild was requested but didn't start yet.
+     *
+     * @return True if it is pending
+     */
+    public boolean isRebuildRequested() {
+        return this.rebuildRequested.get();
+    }
+
+    /**
+     * Hand one pass over to the indexer thread unless the previous one is still running.
+     */
+    @Override
+    public void run() {
+        if (!this.passRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.indexer.execute(
+                () -> {
+                    try {
+                        this.pass();
+                    } catch (final IOException | RuntimeException e) {
+                        log.error("Unable to update the job search index", e);
+                    } finally {
+                        this.passRunning.set(false);
+                    }
+                }
+            );
+        } catch (final RejectedExecutionException ree) {
+            // Never let an exception escape as it would stop the scheduling of all further passes
+            log.debug("Job search indexer is shut down", ree);
+            this.passRunning.set(false);
+        }
+    }
+
+    /**
+     * Stop running passes. A pass in progress is abandoned without a commit once the index is closed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        this.indexer.shutdown();
+    }
+
+    /**
+     * Index the changed jobs, catch up with the database or rebuild the index as due.
+     *
+     * @throws IOException If the index can't be read or written
+     */
+    void pass() throws IOException {
+        final long passStart = System.currentTimeMillis();
+        if (!this.jobSearchIndex.tryOpenWriter()) {
+            // Another node writes to the index
+            this.changedJobs.clear();
+            this.jobSearchIndex.refresh();
+            this.updateLag(this.jobSearchIndex.getIndexedUntil());
+            return;
+        }
+
+        final OptionalLong committedUntil = this.jobSearchIndex.getIndexedUntil();
+        if (this.rebuildRequested.getAndSet(false) || !committedUntil.isPresent()) {
+            this.rebuild(passStart);
+        } else {
+            this.indexedUntil = committedUntil.getAsLong();
+            if (passStart - this.lastCatchUp >= this.properties.getCatchUpInterval()) {
+                this.catchUp(passStart);
+            }
+            this.indexChangedJobs();
+        }
+        this.updateLag(OptionalLong.of(this.indexedUntil));
+    }
+
+    private void rebuild(final long passStart) throws IOException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            log.info("Rebuilding the job search index");
+            this.jobSearchIndex.deleteAll();
+            final long count = this.indexUpdatedAfter(new Date(0L));
+            this.jobSearchIndex.commit(passStart);
+            this.indexedUntil = passStart;
+            this.lastCatchUp = passStart;
+            log.info("Rebuilt the job search index with {} jobs", count);
+        } catch (final IOException | RuntimeException e) {
+            MetricsUtils.addFailureTagsWithException(tags, e);
+            // Searches keep using the previous commit
+            this.jobSearchIndex.discardChanges();
+            throw e;
+        } finally {
+            this.registry
+                .timer(this.rebuildTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void catchUp(final long passStart) throws IOException {
+        final long start = System.nanoTime();
+        final Map<String, String> tags = MetricsUtils.newSuccessTagsMap();
+        try {
+            // Overlap the previous window to account for clock differences between the nodes and for transactions
+            // which committed after the previous catch up read past them
+            final long count = this.indexUpdatedAfter(
+                new Date(this.indexedUntil - this.properties.getCatchUpOverlap())
+            );
+            this.jobSearchIndex.commit(passStart);
+            this.indexedUntil = passStart;
+            this.lastCatchUp = passStart;
+            log.debug("Caught up the job search index with {} jobs", count);
+        } catch (final IOException | RuntimeException e) {
+            MetricsUtils.addFailureTagsWithException(tags, e);
+            throw e;
+        } finally {
+            this.registry
+                .timer(this.catchUpTimerId.withTags(tags))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long indexUpdatedAfter(final Date from) throws IOException {
+        final int batchSize = this.properties.getBatchSize();
+        Date updated = from;
+        String id = "";
+        long count = 0;
+        List<JobSearchSnapshot> batch;
+        do {
+            batch = this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(updated, id, batchSize);
+            this.jobSearchIndex.update(batch);
+            this.indexedJobs.increment(batch.size());
+            count += batch.size();
+            if (!batch.isEmpty()) {
+                final JobSearchSnapshot last = batch.get(batch.size() - 1);
+                updated = last.getUpdated();
+                id = last.getId();
+            }
+        } while (batch.size() == batchSize);
+        return count;
+    }
+
+    private void indexChangedJobs() throws IOException {
+        if (this.changedJobs.isEmpty()) {
+            return;
+        }
+        final List<String> ids = new ArrayList<>(this.changedJobs.keySet());
+        final List<JobSearchSnapshot> jobs = this.jobSearchService.getJobSearchSnapshots(ids);
+        this.jobSearchIndex.update(jobs);
+        // Doesn't move the time everything is indexed until as only some of the jobs were
+        this.jobSearchIndex.commit(this.indexedUntil);
+        this.indexedJobs.increment(jobs.size());
+
+        final long now = System.currentTimeMillis();
+        for (final JobSearchSnapshot job : jobs) {
+            final ChangedJob changedJob = this.changedJobs.get(job.getId());
+            if (changedJob == null) {
+                continue;
+            }
+            if (job.getStatus().isActive() && changedJob.untilFinished
+                && now - changedJob.eventTime < this.properties.getCatchUpInterval()) {
+                // Its final status isn't saved yet. The catch up picks it up if it never is.
+                continue;
+            }
+            this.changedJobs.remove(job.getId(), changedJob);
+            this.eventLagTimer.record(now - changedJob.eventTime, TimeUnit.MILLISECONDS);
+        }
+        // Jobs not in the database, e.g. rejected before they were saved
+        ids.removeAll(jobs.stream().map(JobSearchSnapshot::getId).collect(Collectors.toSet()));
+        ids.forEach(this.changedJobs::remove);
+    }
+
+    private void updateLag(final OptionalLong until) {
+        this.lag.set(until.isPresent() ? Math.max(System.currentTimeMillis() - until.getAsLong(), 0L) : 0L);
+    }
+
+    /**
+     * A job to index with the next pass.
+     */
+    private static final class ChangedJob {
+        private final long eventTime;
+        // Whether it needs to be indexed until its final status is saved
+        private final boolean untilFinished;
+
+        private ChangedJob(final long eventTime, final boolean untilFinished) {
+            this.eventTime = eventTime;
+            this.untilFinished = untilFinished;
+        }
+    }
+}
@@ -17,7 +17,8 @@
  */
 package com.netflix.genie.web.tasks.job
 
-import com.netflix.genie.common.exceptions.GenieException
+import com.netflix.genie.core.properties.JobsProperties
+import org.springframework.scheduling.TaskScheduler
 import spock.lang.Specification
 
 /**
@@ -28,7 +29,9 @@ import spock.lang.Specification
  */
 class JobCompletionHandlerSpec extends Specification{
     JobCompletionService jobCompletionService = Mock(JobCompletionService)
-    JobCompletionHandler jobCompletionHandler = new JobCompletionHandler(jobCompletionService)
+    TaskScheduler scheduler = Mock(TaskScheduler)
+    JobCompletionHandler jobCompletionHandler = new JobCompletionHandler(
+            jobCompletionService, scheduler, new JobsProperties())
     def testHandleJobCompletion(){
         when:
         jobCompletionHandler.handleJobCompletion(null)
@@ -38,7 +41,26 @@ class JobCompletionHandlerSpec extends Specification{
         when:
         jobCompletionHandler.handleJobCompletion(null)
         then:
-        thrown(GenieException)
-        1 * jobCompletionService.handleJobCompletion(null) >> { throw new GenieException(1,"")}
+        thrown(IllegalStateException)
+        1 * jobCompletionService.handleJobCompletion(null) >> { throw new IllegalStateException() }
+    }
+
+    def testOnStartup(){
+        when:
+        jobCompletionHandler.onStartup(null)
+        then:
+        noExceptionThrown()
+        1 * jobCompletionService.resumePendingArchives()
+    }
+
+    def testSchedulesSweeps(){
+        given:
+        def otherScheduler = Mock(TaskScheduler)
+        def properties = new JobsProperties()
+        properties.completion.pendingArchivesSweepInterval = 1000L
+        when:
+        new JobCompletionHandler(jobCompletionService, otherScheduler, properties)
+        then:
+        1 * otherScheduler.scheduleWithFixedDelay(_ as Runnable, _ as Date, 1000L)
     }
 }
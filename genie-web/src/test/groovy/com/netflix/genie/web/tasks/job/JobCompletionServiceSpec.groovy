@@ -19,20 +19,21 @@ package com.netflix.genie.web.tasks.job
 
 import com.google.common.collect.ImmutableList
 import com.google.common.collect.ImmutableMap
+import com.google.common.util.concurrent.MoreExecutors
 import com.google.common.io.Files
-import com.netflix.genie.common.dto.Application
-import com.netflix.genie.common.dto.Cluster
-import com.netflix.genie.common.dto.Command
-import com.netflix.genie.common.dto.Job
-import com.netflix.genie.common.dto.JobRequest
 import com.netflix.genie.common.dto.JobStatus
+import com.netflix.genie.common.exceptions.GenieNotFoundException
 import com.netflix.genie.common.exceptions.GenieServerException
+import com.netflix.genie.core.events.GenieEventBus
+import com.netflix.genie.core.events.JobCompletedEvent
 import com.netflix.genie.core.events.JobFinishedEvent
 import com.netflix.genie.core.events.JobFinishedReason
+import com.netflix.genie.core.jobs.JobCompletionSnapshot
 import com.netflix.genie.core.properties.JobsProperties
 import com.netflix.genie.core.services.JobPersistenceService
 import com.netflix.genie.core.services.JobSearchService
 import com.netflix.genie.core.services.MailService
+import com.netflix.genie.core.services.PrivilegedOperationService
 import com.netflix.genie.core.services.impl.GenieFileTransferService
 import com.netflix.genie.core.util.MetricsConstants
 import com.netflix.genie.core.util.MetricsUtils
@@ -48,6 +49,7 @@ import org.springframework.core.io.FileSystemResource
 import org.springframework.retry.support.RetryTemplate
 import spock.lang.Specification
 
+import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeUnit
 
 
@@ -68,12 +70,15 @@ class JobCompletionServiceSpec extends Specification{
     JobCompletionService jobCompletionService;
     MailService mailService;
     GenieFileTransferService genieFileTransferService;
+    GenieEventBus genieEventBus;
     JobsProperties jobsProperties;
     Registry registry;
     Id completionTimerId;
     Timer completionTimer;
     Map<String, String> timerTagsCapture;
     Id errorCounterId;
+    Id stageTimerId;
+    File pendingArchivesDir;
     Counter errorCounter;
     List<Map<String, String>> counterTagsCaptures;
 
@@ -88,6 +93,7 @@ class JobCompletionServiceSpec extends Specification{
         jobSearchService = Mock(JobSearchService.class)
         mailService = Mock(MailService.class)
         genieFileTransferService = Mock(GenieFileTransferService.class)
+        genieEventBus = Mock(GenieEventBus.class)
         jobsProperties = new JobsProperties()
         counterTagsCaptures = new ArrayList<>()
         registry = Mock(Registry.class)
@@ -103,16 +109,25 @@ class JobCompletionServiceSpec extends Specification{
             return errorCounterId;
         }
         completionTimer = Mock(Timer.class)
+        stageTimerId = Mock(Id.class)
+        stageTimerId.withTags(_) >> stageTimerId
         registry.createId("genie.jobs.completion.timer") >> completionTimerId
         registry.createId("genie.jobs.errors.count") >> errorCounterId
+        registry.createId(_) >> stageTimerId
         registry.counter(errorCounterId) >> errorCounter
         registry.timer(completionTimerId) >> completionTimer
+        registry.timer(stageTimerId) >> Mock(Timer.class)
         jobsProperties.cleanup.deleteArchiveFile = false
         jobsProperties.cleanup.deleteDependencies = false
         jobsProperties.users.runAsUserEnabled = false
+        pendingArchivesDir = tmpJobDir.newFolder()
+        jobsProperties.locations.pendingArchives = pendingArchivesDir.toURI().toString()
+        // Run all the stages on the calling thread
         jobCompletionService = new JobCompletionService( jobPersistenceService, jobSearchService,
                 genieFileTransferService, new FileSystemResource("/tmp"), mailService, registry,
-                jobsProperties, new RetryTemplate())
+                jobsProperties, new RetryTemplate(), Mock(PrivilegedOperationService.class), genieEventBus,
+                MoreExecutors.newDirectExecutorService(), MoreExecutors.newDirectExecutorService(),
+                MoreExecutors.newDirectExecutorService())
     }
 
     def handleJobCompletion() throws Exception{
@@ -122,7 +137,7 @@ class JobCompletionServiceSpec extends Specification{
         jobCompletionService.handleJobCompletion(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "null", this))
         then:
         noExceptionThrown()
-        3 * jobSearchService.getJob(jobId) >>
+        3 * jobSearchService.getJobCompletionSnapshot(jobId) >>
                 { throw new GenieServerException("null")} >>
                 { throw new GenieServerException("null")} >>
                 { throw new GenieServerException("null")}
@@ -138,9 +153,9 @@ class JobCompletionServiceSpec extends Specification{
         jobCompletionService.handleJobCompletion(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "null", this))
         then:
         noExceptionThrown()
-        1 * jobSearchService.getJob(jobId) >> new Job.Builder(NAME, USER, VERSION, COMMAND_ARGS)
-                .withId(jobId).withStatus(JobStatus.SUCCEEDED).build();
+        1 * jobSearchService.getJobCompletionSnapshot(jobId) >> snapshot(jobId, JobStatus.SUCCEEDED, null)
         0 * jobPersistenceService.updateJobStatus(jobId,_,_)
+        0 * genieEventBus.publishSynchronousEvent(_)
         timerTagsCapture == ImmutableMap.of(
                 MetricsConstants.TagKeys.STATUS, MetricsConstants.TagValues.SUCCESS,
         )
@@ -150,51 +165,120 @@ class JobCompletionServiceSpec extends Specification{
         jobCompletionService.handleJobCompletion(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "null", this))
         then:
         noExceptionThrown()
-        1 * jobSearchService.getJob(jobId) >> new Job.Builder(NAME, USER, VERSION, COMMAND_ARGS)
-                .withId(jobId).withStatus(JobStatus.RUNNING).build();
+        1 * jobSearchService.getJobCompletionSnapshot(jobId) >> snapshot(jobId, JobStatus.RUNNING, null)
         1 * jobPersistenceService.updateJobStatus(jobId,_,_)
+        1 * genieEventBus.publishSynchronousEvent({
+            it instanceof JobCompletedEvent && it.id == jobId && it.user == USER
+        })
         1 * completionTimer.record(_, TimeUnit.NANOSECONDS)
         timerTagsCapture == ImmutableMap.of(
                 MetricsConstants.TagKeys.STATUS, MetricsConstants.TagValues.SUCCESS,
                 JobCompletionService.JOB_FINAL_STATE, JobStatus.FAILED.toString()
         )
-        4 * errorCounter.increment()
+        1 * errorCounter.increment()
         counterTagsCaptures.containsAll(ImmutableList.of(
                 ImmutableMap.of(
                         JobCompletionService.ERROR_SOURCE_TAG, "JOB_FINAL_UPDATE_FAILURE",
                         MetricsConstants.TagKeys.EXCEPTION_CLASS, FileNotFoundException.class.getCanonicalName()
-                ),
-                ImmutableMap.of(
-                        JobCompletionService.ERROR_SOURCE_TAG, "JOB_PROCESS_CLEANUP_FAILURE",
-                        MetricsConstants.TagKeys.EXCEPTION_CLASS, NullPointerException.class.canonicalName
-                ),
-                ImmutableMap.of(
-                        JobCompletionService.ERROR_SOURCE_TAG, "JOB_DIRECTORY_FAILURE",
-                        MetricsConstants.TagKeys.EXCEPTION_CLASS, NullPointerException.class.canonicalName
-
-                ),
-                ImmutableMap.of(
-                        JobCompletionService.ERROR_SOURCE_TAG, "JOB_UPDATE_FAILURE",
-                        MetricsConstants.TagKeys.EXCEPTION_CLASS, NullPointerException.class.canonicalName
                 )
         ))
+        // Everything after the status update works off the snapshot
+        0 * jobSearchService.getJobStatus(_)
+        0 * jobSearchService.getJobExecution(_)
+        0 * jobSearchService.getJobRequest(_)
 
         when:
         jobCompletionService.handleJobCompletion(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "null", this))
         then:
         noExceptionThrown()
-        1 * jobSearchService.getJob(jobId) >> new Job.Builder(NAME, USER, VERSION, COMMAND_ARGS)
-                .withId(jobId).withStatus(JobStatus.RUNNING).build();
-        1 * jobSearchService.getJobRequest(jobId) >> new JobRequest.Builder(NAME, USER, VERSION, COMMAND_ARGS, null, null)
-                .withId(jobId).withEmail('admin@netflix.com').build();
+        1 * jobSearchService.getJobCompletionSnapshot(jobId) >> snapshot(jobId, JobStatus.RUNNING, 'admin@netflix.com')
         1 * jobPersistenceService.updateJobStatus(jobId,_,_)
-        1 * mailService.sendEmail('admin@netflix.com',_,_)
+        1 * mailService.sendEmail('admin@netflix.com', { it.contains("Status: [FAILED]") }, _)
         1 * completionTimer.record(_, TimeUnit.NANOSECONDS)
         timerTagsCapture == ImmutableMap.of(
                 MetricsConstants.TagKeys.STATUS, MetricsConstants.TagValues.SUCCESS,
                 JobCompletionService.JOB_FINAL_STATE, JobStatus.FAILED.toString()
         )
+        1 * errorCounter.increment()
+        pendingArchivesDir.list().length == 0
+    }
+
+    def resumePendingArchives() {
+        given:
+        def finishedJobId = "2"
+        def activeJobId = "3"
+        def deletedJobId = "4"
+        new File(pendingArchivesDir, finishedJobId).createNewFile()
+        new File(pendingArchivesDir, activeJobId).createNewFile()
+        new File(pendingArchivesDir, deletedJobId).createNewFile()
+
+        when:
+        jobCompletionService.resumePendingArchives()
+
+        then:
+        noExceptionThrown()
+        1 * jobSearchService.getJobCompletionSnapshot(finishedJobId) >>
+                snapshot(finishedJobId, JobStatus.SUCCEEDED, null)
+        1 * jobSearchService.getJobCompletionSnapshot(activeJobId) >> snapshot(activeJobId, JobStatus.RUNNING, null)
+        3 * jobSearchService.getJobCompletionSnapshot(deletedJobId) >> { throw new GenieNotFoundException("null") }
+        0 * errorCounter.increment()
+        pendingArchivesDir.list() as Set == [activeJobId] as Set
+    }
+
+    def keepsPendingArchiveOfFailedArchive() {
+        given:
+        def jobId = UUID.randomUUID().toString()
+        def jobDir = new File("/tmp", jobId)
+        jobDir.mkdirs()
+        new File(pendingArchivesDir, jobId).createNewFile()
+
+        when:
+        jobCompletionService.resumePendingArchives()
+
+        then:
+        noExceptionThrown()
+        1 * jobSearchService.getJobCompletionSnapshot(jobId) >> new JobCompletionSnapshot(jobId,
+                JobStatus.SUCCEEDED, null, "s3://bucket/" + jobId, null, NAME, USER, [] as Set, null, null, null, [])
+        3 * genieFileTransferService.putStream("s3://bucket/" + jobId, _) >> {
+            throw new GenieServerException("null")
+        }
+        pendingArchivesDir.list() as Set == [jobId] as Set
+
+        cleanup:
+        jobDir.deleteDir()
+    }
+
+    def leavesRejectedWorkToLaterStages() {
+        given:
+        def jobId = "5"
+        def fullStage = MoreExecutors.newDirectExecutorService()
+        fullStage.shutdown()
+        def service = new JobCompletionService( jobPersistenceService, jobSearchService,
+                genieFileTransferService, new FileSystemResource("/tmp"), mailService, registry,
+                jobsProperties, new RetryTemplate(), Mock(PrivilegedOperationService.class), genieEventBus,
+                MoreExecutors.newDirectExecutorService(), fullStage, fullStage)
+
+        when:
+        service.handleJobCompletion(new JobFinishedEvent(jobId, JobFinishedReason.KILLED, "null", this))
+
+        then:
+        noExceptionThrown()
+        1 * jobSearchService.getJobCompletionSnapshot(jobId) >> snapshot(jobId, JobStatus.RUNNING, 'admin@netflix.com')
+        1 * jobPersistenceService.updateJobStatus(jobId,_,_)
+        0 * mailService.sendEmail(_, _, _)
         3 * errorCounter.increment()
+        counterTagsCaptures.containsAll(ImmutableList.of(
+                ImmutableMap.of(
+                        JobCompletionService.ERROR_SOURCE_TAG, "JOB_ARCHIVE_REJECTED",
+                        MetricsConstants.TagKeys.EXCEPTION_CLASS, RejectedExecutionException.class.getCanonicalName()
+                ),
+                ImmutableMap.of(
+                        JobCompletionService.ERROR_SOURCE_TAG, "JOB_EMAIL_REJECTED",
+                        MetricsConstants.TagKeys.EXCEPTION_CLASS, RejectedExecutionException.class.getCanonicalName()
+                )
+        ))
+        // Left to the next sweep of the pending archives
+        pendingArchivesDir.list() as Set == [jobId] as Set
     }
 
     def deleteDependenciesDirectories() {
@@ -207,26 +291,21 @@ class JobCompletionServiceSpec extends Specification{
                 new File(tempDirPath + "/genie/command/command-y/dependencies"),
         )
         dependencyDirs.forEach({d -> Files.createParentDirs(new File(d, "a_dependency"))})
-        def jobId = "1"
-        def app1 = Mock(Application)
-        app1.getId() >> new Optional<String>("app1")
-        def app2 = Mock(Application)
-        app2.getId() >> new Optional<String>("app2")
-        jobSearchService.getJobApplications(jobId) >> Arrays.asList(app1, app2)
-        def cluster = Mock(Cluster)
-        cluster.getId() >> new Optional<String>("cluster-x")
-        jobSearchService.getJobCluster(jobId) >> cluster
-        def command = Mock(Command)
-        command.getId() >> new Optional<String>("command-y")
-        jobSearchService.getJobCommand(jobId) >> command
+        def job = new JobCompletionSnapshot("1", JobStatus.SUCCEEDED, null, null, null, NAME, USER, [] as Set, null,
+                "cluster-x", "command-y", ["app1", "app2"])
 
         when:
-        jobCompletionService.deleteDependenciesDirectories(jobId, tmpJobDir.root)
+        jobCompletionService.deleteDependenciesDirectories(job, tmpJobDir.root)
 
         then:
         noExceptionThrown()
         dependencyDirs.forEach({ d ->
             assert ! d.exists()
         })
+        0 * jobSearchService._
+    }
+
+    private static JobCompletionSnapshot snapshot(String id, JobStatus status, String email) {
+        return new JobCompletionSnapshot(id, status, null, null, email, NAME, USER, [] as Set, null, null, null, [])
     }
 }
@@ -0,0 +1,42 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.configs;
+
+import com.netflix.genie.core.services.impl.CachingJobSearchServiceImpl;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for the job search service with the search result cache enabled.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@TestPropertySource(properties = "genie.jobs.search.resultCacheEnabled=true")
+public class CachingJobSearchServiceIntegrationTests extends JobSearchServiceIntegrationTestsBase {
+
+    /**
+     * Make sure the cache wraps the job search service the rest of the system uses.
+     */
+    @Test
+    public void canWrapJobSearchService() {
+        Assert.assertThat(this.jobSearchService, Matchers.instanceOf(CachingJobSearchServiceImpl.class));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.configs;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.core.services.impl.IndexedJobSearchServiceImpl;
+import com.netflix.genie.core.services.impl.JobSearchIndex;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+
+/**
+ * Integration tests for the job search service with the embedded job search index enabled.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@TestPropertySource(
+    properties = {
+        "genie.jobs.search.index.enabled=true",
+        "genie.jobs.search.index.location=file://${java.io.tmpdir}/genie-search-index-${random.uuid}/"
+    }
+)
+public class IndexedJobSearchServiceIntegrationTests extends JobSearchServiceIntegrationTestsBase {
+
+    private static final long BUILD_TIMEOUT = 30_000L;
+
+    @Autowired
+    private JobSearchIndex jobSearchIndex;
+
+    @Autowired
+    private Registry registry;
+
+    /**
+     * Make sure the index is built from the database at startup and then serves free text searches.
+     *
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canSearchBuiltIndex() throws IOException, InterruptedException {
+        Assert.assertThat(this.jobSearchService, Matchers.instanceOf(IndexedJobSearchServiceImpl.class));
+        final long deadline = System.currentTimeMillis() + BUILD_TIMEOUT;
+        while (!this.jobSearchIndex.getIndexedUntil().isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+        }
+        Assert.assertTrue(this.jobSearchIndex.getIndexedUntil().isPresent());
+
+        final long fallbacks = this.registry.counter("genie.jobs.search.index.fallback.rate").count();
+        this.jobSearchService.findJobs(
+            null,
+            "%",
+            null,
+            null,
+            Sets.newHashSet("type:hive"),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            new PageRequest(0, 10)
+        );
+        Assert.assertThat(
+            this.registry.counter("genie.jobs.search.index.fallback.rate").count(),
+            Matchers.is(fallbacks)
+        );
+    }
+}
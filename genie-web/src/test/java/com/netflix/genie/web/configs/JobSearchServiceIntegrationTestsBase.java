@@ -0,0 +1,113 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.configs;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.GenieWeb;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.dto.search.JobSearchResult;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.core.services.JobSearchCursorPage;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.test.categories.IntegrationTest;
+import com.netflix.genie.web.controllers.IntegrationTestActiveProfilesResolver;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.UUID;
+
+/**
+ * Base class for the integration tests booting Genie with the job search service wired differently. Every call goes
+ * through the decorators down to the database so wiring which leaves the JPA implementation unmanaged fails here.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(IntegrationTest.class)
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = GenieWeb.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(resolver = IntegrationTestActiveProfilesResolver.class)
+public abstract class JobSearchServiceIntegrationTestsBase {
+
+    @Autowired
+    protected JobSearchService jobSearchService;
+
+    /**
+     * Make sure searches and lookups reach the database through the configured decorators.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canSearchJobs() throws GenieException {
+        final Page<JobSearchResult> page = this.jobSearchService.findJobs(
+            null,
+            "hive%",
+            null,
+            Sets.newHashSet(JobStatus.RUNNING),
+            Sets.newHashSet("type:hive"),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            new PageRequest(0, 10)
+        );
+        Assert.assertThat(page.getTotalElements(), Matchers.is(0L));
+        final JobSearchCursorPage cursorPage = this.jobSearchService.findJobsByCursor(
+            null,
+            null,
+            "tgianos",
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            10
+        );
+        Assert.assertTrue(cursorPage.getContent().isEmpty());
+        final String id = UUID.randomUUID().toString();
+        Assert.assertTrue(this.jobSearchService.getJobStatuses(Lists.newArrayList(id)).isEmpty());
+        Assert.assertTrue(this.jobSearchService.getJobSearchResults(Lists.newArrayList(id)).isEmpty());
+        try {
+            this.jobSearchService.getJobStatus(id);
+            Assert.fail();
+        } catch (final GenieNotFoundException gnfe) {
+            // Expected
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.netflix.genie.web.configs;
 
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.services.ArchivedJobService;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.web.resources.handlers.GenieResourceHttpRequestHandler;
 import com.netflix.genie.web.resources.writers.DefaultDirectoryWriter;
@@ -188,9 +189,14 @@ public class MvcConfigUnitTests {
         final DirectoryWriter directoryWriter = Mockito.mock(DirectoryWriter.class);
         final ApplicationContext context = Mockito.mock(ApplicationContext.class);
         final Resource jobsDir = Mockito.mock(Resource.class);
-
-        final GenieResourceHttpRequestHandler handler
-            = this.mvcConfig.genieResourceHttpRequestHandler(directoryWriter, context, jobsDir);
+        final ArchivedJobService archivedJobService = Mockito.mock(ArchivedJobService.class);
+
+        final GenieResourceHttpRequestHandler handler = this.mvcConfig.genieResourceHttpRequestHandler(
+            directoryWriter,
+            context,
+            jobsDir,
+            archivedJobService
+        );
         Assert.assertThat(handler.getApplicationContext(), Matchers.is(context));
         Assert.assertThat(handler.getLocations(), Matchers.hasSize(1));
         Assert.assertThat(handler.getLocations(), Matchers.contains(jobsDir));
@@ -28,7 +28,9 @@ import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobMetadataRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
+import com.netflix.genie.core.jpa.services.JpaJobSearchServiceImpl;
 import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.properties.MailOutboxProperties;
 import com.netflix.genie.core.services.ApplicationService;
 import com.netflix.genie.core.services.ClusterLoadBalancer;
 import com.netflix.genie.core.services.ClusterService;
@@ -37,21 +39,36 @@ import com.netflix.genie.core.services.JobKillService;
 import com.netflix.genie.core.services.JobPersistenceService;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.core.services.JobStateService;
+import com.netflix.genie.core.services.MailService;
+import com.netflix.genie.core.services.PrivilegedOperationService;
+import com.netflix.genie.core.services.impl.CachingJobSearchServiceImpl;
+import com.netflix.genie.core.services.impl.IndexedJobSearchServiceImpl;
+import com.netflix.genie.core.services.impl.JobSearchIndex;
+import com.netflix.genie.core.services.impl.MailServiceImpl;
+import com.netflix.genie.core.services.impl.OutboxMailServiceImpl;
+import com.netflix.genie.core.services.impl.SudoPrivilegedOperationServiceImpl;
 import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import org.apache.commons.exec.Executor;
 import org.assertj.core.util.Lists;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.mail.javamail.JavaMailSender;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -63,6 +80,12 @@ import java.util.UUID;
 @Category(UnitTest.class)
 public class ServicesConfigUnitTests {
 
+    /**
+     * Temporary folder that will be deleted at the end of tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private JpaApplicationRepository applicationRepository;
     private JpaClusterRepository clusterRepository;
     private JpaCommandRepository commandRepository;
@@ -116,11 +139,43 @@ public class ServicesConfigUnitTests {
 
     /**
      * Confirm we can get a mail service implementation using JavaMailSender.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetMailServiceImpl() throws IOException {
+        final JavaMailSender javaMailSender = Mockito.mock(JavaMailSender.class);
+        Assert.assertThat(
+            this.servicesConfig.getJavaMailSenderMailService(
+                javaMailSender,
+                "fromAddress",
+                new MailOutboxProperties(),
+                Mockito.mock(Registry.class)
+            ),
+            Matchers.instanceOf(MailServiceImpl.class)
+        );
+    }
+
+    /**
+     * Confirm we get a mail service implementation queueing the emails in an outbox if it's enabled.
+     *
+     * @throws IOException on error
      */
     @Test
-    public void canGetMailServiceImpl() {
+    public void canGetOutboxMailServiceImpl() throws IOException {
         final JavaMailSender javaMailSender = Mockito.mock(JavaMailSender.class);
-        Assert.assertNotNull(this.servicesConfig.getJavaMailSenderMailService(javaMailSender, "fromAddress"));
+        final MailOutboxProperties properties = new MailOutboxProperties();
+        properties.setEnabled(true);
+        properties.setLocation(this.folder.getRoot().toURI().toString());
+        final Registry registry = Mockito.mock(Registry.class);
+        Mockito.when(registry.createId(Mockito.anyString())).thenReturn(Mockito.mock(Id.class));
+        final MailService mailService
+            = this.servicesConfig.getJavaMailSenderMailService(javaMailSender, "fromAddress", properties, registry);
+        try {
+            Assert.assertThat(mailService, Matchers.instanceOf(OutboxMailServiceImpl.class));
+        } finally {
+            ((OutboxMailServiceImpl) mailService).close();
+        }
     }
 
     /**
@@ -170,17 +225,64 @@ public class ServicesConfigUnitTests {
      */
     @Test
     public void canGetJobSearchServiceBean() {
-        Assert.assertNotNull(
+        final JobsProperties jobsProperties = new JobsProperties();
+        final JobSearchService jpaJobSearchService = this.servicesConfig.jpaJobSearchService(
+            this.jobRepository,
+            this.jobRequestRepository,
+            this.jobExecutionRepository,
+            Mockito.mock(JpaClusterRepository.class),
+            Mockito.mock(JpaCommandRepository.class),
+            jobsProperties
+        );
+        Assert.assertThat(jpaJobSearchService, Matchers.instanceOf(JpaJobSearchServiceImpl.class));
+        Assert.assertThat(
             this.servicesConfig.jobSearchService(
-                this.jobRepository,
-                this.jobRequestRepository,
-                this.jobExecutionRepository,
-                Mockito.mock(JpaClusterRepository.class),
-                Mockito.mock(JpaCommandRepository.class)
-            )
+                jpaJobSearchService,
+                jobsProperties,
+                Optional.empty(),
+                Mockito.mock(Registry.class)
+            ),
+            Matchers.sameInstance(jpaJobSearchService)
+        );
+
+        Assert.assertThat(
+            this.servicesConfig.jobSearchService(
+                jpaJobSearchService,
+                jobsProperties,
+                Optional.of(Mockito.mock(JobSearchIndex.class)),
+                Mockito.mock(Registry.class)
+            ),
+            Matchers.instanceOf(IndexedJobSearchServiceImpl.class)
+        );
+
+        jobsProperties.getSearch().setResultCacheEnabled(true);
+        Assert.assertThat(
+            this.servicesConfig.jobSearchService(
+                jpaJobSearchService,
+                jobsProperties,
+                Optional.of(Mockito.mock(JobSearchIndex.class)),
+                Mockito.mock(Registry.class)
+            ),
+            Matchers.instanceOf(CachingJobSearchServiceImpl.class)
         );
     }
 
+    /**
+     * Can get a bean for the job search index.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetJobSearchIndexBean() throws IOException {
+        final JobsProperties jobsProperties = new JobsProperties();
+        final File location = new File(this.folder.getRoot(), "searchIndex");
+        jobsProperties.getSearch().getIndex().setLocation(location.toURI().toString());
+        try (JobSearchIndex jobSearchIndex = this.servicesConfig.jobSearchIndex(jobsProperties)) {
+            Assert.assertTrue(jobSearchIndex.isWritable());
+            Assert.assertTrue(location.isDirectory());
+        }
+    }
+
     /**
      * Can get a bean for Job Persistence Service.
      */
@@ -274,6 +376,7 @@ public class ServicesConfigUnitTests {
                 "localhost",
                 this.jobSearchService,
                 Mockito.mock(Executor.class),
+                Mockito.mock(PrivilegedOperationService.class),
                 new JobsProperties(),
                 Mockito.mock(GenieEventBus.class),
                 Mockito.mock(FileSystemResource.class),
@@ -281,4 +384,39 @@ public class ServicesConfigUnitTests {
             )
         );
     }
+
+    /**
+     * Can get a bean for the privileged operation service which forks sudo processes if the helper isn't enabled.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetSudoPrivilegedOperationServiceBean() throws IOException {
+        Assert.assertThat(
+            this.servicesConfig.privilegedOperationService(
+                new JobsProperties(),
+                Mockito.mock(Executor.class),
+                Mockito.mock(Registry.class)
+            ),
+            Matchers.instanceOf(SudoPrivilegedOperationServiceImpl.class)
+        );
+    }
+
+    /**
+     * Can get a bean for the privileged operation service of the job kickoff which forks sudo processes if the helper
+     * isn't enabled.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetSudoJobKickoffPrivilegedOperationServiceBean() throws IOException {
+        Assert.assertThat(
+            this.servicesConfig.jobKickoffPrivilegedOperationService(
+                new JobsProperties(),
+                Mockito.mock(Executor.class),
+                Mockito.mock(Registry.class)
+            ),
+            Matchers.instanceOf(SudoPrivilegedOperationServiceImpl.class)
+        );
+    }
 }
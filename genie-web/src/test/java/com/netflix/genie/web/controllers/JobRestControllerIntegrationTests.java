@@ -17,6 +17,7 @@
  */
 package com.netflix.genie.web.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.netflix.genie.common.dto.Application;
@@ -26,10 +27,13 @@ import com.netflix.genie.common.dto.ClusterCriteria;
 import com.netflix.genie.common.dto.ClusterStatus;
 import com.netflix.genie.common.dto.Command;
 import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.common.dto.JobMetadata;
 import com.netflix.genie.common.dto.JobRequest;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.dto.JobStatusMessages;
+import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.core.jpa.repositories.JpaApplicationRepository;
 import com.netflix.genie.core.jpa.repositories.JpaClusterRepository;
 import com.netflix.genie.core.jpa.repositories.JpaCommandRepository;
@@ -37,6 +41,7 @@ import com.netflix.genie.core.jpa.repositories.JpaJobExecutionRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobMetadataRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRepository;
 import com.netflix.genie.core.jpa.repositories.JpaJobRequestRepository;
+import com.netflix.genie.core.services.JobPersistenceService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.SystemUtils;
 import org.hamcrest.Matchers;
@@ -81,7 +86,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
-/**
+    /**
  * Integration tests for Jobs REST API.
  *
  * @author amsharma
@@ -184,6 +189,9 @@ public class JobRestControllerIntegrationTests extends RestControllerIntegration
     @Autowired
     private JpaClusterRepository clusterRepository;
 
+    @Autowired
+    private JobPersistenceService jobPersistenceService;
+
     @Autowired
     private String hostname;
 
@@ -1448,6 +1456,115 @@ public class JobRestControllerIntegrationTests extends RestControllerIntegration
             .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE));
     }
 
+    /**
+     * Make sure jobs can be paged through with the cursors of the next and previous links and invalid cursors are
+     * rejected.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canFindJobsByCursor() throws Exception {
+        final String user = UUID.randomUUID().toString();
+        final Set<String> ids = Sets.newHashSet();
+        for (int i = 0; i < 3; i++) {
+            ids.add(this.createFinishedJob(user));
+        }
+
+        final JsonNode firstPage = this.findJobs(JOBS_API + "?user=" + user + "&cursor=&size=2", 2);
+        Assert.assertTrue(firstPage.path("_links").path("next").isObject());
+        Assert.assertTrue(firstPage.path("_links").path("prev").isMissingNode());
+
+        final JsonNode lastPage = this.findJobs(firstPage.path("_links").path("next").path("href").asText(), 1);
+        Assert.assertTrue(lastPage.path("_links").path("next").isMissingNode());
+        Assert.assertTrue(lastPage.path("_links").path("prev").isObject());
+
+        final Set<String> foundIds = Sets.newHashSet();
+        for (final JsonNode job : firstPage.path("_embedded").path("jobSearchResultList")) {
+            foundIds.add(job.path("id").asText());
+        }
+        foundIds.add(lastPage.path("_embedded").path("jobSearchResultList").path(0).path("id").asText());
+        Assert.assertThat(foundIds, Matchers.is(ids));
+
+        // Going back from the last page gets the first page again
+        final JsonNode previousPage
+            = this.findJobs(lastPage.path("_links").path("prev").path("href").asText(), 2);
+        Assert.assertThat(
+            previousPage.path("_embedded").path("jobSearchResultList"),
+            Matchers.is(firstPage.path("_embedded").path("jobSearchResultList"))
+        );
+
+        this.mvc
+            .perform(MockMvcRequestBuilders.get(JOBS_API).param("user", user).param("cursor", "not a cursor"))
+            .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    /**
+     * Make sure jobs can be paged through without counting them and the response has no totals then.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canFindJobsWithoutCount() throws Exception {
+        final String user = UUID.randomUUID().toString();
+        final Set<String> ids = Sets.newHashSet();
+        for (int i = 0; i < 3; i++) {
+            ids.add(this.createFinishedJob(user));
+        }
+
+        final JsonNode firstPage = this.findJobs(JOBS_API + "?user=" + user + "&count=none&size=2", 2);
+        Assert.assertTrue(firstPage.path("page").isMissingNode());
+        Assert.assertTrue(firstPage.path("_links").path("next").isObject());
+        Assert.assertTrue(firstPage.path("_links").path("prev").isMissingNode());
+
+        final JsonNode lastPage = this.findJobs(firstPage.path("_links").path("next").path("href").asText(), 1);
+        Assert.assertTrue(lastPage.path("page").isMissingNode());
+        Assert.assertTrue(lastPage.path("_links").path("next").isMissingNode());
+        Assert.assertTrue(lastPage.path("_links").path("prev").isObject());
+
+        final Set<String> foundIds = Sets.newHashSet();
+        for (final JsonNode job : firstPage.path("_embedded").path("jobSearchResultList")) {
+            foundIds.add(job.path("id").asText());
+        }
+        foundIds.add(lastPage.path("_embedded").path("jobSearchResultList").path(0).path("id").asText());
+        Assert.assertThat(foundIds, Matchers.is(ids));
+    }
+
+    private JsonNode findJobs(final String uri, final int expectedJobs) throws Exception {
+        final MvcResult result = this.mvc
+            .perform(MockMvcRequestBuilders.get(new URI(uri)))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaTypes.HAL_JSON))
+            .andExpect(MockMvcResultMatchers.jsonPath(JOBS_LIST_PATH, Matchers.hasSize(expectedJobs)))
+            .andReturn();
+        return this.objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private String createFinishedJob(final String user) throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        final String commandArgs = "-c 'echo hello'";
+        final JobRequest jobRequest = new JobRequest.Builder(
+            JOB_NAME,
+            user,
+            JOB_VERSION,
+            commandArgs,
+            Lists.newArrayList(new ClusterCriteria(Sets.newHashSet(LOCALHOST_CLUSTER_TAG))),
+            Sets.newHashSet(BASH_COMMAND_TAG)
+        )
+            .withId(id)
+            .build();
+        this.jobPersistenceService.createJob(
+            jobRequest,
+            new JobMetadata.Builder().build(),
+            new Job.Builder(JOB_NAME, user, JOB_VERSION, commandArgs)
+                .withId(id)
+                .withStatus(JobStatus.SUCCEEDED)
+                .withStatusMsg(JOB_STATUS_MSG)
+                .build(),
+            new JobExecution.Builder(this.hostname).withId(id).build()
+        );
+        return id;
+    }
+
     private String getIdFromLocation(final String location) {
         return location.substring(location.lastIndexOf("/") + 1);
     }
@@ -17,11 +17,26 @@
  */
 package com.netflix.genie.web.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobResourceUsage;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.common.dto.search.JobSearchResult;
 import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GenieNotFoundException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.common.exceptions.GenieServerUnavailableException;
+import com.netflix.genie.common.util.GenieDateFormat;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.core.services.AttachmentService;
 import com.netflix.genie.core.services.JobCoordinatorService;
+import com.netflix.genie.core.services.JobResourceUsageService;
+import com.netflix.genie.core.services.JobSearchCursor;
+import com.netflix.genie.core.services.JobSearchCursorPage;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.web.hateoas.assemblers.ApplicationResourceAssembler;
@@ -31,7 +46,9 @@ import com.netflix.genie.web.hateoas.assemblers.JobExecutionResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.JobRequestResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.JobResourceAssembler;
 import com.netflix.genie.web.hateoas.assemblers.JobSearchResultResourceAssembler;
+import com.netflix.genie.web.properties.JobStatusWatchProperties;
 import com.netflix.genie.web.resources.handlers.GenieResourceHttpRequestHandler;
+import com.netflix.genie.web.tasks.job.JobStatusWatcher;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import org.apache.catalina.ssi.ByteArrayServletOutputStream;
@@ -40,29 +57,55 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.hamcrest.Matchers;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.mock.web.DelegatingServletOutputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Unit tests for the Job rest controller.
@@ -77,10 +120,14 @@ public class JobRestControllerUnitTests {
 
     //Mocked variables
     private JobSearchService jobSearchService;
+    private JobResourceUsageService jobResourceUsageService;
     private String hostname;
     private RestTemplate restTemplate;
     private GenieResourceHttpRequestHandler genieResourceHttpRequestHandler;
     private JobsProperties jobsProperties;
+    private JobStatusWatcher jobStatusWatcher;
+    // Configured like the mapper of the REST API
+    private ObjectMapper objectMapper;
 
     private JobRestController controller;
 
@@ -90,10 +137,16 @@ public class JobRestControllerUnitTests {
     @Before
     public void setup() {
         this.jobSearchService = Mockito.mock(JobSearchService.class);
+        this.jobResourceUsageService = Mockito.mock(JobResourceUsageService.class);
         this.hostname = UUID.randomUUID().toString();
         this.restTemplate = Mockito.mock(RestTemplate.class);
         this.genieResourceHttpRequestHandler = Mockito.mock(GenieResourceHttpRequestHandler.class);
         this.jobsProperties = new JobsProperties();
+        this.jobStatusWatcher = Mockito.mock(JobStatusWatcher.class);
+        this.objectMapper = new ObjectMapper()
+            .registerModule(new Jdk8Module())
+            .setDateFormat(new GenieDateFormat())
+            .setTimeZone(TimeZone.getTimeZone("UTC"));
 
         final Registry registry = Mockito.mock(Registry.class);
         final Counter counter = Mockito.mock(Counter.class);
@@ -102,6 +155,7 @@ public class JobRestControllerUnitTests {
         this.controller = new JobRestController(
             Mockito.mock(JobCoordinatorService.class),
             this.jobSearchService,
+            this.jobResourceUsageService,
             Mockito.mock(AttachmentService.class),
             Mockito.mock(ApplicationResourceAssembler.class),
             Mockito.mock(ClusterResourceAssembler.class),
@@ -114,10 +168,22 @@ public class JobRestControllerUnitTests {
             this.restTemplate,
             this.genieResourceHttpRequestHandler,
             this.jobsProperties,
+            this.jobStatusWatcher,
+            new JobStatusWatchProperties(),
+            this.objectMapper,
             registry
         );
     }
 
+    /**
+     * Cleanup after the tests.
+     */
+    @After
+    public void cleanup() {
+        this.controller.shutdown();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
     /**
      * Make sure if forwarding isn't enabled we don't even try to forward no matter where the job is running.
      *
@@ -420,6 +486,44 @@ public class JobRestControllerUnitTests {
         Mockito.verify(this.genieResourceHttpRequestHandler, Mockito.never()).handleRequest(request, response);
     }
 
+    /**
+     * Make sure the output is served from this node when the node the job ran on can't be reached.
+     *
+     * @throws IOException      on error
+     * @throws ServletException on error
+     * @throws GenieException   on error
+     */
+    @Test
+    public void canFallBackToArchiveWhenJobHostIsUnreachable() throws IOException, ServletException, GenieException {
+        this.jobsProperties.getForwarding().setEnabled(true);
+        final String jobId = UUID.randomUUID().toString();
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+
+        Mockito.doNothing().when(this.genieResourceHttpRequestHandler).handleRequest(request, response);
+        Mockito.when(this.jobSearchService.getJobHost(jobId)).thenReturn(UUID.randomUUID().toString());
+        Mockito.when(request.getRequestURI()).thenReturn("/" + jobId + "/" + UUID.randomUUID().toString());
+        Mockito.when(request.getHeaderNames()).thenReturn(null);
+        Mockito.when(response.isCommitted()).thenReturn(false);
+        Mockito.when(
+            this.restTemplate.execute(
+                Mockito.anyString(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.anyString(),
+                Mockito.anyString()
+            )
+        )
+            .thenThrow(new ResourceAccessException("Connection refused"));
+
+        this.controller.getJobOutput(jobId, null, request, response);
+
+        Mockito.verify(response, Mockito.never()).sendError(Mockito.anyInt(), Mockito.anyString());
+        Mockito.verify(response, Mockito.times(1)).reset();
+        Mockito.verify(this.genieResourceHttpRequestHandler, Mockito.times(1)).handleRequest(request, response);
+    }
+
     /**
      * Make sure directory forwarding happens when all conditions are met.
      *
@@ -490,6 +594,7 @@ public class JobRestControllerUnitTests {
         final JobRestController jobController = new JobRestController(
             Mockito.mock(JobCoordinatorService.class),
             this.jobSearchService,
+            this.jobResourceUsageService,
             Mockito.mock(AttachmentService.class),
             Mockito.mock(ApplicationResourceAssembler.class),
             Mockito.mock(ClusterResourceAssembler.class),
@@ -502,6 +607,9 @@ public class JobRestControllerUnitTests {
             template,
             this.genieResourceHttpRequestHandler,
             this.jobsProperties,
+            this.jobStatusWatcher,
+            new JobStatusWatchProperties(),
+            this.objectMapper,
             registry
         );
         jobController.getJobOutput(jobId, forwardedFrom, request, response);
@@ -512,4 +620,570 @@ public class JobRestControllerUnitTests {
         Mockito.verify(response, Mockito.never()).sendError(Mockito.anyInt());
         Mockito.verify(this.genieResourceHttpRequestHandler, Mockito.never()).handleRequest(request, response);
     }
+
+    /**
+     * Make sure the resource usage of a job running on this node is returned.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetJobResourceUsageOnThisNode() throws GenieException {
+        this.jobsProperties.getForwarding().setEnabled(true);
+        final String jobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobSearchService.getJobHost(jobId)).thenReturn(this.hostname);
+        final JobResourceUsage usage = new JobResourceUsage(jobId, new Date(), 2, 10, 1_000L, 2_048L, 4_096L);
+        Mockito.when(this.jobResourceUsageService.getResourceUsage(jobId)).thenReturn(Optional.of(usage));
+
+        Assert.assertThat(
+            this.controller.getJobResourceUsage(jobId, null, Mockito.mock(HttpServletRequest.class)),
+            Matchers.is(usage)
+        );
+        Mockito.verify(this.restTemplate, Mockito.never()).getMessageConverters();
+    }
+
+    /**
+     * Make sure a job without sampled resource usage is reported as not found.
+     *
+     * @throws GenieException on error
+     */
+    @Test(expected = GenieNotFoundException.class)
+    public void cantGetJobResourceUsageIfNotSampled() throws GenieException {
+        this.jobsProperties.getForwarding().setEnabled(false);
+        final String jobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobResourceUsageService.getResourceUsage(jobId)).thenReturn(Optional.empty());
+
+        this.controller.getJobResourceUsage(jobId, null, Mockito.mock(HttpServletRequest.class));
+    }
+
+    /**
+     * Make sure the resource usage of a job running on another node is fetched from that node.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    public void canForwardJobResourceUsageRequest() throws IOException, GenieException {
+        this.jobsProperties.getForwarding().setEnabled(true);
+        final String jobId = UUID.randomUUID().toString();
+        Mockito.when(this.jobSearchService.getJobHost(jobId)).thenReturn(UUID.randomUUID().toString());
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeaderNames()).thenReturn(Collections.emptyEnumeration());
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(UUID.randomUUID().toString()));
+
+        final String json = "{\"id\":\"" + jobId + "\",\"sampled\":1500000000000,\"numProcesses\":2,"
+            + "\"numThreads\":10,\"cpuTime\":1000,\"rss\":2048,\"peakRss\":4096}";
+        final MockClientHttpResponse forwardResponse = new MockClientHttpResponse(json.getBytes(UTF_8), HttpStatus.OK);
+        forwardResponse.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        final ClientHttpRequestFactory factory = Mockito.mock(ClientHttpRequestFactory.class);
+        final ClientHttpRequest clientHttpRequest = Mockito.mock(ClientHttpRequest.class);
+        Mockito.when(clientHttpRequest.execute()).thenReturn(forwardResponse);
+        Mockito.when(clientHttpRequest.getHeaders()).thenReturn(new HttpHeaders());
+        Mockito.when(factory.createRequest(Mockito.any(), Mockito.any())).thenReturn(clientHttpRequest);
+        final Registry registry = Mockito.mock(Registry.class);
+        Mockito.when(registry.counter(Mockito.anyString())).thenReturn(Mockito.mock(Counter.class));
+
+        final JobRestController jobController = new JobRestController(
+            Mockito.mock(JobCoordinatorService.class),
+            this.jobSearchService,
+            this.jobResourceUsageService,
+            Mockito.mock(AttachmentService.class),
+            Mockito.mock(ApplicationResourceAssembler.class),
+            Mockito.mock(ClusterResourceAssembler.class),
+            Mockito.mock(CommandResourceAssembler.class),
+            Mockito.mock(JobResourceAssembler.class),
+            Mockito.mock(JobRequestResourceAssembler.class),
+            Mockito.mock(JobExecutionResourceAssembler.class),
+            Mockito.mock(JobSearchResultResourceAssembler.class),
+            this.hostname,
+            new RestTemplate(factory),
+            this.genieResourceHttpRequestHandler,
+            this.jobsProperties,
+            this.jobStatusWatcher,
+            new JobStatusWatchProperties(),
+            this.objectMapper,
+            registry
+        );
+
+        Assert.assertThat(
+            jobController.getJobResourceUsage(jobId, null, request),
+            Matchers.is(new JobResourceUsage(jobId, new Date(1_500_000_000_000L), 2, 10, 1_000L, 2_048L, 4_096L))
+        );
+        Mockito.verify(this.jobResourceUsageService, Mockito.never()).getResourceUsage(jobId);
+    }
+
+    /**
+     * Make sure the jobs found by an export are written to the response as newline delimited JSON.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canExportJobs() throws IOException, GenieException {
+        final JobSearchResult job1
+            = new JobSearchResult("job1", "name1", "user", JobStatus.SUCCEEDED, new Date(0L), new Date(1L), "c", "h");
+        final JobSearchResult job2
+            = new JobSearchResult("job2", "name2", "user", JobStatus.RUNNING, new Date(2L), null, "c", "h");
+        Mockito
+            .when(
+                this.jobSearchService.exportJobs(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.eq("user"),
+                    Mockito.eq(EnumSet.of(JobStatus.SUCCEEDED, JobStatus.RUNNING)),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.eq(this.jobsProperties.getSearch().getExportFetchSize()),
+                    Mockito.any()
+                )
+            )
+            .thenAnswer(
+                invocation -> {
+                    final Consumer<JobSearchResult> consumer
+                        = (Consumer<JobSearchResult>) invocation.getArguments()[14];
+                    consumer.accept(job1);
+                    consumer.accept(job2);
+                    return 2L;
+                }
+            );
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        this.controller.exportJobs(
+            null,
+            null,
+            "user",
+            Sets.newHashSet("succeeded", "running"),
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            response
+        );
+
+        Assert.assertThat(response.getStatus(), Matchers.is(HttpStatus.OK.value()));
+        Assert.assertThat(response.getContentType(), Matchers.startsWith("application/x-ndjson"));
+        final String[] lines = response.getContentAsString().split("\n");
+        Assert.assertThat(lines.length, Matchers.is(2));
+        final ObjectMapper mapper = new ObjectMapper();
+        final JsonNode first = mapper.readTree(lines[0]);
+        Assert.assertThat(first.get("id").asText(), Matchers.is("job1"));
+        Assert.assertThat(first.get("started").asText(), Matchers.is("1970-01-01T00:00:00.000Z"));
+        final JsonNode second = mapper.readTree(lines[1]);
+        Assert.assertThat(second.get("id").asText(), Matchers.is("job2"));
+        Assert.assertThat(second.get("status").asText(), Matchers.is(JobStatus.RUNNING.name()));
+    }
+
+    /**
+     * Make sure an export finding more than the maximum number of jobs is aborted.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    public void canAbortExportOfTooManyJobs() throws IOException, GenieException {
+        this.jobsProperties.getSearch().setExportMaxJobs(1L);
+        this.mockExport(
+            consumer -> {
+                consumer.accept(new JobSearchResult("job1", "name", "user", JobStatus.RUNNING, null, null, "c", "h"));
+                consumer.accept(new JobSearchResult("job2", "name", "user", JobStatus.RUNNING, null, null, "c", "h"));
+            }
+        );
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            this.exportJobs(response);
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Assert.assertThat(gse.getCause(), Matchers.instanceOf(IllegalStateException.class));
+        }
+        final String[] lines = response.getContentAsString().split("\n");
+        Assert.assertThat(lines.length, Matchers.is(2));
+        final ObjectMapper mapper = new ObjectMapper();
+        Assert.assertThat(mapper.readTree(lines[0]).get("id").asText(), Matchers.is("job1"));
+        Assert.assertThat(
+            mapper.readTree(lines[1]).get("error").asText(),
+            Matchers.is("Export found more than 1 jobs")
+        );
+    }
+
+    /**
+     * Make sure exports beyond the maximum number running at once are rejected instead of waiting for a database
+     * connection.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void canRejectExportsBeyondMaximum() throws Exception {
+        final int maxConcurrent = this.jobsProperties.getSearch().getExportMaxConcurrent();
+        final CountDownLatch started = new CountDownLatch(maxConcurrent);
+        final CountDownLatch finish = new CountDownLatch(1);
+        this.mockExport(
+            consumer -> {
+                started.countDown();
+                try {
+                    finish.await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        );
+
+        final ExecutorService clients = Executors.newFixedThreadPool(maxConcurrent);
+        try {
+            final List<Future<?>> exports = new ArrayList<>();
+            for (int i = 0; i < maxConcurrent; i++) {
+                exports.add(
+                    clients.submit(
+                        () -> {
+                            this.exportJobs(new MockHttpServletResponse());
+                            return null;
+                        }
+                    )
+                );
+            }
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            try {
+                this.exportJobs(new MockHttpServletResponse());
+                Assert.fail();
+            } catch (final GenieServerUnavailableException gsue) {
+                Assert.assertThat(gsue.getErrorCode(), Matchers.is(HttpStatus.SERVICE_UNAVAILABLE.value()));
+            }
+
+            finish.countDown();
+            for (final Future<?> export : exports) {
+                export.get(10, TimeUnit.SECONDS);
+            }
+            // The permits are given back once the exports are done
+            this.exportJobs(new MockHttpServletResponse());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Make sure an export whose client stops taking jobs gives the database back instead of waiting for the client.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    public void canAbortExportOfStalledClient() throws IOException, GenieException {
+        this.jobsProperties.getSearch().setExportFetchSize(1);
+        this.jobsProperties.getSearch().setExportWriteTimeout(100L);
+        final CountDownLatch exportEnded = new CountDownLatch(1);
+        this.mockExport(
+            consumer -> {
+                try {
+                    for (int i = 0; i < 10; i++) {
+                        consumer.accept(
+                            new JobSearchResult("job" + i, "name", "user", JobStatus.RUNNING, null, null, "c", "h")
+                        );
+                    }
+                } finally {
+                    exportEnded.countDown();
+                }
+            }
+        );
+
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream()).thenReturn(
+            new DelegatingServletOutputStream(new ByteArrayOutputStream()) {
+                @Override
+                public void write(final byte[] b) throws IOException {
+                    try {
+                        // The client stalls on the first job until the database reading gave up
+                        Assert.assertTrue(exportEnded.await(10, TimeUnit.SECONDS));
+                    } catch (final InterruptedException ie) {
+                        throw new IOException(ie);
+                    }
+                    super.write(b);
+                }
+            }
+        );
+        try {
+            this.exportJobs(response);
+            Assert.fail();
+        } catch (final GenieServerException gse) {
+            Assert.assertThat(gse.getCause().getMessage(), Matchers.startsWith("Export client took no jobs"));
+        }
+    }
+
+    /**
+     * Make sure a request waiting for the status of a job to change is answered right away if it already did.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canAnswerWaitForJobStatusChangeRightAway() throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        Mockito.when(this.jobSearchService.getJobStatus(id)).thenReturn(JobStatus.SUCCEEDED);
+
+        final DeferredResult<JsonNode> result = this.controller.waitForJobStatusChange(id, "running", null);
+        Assert.assertTrue(result.hasResult());
+        Assert.assertThat(((JsonNode) result.getResult()).get("status").asText(), Matchers.is("SUCCEEDED"));
+        Mockito.verify(this.jobStatusWatcher, Mockito.never()).watch(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Make sure a request waiting for the status of a job to change is answered once the watcher saw it change.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canWaitForJobStatusChange() throws GenieException {
+        final String id = UUID.randomUUID().toString();
+        Mockito.when(this.jobSearchService.getJobStatus(id)).thenReturn(JobStatus.RUNNING);
+        final ArgumentCaptor<Consumer> listener = ArgumentCaptor.forClass(Consumer.class);
+        Mockito
+            .when(this.jobStatusWatcher.watch(Mockito.eq(id), Mockito.eq(JobStatus.RUNNING), listener.capture()))
+            .thenReturn(() -> {
+            });
+
+        final DeferredResult<JsonNode> result = this.controller.waitForJobStatusChange(id, "RUNNING", 1_000L);
+        Assert.assertFalse(result.hasResult());
+        listener.getValue().accept(JobStatus.KILLED);
+        Assert.assertTrue(result.hasResult());
+        Assert.assertThat(((JsonNode) result.getResult()).get("status").asText(), Matchers.is("KILLED"));
+    }
+
+    /**
+     * Make sure the statuses of many jobs are returned keyed by id and too many ids are rejected.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canGetJobStatuses() throws GenieException {
+        final Set<String> ids = Sets.newHashSet("job1", "job2", "job3");
+        Mockito
+            .when(this.jobSearchService.getJobStatuses(ids))
+            .thenReturn(ImmutableMap.of("job1", JobStatus.SUCCEEDED, "job2", JobStatus.RUNNING));
+
+        final JsonNode statuses = this.controller.getJobStatuses(ids);
+        Assert.assertThat(statuses.size(), Matchers.is(2));
+        Assert.assertThat(statuses.get("job1").asText(), Matchers.is("SUCCEEDED"));
+        Assert.assertThat(statuses.get("job2").asText(), Matchers.is("RUNNING"));
+
+        this.jobsProperties.getSearch().setMaxStatusIds(2);
+        try {
+            this.controller.getJobStatuses(ids);
+            Assert.fail();
+        } catch (final GeniePreconditionException gpe) {
+            Mockito
+                .verify(this.jobSearchService, Mockito.times(1))
+                .getJobStatuses(Mockito.anyCollectionOf(String.class));
+        }
+    }
+
+    /**
+     * Make sure a page found by cursor links to the pages around it and the cursor is handed to the search decoded.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canFindJobsByCursor() throws GenieException {
+        this.mockRequest();
+        final JobSearchCursor cursor
+            = new JobSearchCursor(new Date(1_000L), "job2", JobSearchCursor.Direction.NEXT);
+        final JobSearchCursor next = new JobSearchCursor(new Date(500L), "job3", JobSearchCursor.Direction.NEXT);
+        final JobSearchCursor previous
+            = new JobSearchCursor(new Date(500L), "job3", JobSearchCursor.Direction.PREVIOUS);
+        this.mockFindJobsByCursor(new JobSearchCursorPage(Collections.emptyList(), next, previous));
+
+        final Resources<?> page = this.findJobsByCursor(cursor.encode(), 10);
+        Assert.assertThat(page.getId().getHref(), Matchers.containsString("cursor=" + cursor.encode()));
+        Assert.assertThat(
+            page.getLink(Link.REL_NEXT).getHref(),
+            Matchers.allOf(Matchers.containsString("cursor=" + next.encode()), Matchers.containsString("user=tgianos"))
+        );
+        Assert.assertThat(
+            page.getLink(Link.REL_PREVIOUS).getHref(),
+            Matchers.containsString("cursor=" + previous.encode())
+        );
+        Assert.assertThat(this.verifyFindJobsByCursor(10), Matchers.is(cursor));
+
+        // An empty cursor gets the first page. Without other pages there are no links to them.
+        Mockito.reset(this.jobSearchService);
+        this.mockFindJobsByCursor(new JobSearchCursorPage(Collections.emptyList(), null, null));
+        final Resources<?> onlyPage = this.findJobsByCursor("", 10);
+        Assert.assertNull(onlyPage.getLink(Link.REL_NEXT));
+        Assert.assertNull(onlyPage.getLink(Link.REL_PREVIOUS));
+        Assert.assertNull(this.verifyFindJobsByCursor(10));
+    }
+
+    /**
+     * Make sure a cursor which can't be decoded is rejected before searching.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void cantFindJobsByInvalidCursor() throws GenieException {
+        this.mockRequest();
+        final String[] invalidCursors = {
+            "not a cursor",
+            Base64.getUrlEncoder().encodeToString("NEXT:1000".getBytes(UTF_8)),
+            Base64.getUrlEncoder().encodeToString("SIDEWAYS:1000:job1".getBytes(UTF_8)),
+            Base64.getUrlEncoder().encodeToString("NEXT:yesterday:job1".getBytes(UTF_8)),
+        };
+        for (final String invalidCursor : invalidCursors) {
+            try {
+                this.findJobsByCursor(invalidCursor, 10);
+                Assert.fail("Accepted cursor " + invalidCursor);
+            } catch (final GeniePreconditionException gpe) {
+                Assert.assertThat(gpe.getMessage(), Matchers.containsString(invalidCursor));
+            }
+        }
+        Mockito.verifyZeroInteractions(this.jobSearchService);
+    }
+
+    /**
+     * Make sure pages found by cursor are never larger than the configured maximum.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canCapCursorPageSize() throws GenieException {
+        this.mockRequest();
+        this.jobsProperties.getSearch().setMaxCursorPageSize(100);
+        this.mockFindJobsByCursor(new JobSearchCursorPage(Collections.emptyList(), null, null));
+
+        this.findJobsByCursor("", 5_000);
+        this.verifyFindJobsByCursor(100);
+        this.findJobsByCursor("", 50);
+        this.verifyFindJobsByCursor(50);
+    }
+
+    private void mockRequest() {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v3/jobs");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private void mockFindJobsByCursor(final JobSearchCursorPage page) {
+        Mockito
+            .when(
+                this.jobSearchService.findJobsByCursor(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.anyInt()
+                )
+            )
+            .thenReturn(page);
+    }
+
+    private JobSearchCursor verifyFindJobsByCursor(final int pageSize) {
+        final ArgumentCaptor<JobSearchCursor> cursor = ArgumentCaptor.forClass(JobSearchCursor.class);
+        Mockito
+            .verify(this.jobSearchService, Mockito.times(1))
+            .findJobsByCursor(
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                cursor.capture(),
+                Mockito.eq(pageSize)
+            );
+        return cursor.getValue();
+    }
+
+    private Resources<?> findJobsByCursor(final String cursor, final int pageSize) throws GenieException {
+        return this.controller.findJobsByCursor(
+            null,
+            null,
+            "tgianos",
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            cursor,
+            new PageRequest(0, pageSize)
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockExport(final Consumer<Consumer<JobSearchResult>> jobs) {
+        Mockito
+            .when(
+                this.jobSearchService.exportJobs(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.anyInt(),
+                    Mockito.any()
+                )
+            )
+            .thenAnswer(
+                invocation -> {
+                    jobs.accept((Consumer<JobSearchResult>) invocation.getArguments()[14]);
+                    return 0L;
+                }
+            );
+    }
+
+    private void exportJobs(final HttpServletResponse response) throws IOException, GenieException {
+        this.controller.exportJobs(
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            response
+        );
+    }
 }
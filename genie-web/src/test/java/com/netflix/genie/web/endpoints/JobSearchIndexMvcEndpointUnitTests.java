@@ -0,0 +1,91 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.endpoints;
+
+import com.netflix.genie.core.services.impl.JobSearchIndex;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.tasks.node.JobSearchIndexTask;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Unit tests for JobSearchIndexMvcEndpoint.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobSearchIndexMvcEndpointUnitTests {
+
+    private JobSearchIndex index;
+    private JobSearchIndexTask task;
+    private JobSearchIndexMvcEndpoint endpoint;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.index = Mockito.mock(JobSearchIndex.class);
+        this.task = Mockito.mock(JobSearchIndexTask.class);
+        this.endpoint = new JobSearchIndexMvcEndpoint(this.index, this.task);
+    }
+
+    /**
+     * Make sure the status of the index is reported.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetStatus() throws IOException {
+        Mockito.when(this.index.isWritable()).thenReturn(true);
+        Mockito.when(this.index.getNumJobs()).thenReturn(3);
+        Mockito.when(this.index.getIndexedUntil()).thenReturn(OptionalLong.of(1_000L));
+        final Map<String, Object> status = this.endpoint.getStatus();
+        Assert.assertThat(status.get("writable"), Matchers.is(true));
+        Assert.assertThat(status.get("jobs"), Matchers.is(3));
+        Assert.assertThat(status.get("indexedUntil"), Matchers.is(1_000L));
+        Assert.assertThat(status.get("rebuildRequested"), Matchers.is(false));
+
+        Mockito.when(this.index.getIndexedUntil()).thenReturn(OptionalLong.empty());
+        Assert.assertFalse(this.endpoint.getStatus().containsKey("lag"));
+        Assert.assertThat(this.endpoint.getPath(), Matchers.is("/jobSearchIndex"));
+    }
+
+    /**
+     * Make sure a rebuild is only requested from the node writing to the index.
+     */
+    @Test
+    public void canRequestRebuild() {
+        Assert.assertThat(this.endpoint.rebuild().getStatusCode(), Matchers.is(HttpStatus.CONFLICT));
+        Mockito.verify(this.task, Mockito.never()).requestRebuild();
+
+        Mockito.when(this.index.isWritable()).thenReturn(true);
+        Assert.assertThat(this.endpoint.rebuild().getStatusCode(), Matchers.is(HttpStatus.ACCEPTED));
+        Mockito.verify(this.task, Mockito.times(1)).requestRebuild();
+    }
+}
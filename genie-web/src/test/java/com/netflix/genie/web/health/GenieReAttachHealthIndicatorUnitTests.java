@@ -0,0 +1,56 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.health;
+
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.tasks.job.JobMonitoringCoordinator;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Unit tests for GenieReAttachHealthIndicator.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class GenieReAttachHealthIndicatorUnitTests {
+
+    /**
+     * Make sure the node is only up once the running jobs have been re-attached to.
+     */
+    @Test
+    public void canGetHealth() {
+        final JobMonitoringCoordinator coordinator = Mockito.mock(JobMonitoringCoordinator.class);
+        Mockito.when(coordinator.isReAttached()).thenReturn(false, true);
+        final GenieReAttachHealthIndicator indicator = new GenieReAttachHealthIndicator(coordinator);
+
+        final Health outOfService = indicator.health();
+        Assert.assertThat(outOfService.getStatus(), Matchers.is(Status.OUT_OF_SERVICE));
+        Assert.assertThat(outOfService.getDetails().get("reAttached"), Matchers.is(false));
+
+        final Health up = indicator.health();
+        Assert.assertThat(up.getStatus(), Matchers.is(Status.UP));
+        Assert.assertThat(up.getDetails().get("reAttached"), Matchers.is(true));
+    }
+}
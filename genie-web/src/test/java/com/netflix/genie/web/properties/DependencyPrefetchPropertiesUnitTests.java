@@ -0,0 +1,110 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.properties;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Unit tests for DependencyPrefetchProperties.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class DependencyPrefetchPropertiesUnitTests {
+
+    private DependencyPrefetchProperties properties;
+
+    /**
+     * Setup for tests.
+     */
+    @Before
+    public void setup() {
+        this.properties = new DependencyPrefetchProperties();
+    }
+
+    /**
+     * Make sure constructor sets reasonable defaults.
+     */
+    @Test
+    public void canGetDefaultValues() {
+        Assert.assertFalse(this.properties.isEnabled());
+        Assert.assertThat(this.properties.getRate(), Matchers.is(300_000L));
+        Assert.assertThat(this.properties.getMaxFilesPerSecond(), Matchers.is(10.0D));
+        Assert.assertThat(this.properties.getPageSize(), Matchers.is(100));
+        Assert.assertThat(this.properties.getTags(), Matchers.empty());
+    }
+
+    /**
+     * Make sure can enable.
+     */
+    @Test
+    public void canEnable() {
+        this.properties.setEnabled(true);
+        Assert.assertTrue(this.properties.isEnabled());
+    }
+
+    /**
+     * Make sure can set a new rate.
+     */
+    @Test
+    public void canSetRate() {
+        final long rate = 2318L;
+        this.properties.setRate(rate);
+        Assert.assertThat(this.properties.getRate(), Matchers.is(rate));
+    }
+
+    /**
+     * Make sure can set a new rate limit.
+     */
+    @Test
+    public void canSetMaxFilesPerSecond() {
+        final double maxFilesPerSecond = 0.5D;
+        this.properties.setMaxFilesPerSecond(maxFilesPerSecond);
+        Assert.assertThat(this.properties.getMaxFilesPerSecond(), Matchers.is(maxFilesPerSecond));
+    }
+
+    /**
+     * Make sure can set a new page size.
+     */
+    @Test
+    public void canSetPageSize() {
+        final int pageSize = 17;
+        this.properties.setPageSize(pageSize);
+        Assert.assertThat(this.properties.getPageSize(), Matchers.is(pageSize));
+    }
+
+    /**
+     * Make sure can set the tags to filter on.
+     */
+    @Test
+    public void canSetTags() {
+        final Set<String> tags = Sets.newHashSet(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        this.properties.setTags(tags);
+        Assert.assertThat(this.properties.getTags(), Matchers.is(tags));
+    }
+}
@@ -19,6 +19,7 @@ package com.netflix.genie.web.properties;
 
 import com.netflix.genie.core.properties.S3FileTransferProperties;
 import com.netflix.genie.test.categories.UnitTest;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -49,6 +50,10 @@ public class S3FileTransferPropertiesUnitTests {
     @Test
     public void canGetDefaultValues() {
         Assert.assertFalse(this.properties.isStrictUrlCheckEnabled());
+        Assert.assertThat(this.properties.getMultipartThreshold(), Matchers.is(64L * 1024L * 1024L));
+        Assert.assertThat(this.properties.getPartSize(), Matchers.is(16L * 1024L * 1024L));
+        Assert.assertThat(this.properties.getConcurrency(), Matchers.is(8));
+        Assert.assertThat(this.properties.getPartRetries(), Matchers.is(3));
     }
 
     /**
@@ -59,4 +64,19 @@ public class S3FileTransferPropertiesUnitTests {
         this.properties.setStrictUrlCheckEnabled(true);
         Assert.assertTrue(this.properties.isStrictUrlCheckEnabled());
     }
+
+    /**
+     * Make sure can set the multipart transfer settings.
+     */
+    @Test
+    public void canSetMultipartSettings() {
+        this.properties.setMultipartThreshold(1234L);
+        this.properties.setPartSize(567L);
+        this.properties.setConcurrency(23);
+        this.properties.setPartRetries(7);
+        Assert.assertThat(this.properties.getMultipartThreshold(), Matchers.is(1234L));
+        Assert.assertThat(this.properties.getPartSize(), Matchers.is(567L));
+        Assert.assertThat(this.properties.getConcurrency(), Matchers.is(23));
+        Assert.assertThat(this.properties.getPartRetries(), Matchers.is(7));
+    }
 }
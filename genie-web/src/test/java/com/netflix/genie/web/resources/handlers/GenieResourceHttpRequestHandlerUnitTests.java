@@ -19,6 +19,8 @@ package com.netflix.genie.web.resources.handlers;
 
 import com.google.common.collect.Lists;
 import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.ArchivedJobService;
+import com.netflix.genie.core.util.ArchiveIndex;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.web.resources.writers.DirectoryWriter;
 import org.junit.Before;
@@ -39,6 +41,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -126,6 +129,79 @@ public class GenieResourceHttpRequestHandlerUnitTests {
         Mockito.verify(response, Mockito.times(1)).sendError(HttpStatus.NOT_FOUND.value());
     }
 
+    /**
+     * Make sure a directory which isn't on this node is listed out of the archive of the job.
+     *
+     * @throws Exception On any error
+     */
+    @Test
+    public void canHandleRequestForArchivedDirectory() throws Exception {
+        final ArchivedJobService archivedJobService = Mockito.mock(ArchivedJobService.class);
+        this.handler = new GenieResourceHttpRequestHandler(this.directoryWriter, archivedJobService);
+        this.handler.setLocations(Lists.newArrayList(this.location));
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        final String jobId = UUID.randomUUID().toString();
+        final String path = jobId + "/genie";
+        Mockito.when(request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE)).thenReturn(path);
+        final String requestUrl = UUID.randomUUID().toString();
+        Mockito.when(request.getRequestURL()).thenReturn(new StringBuffer(requestUrl));
+        final Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(this.location.createRelative(Mockito.eq(path))).thenReturn(resource);
+        Mockito.when(resource.exists()).thenReturn(false);
+
+        final ArchiveIndex.Entry entry = new ArchiveIndex.Entry();
+        entry.setPath("genie");
+        entry.setDirectory(true);
+        final ArchiveIndex index = new ArchiveIndex();
+        index.setEntries(Lists.newArrayList(entry));
+        Mockito.when(archivedJobService.getArchiveIndex(jobId)).thenReturn(Optional.of(index));
+
+        final String json = UUID.randomUUID().toString();
+        Mockito.when(
+            this.directoryWriter.toJson(
+                Mockito.eq(index),
+                Mockito.eq("genie"),
+                Mockito.eq(requestUrl),
+                Mockito.eq(false)
+            )
+        ).thenReturn(json);
+        final ServletOutputStream os = Mockito.mock(ServletOutputStream.class);
+        Mockito.when(response.getOutputStream()).thenReturn(os);
+
+        this.handler.handleRequest(request, response);
+
+        Mockito.verify(response, Mockito.times(1)).setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Mockito.verify(os, Mockito.times(1)).write(json.getBytes(Charset.forName("UTF-8")));
+        Mockito.verify(archivedJobService, Mockito.never()).getFile(Mockito.anyString(), Mockito.anyString());
+    }
+
+    /**
+     * Make sure a path which is neither on this node nor in the archive of the job returns a 404.
+     *
+     * @throws Exception On any error
+     */
+    @Test
+    public void cantHandleRequestIfResourceIsntArchived() throws Exception {
+        final ArchivedJobService archivedJobService = Mockito.mock(ArchivedJobService.class);
+        this.handler = new GenieResourceHttpRequestHandler(this.directoryWriter, archivedJobService);
+        this.handler.setLocations(Lists.newArrayList(this.location));
+        final HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        final HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        final String jobId = UUID.randomUUID().toString();
+        final String path = jobId + "/stdout";
+        Mockito.when(request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE)).thenReturn(path);
+        final Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(this.location.createRelative(Mockito.eq(path))).thenReturn(resource);
+        Mockito.when(resource.exists()).thenReturn(false);
+        Mockito.when(archivedJobService.getArchiveIndex(jobId)).thenReturn(Optional.empty());
+
+        this.handler.handleRequest(request, response);
+
+        Mockito.verify(response, Mockito.times(1)).sendError(HttpStatus.NOT_FOUND.value());
+        Mockito.verify(archivedJobService, Mockito.never()).getFile(Mockito.anyString(), Mockito.anyString());
+    }
+
     /**
      * Make sure if the resource isn't a directory it's sent to super.
      * <p>
@@ -18,6 +18,8 @@
 package com.netflix.genie.web.resources.writers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.netflix.genie.core.util.ArchiveIndex;
 import com.netflix.genie.test.categories.UnitTest;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -234,6 +236,57 @@ public class DefaultDirectoryWriterUnitTests {
         );
     }
 
+    /**
+     * Make sure can get a directory out of the index of a job archive.
+     */
+    @Test
+    public void canGetDirectoryFromArchiveIndex() {
+        final ArchiveIndex index = new ArchiveIndex();
+        index.setEntries(
+            Lists.newArrayList(
+                this.newArchiveEntry("", true, 0L, PARENT_LAST_MODIFIED),
+                this.newArchiveEntry(DIR_1_NAME, true, DIR_1_SIZE, DIR_1_LAST_MODIFIED),
+                this.newArchiveEntry(DIR_1_NAME + "/" + DIR_2_NAME, true, DIR_2_SIZE, DIR_2_LAST_MODIFIED),
+                this.newArchiveEntry(DIR_1_NAME + "/" + FILE_1_NAME, false, FILE_1_SIZE, FILE_1_LAST_MODIFIED),
+                this.newArchiveEntry(FILE_2_NAME, false, FILE_2_SIZE, FILE_2_LAST_MODIFIED)
+            )
+        );
+
+        final DefaultDirectoryWriter.Directory root = this.writer.getDirectory(index, "", REQUEST_URL_BASE, false);
+        Assert.assertThat(root.getParent(), Matchers.nullValue());
+        Assert.assertThat(root.getDirectories().size(), Matchers.is(1));
+        Assert.assertThat(root.getDirectories().get(0).getName(), Matchers.is(DIR_1_NAME + "/"));
+        Assert.assertThat(root.getFiles().size(), Matchers.is(1));
+        Assert.assertThat(root.getFiles().get(0).getName(), Matchers.is(FILE_2_NAME));
+        Assert.assertThat(root.getFiles().get(0).getUrl(), Matchers.is(REQUEST_URL_BASE + "/" + FILE_2_NAME));
+        Assert.assertThat(root.getFiles().get(0).getSize(), Matchers.is(FILE_2_SIZE));
+
+        final String requestUrl = REQUEST_URL_BASE + "/" + DIR_1_NAME;
+        final DefaultDirectoryWriter.Directory dir = this.writer.getDirectory(index, DIR_1_NAME, requestUrl, true);
+        Assert.assertThat(dir.getParent(), Matchers.notNullValue());
+        Assert.assertThat(dir.getParent().getUrl(), Matchers.is(PARENT_URL));
+        Assert.assertThat(dir.getParent().getLastModified(), Matchers.is(PARENT_LAST_MODIFIED));
+        Assert.assertThat(dir.getDirectories().size(), Matchers.is(1));
+        Assert.assertThat(dir.getDirectories().get(0).getUrl(), Matchers.is(requestUrl + "/" + DIR_2_NAME + "/"));
+        Assert.assertThat(dir.getFiles().size(), Matchers.is(1));
+        Assert.assertThat(dir.getFiles().get(0).getUrl(), Matchers.is(requestUrl + "/" + FILE_1_NAME));
+        Assert.assertThat(dir.getFiles().get(0).getLastModified(), Matchers.is(FILE_1_LAST_MODIFIED));
+    }
+
+    private ArchiveIndex.Entry newArchiveEntry(
+        final String path,
+        final boolean directory,
+        final long size,
+        final Date lastModified
+    ) {
+        final ArchiveIndex.Entry entry = new ArchiveIndex.Entry();
+        entry.setPath(path);
+        entry.setDirectory(directory);
+        entry.setSize(size);
+        entry.setLastModified(lastModified.getTime());
+        return entry;
+    }
+
     private void setupWithoutParent() {
         Mockito.when(this.directory.listFiles()).thenReturn(null);
     }
@@ -17,13 +17,18 @@
  */
 package com.netflix.genie.web.services.impl;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.util.MetricsUtils;
 import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.configs.JobConfig;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spectator.api.Timer;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
@@ -34,6 +39,7 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.test.web.client.match.MockRestRequestMatchers;
@@ -45,7 +51,10 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -66,15 +75,25 @@ public class HttpFileTransferImplTest {
     @Rule
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
+    /**
+     * Embedded HTTP server for the tests which go over a real connection.
+     */
+    @Rule
+    @SuppressFBWarnings("URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public WireMockRule wireMockRule = new WireMockRule(Options.DYNAMIC_PORT);
+
     private MockRestServiceServer server;
     private HttpFileTransferImpl httpFileTransfer;
 
     private Id downloadTimerId;
     private Id uploadTimerId;
     private Id metadataTimerId;
+    private Id conditionalDownloadTimerId;
     private Timer downloadTimer;
     private Timer uploadTimer;
     private Timer metadataTimer;
+    private Timer conditionalDownloadTimer;
+    private Registry registry;
 
     /**
      * Setup for the tests.
@@ -86,13 +105,15 @@ public class HttpFileTransferImplTest {
         this.downloadTimer = Mockito.mock(Timer.class);
         this.uploadTimer = Mockito.mock(Timer.class);
         this.metadataTimer = Mockito.mock(Timer.class);
+        this.conditionalDownloadTimer = Mockito.mock(Timer.class);
         this.downloadTimerId = Mockito.mock(Id.class);
         this.uploadTimerId = Mockito.mock(Id.class);
         this.metadataTimerId = Mockito.mock(Id.class);
-        final Registry registry = Mockito.mock(Registry.class);
-        Mockito.when(registry.createId("genie.files.http.download.timer")).thenReturn(this.downloadTimerId);
-        Mockito.when(registry.createId("genie.files.http.upload.timer")).thenReturn(this.uploadTimerId);
-        Mockito.when(registry.createId("genie.files.http.getLastModified.timer")).thenReturn(this.metadataTimerId);
+        this.conditionalDownloadTimerId = Mockito.mock(Id.class);
+        this.registry = Mockito.mock(Registry.class);
+        Mockito.when(this.registry.createId("genie.files.http.download.timer")).thenReturn(this.downloadTimerId);
+        Mockito.when(this.registry.createId("genie.files.http.upload.timer")).thenReturn(this.uploadTimerId);
+        Mockito.when(this.registry.createId("genie.files.http.getLastModified.timer")).thenReturn(this.metadataTimerId);
         Mockito
             .when(this.downloadTimerId.withTags(Mockito.anyMapOf(String.class, String.class)))
             .thenReturn(this.downloadTimerId);
@@ -102,10 +123,17 @@ public class HttpFileTransferImplTest {
         Mockito
             .when(this.metadataTimerId.withTags(Mockito.anyMapOf(String.class, String.class)))
             .thenReturn(this.metadataTimerId);
-        Mockito.when(registry.timer(this.downloadTimerId)).thenReturn(this.downloadTimer);
-        Mockito.when(registry.timer(this.uploadTimerId)).thenReturn(this.uploadTimer);
-        Mockito.when(registry.timer(this.metadataTimerId)).thenReturn(this.metadataTimer);
-        this.httpFileTransfer = new HttpFileTransferImpl(restTemplate, registry);
+        Mockito.when(this.registry.timer(this.downloadTimerId)).thenReturn(this.downloadTimer);
+        Mockito.when(this.registry.timer(this.uploadTimerId)).thenReturn(this.uploadTimer);
+        Mockito.when(this.registry.timer(this.metadataTimerId)).thenReturn(this.metadataTimer);
+        Mockito
+            .when(this.registry.createId("genie.files.http.conditionalDownload.timer"))
+            .thenReturn(this.conditionalDownloadTimerId);
+        Mockito
+            .when(this.conditionalDownloadTimerId.withTags(Mockito.anyMapOf(String.class, String.class)))
+            .thenReturn(this.conditionalDownloadTimerId);
+        Mockito.when(this.registry.timer(this.conditionalDownloadTimerId)).thenReturn(this.conditionalDownloadTimer);
+        this.httpFileTransfer = new HttpFileTransferImpl(restTemplate, this.registry);
     }
 
     /**
@@ -153,6 +181,123 @@ public class HttpFileTransferImplTest {
             .record(Mockito.anyLong(), Mockito.eq(TimeUnit.NANOSECONDS));
     }
 
+    /**
+     * Make sure a conditional get sends the validators and downloads the file if the server says it changed.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void canGetIfModified() throws GenieException, IOException {
+        final File output = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+        final String contents = UUID.randomUUID().toString();
+        final long lastModified = 28424323000L;
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v2\"");
+        headers.setLastModified(lastModified);
+
+        this.server
+            .expect(MockRestRequestMatchers.requestTo(TEST_URL))
+            .andExpect(MockRestRequestMatchers.method(HttpMethod.GET))
+            .andExpect(MockRestRequestMatchers.header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andExpect(MockRestRequestMatchers.header(HttpHeaders.IF_MODIFIED_SINCE, Matchers.notNullValue()))
+            .andRespond(
+                MockRestResponseCreators
+                    .withSuccess(contents.getBytes(StandardCharsets.UTF_8), MediaType.APPLICATION_OCTET_STREAM)
+                    .headers(headers)
+            );
+
+        Assert.assertThat(
+            this.httpFileTransfer.getFileIfModified(TEST_URL, output.getCanonicalPath(), 1000L, "\"v1\""),
+            Matchers.is(Optional.of("\"v2\""))
+        );
+
+        this.server.verify();
+        Assert.assertThat(
+            new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8),
+            Matchers.is(contents)
+        );
+        Assert.assertThat(output.lastModified(), Matchers.is(lastModified));
+        Mockito
+            .verify(this.conditionalDownloadTimer, Mockito.times(1))
+            .record(Mockito.anyLong(), Mockito.eq(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Make sure nothing is downloaded if the server says the file wasn't modified.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void wontGetIfNotModified() throws GenieException, IOException {
+        final File output = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+
+        this.server
+            .expect(MockRestRequestMatchers.requestTo(TEST_URL))
+            .andExpect(MockRestRequestMatchers.method(HttpMethod.GET))
+            .andExpect(MockRestRequestMatchers.header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andRespond(MockRestResponseCreators.withStatus(HttpStatus.NOT_MODIFIED));
+
+        Assert.assertFalse(
+            this.httpFileTransfer.getFileIfModified(TEST_URL, output.getCanonicalPath(), 0L, "\"v1\"").isPresent()
+        );
+
+        this.server.verify();
+        Assert.assertFalse(output.exists());
+        Mockito
+            .verify(this.conditionalDownloadTimer, Mockito.times(1))
+            .record(Mockito.anyLong(), Mockito.eq(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Make sure conditional gets work end to end over the pooled client against a real HTTP server.
+     *
+     * @throws GenieException On error
+     * @throws IOException    On error
+     */
+    @Test
+    public void canConditionallyGetOverPooledConnections() throws GenieException, IOException {
+        final String path = "/" + UUID.randomUUID().toString();
+        final String url = "http://localhost:" + this.wireMockRule.port() + path;
+        final String contents = UUID.randomUUID().toString();
+        final String eTag = "\"" + UUID.randomUUID().toString() + "\"";
+        this.wireMockRule.stubFor(
+            WireMock
+                .get(WireMock.urlEqualTo(path))
+                .willReturn(
+                    WireMock.aResponse().withStatus(HttpStatus.OK.value()).withHeader("ETag", eTag).withBody(contents)
+                )
+        );
+        this.wireMockRule.stubFor(
+            WireMock
+                .get(WireMock.urlEqualTo(path))
+                .withHeader(HttpHeaders.IF_NONE_MATCH, WireMock.equalTo(eTag))
+                .willReturn(WireMock.aResponse().withStatus(HttpStatus.NOT_MODIFIED.value()))
+        );
+        final HttpFileTransferImpl pooledFileTransfer = new HttpFileTransferImpl(
+            new JobConfig().fileTransferRestTemplate(10, 2, 2000, 10000),
+            this.registry
+        );
+
+        final File output = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+        Assert.assertThat(
+            pooledFileTransfer.getFileIfModified(url, output.getCanonicalPath(), 0L, null),
+            Matchers.is(Optional.of(eTag))
+        );
+        Assert.assertThat(
+            new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8),
+            Matchers.is(contents)
+        );
+        // More checks than pooled connections per host makes sure connections go back to the pool after a 304
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(
+                pooledFileTransfer.getFileIfModified(url, output.getCanonicalPath(), 0L, eTag).isPresent()
+            );
+        }
+        this.wireMockRule.verify(6, WireMock.getRequestedFor(WireMock.urlEqualTo(path)));
+    }
+
     /**
      * Make sure can't get a file if the intput isn't a valid url.
      *
@@ -0,0 +1,249 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.core.events.GenieEventBus;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.util.BatchProcessChecker;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Unit tests for JobDoneFileWatcher.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobDoneFileWatcherUnitTests {
+
+    private static final long DELAY = 10_000L;
+    // Generous as the watch service falls back to polling on some platforms
+    private static final long EVENT_TIMEOUT = 30_000L;
+    private static final int PID = 1001;
+
+    /**
+     * Temporary folder for the job directories.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private BatchProcessChecker processChecker;
+    private GenieEventBus genieEventBus;
+    private JobDoneFileWatcher watcher;
+    private Date tomorrow;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+        final Calendar cal = Calendar.getInstance(JobConstants.UTC);
+        cal.add(Calendar.DAY_OF_YEAR, 1);
+        this.tomorrow = cal.getTime();
+        this.processChecker = Mockito.mock(BatchProcessChecker.class);
+        Mockito
+            .when(this.processChecker.getRunningProcesses(Mockito.anyCollectionOf(Integer.class)))
+            .thenReturn(Collections.emptySet());
+        this.genieEventBus = Mockito.mock(GenieEventBus.class);
+        this.watcher = new JobDoneFileWatcher(this.processChecker, new DefaultRegistry());
+    }
+
+    /**
+     * Stop the watcher.
+     */
+    @After
+    public void tearDown() {
+        if (this.watcher != null) {
+            this.watcher.close();
+        }
+    }
+
+    /**
+     * Make sure a job is reported finished once the run script moves its done file into place.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canDetectDoneFileMovedIntoPlace() throws IOException {
+        final File genieDirectory = this.temporaryFolder.newFolder();
+        final JobMonitor monitor = this.createMonitor();
+        this.watcher.watch(monitor, genieDirectory);
+        Assert.assertThat(this.watcher.getNumWatched(), Matchers.is(1));
+
+        this.writeDoneFile(genieDirectory);
+
+        final ArgumentCaptor<JobFinishedEvent> captor = ArgumentCaptor.forClass(JobFinishedEvent.class);
+        Mockito
+            .verify(this.genieEventBus, Mockito.timeout(EVENT_TIMEOUT).times(1))
+            .publishAsynchronousEvent(captor.capture());
+        Assert.assertThat(captor.getValue().getId(), Matchers.is(monitor.getId()));
+        Assert.assertThat(captor.getValue().getReason(), Matchers.is(JobFinishedReason.PROCESS_COMPLETED));
+        Assert.assertTrue(monitor.isFinished());
+        Assert.assertThat(this.watcher.getNumWatched(), Matchers.is(0));
+    }
+
+    /**
+     * Make sure a job isn't reported finished before the run script exited after writing the done file.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canWaitForProcessToExit() throws IOException {
+        Mockito
+            .when(this.processChecker.getRunningProcesses(Mockito.anyCollectionOf(Integer.class)))
+            .thenReturn(Sets.newHashSet(PID), Sets.newHashSet(PID), Collections.emptySet());
+        final File genieDirectory = this.temporaryFolder.newFolder();
+        final JobMonitor monitor = this.createMonitor();
+        this.watcher.watch(monitor, genieDirectory);
+
+        this.writeDoneFile(genieDirectory);
+
+        Mockito
+            .verify(this.genieEventBus, Mockito.timeout(EVENT_TIMEOUT).times(1))
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+        Mockito
+            .verify(this.processChecker, Mockito.atLeast(3))
+            .getRunningProcesses(Mockito.anyCollectionOf(Integer.class));
+    }
+
+    /**
+     * Make sure a job whose done file was written before it was watched is still reported finished.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canDetectDoneFileAlreadyThere() throws IOException {
+        final File genieDirectory = this.temporaryFolder.newFolder();
+        this.writeDoneFile(genieDirectory);
+
+        this.watcher.watch(this.createMonitor(), genieDirectory);
+
+        Mockito
+            .verify(this.genieEventBus, Mockito.timeout(EVENT_TIMEOUT).times(1))
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+    }
+
+    /**
+     * Make sure a job already found finished by the regular checks isn't reported again.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSuppressDuplicateFinishedEvent() throws IOException {
+        final File genieDirectory = this.temporaryFolder.newFolder();
+        final JobMonitor monitor = this.createMonitor();
+        this.watcher.watch(monitor, genieDirectory);
+        monitor.check(false, System.currentTimeMillis());
+
+        this.writeDoneFile(genieDirectory);
+
+        Mockito
+            .verify(this.genieEventBus, Mockito.after(1_000L).times(1))
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+    }
+
+    /**
+     * Make sure a job isn't reported once it isn't watched anymore.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canUnwatch() throws IOException {
+        final File genieDirectory = this.temporaryFolder.newFolder();
+        final JobMonitor monitor = this.createMonitor();
+        this.watcher.watch(monitor, genieDirectory);
+        this.watcher.unwatch(monitor.getId());
+        Assert.assertThat(this.watcher.getNumWatched(), Matchers.is(0));
+
+        this.writeDoneFile(genieDirectory);
+
+        Mockito
+            .verify(this.genieEventBus, Mockito.after(1_000L).never())
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+    }
+
+    /**
+     * Make sure a directory which can't be watched leaves the job to the regular checks.
+     */
+    @Test
+    public void canIgnoreMissingDirectory() {
+        final File missing = new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString());
+        this.watcher.watch(this.createMonitor(), missing);
+        Assert.assertThat(this.watcher.getNumWatched(), Matchers.is(0));
+    }
+
+    private void writeDoneFile(final File genieDirectory) throws IOException {
+        // The same way the run script does
+        final File doneFile = new File(genieDirectory, new File(JobConstants.GENIE_DONE_FILE_NAME).getName());
+        final File temporaryDoneFile = new File(
+            genieDirectory,
+            new File(JobConstants.GENIE_TEMPORARY_DONE_FILE_NAME).getName()
+        );
+        Files.write(temporaryDoneFile.toPath(), "{\"exitCode\": \"0\"}\n".getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryDoneFile.toPath(), doneFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private JobMonitor createMonitor() {
+        final JobExecution execution = new JobExecution.Builder(UUID.randomUUID().toString())
+            .withId(UUID.randomUUID().toString())
+            .withProcessId(PID)
+            .withCheckDelay(DELAY)
+            .withTimeout(this.tomorrow)
+            .build();
+        return new JobMonitor(
+            execution,
+            new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()),
+            new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()),
+            this.genieEventBus,
+            new DefaultRegistry(),
+            new JobsProperties()
+        );
+    }
+}
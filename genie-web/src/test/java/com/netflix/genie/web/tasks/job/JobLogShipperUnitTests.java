@@ -0,0 +1,207 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.netflix.genie.common.dto.Job;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Unit tests for JobLogShipper.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobLogShipperUnitTests {
+
+    private static final long SHIP_INTERVAL = 30_000L;
+    private static final long MAX_CHUNK_SIZE = 4L;
+    private static final String ARCHIVE_LOCATION = "s3://bucket/jobs/job.tar.gz";
+
+    /**
+     * Temporary folder that will be deleted at the end of tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JobSearchService jobSearchService;
+    private Map<String, String> chunks;
+    private JobLogShipper shipper;
+    private String jobId;
+    private File jobDir;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws Exception on error
+     */
+    @Before
+    public void setup() throws Exception {
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        final GenieFileTransferService fileTransferService = Mockito.mock(GenieFileTransferService.class);
+        this.chunks = new TreeMap<>();
+        Mockito.doAnswer(
+            invocation -> {
+                final String content = FileUtils.readFileToString(
+                    new File((String) invocation.getArguments()[0]),
+                    StandardCharsets.UTF_8
+                );
+                this.chunks.put((String) invocation.getArguments()[1], content);
+                return null;
+            }
+        ).when(fileTransferService).putFile(Mockito.anyString(), Mockito.anyString());
+        this.shipper = new JobLogShipper(
+            this.jobSearchService,
+            fileTransferService,
+            SHIP_INTERVAL,
+            MAX_CHUNK_SIZE,
+            new DefaultRegistry()
+        );
+
+        this.jobId = UUID.randomUUID().toString();
+        this.jobDir = this.folder.newFolder(this.jobId);
+        Assert.assertTrue(new File(this.jobDir, "genie/logs").mkdirs());
+    }
+
+    /**
+     * Make sure only the bytes appended since the previous pass are shipped and the rest is shipped once the job
+     * finished.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canShipAppendedBytes() throws GenieException, IOException {
+        this.mockArchiveLocation(ARCHIVE_LOCATION);
+        this.shipper.track(this.jobId, this.jobDir);
+        Assert.assertThat(this.shipper.getNumTracked(), Matchers.is(1));
+
+        final File stdOut = new File(this.jobDir, JobConstants.STDOUT_LOG_FILE_NAME);
+        FileUtils.write(stdOut, "hello", StandardCharsets.UTF_8);
+        this.shipper.ship();
+        Assert.assertThat(this.chunks.size(), Matchers.is(2));
+        Assert.assertThat(this.chunks.get(chunk("stdout", 0)), Matchers.is("hell"));
+        Assert.assertThat(this.chunks.get(chunk("stdout", 4)), Matchers.is("o"));
+
+        this.chunks.clear();
+        this.shipper.ship();
+        Assert.assertTrue(this.chunks.isEmpty());
+
+        FileUtils.write(stdOut, " world", StandardCharsets.UTF_8, true);
+        FileUtils.write(
+            new File(this.jobDir, JobConstants.GENIE_LOG_PATH),
+            "done",
+            StandardCharsets.UTF_8
+        );
+        this.shipper.untrack(this.jobId);
+        Assert.assertThat(this.shipper.getNumTracked(), Matchers.is(1));
+        this.shipper.ship();
+        Assert.assertThat(this.shipper.getNumTracked(), Matchers.is(0));
+        Assert.assertThat(this.chunks.size(), Matchers.is(3));
+        Assert.assertThat(this.chunks.get(chunk("stdout", 5)), Matchers.is(" wor"));
+        Assert.assertThat(this.chunks.get(chunk("stdout", 9)), Matchers.is("ld"));
+        Assert.assertThat(this.chunks.get(chunk("genie/logs/genie.log", 0)), Matchers.is("done"));
+        Mockito.verify(this.jobSearchService, Mockito.times(1)).getJob(this.jobId);
+    }
+
+    /**
+     * Make sure shipping resumes from the checkpoint in the job directory.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void canResumeFromCheckpoint() throws GenieException, IOException {
+        this.mockArchiveLocation(ARCHIVE_LOCATION);
+        final File stdErr = new File(this.jobDir, JobConstants.STDERR_LOG_FILE_NAME);
+        FileUtils.write(stdErr, "abc", StandardCharsets.UTF_8);
+        this.shipper.track(this.jobId, this.jobDir);
+        this.shipper.ship();
+        Assert.assertTrue(new File(this.jobDir, JobLogShipper.CHECKPOINT_FILE_PATH).isFile());
+
+        // As if this node restarted
+        this.chunks.clear();
+        this.shipper.untrack(this.jobId);
+        this.shipper.ship();
+        FileUtils.write(stdErr, "de", StandardCharsets.UTF_8, true);
+        this.shipper.track(this.jobId, this.jobDir);
+        this.shipper.ship();
+        Assert.assertThat(this.chunks.size(), Matchers.is(1));
+        Assert.assertThat(this.chunks.get(chunk("stderr", 3)), Matchers.is("de"));
+    }
+
+    /**
+     * Make sure nothing is shipped for jobs without an archive location.
+     *
+     * @throws GenieException on error
+     * @throws IOException    on error
+     */
+    @Test
+    public void wontShipWithoutArchiveLocation() throws GenieException, IOException {
+        this.mockArchiveLocation(null);
+        FileUtils.write(new File(this.jobDir, JobConstants.STDOUT_LOG_FILE_NAME), "hello", StandardCharsets.UTF_8);
+        this.shipper.track(this.jobId, this.jobDir);
+        this.shipper.ship();
+        this.shipper.ship();
+        Assert.assertTrue(this.chunks.isEmpty());
+        Assert.assertFalse(new File(this.jobDir, JobLogShipper.CHECKPOINT_FILE_PATH).exists());
+        Mockito.verify(this.jobSearchService, Mockito.times(1)).getJob(this.jobId);
+    }
+
+    /**
+     * Make sure the task is scheduled with the configured delay.
+     */
+    @Test
+    public void canGetSchedule() {
+        Assert.assertThat(this.shipper.getScheduleType(), Matchers.is(GenieTaskScheduleType.FIXED_DELAY));
+        Assert.assertThat(this.shipper.getFixedDelay(), Matchers.is(SHIP_INTERVAL));
+    }
+
+    private void mockArchiveLocation(final String archiveLocation) throws GenieException {
+        final Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getArchiveLocation()).thenReturn(Optional.ofNullable(archiveLocation));
+        Mockito.when(this.jobSearchService.getJob(this.jobId)).thenReturn(job);
+    }
+
+    private static String chunk(final String path, final long offset) {
+        return String.format("%s%s%s.%020d", ARCHIVE_LOCATION, JobLogShipper.CHUNKS_SUFFIX, path, offset);
+    }
+}
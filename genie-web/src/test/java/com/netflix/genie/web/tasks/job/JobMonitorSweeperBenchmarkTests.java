@@ -0,0 +1,170 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.core.events.GenieEventBus;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.util.UnixBatchProcessChecker;
+import com.netflix.genie.test.categories.BenchmarkTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.UUID;
+
+/**
+ * A benchmark of the cost of checking 1000 running jobs with a single sweep compared to forking a ps process per job
+ * like the per job monitors used to. The timings are only logged. Run with the benchmarkTests task.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(BenchmarkTest.class)
+@Slf4j
+public class JobMonitorSweeperBenchmarkTests {
+
+    private static final int NUM_JOBS = 1_000;
+    private static final long DELAY = 1L;
+    private static final int WARM_UP_SWEEPS = 20;
+    private static final int SWEEPS = 100;
+    // Forking is slow so the cost of the per job checks is extrapolated from a sample
+    private static final int PS_SAMPLE = 50;
+
+    /**
+     * Temporary folder for the output files of the jobs.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private int pid;
+    private JobMonitor[] monitors;
+    private long now;
+
+    /**
+     * Setup for the benchmark. All the jobs point to the process running the tests so they all count as running and
+     * get their timeouts and output files checked.
+     *
+     * @throws Exception on error
+     */
+    @Before
+    public void setup() throws Exception {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+        this.pid = Integer.parseInt(ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+        final Calendar tomorrow = Calendar.getInstance(JobConstants.UTC);
+        tomorrow.add(Calendar.DAY_OF_YEAR, 1);
+        final GenieEventBus genieEventBus = Mockito.mock(GenieEventBus.class);
+        final DefaultRegistry registry = new DefaultRegistry();
+        final JobsProperties jobsProperties = new JobsProperties();
+        this.now = System.currentTimeMillis();
+
+        this.monitors = new JobMonitor[NUM_JOBS];
+        for (int i = 0; i < NUM_JOBS; i++) {
+            final JobExecution execution = new JobExecution.Builder(UUID.randomUUID().toString())
+                .withId(UUID.randomUUID().toString())
+                .withProcessId(this.pid)
+                .withCheckDelay(DELAY)
+                .withTimeout(tomorrow.getTime())
+                .build();
+            this.monitors[i] = new JobMonitor(
+                execution,
+                this.temporaryFolder.newFile(),
+                this.temporaryFolder.newFile(),
+                genieEventBus,
+                registry,
+                jobsProperties
+            );
+        }
+    }
+
+    /**
+     * Compare the cost of a sweep over 1000 jobs using the proc file system and using a single ps process with the
+     * cost of forking a ps process per job.
+     *
+     * @throws Exception on error
+     */
+    @Test
+    public void benchmarkSweep() throws Exception {
+        final File proc = new File(UnixBatchProcessChecker.PROC_DIRECTORY);
+        if (proc.isDirectory()) {
+            log.info(
+                "Sweep of {} jobs using {}: {} us/sweep",
+                NUM_JOBS,
+                proc,
+                this.timeSweeps(proc) / 1_000L
+            );
+        }
+        log.info(
+            "Sweep of {} jobs using a single ps: {} us/sweep",
+            NUM_JOBS,
+            this.timeSweeps(new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString())) / 1_000L
+        );
+
+        final Executor executor = new DefaultExecutor();
+        executor.setStreamHandler(new PumpStreamHandler(new ByteArrayOutputStream()));
+        final CommandLine commandLine = new CommandLine("ps").addArgument("-p").addArgument(Integer.toString(this.pid));
+        final long start = System.nanoTime();
+        for (int i = 0; i < PS_SAMPLE; i++) {
+            executor.execute(commandLine);
+        }
+        final long psNanos = (System.nanoTime() - start) / PS_SAMPLE;
+        log.info(
+            "Checks of {} jobs forking ps per job: {} us/job, {} us for all jobs",
+            NUM_JOBS,
+            psNanos / 1_000L,
+            psNanos * NUM_JOBS / 1_000L
+        );
+    }
+
+    private long timeSweeps(final File procDirectory) {
+        final JobMonitorSweeper sweeper = new JobMonitorSweeper(
+            new UnixBatchProcessChecker(procDirectory),
+            DELAY,
+            new DefaultRegistry()
+        );
+        for (final JobMonitor monitor : this.monitors) {
+            sweeper.track(monitor);
+        }
+
+        // Every sweep is a check delay later so all the jobs are due every time
+        for (int i = 0; i < WARM_UP_SWEEPS; i++) {
+            sweeper.sweep(this.now++);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < SWEEPS; i++) {
+            sweeper.sweep(this.now++);
+        }
+        return (System.nanoTime() - start) / SWEEPS;
+    }
+}
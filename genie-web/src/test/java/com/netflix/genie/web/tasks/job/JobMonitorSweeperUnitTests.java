@@ -0,0 +1,206 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobExecution;
+import com.netflix.genie.core.events.GenieEventBus;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.KillJobEvent;
+import com.netflix.genie.core.jobs.JobConstants;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.util.BatchProcessChecker;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.apache.commons.lang3.SystemUtils;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for JobMonitorSweeper.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobMonitorSweeperUnitTests {
+
+    private static final long DELAY = 10_000L;
+    private static final long SWEEP_INTERVAL = 1_000L;
+
+    /**
+     * Temporary folder for the output files of the jobs.
+     */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private BatchProcessChecker processChecker;
+    private GenieEventBus genieEventBus;
+    private JobMonitorSweeper sweeper;
+    private Date tomorrow;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+        final Calendar cal = Calendar.getInstance(JobConstants.UTC);
+        cal.add(Calendar.DAY_OF_YEAR, 1);
+        this.tomorrow = cal.getTime();
+        this.processChecker = Mockito.mock(BatchProcessChecker.class);
+        this.genieEventBus = Mockito.mock(GenieEventBus.class);
+        this.sweeper = new JobMonitorSweeper(this.processChecker, SWEEP_INTERVAL, new DefaultRegistry());
+    }
+
+    /**
+     * Make sure all the due jobs are checked with a single call and only the finished ones are reported.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canCheckDueJobsInOneBatch() throws IOException {
+        this.sweeper.track(this.createMonitor(1001));
+        this.sweeper.track(this.createMonitor(1002));
+        this.sweeper.track(this.createMonitor(1003));
+        Mockito
+            .when(this.processChecker.getRunningProcesses(Mockito.anyCollectionOf(Integer.class)))
+            .thenReturn(Sets.newHashSet(1002));
+
+        final long now = System.currentTimeMillis();
+        this.sweeper.sweep(now);
+
+        final ArgumentCaptor<Collection> pidsCaptor = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(this.processChecker, Mockito.times(1)).getRunningProcesses(pidsCaptor.capture());
+        Assert.assertThat((Collection<Integer>) pidsCaptor.getValue(), Matchers.containsInAnyOrder(1001, 1002, 1003));
+        Mockito
+            .verify(this.genieEventBus, Mockito.times(2))
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+        Mockito
+            .verify(this.genieEventBus, Mockito.never())
+            .publishSynchronousEvent(Mockito.any(KillJobEvent.class));
+
+        // Nothing is due again before the check delay has passed
+        this.sweeper.sweep(now + DELAY - 1);
+        Mockito
+            .verify(this.processChecker, Mockito.times(1))
+            .getRunningProcesses(Mockito.anyCollectionOf(Integer.class));
+        this.sweeper.sweep(now + DELAY);
+        Mockito
+            .verify(this.processChecker, Mockito.times(2))
+            .getRunningProcesses(Mockito.anyCollectionOf(Integer.class));
+    }
+
+    /**
+     * Make sure a failure to check the processes is recorded for every due job and doesn't stop the sweeps.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canHandleCheckFailure() throws IOException {
+        this.sweeper.track(this.createMonitor(1001));
+        Mockito
+            .when(this.processChecker.getRunningProcesses(Mockito.anyCollectionOf(Integer.class)))
+            .thenThrow(new IOException());
+
+        final long now = System.currentTimeMillis();
+        // More than the errors allowed before a job is killed
+        for (int i = 0; i < 6; i++) {
+            this.sweeper.sweep(now + i * DELAY);
+        }
+
+        Mockito
+            .verify(this.genieEventBus, Mockito.times(1))
+            .publishSynchronousEvent(Mockito.any(KillJobEvent.class));
+        Mockito
+            .verify(this.genieEventBus, Mockito.times(1))
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+    }
+
+    /**
+     * Make sure an exception while sweeping doesn't escape the task.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSurviveUnexpectedException() throws IOException {
+        this.sweeper.track(this.createMonitor(1001));
+        Mockito
+            .when(this.processChecker.getRunningProcesses(Mockito.anyCollectionOf(Integer.class)))
+            .thenThrow(new IllegalStateException());
+
+        this.sweeper.run();
+    }
+
+    /**
+     * Make sure cancelling the future of a job stops tracking it.
+     */
+    @Test
+    public void canStopTracking() {
+        final Future<?> future = this.sweeper.track(this.createMonitor(1001));
+        this.sweeper.track(this.createMonitor(1002));
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(2));
+
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(1));
+    }
+
+    /**
+     * Make sure the sweeper is scheduled with the configured fixed delay.
+     */
+    @Test
+    public void canGetSchedule() {
+        Assert.assertThat(this.sweeper.getScheduleType(), Matchers.is(GenieTaskScheduleType.FIXED_DELAY));
+        Assert.assertThat(this.sweeper.getFixedDelay(), Matchers.is(SWEEP_INTERVAL));
+    }
+
+    private JobMonitor createMonitor(final int pid) {
+        final JobExecution execution = new JobExecution.Builder(UUID.randomUUID().toString())
+            .withId(UUID.randomUUID().toString())
+            .withProcessId(pid)
+            .withCheckDelay(DELAY)
+            .withTimeout(this.tomorrow)
+            .build();
+        return new JobMonitor(
+            execution,
+            new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()),
+            new File(this.temporaryFolder.getRoot(), UUID.randomUUID().toString()),
+            this.genieEventBus,
+            new DefaultRegistry(),
+            new JobsProperties()
+        );
+    }
+}
@@ -25,12 +25,8 @@ import com.netflix.genie.core.events.KillJobEvent;
 import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.test.categories.UnitTest;
-import com.netflix.genie.web.tasks.GenieTaskScheduleType;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.ExecuteException;
-import org.apache.commons.exec.Executor;
 import org.apache.commons.lang3.SystemUtils;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -63,7 +59,6 @@ public class JobMonitorUnitTests {
 
     private JobMonitor monitor;
     private JobExecution jobExecution;
-    private Executor executor;
     private GenieEventBus genieEventBus;
     private Registry registry;
     private File stdOut;
@@ -88,7 +83,6 @@ public class JobMonitorUnitTests {
             .withTimeout(tomorrow.getTime())
             .withId(UUID.randomUUID().toString())
             .build();
-        this.executor = Mockito.mock(Executor.class);
         this.genieEventBus = Mockito.mock(GenieEventBus.class);
         this.successfulCheckRate = Mockito.mock(Counter.class);
         this.timeoutRate = Mockito.mock(Counter.class);
@@ -126,7 +120,6 @@ public class JobMonitorUnitTests {
             this.jobExecution,
             this.stdOut,
             this.stdErr,
-            this.executor,
             this.genieEventBus,
             this.registry,
             outputMaxProperties
@@ -139,22 +132,15 @@ public class JobMonitorUnitTests {
     @Test(expected = UnsupportedOperationException.class)
     public void cantRunOnWindows() {
         Assume.assumeTrue(SystemUtils.IS_OS_WINDOWS);
-        this.monitor.run();
+        this.monitor.check(true, System.currentTimeMillis());
     }
 
     /**
      * Make sure that a process whose std out file has grown too large will attempt to be killed.
-     *
-     * @throws IOException on error
      */
     @Test
-    public void canKillProcessOnTooLargeStdOut() throws IOException {
+    public void canKillProcessOnTooLargeStdOut() {
         Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
-        Mockito
-            .when(this.executor.execute(Mockito.any(CommandLine.class)))
-            .thenReturn(0)
-            .thenReturn(0)
-            .thenReturn(0);
 
         Mockito.when(this.stdOut.exists()).thenReturn(true);
         Mockito.when(this.stdOut.length())
@@ -164,7 +150,7 @@ public class JobMonitorUnitTests {
         Mockito.when(this.stdErr.exists()).thenReturn(false);
 
         for (int i = 0; i < 3; i++) {
-            this.monitor.run();
+            this.monitor.check(true, System.currentTimeMillis());
         }
 
         Mockito.verify(this.successfulCheckRate, Mockito.times(2)).increment();
@@ -174,17 +160,10 @@ public class JobMonitorUnitTests {
 
     /**
      * Make sure that a process whose std err file has grown too large will attempt to be killed.
-     *
-     * @throws IOException on error
      */
     @Test
-    public void canKillProcessOnTooLargeStdErr() throws IOException {
+    public void canKillProcessOnTooLargeStdErr() {
         Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
-        Mockito
-            .when(this.executor.execute(Mockito.any(CommandLine.class)))
-            .thenReturn(0)
-            .thenReturn(0)
-            .thenReturn(0);
 
         Mockito.when(this.stdOut.exists()).thenReturn(false);
         Mockito.when(this.stdErr.exists()).thenReturn(true);
@@ -194,7 +173,7 @@ public class JobMonitorUnitTests {
             .thenReturn(MAX_STD_ERR_LENGTH + 1);
 
         for (int i = 0; i < 3; i++) {
-            this.monitor.run();
+            this.monitor.check(true, System.currentTimeMillis());
         }
 
         Mockito.verify(this.successfulCheckRate, Mockito.times(2)).increment();
@@ -204,24 +183,16 @@ public class JobMonitorUnitTests {
 
     /**
      * Make sure that a running process doesn't publish anything.
-     *
-     * @throws IOException on error
      */
     @Test
-    public void canCheckRunningProcessOnUnixLikeSystem() throws IOException {
+    public void canCheckRunningProcessOnUnixLikeSystem() {
         Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
-        Mockito
-            .when(this.executor.execute(Mockito.any(CommandLine.class)))
-            .thenReturn(0)
-            .thenThrow(new IOException())
-            .thenReturn(0);
-
         Mockito.when(this.stdOut.exists()).thenReturn(false);
         Mockito.when(this.stdErr.exists()).thenReturn(false);
 
-        for (int i = 0; i < 3; i++) {
-            this.monitor.run();
-        }
+        this.monitor.check(true, System.currentTimeMillis());
+        this.monitor.checkFailed(new IOException(), System.currentTimeMillis());
+        this.monitor.check(true, System.currentTimeMillis());
 
         Mockito.verify(this.successfulCheckRate, Mockito.times(2)).increment();
         Mockito
@@ -235,15 +206,12 @@ public class JobMonitorUnitTests {
 
     /**
      * Make sure that a finished process sends event.
-     *
-     * @throws IOException on error
      */
     @Test
-    public void canCheckFinishedProcessOnUnixLikeSystem() throws IOException {
+    public void canCheckFinishedProcessOnUnixLikeSystem() {
         Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
-        Mockito.when(this.executor.execute(Mockito.any(CommandLine.class))).thenThrow(new ExecuteException("done", 1));
 
-        this.monitor.run();
+        this.monitor.check(false, System.currentTimeMillis());
 
         final ArgumentCaptor<JobFinishedEvent> captor = ArgumentCaptor.forClass(JobFinishedEvent.class);
         Mockito
@@ -260,13 +228,33 @@ public class JobMonitorUnitTests {
         Mockito.verify(this.finishedRate, Mockito.times(1)).increment();
     }
 
+    /**
+     * Make sure the finished event is only sent once no matter how often the job is found to be finished.
+     */
+    @Test
+    public void canOnlyFinishOnce() {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+        final long now = System.currentTimeMillis();
+
+        Assert.assertFalse(this.monitor.isFinished());
+        this.monitor.check(false, now);
+        Assert.assertTrue(this.monitor.isFinished());
+        Assert.assertFalse(this.monitor.isCheckDue(now + DELAY));
+        this.monitor.check(false, now + DELAY);
+        this.monitor.checkFailed(new IOException(), now + DELAY);
+
+        Mockito
+            .verify(this.genieEventBus, Mockito.times(1))
+            .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
+        Mockito.verify(this.finishedRate, Mockito.times(1)).increment();
+        Mockito.verify(this.unsuccessfulCheckRate, Mockito.never()).increment();
+    }
+
     /**
      * Make sure that a timed out process sends event.
-     *
-     * @throws IOException on error
      */
     @Test
-    public void canTryToKillTimedOutProcess() throws IOException {
+    public void canTryToKillTimedOutProcess() {
         Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
 
         // Set timeout to yesterday to force timeout when check happens
@@ -282,13 +270,12 @@ public class JobMonitorUnitTests {
             this.jobExecution,
             this.stdOut,
             this.stdErr,
-            this.executor,
             this.genieEventBus,
             this.registry,
             new JobsProperties()
         );
 
-        this.monitor.run();
+        this.monitor.check(true, System.currentTimeMillis());
 
         final ArgumentCaptor<KillJobEvent> captor = ArgumentCaptor.forClass(KillJobEvent.class);
         Mockito
@@ -308,17 +295,14 @@ public class JobMonitorUnitTests {
 
     /**
      * Make sure that an error doesn't publish anything until it runs too many times then it tries to kill the job.
-     *
-     * @throws IOException on error
      */
     @Test
-    public void cantGetStatusIfErrorOnUnixLikeSystem() throws IOException {
+    public void cantGetStatusIfErrorOnUnixLikeSystem() {
         Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
-        Mockito.when(this.executor.execute(Mockito.any(CommandLine.class))).thenThrow(new IOException());
 
         // Run six times to force error
         for (int i = 0; i < 6; i++) {
-            this.monitor.run();
+            this.monitor.checkFailed(new IOException(), System.currentTimeMillis());
         }
 
         final ArgumentCaptor<KillJobEvent> eventCaptor = ArgumentCaptor.forClass(KillJobEvent.class);
@@ -343,34 +327,34 @@ public class JobMonitorUnitTests {
     }
 
     /**
-     * Make sure the right schedule type is returned.
+     * Make sure a job is due for a check right away and then only once its check delay has passed.
      */
     @Test
-    public void canGetScheduleType() {
-        Assert.assertThat(this.monitor.getScheduleType(), Matchers.is(GenieTaskScheduleType.FIXED_DELAY));
-    }
-
-    /**
-     * Make sure asking for a trigger isn't allowed.
-     */
-    @Test(expected = UnsupportedOperationException.class)
-    public void cantGetTrigger() {
-        this.monitor.getTrigger();
-    }
-
-    /**
-     * Make sure asking for a trigger isn't allowed.
-     */
-    @Test(expected = UnsupportedOperationException.class)
-    public void cantGetFixedRate() {
-        this.monitor.getFixedRate();
+    public void canTellWhenCheckIsDue() {
+        Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+        Mockito.when(this.stdOut.exists()).thenReturn(false);
+        Mockito.when(this.stdErr.exists()).thenReturn(false);
+        final long now = System.currentTimeMillis();
+
+        Assert.assertTrue(this.monitor.isCheckDue(now));
+        this.monitor.check(true, now);
+        Assert.assertFalse(this.monitor.isCheckDue(now));
+        Assert.assertFalse(this.monitor.isCheckDue(now + DELAY - 1));
+        Assert.assertTrue(this.monitor.isCheckDue(now + DELAY));
+        this.monitor.checkFailed(new IOException(), now + DELAY);
+        Assert.assertFalse(this.monitor.isCheckDue(now + DELAY));
     }
 
     /**
-     * Make sure the fixed delay value is what we expect.
+     * Make sure the values of the job execution are exposed.
      */
     @Test
-    public void canGetFixedDelay() {
-        Assert.assertThat(DELAY, Matchers.is(this.monitor.getFixedDelay()));
+    public void canGetJobExecutionValues() {
+        Assert.assertThat(
+            this.monitor.getId(),
+            Matchers.is(this.jobExecution.getId().orElseThrow(IllegalArgumentException::new))
+        );
+        Assert.assertThat(this.monitor.getProcessId(), Matchers.is(3808));
+        Assert.assertThat(this.monitor.getCheckDelay(), Matchers.is(DELAY));
     }
 }
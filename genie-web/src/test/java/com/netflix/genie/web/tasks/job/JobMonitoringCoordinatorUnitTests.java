@@ -17,12 +17,12 @@
  */
 package com.netflix.genie.web.tasks.job;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobExecution;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.exceptions.GenieException;
-import com.netflix.genie.common.exceptions.GenieNotFoundException;
 import com.netflix.genie.core.events.GenieEventBus;
 import com.netflix.genie.core.events.JobFinishedEvent;
 import com.netflix.genie.core.events.JobFinishedReason;
@@ -31,10 +31,12 @@ import com.netflix.genie.core.jobs.JobConstants;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.core.services.JobSearchService;
 import com.netflix.genie.core.services.JobSubmitterService;
+import com.netflix.genie.core.services.impl.GenieFileTransferService;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
-import org.apache.commons.exec.Executor;
+import com.netflix.spectator.api.Timer;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Before;
@@ -42,6 +44,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.io.Resource;
@@ -50,11 +53,15 @@ import org.springframework.scheduling.TaskScheduler;
 import java.io.File;
 import java.io.IOException;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for the JobMonitoringCoordinator.
@@ -76,6 +83,7 @@ public class JobMonitoringCoordinatorUnitTests {
 
     private TaskScheduler scheduler;
     private JobMonitoringCoordinator coordinator;
+    private JobMonitorSweeper sweeper;
     private JobSearchService jobSearchService;
     private GenieEventBus genieEventBus;
     private Date tomorrow;
@@ -93,12 +101,15 @@ public class JobMonitoringCoordinatorUnitTests {
         this.tomorrow = cal.getTime();
         this.jobSearchService = Mockito.mock(JobSearchService.class);
         final JobSubmitterService jobSubmitterService = Mockito.mock(JobSubmitterService.class);
-        final Executor executor = Mockito.mock(Executor.class);
         this.scheduler = Mockito.mock(TaskScheduler.class);
         this.genieEventBus = Mockito.mock(GenieEventBus.class);
         final Registry registry = Mockito.mock(Registry.class);
         this.unableToCancel = Mockito.mock(Counter.class);
         Mockito.when(registry.counter(Mockito.anyString())).thenReturn(this.unableToCancel);
+        final Id timerId = Mockito.mock(Id.class);
+        Mockito.when(timerId.withTags(Mockito.anyMapOf(String.class, String.class))).thenReturn(timerId);
+        Mockito.when(registry.createId(Mockito.anyString())).thenReturn(timerId);
+        Mockito.when(registry.timer(timerId)).thenReturn(Mockito.mock(Timer.class));
 
         final File jobsFile = this.folder.newFolder();
         final Resource jobsDir = Mockito.mock(Resource.class);
@@ -109,12 +120,48 @@ public class JobMonitoringCoordinatorUnitTests {
             this.jobSearchService,
             this.genieEventBus,
             this.scheduler,
-            executor,
             registry,
             jobsDir,
             new JobsProperties(),
-            jobSubmitterService
+            jobSubmitterService,
+            Mockito.mock(GenieFileTransferService.class)
         );
+
+        final ArgumentCaptor<Runnable> sweeperCaptor = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(this.scheduler).scheduleWithFixedDelay(sweeperCaptor.capture(), Mockito.eq(1000L));
+        Assert.assertThat(sweeperCaptor.getValue(), Matchers.instanceOf(JobMonitorSweeper.class));
+        this.sweeper = (JobMonitorSweeper) sweeperCaptor.getValue();
+    }
+
+    /**
+     * Make sure the re-attach on startup doesn't hold up the startup and the node doesn't stay out of service if it
+     * failed.
+     *
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canReAttachWithoutHoldingUpStartup() throws InterruptedException {
+        final CountDownLatch reAttaching = new CountDownLatch(1);
+        final CountDownLatch failReAttach = new CountDownLatch(1);
+        Mockito.when(this.jobSearchService.getAllActiveJobsOnHost(HOSTNAME)).then(
+            invocation -> {
+                reAttaching.countDown();
+                failReAttach.await();
+                throw new IllegalStateException("Database unavailable");
+            }
+        );
+
+        this.coordinator.onStartup(Mockito.mock(ContextRefreshedEvent.class));
+        Assert.assertTrue(reAttaching.await(10, TimeUnit.SECONDS));
+        Assert.assertFalse(this.coordinator.isReAttached());
+
+        failReAttach.countDown();
+        final long deadline = System.currentTimeMillis() + 10_000L;
+        while (!this.coordinator.isReAttached() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertTrue(this.coordinator.isReAttached());
+        this.coordinator.preDestroy();
     }
 
     /**
@@ -123,15 +170,19 @@ public class JobMonitoringCoordinatorUnitTests {
      * @throws GenieException on issue
      */
     @Test
-    @SuppressWarnings("unchecked")
     public void canAttachToRunningJobs() throws GenieException {
         final ContextRefreshedEvent event = Mockito.mock(ContextRefreshedEvent.class);
 
         Mockito.when(this.jobSearchService.getAllActiveJobsOnHost(HOSTNAME)).thenReturn(Sets.newHashSet());
-        this.coordinator.onStartup(event);
+        Assert.assertFalse(this.coordinator.isReAttached());
+        Assert.assertFalse(this.coordinator.isAcceptingJobs());
+        this.coordinator.reAttach(event);
+        Assert.assertTrue(this.coordinator.isReAttached());
+        Assert.assertTrue(this.coordinator.isAcceptingJobs());
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(0));
         Mockito
-            .verify(this.scheduler, Mockito.never())
-            .scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.anyLong());
+            .verify(this.jobSearchService, Mockito.never())
+            .getJobExecutions(Mockito.anyCollectionOf(String.class));
 
         // Simulate a job being started
         final String job1Id = UUID.randomUUID().toString();
@@ -152,46 +203,57 @@ public class JobMonitoringCoordinatorUnitTests {
         final JobExecution job3 = builder.build();
 
         final JobStartedEvent event1 = new JobStartedEvent(job1, this);
-        final ScheduledFuture future = Mockito.mock(ScheduledFuture.class);
-        Mockito
-            .when(this.scheduler.scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY)))
-            .thenReturn(future);
         coordinator.init(job1Id);
         coordinator.schedule(job1Id, null, null, null, null, 1024);
         this.coordinator.onJobStarted(event1);
-        Mockito
-            .verify(this.scheduler, Mockito.times(1))
-            .scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY));
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(1));
 
         final Job j1 = Mockito.mock(Job.class);
         Mockito.when(j1.getId()).thenReturn(Optional.of(job1Id));
         Mockito.when(j1.getStatus()).thenReturn(JobStatus.RUNNING);
+        Mockito.when(j1.getCreated()).thenReturn(Optional.of(new Date(0L)));
         final Job j2 = Mockito.mock(Job.class);
         Mockito.when(j2.getId()).thenReturn(Optional.of(job2Id));
         Mockito.when(j2.getStatus()).thenReturn(JobStatus.RUNNING);
+        Mockito.when(j2.getCreated()).thenReturn(Optional.of(new Date(0L)));
         final Job j3 = Mockito.mock(Job.class);
         Mockito.when(j3.getId()).thenReturn(Optional.of(job3Id));
         Mockito.when(j3.getStatus()).thenReturn(JobStatus.RUNNING);
+        Mockito.when(j3.getCreated()).thenReturn(Optional.of(new Date(0L)));
         final Job j4 = Mockito.mock(Job.class);
         Mockito.when(j4.getId()).thenReturn(Optional.of(job4Id));
         Mockito.when(j4.getStatus()).thenReturn(JobStatus.RUNNING);
+        Mockito.when(j4.getCreated()).thenReturn(Optional.of(new Date(0L)));
         final Job j5 = Mockito.mock(Job.class);
         Mockito.when(j5.getId()).thenReturn(Optional.of(job5Id));
         Mockito.when(j5.getStatus()).thenReturn(JobStatus.INIT);
-        final Set<Job> jobs = Sets.newHashSet(j1, j2, j3, j4, j5);
+        Mockito.when(j5.getCreated()).thenReturn(Optional.of(new Date(0L)));
+        // Submitted after the node started. Neither re-attached to nor failed.
+        final Job j6 = Mockito.mock(Job.class);
+        Mockito.when(j6.getId()).thenReturn(Optional.of(UUID.randomUUID().toString()));
+        Mockito.when(j6.getStatus()).thenReturn(JobStatus.INIT);
+        Mockito.when(j6.getCreated()).thenReturn(Optional.of(this.tomorrow));
+        final Set<Job> jobs = Sets.newHashSet(j1, j2, j3, j4, j5, j6);
         Mockito.when(this.jobSearchService.getAllActiveJobsOnHost(HOSTNAME)).thenReturn(jobs);
-        Mockito.when(this.jobSearchService.getJobExecution(job1Id)).thenReturn(job1);
-        Mockito.when(this.jobSearchService.getJobExecution(job2Id)).thenReturn(job2);
-        Mockito.when(this.jobSearchService.getJobExecution(job3Id)).thenReturn(job3);
-        Mockito.when(this.jobSearchService.getJobExecution(job4Id)).thenThrow(new GenieNotFoundException("blah"));
-        this.coordinator.onStartup(event);
+        final Map<String, JobExecution> jobExecutions = Maps.newHashMap();
+        jobExecutions.put(job2Id, job2);
+        jobExecutions.put(job3Id, job3);
+        Mockito
+            .when(this.jobSearchService.getJobExecutions(Mockito.anyCollectionOf(String.class)))
+            .thenReturn(jobExecutions);
+        this.coordinator.reAttach(event);
+
+        // Only the running jobs which aren't tracked yet are fetched and all of them with a single query
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Collection<String>> idsCaptor = ArgumentCaptor.forClass((Class) Collection.class);
+        Mockito.verify(this.jobSearchService, Mockito.times(1)).getJobExecutions(idsCaptor.capture());
+        Assert.assertThat(idsCaptor.getValue(), Matchers.containsInAnyOrder(job2Id, job3Id, job4Id));
+        Mockito.verify(this.jobSearchService, Mockito.never()).getJobExecution(Mockito.anyString());
 
         Mockito
             .verify(this.genieEventBus, Mockito.times(2))
             .publishAsynchronousEvent(Mockito.any(JobFinishedEvent.class));
-        Mockito
-            .verify(this.scheduler, Mockito.times(3))
-            .scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY));
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(3));
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(3));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(3 * 1024));
     }
@@ -200,7 +262,6 @@ public class JobMonitoringCoordinatorUnitTests {
      * Make sure when a {@link com.netflix.genie.core.events.JobStartedEvent} is sent a new monitor is spawned.
      */
     @Test
-    @SuppressWarnings("unchecked")
     public void canStartJobMonitor() {
         final String job1Id = UUID.randomUUID().toString();
         final String job2Id = UUID.randomUUID().toString();
@@ -236,12 +297,6 @@ public class JobMonitoringCoordinatorUnitTests {
         final JobStartedEvent event4 = new JobStartedEvent(job4, this);
         final JobStartedEvent event5 = new JobStartedEvent(job1, this);
 
-        final ScheduledFuture future = Mockito.mock(ScheduledFuture.class);
-
-        Mockito.when(
-            this.scheduler.scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY))
-        ).thenReturn(future);
-
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(4));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(4096));
         this.coordinator.onJobStarted(event1);
@@ -260,9 +315,8 @@ public class JobMonitoringCoordinatorUnitTests {
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(4));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(4096));
 
-        Mockito
-            .verify(this.scheduler, Mockito.times(5))
-            .scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY));
+        // The second start of the first job replaces its monitor
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(4));
     }
 
     /**
@@ -271,7 +325,6 @@ public class JobMonitoringCoordinatorUnitTests {
      * @throws GenieException on error
      */
     @Test
-    @SuppressWarnings("unchecked")
     public void canStopJobMonitor() throws GenieException {
         final String job1Id = UUID.randomUUID().toString();
         final JobExecution.Builder builder = new JobExecution.Builder(UUID.randomUUID().toString())
@@ -292,15 +345,6 @@ public class JobMonitoringCoordinatorUnitTests {
         final JobFinishedEvent finishedEvent2
             = new JobFinishedEvent(job2Id, JobFinishedReason.KILLED, "something", this);
 
-        final ScheduledFuture future1 = Mockito.mock(ScheduledFuture.class);
-        Mockito.when(future1.cancel(true)).thenReturn(true);
-        final ScheduledFuture future2 = Mockito.mock(ScheduledFuture.class);
-        Mockito.when(future2.cancel(true)).thenReturn(false);
-
-        Mockito.when(
-            this.scheduler.scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY))
-        ).thenReturn(future1, future2);
-
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(0));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(0));
         coordinator.init(job1Id);
@@ -314,15 +358,14 @@ public class JobMonitoringCoordinatorUnitTests {
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(2));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(2048));
 
-        Mockito
-            .verify(this.scheduler, Mockito.times(2))
-            .scheduleWithFixedDelay(Mockito.any(JobMonitor.class), Mockito.eq(DELAY));
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(2));
 
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(2));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(2048));
         this.coordinator.onJobFinished(finishedEvent1);
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(1));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(1024));
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(1));
         this.coordinator.onJobFinished(finishedEvent2);
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(0));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(0));
@@ -330,9 +373,8 @@ public class JobMonitoringCoordinatorUnitTests {
         Assert.assertThat(this.coordinator.getNumActiveJobs(), Matchers.is(0));
         Assert.assertThat(this.coordinator.getUsedMemory(), Matchers.is(0));
 
-        Mockito.verify(future1, Mockito.times(1)).cancel(true);
-        Mockito.verify(future2, Mockito.times(1)).cancel(true);
-        Mockito.verify(this.unableToCancel, Mockito.times(1)).increment();
+        Assert.assertThat(this.sweeper.getNumTracked(), Matchers.is(0));
+        Mockito.verify(this.unableToCancel, Mockito.never()).increment();
     }
 
     /**
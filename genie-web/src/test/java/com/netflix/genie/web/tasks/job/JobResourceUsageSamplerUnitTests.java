@@ -0,0 +1,206 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.genie.common.dto.JobResourceUsage;
+import com.netflix.genie.core.util.ProcessGroupUsage;
+import com.netflix.genie.core.util.ProcessGroupUsageSampler;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.tasks.GenieTaskScheduleType;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Unit tests for JobResourceUsageSampler.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobResourceUsageSamplerUnitTests {
+
+    private static final long SAMPLE_INTERVAL = 10_000L;
+    private static final long MB = 1024L * 1024L;
+
+    private ProcessGroupUsageSampler processGroupUsageSampler;
+    private Registry registry;
+    private JobResourceUsageSampler sampler;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.processGroupUsageSampler = Mockito.mock(ProcessGroupUsageSampler.class);
+        this.registry = new DefaultRegistry();
+        this.sampler = new JobResourceUsageSampler(this.processGroupUsageSampler, SAMPLE_INTERVAL, this.registry);
+    }
+
+    /**
+     * Make sure all the jobs are sampled with a single call and the peaks are kept between samples.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canSampleJobs() throws IOException {
+        final String job1 = UUID.randomUUID().toString();
+        final String job2 = UUID.randomUUID().toString();
+        this.sampler.track(job1, 1001, 10_240);
+        this.sampler.track(job2, 1002, 1_024);
+        Assert.assertFalse(this.sampler.getResourceUsage(job1).isPresent());
+        Assert.assertFalse(this.sampler.getObservedMemory(job1).isPresent());
+
+        Mockito
+            .when(this.processGroupUsageSampler.sample(Mockito.anyCollectionOf(Integer.class)))
+            .thenReturn(
+                ImmutableMap.of(
+                    1001, new ProcessGroupUsage(3, 40, 5_000L, 900 * MB),
+                    1002, new ProcessGroupUsage(1, 1, 10L, MB)
+                ),
+                ImmutableMap.of(1001, new ProcessGroupUsage(2, 20, 7_000L, 500 * MB + 1))
+            );
+
+        final Date first = new Date();
+        this.sampler.sample(first);
+        final JobResourceUsage usage1 = this.sampler.getResourceUsage(job1).orElseThrow(IllegalStateException::new);
+        Assert.assertThat(usage1, Matchers.is(new JobResourceUsage(job1, first, 3, 40, 5_000L, 900 * MB, 900 * MB)));
+
+        final Date second = new Date(first.getTime() + SAMPLE_INTERVAL);
+        this.sampler.sample(second);
+        Assert.assertThat(
+            this.sampler.getResourceUsage(job1).orElseThrow(IllegalStateException::new),
+            Matchers.is(new JobResourceUsage(job1, second, 2, 20, 7_000L, 500 * MB + 1, 900 * MB))
+        );
+        // The processes of the second job are gone so its last sample is kept
+        Assert.assertThat(
+            this.sampler.getResourceUsage(job2).orElseThrow(IllegalStateException::new).getSampled(),
+            Matchers.is(first)
+        );
+        Assert.assertThat(this.sampler.getObservedMemory(job1).orElse(-1), Matchers.is(900));
+        Assert.assertThat(this.sampler.getObservedMemory(job2).orElse(-1), Matchers.is(1));
+        Assert.assertThat(this.registry.counter("genie.jobs.usage.cpuTime.rate").count(), Matchers.is(7_010L));
+        Mockito
+            .verify(this.processGroupUsageSampler, Mockito.times(2))
+            .sample(Mockito.anyCollectionOf(Integer.class));
+    }
+
+    /**
+     * Make sure the peak memory of a job is recorded once it isn't sampled anymore.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canUntrack() throws IOException {
+        final String id = UUID.randomUUID().toString();
+        this.sampler.track(id, 1001, 1_000);
+        Mockito
+            .when(this.processGroupUsageSampler.sample(Mockito.anyCollectionOf(Integer.class)))
+            .thenReturn(ImmutableMap.of(1001, new ProcessGroupUsage(1, 1, 10L, 250 * MB)));
+        this.sampler.sample(new Date());
+        Assert.assertThat(this.sampler.getNumTracked(), Matchers.is(1));
+
+        this.sampler.untrack(id);
+        this.sampler.untrack(UUID.randomUUID().toString());
+
+        Assert.assertThat(this.sampler.getNumTracked(), Matchers.is(0));
+        Assert.assertFalse(this.sampler.getResourceUsage(id).isPresent());
+        Assert.assertThat(
+            this.registry.distributionSummary("genie.jobs.usage.peakRss.distribution").totalAmount(),
+            Matchers.is(250 * MB)
+        );
+        Assert.assertThat(
+            this.registry.distributionSummary("genie.jobs.usage.memoryUtilization.distribution").totalAmount(),
+            Matchers.is(25L)
+        );
+    }
+
+    /**
+     * Make sure nothing is sampled without jobs and a failure doesn't escape the task.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canSurviveSampleFailure() throws IOException {
+        this.sampler.run();
+        Mockito
+            .verify(this.processGroupUsageSampler, Mockito.never())
+            .sample(Mockito.anyCollectionOf(Integer.class));
+
+        this.sampler.track(UUID.randomUUID().toString(), 1001, 1_024);
+        Mockito
+            .when(this.processGroupUsageSampler.sample(Mockito.anyCollectionOf(Integer.class)))
+            .thenThrow(new IOException());
+        this.sampler.run();
+        Mockito
+            .verify(this.processGroupUsageSampler, Mockito.times(1))
+            .sample(Mockito.eq(Collections.singleton(1001)));
+    }
+
+    /**
+     * Make sure jobs count with at least their requested memory until they were sampled enough times and with their
+     * observed memory plus headroom after.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canGetAdmissionMemory() throws IOException {
+        final String job = UUID.randomUUID().toString();
+        this.sampler.track(job, 1001, 1_024);
+        Assert.assertThat(this.sampler.getAdmissionMemory(job, 1_024, 2, 1.5), Matchers.is(1_024));
+        Assert.assertThat(this.sampler.getAdmissionMemory("unknown", 2_048, 2, 1.5), Matchers.is(2_048));
+
+        Mockito
+            .when(this.processGroupUsageSampler.sample(Mockito.anyCollectionOf(Integer.class)))
+            .thenReturn(
+                ImmutableMap.of(1001, new ProcessGroupUsage(1, 1, 10L, 100 * MB)),
+                ImmutableMap.of(1001, new ProcessGroupUsage(1, 1, 20L, 200 * MB))
+            );
+
+        // Still warming up so the requested memory wins over the observed memory plus headroom
+        this.sampler.sample(new Date());
+        Assert.assertThat(this.sampler.getAdmissionMemory(job, 1_024, 2, 1.5), Matchers.is(1_024));
+        Assert.assertThat(this.sampler.getAdmissionMemory(job, 100, 2, 1.5), Matchers.is(150));
+
+        this.sampler.sample(new Date());
+        Assert.assertThat(this.sampler.getAdmissionMemory(job, 1_024, 2, 1.5), Matchers.is(300));
+        Assert.assertThat(this.sampler.getAdmissionMemory(job, 1_024, 2, 1.0), Matchers.is(200));
+    }
+
+    /**
+     * Make sure the sampler is scheduled with the configured fixed delay.
+     */
+    @Test
+    public void canGetSchedule() {
+        Assert.assertThat(this.sampler.getScheduleType(), Matchers.is(GenieTaskScheduleType.FIXED_DELAY));
+        Assert.assertThat(this.sampler.getFixedDelay(), Matchers.is(SAMPLE_INTERVAL));
+    }
+}
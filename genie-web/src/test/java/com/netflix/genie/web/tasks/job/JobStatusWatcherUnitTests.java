@@ -0,0 +1,189 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.job;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.properties.JobStatusWatchProperties;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for JobStatusWatcher.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobStatusWatcherUnitTests {
+
+    private JobStatusWatchProperties properties;
+    private JobSearchService jobSearchService;
+    private JobStatusWatcher watcher;
+    private String jobId;
+
+    /**
+     * Setup for the tests.
+     */
+    @Before
+    public void setup() {
+        this.properties = new JobStatusWatchProperties();
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        final TaskScheduler scheduler = Mockito.mock(TaskScheduler.class);
+        // Tell the waiters on the sweeping thread so the tests see it right away
+        this.watcher = new JobStatusWatcher(
+            this.properties,
+            scheduler,
+            this.jobSearchService,
+            new DefaultRegistry(),
+            MoreExecutors.newDirectExecutorService()
+        );
+        Mockito.verify(scheduler, Mockito.times(1)).scheduleWithFixedDelay(this.watcher, 500L);
+        this.jobId = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Make sure a finished job is checked with every sweep until its final status is saved and only the waiters
+     * which didn't know about the status are told.
+     */
+    @Test
+    public void canNotifyOnceFinalStatusIsSaved() {
+        final List<JobStatus> runningWaiter = new ArrayList<>();
+        final List<JobStatus> succeededWaiter = new ArrayList<>();
+        this.mockStatus(JobStatus.RUNNING);
+        this.watcher.watch(this.jobId, JobStatus.RUNNING, runningWaiter::add);
+        this.watcher.watch(this.jobId, JobStatus.SUCCEEDED, succeededWaiter::add);
+
+        // The first sweep polls all the jobs
+        this.watcher.sweep(this.properties.getPollInterval());
+        Assert.assertTrue(runningWaiter.isEmpty());
+        Assert.assertThat(succeededWaiter, Matchers.contains(JobStatus.RUNNING));
+
+        this.watcher.onJobFinished(
+            new JobFinishedEvent(this.jobId, JobFinishedReason.PROCESS_COMPLETED, "done", this)
+        );
+        // Final status not saved yet
+        this.watcher.sweep(this.properties.getPollInterval() + 1L);
+        Assert.assertTrue(runningWaiter.isEmpty());
+
+        this.mockStatus(JobStatus.SUCCEEDED);
+        this.watcher.sweep(this.properties.getPollInterval() + 2L);
+        Assert.assertThat(runningWaiter, Matchers.contains(JobStatus.SUCCEEDED));
+        Assert.assertThat(this.watcher.getNumWatched(), Matchers.is(0));
+
+        this.watcher.sweep(this.properties.getPollInterval() * 2L);
+        Mockito
+            .verify(this.jobSearchService, Mockito.times(3))
+            .getJobStatuses(Mockito.anyCollectionOf(String.class));
+    }
+
+    /**
+     * Make sure jobs without events are only checked once every poll interval.
+     */
+    @Test
+    public void canPollJobsWithoutEvents() {
+        final List<JobStatus> waiter = new ArrayList<>();
+        this.mockStatus(JobStatus.INIT);
+        this.watcher.watch(this.jobId, JobStatus.INIT, waiter::add);
+
+        final long start = this.properties.getPollInterval();
+        this.watcher.sweep(start);
+        this.watcher.sweep(start + 1L);
+        Mockito
+            .verify(this.jobSearchService, Mockito.times(1))
+            .getJobStatuses(Mockito.anyCollectionOf(String.class));
+
+        this.mockStatus(JobStatus.RUNNING);
+        this.watcher.sweep(start + this.properties.getPollInterval());
+        Assert.assertThat(waiter, Matchers.contains(JobStatus.RUNNING));
+    }
+
+    /**
+     * Make sure a waiter which stopped waiting is never told and the job is no longer checked.
+     */
+    @Test
+    public void canStopWatching() {
+        final List<JobStatus> waiter = new ArrayList<>();
+        this.watcher.watch(this.jobId, JobStatus.RUNNING, waiter::add).run();
+        Assert.assertThat(this.watcher.getNumWatched(), Matchers.is(0));
+
+        this.watcher.sweep(this.properties.getPollInterval());
+        Assert.assertTrue(waiter.isEmpty());
+        Mockito
+            .verify(this.jobSearchService, Mockito.never())
+            .getJobStatuses(Mockito.anyCollectionOf(String.class));
+    }
+
+    /**
+     * Make sure the waiters are told on the notifier threads and not on the thread running the sweeps.
+     *
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canNotifyOffTheSweepingThread() throws InterruptedException {
+        final JobStatusWatcher pooledWatcher = new JobStatusWatcher(
+            this.properties,
+            Mockito.mock(TaskScheduler.class),
+            this.jobSearchService,
+            new DefaultRegistry()
+        );
+        try {
+            final CountDownLatch notified = new CountDownLatch(1);
+            final AtomicReference<String> notifyingThread = new AtomicReference<>();
+            this.mockStatus(JobStatus.RUNNING);
+            pooledWatcher.watch(
+                this.jobId,
+                JobStatus.INIT,
+                status -> {
+                    notifyingThread.set(Thread.currentThread().getName());
+                    notified.countDown();
+                }
+            );
+
+            pooledWatcher.sweep(this.properties.getPollInterval());
+            Assert.assertTrue(notified.await(10, TimeUnit.SECONDS));
+            Assert.assertThat(notifyingThread.get(), Matchers.startsWith("genie-job-status-notifier-"));
+        } finally {
+            pooledWatcher.shutdown();
+        }
+    }
+
+    private void mockStatus(final JobStatus status) {
+        Mockito
+            .when(this.jobSearchService.getJobStatuses(Mockito.anyCollectionOf(String.class)))
+            .thenReturn(ImmutableMap.of(this.jobId, status));
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.node;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.Application;
+import com.netflix.genie.common.dto.ApplicationStatus;
+import com.netflix.genie.common.dto.Cluster;
+import com.netflix.genie.common.dto.ClusterStatus;
+import com.netflix.genie.common.dto.Command;
+import com.netflix.genie.common.dto.CommandStatus;
+import com.netflix.genie.common.exceptions.GenieException;
+import com.netflix.genie.common.exceptions.GeniePreconditionException;
+import com.netflix.genie.common.exceptions.GenieServerException;
+import com.netflix.genie.core.services.ApplicationService;
+import com.netflix.genie.core.services.ClusterService;
+import com.netflix.genie.core.services.CommandService;
+import com.netflix.genie.core.services.impl.CacheGenieFileTransferService;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.genie.web.properties.DependencyPrefetchProperties;
+import com.netflix.spectator.api.DefaultRegistry;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Unit tests for the dependency prefetch task.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class DependencyPrefetchTaskUnitTests {
+
+    private DependencyPrefetchProperties properties;
+    private TaskScheduler scheduler;
+    private ClusterService clusterService;
+    private CommandService commandService;
+    private ApplicationService applicationService;
+    private CacheGenieFileTransferService fileTransferService;
+    private DependencyPrefetchTask task;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws GeniePreconditionException on error
+     */
+    @Before
+    public void setup() throws GeniePreconditionException {
+        this.properties = new DependencyPrefetchProperties();
+        this.scheduler = Mockito.mock(TaskScheduler.class);
+        this.clusterService = Mockito.mock(ClusterService.class);
+        this.commandService = Mockito.mock(CommandService.class);
+        this.applicationService = Mockito.mock(ApplicationService.class);
+        this.fileTransferService = Mockito.mock(CacheGenieFileTransferService.class);
+
+        Mockito
+            .when(
+                this.clusterService.getClusters(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList()));
+        Mockito
+            .when(
+                this.commandService.getCommands(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList()));
+        Mockito
+            .when(
+                this.applicationService.getApplications(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList()));
+
+        this.task = this.createTask();
+    }
+
+    /**
+     * Make sure the task schedules itself.
+     */
+    @Test
+    public void willSchedule() {
+        Mockito.verify(this.scheduler, Mockito.times(1)).scheduleWithFixedDelay(this.task, this.properties.getRate());
+    }
+
+    /**
+     * Make sure the task refuses a rate limit which isn't positive.
+     *
+     * @throws GeniePreconditionException on invalid rate
+     */
+    @Test(expected = GeniePreconditionException.class)
+    public void cantConstructWithInvalidRateLimit() throws GeniePreconditionException {
+        this.properties.setMaxFilesPerSecond(0.0D);
+        this.createTask();
+    }
+
+    /**
+     * Make sure the first run prefetches the files of all the clusters, commands and active applications.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canPrefetchEverythingOnFirstRun() throws GenieException {
+        final Date old = new Date(0L);
+        final Cluster cluster = new Cluster.Builder(UUID.randomUUID().toString(), "user", "1.0", ClusterStatus.UP)
+            .withId(UUID.randomUUID().toString())
+            .withUpdated(old)
+            .withSetupFile("s3://cluster/setup.sh")
+            .withConfigs(Sets.newHashSet("s3://cluster/core-site.xml"))
+            .withDependencies(Sets.newHashSet("s3://shared/lib.jar"))
+            .build();
+        final Command command = this.createCommand(old, "s3://command/run.sh", "s3://shared/lib.jar");
+        final Application activeApp = this.createApplication(ApplicationStatus.ACTIVE, old, "s3://app/active.tgz");
+        final Application inactiveApp = this.createApplication(
+            ApplicationStatus.INACTIVE,
+            old,
+            "s3://app/inactive.tgz"
+        );
+
+        Mockito
+            .when(
+                this.clusterService.getClusters(
+                    Mockito.any(),
+                    Mockito.eq(Sets.newHashSet(ClusterStatus.UP)),
+                    Mockito.eq(this.properties.getTags()),
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(cluster)));
+        Mockito
+            .when(
+                this.commandService.getCommands(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.eq(Sets.newHashSet(CommandStatus.ACTIVE)),
+                    Mockito.eq(this.properties.getTags()),
+                    Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(command)));
+        Mockito
+            .when(this.commandService.getApplicationsForCommand(command.getId().orElseThrow(IllegalStateException::new)))
+            .thenReturn(Lists.newArrayList(activeApp, inactiveApp));
+
+        final Set<String> files = this.task.findFiles(null);
+        Assert.assertThat(
+            files,
+            Matchers.containsInAnyOrder(
+                "s3://cluster/setup.sh",
+                "s3://cluster/core-site.xml",
+                "s3://shared/lib.jar",
+                "s3://command/run.sh",
+                "s3://app/active.tgz"
+            )
+        );
+
+        this.task.run();
+        for (final String file : files) {
+            Mockito.verify(this.fileTransferService, Mockito.times(1)).prefetchFile(file);
+        }
+        Mockito.verify(this.fileTransferService, Mockito.never()).prefetchFile("s3://app/inactive.tgz");
+        // Applications are only looked at on their own after the first run
+        Mockito
+            .verify(this.applicationService, Mockito.never())
+            .getApplications(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Make sure later runs only prefetch resources updated since the last run.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canPrefetchOnlyUpdatedResources() throws GenieException {
+        final Date since = new Date();
+        final Date old = new Date(since.getTime() - 100_000L);
+        final Date recent = new Date(since.getTime() + 100_000L);
+        final Command oldCommand = this.createCommand(old, "s3://command/old.sh");
+        final Command newCommand = this.createCommand(recent, "s3://command/new.sh");
+        final String oldCommandId = oldCommand.getId().orElseThrow(IllegalStateException::new);
+        final Application usedApp = this.createApplication(ApplicationStatus.ACTIVE, recent, "s3://app/used.tgz");
+        final Application unusedApp = this.createApplication(ApplicationStatus.ACTIVE, recent, "s3://app/unused.tgz");
+        final Application oldApp = this.createApplication(ApplicationStatus.ACTIVE, old, "s3://app/old.tgz");
+
+        Mockito
+            .when(
+                this.commandService.getCommands(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(oldCommand, newCommand)));
+        Mockito
+            .when(
+                this.applicationService.getApplications(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(usedApp, unusedApp, oldApp)));
+        Mockito
+            .when(
+                this.applicationService.getCommandsForApplication(
+                    Mockito.eq(usedApp.getId().orElseThrow(IllegalStateException::new)),
+                    Mockito.any()
+                )
+            )
+            .thenReturn(Sets.newHashSet(oldCommand));
+        Mockito
+            .when(
+                this.applicationService.getCommandsForApplication(
+                    Mockito.eq(unusedApp.getId().orElseThrow(IllegalStateException::new)),
+                    Mockito.any()
+                )
+            )
+            .thenReturn(Sets.newHashSet());
+
+        final Set<String> files = this.task.findFiles(since);
+        Assert.assertThat(files, Matchers.containsInAnyOrder("s3://command/new.sh", "s3://app/used.tgz"));
+        Mockito.verify(this.commandService, Mockito.never()).getApplicationsForCommand(oldCommandId);
+        Mockito
+            .verify(this.clusterService, Mockito.times(1))
+            .getClusters(
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.any(),
+                Mockito.eq(since),
+                Mockito.any(),
+                Mockito.any()
+            );
+    }
+
+    /**
+     * Make sure a failure to prefetch one file doesn't stop the others from being prefetched.
+     *
+     * @throws GenieException on error
+     */
+    @Test
+    public void canContinueAfterFailedPrefetch() throws GenieException {
+        final Command command = this.createCommand(new Date(), "s3://command/bad.sh", "s3://command/good.jar");
+        Mockito
+            .when(
+                this.commandService.getCommands(
+                    Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)
+                )
+            )
+            .thenReturn(new PageImpl<>(Lists.newArrayList(command)));
+        Mockito
+            .doThrow(new GenieServerException("bad"))
+            .when(this.fileTransferService)
+            .prefetchFile("s3://command/bad.sh");
+
+        this.task.run();
+        Mockito.verify(this.fileTransferService, Mockito.times(1)).prefetchFile("s3://command/good.jar");
+    }
+
+    private DependencyPrefetchTask createTask() throws GeniePreconditionException {
+        return new DependencyPrefetchTask(
+            this.properties,
+            this.scheduler,
+            this.clusterService,
+            this.commandService,
+            this.applicationService,
+            this.fileTransferService,
+            new DefaultRegistry()
+        );
+    }
+
+    private Command createCommand(final Date updated, final String setupFile, final String... dependencies) {
+        return new Command.Builder(UUID.randomUUID().toString(), "user", "1.0", CommandStatus.ACTIVE, "run", 1000L)
+            .withId(UUID.randomUUID().toString())
+            .withUpdated(updated)
+            .withSetupFile(setupFile)
+            .withDependencies(Sets.newHashSet(dependencies))
+            .build();
+    }
+
+    private Application createApplication(
+        final ApplicationStatus status,
+        final Date updated,
+        final String dependency
+    ) {
+        return new Application.Builder(UUID.randomUUID().toString(), "user", "1.0", status)
+            .withId(UUID.randomUUID().toString())
+            .withUpdated(updated)
+            .withDependencies(Sets.newHashSet(dependency))
+            .build();
+    }
+}
@@ -17,18 +17,21 @@
  */
 package com.netflix.genie.web.tasks.node;
 
+import com.google.common.collect.Lists;
 import com.netflix.genie.common.dto.Job;
 import com.netflix.genie.common.dto.JobStatus;
 import com.netflix.genie.common.exceptions.GenieException;
 import com.netflix.genie.common.exceptions.GenieServerException;
 import com.netflix.genie.core.properties.JobsProperties;
 import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.PrivilegedOperation;
+import com.netflix.genie.core.services.PrivilegedOperationService;
 import com.netflix.genie.test.categories.UnitTest;
 import com.netflix.genie.web.properties.DiskCleanupProperties;
 import com.netflix.genie.web.tasks.TaskUtils;
 import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.DefaultRegistry;
 import com.netflix.spectator.api.Registry;
-import org.apache.commons.exec.Executor;
 import org.apache.commons.lang3.SystemUtils;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -37,6 +40,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.core.io.Resource;
 import org.springframework.scheduling.TaskScheduler;
@@ -46,6 +50,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
@@ -83,7 +88,7 @@ public class DiskCleanupTaskUnitTests {
                 jobsDir,
                 Mockito.mock(JobSearchService.class),
                 properties,
-                Mockito.mock(Executor.class),
+                Mockito.mock(PrivilegedOperationService.class),
                 Mockito.mock(Registry.class)
             )
         );
@@ -107,7 +112,7 @@ public class DiskCleanupTaskUnitTests {
                 jobsDir,
                 Mockito.mock(JobSearchService.class),
                 new JobsProperties(),
-                Mockito.mock(Executor.class),
+                Mockito.mock(PrivilegedOperationService.class),
                 Mockito.mock(Registry.class)
             )
         );
@@ -132,7 +137,7 @@ public class DiskCleanupTaskUnitTests {
                 jobsDir,
                 Mockito.mock(JobSearchService.class),
                 new JobsProperties(),
-                Mockito.mock(Executor.class),
+                Mockito.mock(PrivilegedOperationService.class),
                 Mockito.mock(Registry.class)
             )
         );
@@ -159,7 +164,7 @@ public class DiskCleanupTaskUnitTests {
                 jobsDir,
                 Mockito.mock(JobSearchService.class),
                 properties,
-                Mockito.mock(Executor.class),
+                Mockito.mock(PrivilegedOperationService.class),
                 Mockito.mock(Registry.class)
             )
         );
@@ -248,7 +253,7 @@ public class DiskCleanupTaskUnitTests {
             jobDir,
             jobSearchService,
             jobsProperties,
-            Mockito.mock(Executor.class),
+            Mockito.mock(PrivilegedOperationService.class),
             registry
         );
         Assert.assertThat(numberOfDeletedJobDirs.get(), Matchers.is(0L));
@@ -263,6 +268,62 @@ public class DiskCleanupTaskUnitTests {
         Assert.assertTrue(new File(jobDir.getFile(), job5Id).exists());
     }
 
+    /**
+     * Make sure the directories of jobs run as their user are deleted in a single privileged batch.
+     *
+     * @throws IOException    on error
+     * @throws GenieException on error
+     */
+    @Test
+    public void canDeleteAsUserInOneBatch() throws IOException, GenieException {
+        final JobsProperties jobsProperties = new JobsProperties();
+        jobsProperties.getUsers().setRunAsUserEnabled(true);
+        final DiskCleanupProperties properties = new DiskCleanupProperties();
+        final Calendar cal = TaskUtils.getMidnightUTC();
+        TaskUtils.subtractDaysFromDate(cal, properties.getRetention());
+        final Date old = new Date(cal.getTimeInMillis() - 1);
+
+        final String job1Id = UUID.randomUUID().toString();
+        final String job2Id = UUID.randomUUID().toString();
+        final File job1Dir = this.tmpJobDir.newFolder(job1Id);
+        final File job2Dir = this.tmpJobDir.newFolder(job2Id);
+        final Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getStatus()).thenReturn(JobStatus.SUCCEEDED);
+        Mockito.when(job.getFinished()).thenReturn(Optional.of(old));
+        final JobSearchService jobSearchService = Mockito.mock(JobSearchService.class);
+        Mockito.when(jobSearchService.getJob(Mockito.anyString())).thenReturn(job);
+
+        final Resource jobDir = Mockito.mock(Resource.class);
+        Mockito.when(jobDir.exists()).thenReturn(true);
+        Mockito.when(jobDir.getFile()).thenReturn(this.tmpJobDir.getRoot());
+        final PrivilegedOperationService privilegedOperationService = Mockito.mock(PrivilegedOperationService.class);
+        Mockito
+            .when(privilegedOperationService.execute(Mockito.anyListOf(PrivilegedOperation.class)))
+            .thenReturn(Lists.newArrayList(0, 0));
+
+        final DiskCleanupTask task = new DiskCleanupTask(
+            properties,
+            Mockito.mock(TaskScheduler.class),
+            jobDir,
+            jobSearchService,
+            jobsProperties,
+            privilegedOperationService,
+            new DefaultRegistry()
+        );
+        task.run();
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<PrivilegedOperation>> captor = ArgumentCaptor.forClass((Class) List.class);
+        Mockito.verify(privilegedOperationService, Mockito.times(1)).execute(captor.capture());
+        Assert.assertThat(
+            captor.getValue(),
+            Matchers.containsInAnyOrder(
+                PrivilegedOperation.delete(job1Dir.getAbsolutePath()),
+                PrivilegedOperation.delete(job2Dir.getAbsolutePath())
+            )
+        );
+    }
+
     private void createJobDir(final String id) throws IOException {
         final File dir = this.tmpJobDir.newFolder(id);
 
@@ -0,0 +1,279 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.genie.web.tasks.node;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.netflix.genie.common.dto.JobStatus;
+import com.netflix.genie.core.events.JobFinishedEvent;
+import com.netflix.genie.core.events.JobFinishedReason;
+import com.netflix.genie.core.events.JobScheduledEvent;
+import com.netflix.genie.core.jobs.JobSearchSnapshot;
+import com.netflix.genie.core.properties.JobsProperties;
+import com.netflix.genie.core.services.JobSearchService;
+import com.netflix.genie.core.services.impl.JobSearchIndex;
+import com.netflix.genie.test.categories.UnitTest;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for JobSearchIndexTask.
+ *
+ * @author tgianos
+ * @since 3.2.0
+ */
+@Category(UnitTest.class)
+public class JobSearchIndexTaskUnitTests {
+
+    private static final int BATCH_SIZE = 2;
+
+    /**
+     * Temporary folder that will be deleted at the end of tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JobsProperties jobsProperties;
+    private TaskScheduler scheduler;
+    private JobSearchIndex index;
+    private JobSearchService jobSearchService;
+    private Registry registry;
+    private JobSearchIndexTask task;
+
+    /**
+     * Setup for the tests.
+     *
+     * @throws IOException on error
+     */
+    @Before
+    public void setup() throws IOException {
+        this.jobsProperties = new JobsProperties();
+        this.jobsProperties.getSearch().getIndex().setBatchSize(BATCH_SIZE);
+        this.scheduler = Mockito.mock(TaskScheduler.class);
+        this.index = new JobSearchIndex(this.folder.getRoot());
+        this.jobSearchService = Mockito.mock(JobSearchService.class);
+        Mockito
+            .when(
+                this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(
+                    Mockito.any(),
+                    Mockito.any(),
+                    Mockito.anyInt()
+                )
+            )
+            .thenReturn(Collections.emptyList());
+        this.registry = new DefaultRegistry();
+        this.task = new JobSearchIndexTask(
+            this.jobsProperties,
+            this.scheduler,
+            this.index,
+            this.jobSearchService,
+            this.registry
+        );
+    }
+
+    /**
+     * Cleanup after the tests.
+     *
+     * @throws IOException on error
+     */
+    @After
+    public void cleanup() throws IOException {
+        this.task.shutdown();
+        this.index.close();
+    }
+
+    /**
+     * Make sure the index is built from the database in batches on the first pass and the passes are scheduled.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canBuildIndexOnFirstPass() throws IOException {
+        Mockito.verify(this.scheduler, Mockito.times(1)).scheduleWithFixedDelay(this.task, 1_000L);
+        final JobSearchSnapshot job2 = job("job2", JobStatus.RUNNING, 2L);
+        Mockito
+            .when(this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(new Date(0L), "", BATCH_SIZE))
+            .thenReturn(Lists.newArrayList(job("job1", JobStatus.RUNNING, 1L), job2));
+        Mockito
+            .when(this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(job2.getUpdated(), "job2", BATCH_SIZE))
+            .thenReturn(Lists.newArrayList(job("job3", JobStatus.RUNNING, 3L)));
+
+        final long start = System.currentTimeMillis();
+        this.task.pass();
+        Assert.assertThat(this.index.getNumJobs(), Matchers.is(3));
+        Assert.assertThat(this.index.getIndexedUntil().getAsLong(), Matchers.greaterThanOrEqualTo(start));
+        Assert.assertThat(
+            this.registry.counter("genie.jobs.search.index.indexedJobs.rate").count(),
+            Matchers.is(3L)
+        );
+        Assert.assertThat(
+            this.registry.timer(
+                this.registry
+                    .createId("genie.jobs.search.index.rebuild.timer")
+                    .withTag("status", "success")
+            ).count(),
+            Matchers.is(1L)
+        );
+    }
+
+    /**
+     * Make sure the jobs of events are indexed with the next pass and finished jobs until their final status is saved.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canIndexJobEvents() throws IOException {
+        this.task.pass();
+        Mockito
+            .when(this.jobSearchService.getJobSearchSnapshots(Lists.newArrayList("job1")))
+            .thenReturn(Lists.newArrayList(job("job1", JobStatus.INIT, 1L)))
+            .thenReturn(Lists.newArrayList(job("job1", JobStatus.RUNNING, 1L)))
+            .thenReturn(Lists.newArrayList(job("job1", JobStatus.SUCCEEDED, 1L)));
+
+        this.task.onJobEvent(new JobScheduledEvent("job1", Mockito.mock(Future.class), 1024, this));
+        this.task.pass();
+        Assert.assertThat(this.index.getNumJobs(), Matchers.is(1));
+
+        this.task.onJobEvent(new JobFinishedEvent("job1", JobFinishedReason.PROCESS_COMPLETED, "done", this));
+        this.task.pass();
+        this.task.pass();
+        this.task.pass();
+        Mockito.verify(this.jobSearchService, Mockito.times(3)).getJobSearchSnapshots(Mockito.any());
+        Assert.assertThat(
+            this.registry.timer("genie.jobs.search.index.eventLag.timer").count(),
+            Matchers.is(2L)
+        );
+    }
+
+    /**
+     * Make sure the scheduled run only hands the pass over to the indexer thread.
+     *
+     * @throws IOException          on error
+     * @throws InterruptedException on error
+     */
+    @Test
+    public void canRunPassesOffTheSchedulerThread() throws IOException, InterruptedException {
+        final CountDownLatch passStarted = new CountDownLatch(1);
+        final CountDownLatch releasePass = new CountDownLatch(1);
+        final AtomicReference<String> passThread = new AtomicReference<>();
+        Mockito
+            .when(this.jobSearchService.getJobSearchSnapshotsUpdatedAfter(new Date(0L), "", BATCH_SIZE))
+            .then(
+                invocation -> {
+                    passThread.set(Thread.currentThread().getName());
+                    passStarted.countDown();
+                    releasePass.await();
+                    return Collections.emptyList();
+                }
+            );
+
+        this.task.run();
+        Assert.assertTrue(passStarted.await(10, TimeUnit.SECONDS));
+        Assert.assertThat(passThread.get(), Matchers.startsWith("genie-job-search-indexer-"));
+
+        // A pass still in progress isn't queued again
+        this.task.run();
+        releasePass.countDown();
+        final long deadline = System.currentTimeMillis() + 10_000L;
+        while (!this.index.getIndexedUntil().isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assert.assertTrue(this.index.getIndexedUntil().isPresent());
+        Mockito
+            .verify(this.jobSearchService, Mockito.times(1))
+            .getJobSearchSnapshotsUpdatedAfter(new Date(0L), "", BATCH_SIZE);
+    }
+
+    /**
+     * Make sure a requested rebuild happens with the next pass.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canRebuildOnRequest() throws IOException {
+        this.task.pass();
+        this.task.requestRebuild();
+        Assert.assertTrue(this.task.isRebuildRequested());
+        this.task.pass();
+        Assert.assertFalse(this.task.isRebuildRequested());
+        Mockito
+            .verify(this.jobSearchService, Mockito.times(2))
+            .getJobSearchSnapshotsUpdatedAfter(new Date(0L), "", BATCH_SIZE);
+    }
+
+    /**
+     * Make sure a node which doesn't write to the index only refreshes it.
+     *
+     * @throws IOException on error
+     */
+    @Test
+    public void canOnlyReadIndexOfOtherNode() throws IOException {
+        this.index.update(Lists.newArrayList(job("job1", JobStatus.RUNNING, 1L)));
+        this.index.commit(System.currentTimeMillis());
+        try (JobSearchIndex readOnlyIndex = new JobSearchIndex(this.folder.getRoot())) {
+            final JobSearchService readOnlyService = Mockito.mock(JobSearchService.class);
+            final JobSearchIndexTask readOnlyTask = new JobSearchIndexTask(
+                this.jobsProperties,
+                this.scheduler,
+                readOnlyIndex,
+                readOnlyService,
+                this.registry
+            );
+            readOnlyTask.onJobEvent(new JobScheduledEvent("job2", Mockito.mock(Future.class), 1024, this));
+            readOnlyTask.pass();
+            Assert.assertThat(readOnlyIndex.getNumJobs(), Matchers.is(1));
+            Mockito.verifyZeroInteractions(readOnlyService);
+        }
+    }
+
+    private static JobSearchSnapshot job(final String id, final JobStatus status, final long updated) {
+        return new JobSearchSnapshot(
+            id,
+            "hive-etl",
+            "tgianos",
+            status,
+            Sets.newHashSet("genie.id:" + id),
+            null,
+            null,
+            null,
+            null,
+            new Date(updated),
+            new Date(updated),
+            null,
+            null
+        );
+    }
+}